@@ -0,0 +1,95 @@
+package escuelaing.edu.co.benchmarks;
+
+import escuelaing.edu.co.BPlusTree;
+import escuelaing.edu.co.BinarySearchTree;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups, updates and full in-order scans of the B+-tree at several fanouts against the
+ * AVL-balanced node tree on the same integer key set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BPlusTreeBenchmark {
+    private static final int PROBES = 1 << 16;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"RANDOM", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    @Param({"8", "32", "128"})
+    public int fanout;
+
+    private BinarySearchTree<Integer> binary;
+    private BPlusTree<Integer> bplus;
+    private Integer[] probes;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] keys = distribution.keys(size, 42);
+        int[] rawProbes = distribution.probes(keys, PROBES, 43);
+        probes = new Integer[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = rawProbes[i];
+        }
+
+        binary = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        bplus = new BPlusTree<>(fanout);
+        for (int key : keys) {
+            binary.add(key);
+            bplus.add(key);
+        }
+    }
+
+    private int next() {
+        return cursor++ & (PROBES - 1);
+    }
+
+    @Benchmark
+    public boolean binaryContains() {
+        return binary.contains(probes[next()]);
+    }
+
+    @Benchmark
+    public boolean bplusContains() {
+        return bplus.contains(probes[next()]);
+    }
+
+    @Benchmark
+    public boolean binaryRemoveThenAdd() {
+        Integer key = probes[next()];
+        return binary.remove(key) & binary.add(key);
+    }
+
+    @Benchmark
+    public boolean bplusRemoveThenAdd() {
+        Integer key = probes[next()];
+        return bplus.remove(key) & bplus.add(key);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void binaryScan(Blackhole blackhole) {
+        for (Integer value : binary) {
+            blackhole.consume(value);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void bplusScan(Blackhole blackhole) {
+        for (Integer value : bplus) {
+            blackhole.consume(value);
+        }
+    }
+}
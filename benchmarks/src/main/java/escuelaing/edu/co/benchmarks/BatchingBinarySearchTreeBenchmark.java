@@ -0,0 +1,83 @@
+package escuelaing.edu.co.benchmarks;
+
+import escuelaing.edu.co.BatchingBinarySearchTree;
+import escuelaing.edu.co.BinarySearchTree;
+import escuelaing.edu.co.ConcurrentBinarySearchTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-heavy throughput of {@link BatchingBinarySearchTree}, whose producers only queue
+ * their mutations, against {@link ConcurrentBinarySearchTree}, whose writers take the write
+ * lock. The bounded queue makes producers wait for the writer, so the batching score is the
+ * rate the writer sustains. Scale the thread count with {@code -t}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BatchingBinarySearchTreeBenchmark {
+    public enum Implementation {
+        BATCHING,
+        CONCURRENT
+    }
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"10", "50"})
+    public int readPercent;
+
+    @Param({"BATCHING", "CONCURRENT"})
+    public Implementation implementation;
+
+    private BatchingBinarySearchTree<Integer> batching;
+    private ConcurrentBinarySearchTree<Integer> concurrent;
+
+    @Setup(Level.Trial)
+    public void setUp() throws InterruptedException {
+        if (implementation == Implementation.BATCHING) {
+            batching = new BatchingBinarySearchTree<>();
+            for (int i = 0; i < size; i++) {
+                batching.add(2 * i);
+            }
+            batching.add(0).join();
+        } else {
+            concurrent = new ConcurrentBinarySearchTree<>();
+            for (int i = 0; i < size; i++) {
+                concurrent.add(2 * i);
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        if (batching != null) {
+            batching.close();
+        }
+    }
+
+    @Benchmark
+    public Object mixed() throws InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(2 * size);
+        boolean read = random.nextInt(100) < readPercent;
+        // Odd keys come and go, even keys stay, so the size stays around its initial value.
+        key |= 1;
+        boolean add = random.nextBoolean();
+        if (implementation == Implementation.BATCHING) {
+            if (read) {
+                return batching.contains(key);
+            }
+            return add ? batching.add(key) : batching.remove(key);
+        }
+        if (read) {
+            return concurrent.contains(key);
+        }
+        return add ? concurrent.add(key) : concurrent.remove(key);
+    }
+}
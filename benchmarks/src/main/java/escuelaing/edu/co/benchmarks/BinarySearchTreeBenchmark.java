@@ -0,0 +1,139 @@
+package escuelaing.edu.co.benchmarks;
+
+import escuelaing.edu.co.BinarySearchTree;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the main {@link BinarySearchTree} operations across tree sizes, key
+ * distributions and key types. Run with {@code -prof gc} to get the allocation rate.
+ * <p>
+ * Only the AVL mode is enabled by default: an unbalanced tree built from sorted keys takes
+ * quadratic time to set up at the larger sizes. {@link DeepTreeBenchmark} covers that
+ * degenerate case.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+@SuppressWarnings({"rawtypes", "unchecked"})
+public class BinarySearchTreeBenchmark {
+    private static final int PROBES = 1 << 16;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"RANDOM", "SORTED", "REVERSE_SORTED", "ZIPFIAN", "CLUSTERED"})
+    public KeyDistribution distribution;
+
+    @Param({"INTEGER", "STRING"})
+    public KeyType keyType;
+
+    @Param({"AVL"})
+    public BinarySearchTree.Balancing balancing;
+
+    private BinarySearchTree tree;
+    private Comparable[] keys;
+    private Comparable[] hits;
+    private Comparable[] misses;
+    private List<Comparable> keyList;
+    private List<Comparable> traversal;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] values = distribution.keys(size, 42);
+        int[] probes = distribution.probes(values, PROBES, 43);
+        int[] missValues = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            missValues[i] = probes[i] + 1;
+        }
+
+        keys = keyType.keys(values);
+        hits = keyType.keys(probes);
+        misses = keyType.keys(missValues);
+        keyList = Arrays.asList(keys);
+        traversal = new ArrayList<>(size);
+
+        tree = new BinarySearchTree(balancing);
+        for (Comparable key : keys) {
+            tree.add(key);
+        }
+    }
+
+    private int next() {
+        return cursor++ & (PROBES - 1);
+    }
+
+    @Benchmark
+    public Object searchHit() {
+        return tree.search(hits[next()]);
+    }
+
+    @Benchmark
+    public Object searchMiss() {
+        return tree.search(misses[next()]);
+    }
+
+    @Benchmark
+    public boolean containsHit() {
+        return tree.contains(hits[next()]);
+    }
+
+    /**
+     * Adds a missing key and removes it again so that the tree keeps its size.
+     */
+    @Benchmark
+    public boolean addThenRemove() {
+        Comparable key = misses[next()];
+        return tree.add(key) & tree.remove(key);
+    }
+
+    /**
+     * Removes a present key and adds it back so that the tree keeps its size.
+     */
+    @Benchmark
+    public boolean removeThenAdd() {
+        Comparable key = hits[next()];
+        return tree.remove(key) & tree.add(key);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iterator(Blackhole blackhole) {
+        for (Object key : tree) {
+            blackhole.consume(key);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int inOrderTraversal() {
+        traversal.clear();
+        tree.inOrderTraversal(traversal);
+        return traversal.size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int levelOrderTraversal() {
+        return tree.levelOrderTraversal().size();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int addAll() {
+        BinarySearchTree loaded = new BinarySearchTree(balancing);
+        loaded.addAll(keyList);
+        return loaded.size();
+    }
+}
@@ -0,0 +1,58 @@
+package escuelaing.edu.co.benchmarks;
+
+import escuelaing.edu.co.BinarySearchTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Miss-heavy {@code contains} traces with and without the Bloom filter in front of the tree.
+ * The keys are even, so the odd probes are misses that end at a leaf without the filter.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BloomFilterBenchmark {
+    private static final int PROBES = 1 << 16;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"20"})
+    public int hitPercent;
+
+    @Param({"false", "true"})
+    public boolean filter;
+
+    private BinarySearchTree<Integer> tree;
+    private Integer[] probes;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] keys = KeyDistribution.RANDOM.keys(size, 42);
+        int[] rawProbes = KeyDistribution.RANDOM.probes(keys, PROBES, 43);
+        Random random = new Random(44);
+        probes = new Integer[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = random.nextInt(100) < hitPercent ? rawProbes[i] : rawProbes[i] + 1;
+        }
+
+        tree = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        for (int key : keys) {
+            tree.add(key);
+        }
+        if (filter) {
+            tree.enableBloomFilter(0.01);
+        }
+    }
+
+    @Benchmark
+    public boolean contains() {
+        return tree.contains(probes[cursor++ & (PROBES - 1)]);
+    }
+}
@@ -0,0 +1,65 @@
+package escuelaing.edu.co.benchmarks;
+
+import escuelaing.edu.co.BinarySearchTree;
+import escuelaing.edu.co.ConcurrentBinarySearchTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mixed read/write throughput of {@link ConcurrentBinarySearchTree} against a
+ * {@link BinarySearchTree} behind a global lock. The concurrent tree locks only the key
+ * range a writer touches and reads without locking, so with {@code readPercent} 0 the gap
+ * is what striped writers buy and with 99 what non-blocking reads buy. Scale the thread
+ * count with {@code -t}, e.g. {@code -t 1}, {@code -t 8}, {@code -t 64}; it only means
+ * something on that many cores.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentBinarySearchTreeBenchmark {
+    public enum Implementation {
+        CONCURRENT,
+        SYNCHRONIZED
+    }
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"0", "50", "90", "99"})
+    public int readPercent;
+
+    @Param({"CONCURRENT", "SYNCHRONIZED"})
+    public Implementation implementation;
+
+    private Collection<Integer> tree;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if (implementation == Implementation.CONCURRENT) {
+            tree = new ConcurrentBinarySearchTree<>();
+        } else {
+            tree = Collections.synchronizedCollection(new BinarySearchTree<Integer>(BinarySearchTree.Balancing.AVL));
+        }
+        for (int i = 0; i < size; i++) {
+            tree.add(2 * i);
+        }
+    }
+
+    @Benchmark
+    public boolean mixed() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int key = random.nextInt(2 * size);
+        if (random.nextInt(100) < readPercent) {
+            return tree.contains(key);
+        }
+        // Odd keys come and go, even keys stay, so the size stays around its initial value.
+        return (key & 1) == 1 && (random.nextBoolean() ? tree.add(key) : tree.remove(key));
+    }
+}
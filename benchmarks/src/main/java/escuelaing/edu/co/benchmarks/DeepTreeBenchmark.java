@@ -0,0 +1,85 @@
+package escuelaing.edu.co.benchmarks;
+
+import escuelaing.edu.co.BinarySearchTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Operations on a degenerate tree: an unbalanced tree built from sorted keys is a chain
+ * as deep as it is large, so every operation walks the whole spine. This is the case that
+ * separates the iterative insert, search, delete and traversals from recursive ones, which
+ * pay a call frame per level and overflow the default thread stack on the larger sizes.
+ * <p>
+ * Only constructors and methods that predate the iterative rewrite are used, so the same
+ * benchmark can be run against an older build of the library for comparison.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class DeepTreeBenchmark {
+    @Param({"1000", "5000", "10000", "20000"})
+    public int size;
+
+    @Param({"NONE"})
+    public BinarySearchTree.Balancing balancing;
+
+    private BinarySearchTree<Integer> tree;
+    private Integer deepest;
+    private Integer missing;
+    private List<Integer> traversal;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] keys = KeyDistribution.SORTED.keys(size, 42);
+        tree = new BinarySearchTree<>(balancing);
+        for (int key : keys) {
+            tree.add(key);
+        }
+        deepest = keys[size - 1];
+        missing = deepest + 1;
+        traversal = new ArrayList<>(size);
+    }
+
+    @Benchmark
+    public Integer searchDeepest() {
+        return tree.search(deepest);
+    }
+
+    @Benchmark
+    public boolean containsMiss() {
+        return tree.contains(missing);
+    }
+
+    /**
+     * Appends a key below the deepest leaf and removes it again so that the tree keeps its shape.
+     */
+    @Benchmark
+    public boolean addThenRemoveDeepest() {
+        return tree.add(missing) & tree.remove(missing);
+    }
+
+    @Benchmark
+    public int inOrderTraversal() {
+        traversal.clear();
+        tree.inOrderTraversal(traversal);
+        return traversal.size();
+    }
+
+    @Benchmark
+    public int postOrderTraversal() {
+        traversal.clear();
+        tree.postOrderTraversal(traversal);
+        return traversal.size();
+    }
+
+    @Benchmark
+    public int height() {
+        return tree.height();
+    }
+}
@@ -0,0 +1,74 @@
+package escuelaing.edu.co.benchmarks;
+
+import escuelaing.edu.co.ConcurrentBinarySearchTree;
+import escuelaing.edu.co.DurableBinarySearchTree;
+import escuelaing.edu.co.KeyCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Update throughput of the in-memory concurrent tree against the write-ahead logged tree
+ * in both durability modes. Several writer threads let group commit share each fsync.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class DurableBinarySearchTreeBenchmark {
+    private static final int KEY_RANGE = 1 << 20;
+
+    public enum Mode {
+        IN_MEMORY,
+        SYNC,
+        GROUP
+    }
+
+    @Param({"IN_MEMORY", "SYNC", "GROUP"})
+    public Mode mode;
+
+    private ConcurrentBinarySearchTree<Integer> memory;
+    private DurableBinarySearchTree<Integer> durable;
+    private Path directory;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        if (mode == Mode.IN_MEMORY) {
+            memory = new ConcurrentBinarySearchTree<>();
+        } else {
+            directory = Files.createTempDirectory("wal");
+            durable = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER,
+                    DurableBinarySearchTree.Durability.valueOf(mode.name()));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (durable != null) {
+            durable.close();
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public boolean addOrRemove() {
+        Integer key = ThreadLocalRandom.current().nextInt(KEY_RANGE);
+        if (memory != null) {
+            return memory.add(key) || memory.remove(key);
+        }
+        return durable.add(key) || durable.remove(key);
+    }
+}
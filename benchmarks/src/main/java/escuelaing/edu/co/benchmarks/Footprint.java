@@ -0,0 +1,71 @@
+package escuelaing.edu.co.benchmarks;
+
+import escuelaing.edu.co.BinarySearchTree;
+import escuelaing.edu.co.IntBinarySearchTree;
+import escuelaing.edu.co.LongBinarySearchTree;
+
+import java.lang.ref.Reference;
+import java.util.function.IntFunction;
+
+/**
+ * Prints the approximate retained heap per key of each tree engine. Run with
+ * {@code java -cp benchmarks/target/benchmarks.jar escuelaing.edu.co.benchmarks.Footprint [size]}.
+ * Boxed keys are cached up front so that only the tree structure is measured.
+ */
+public class Footprint {
+    public static void main(String[] args) {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int[] keys = KeyDistribution.RANDOM.keys(size, 42);
+        Integer[] boxed = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            boxed[i] = keys[i];
+        }
+
+        report("BinarySearchTree<Integer>", size, n -> {
+            BinarySearchTree<Integer> tree = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+            for (Integer key : boxed) {
+                tree.add(key);
+            }
+            return tree;
+        });
+        report("BinarySearchTree<Integer> ARRAY", size, n -> {
+            BinarySearchTree<Integer> tree = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL, false,
+                    BinarySearchTree.Storage.ARRAY);
+            for (Integer key : boxed) {
+                tree.add(key);
+            }
+            return tree;
+        });
+        report("IntBinarySearchTree", size, n -> {
+            IntBinarySearchTree tree = new IntBinarySearchTree(BinarySearchTree.Balancing.AVL);
+            for (int key : keys) {
+                tree.add(key);
+            }
+            return tree;
+        });
+        report("LongBinarySearchTree", size, n -> {
+            LongBinarySearchTree tree = new LongBinarySearchTree(BinarySearchTree.Balancing.AVL);
+            for (int key : keys) {
+                tree.add(key);
+            }
+            return tree;
+        });
+    }
+
+    private static void report(String name, int size, IntFunction<Object> factory) {
+        long before = usedHeap();
+        Object tree = factory.apply(size);
+        long after = usedHeap();
+        System.out.printf("%-32s %8.1f bytes/key%n", name, (after - before) / (double) size);
+        // Keep the tree reachable until after the measurement.
+        Reference.reachabilityFence(tree);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
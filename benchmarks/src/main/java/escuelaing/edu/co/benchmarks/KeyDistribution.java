@@ -0,0 +1,102 @@
+package escuelaing.edu.co.benchmarks;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Orders in which benchmark keys are inserted and looked up. Keys are the even numbers
+ * {@code 0, 2, ..., 2(n - 1)}, so odd numbers are guaranteed misses.
+ */
+public enum KeyDistribution {
+    /** Uniformly shuffled insertions and lookups. */
+    RANDOM,
+    /** Ascending insertions and lookups, the worst case for an unbalanced tree. */
+    SORTED,
+    /** Descending insertions and lookups. */
+    REVERSE_SORTED,
+    /** Shuffled insertions, lookups skewed towards a few keys following Zipf's law (s = 1). */
+    ZIPFIAN,
+    /** Runs of consecutive keys whose start points are shuffled. */
+    CLUSTERED;
+
+    private static final int CLUSTER_LENGTH = 64;
+
+    /**
+     * Returns the {@code n} distinct keys in insertion order.
+     */
+    public int[] keys(int n, long seed) {
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = 2 * i;
+        }
+        Random random = new Random(seed);
+        switch (this) {
+            case SORTED:
+                break;
+            case REVERSE_SORTED:
+                for (int i = 0, j = n - 1; i < j; i++, j--) {
+                    swap(keys, i, j);
+                }
+                break;
+            case CLUSTERED:
+                int clusters = (n + CLUSTER_LENGTH - 1) / CLUSTER_LENGTH;
+                int[] order = new int[clusters];
+                for (int i = 0; i < clusters; i++) {
+                    order[i] = i;
+                }
+                shuffle(order, random);
+                int index = 0;
+                for (int cluster : order) {
+                    for (int i = cluster * CLUSTER_LENGTH; i < Math.min(n, (cluster + 1) * CLUSTER_LENGTH); i++) {
+                        keys[index++] = 2 * i;
+                    }
+                }
+                break;
+            default:
+                shuffle(keys, random);
+        }
+        return keys;
+    }
+
+    /**
+     * Returns {@code count} lookup keys drawn from {@code keys}.
+     */
+    public int[] probes(int[] keys, int count, long seed) {
+        int[] probes = new int[count];
+        Random random = new Random(seed);
+        if (this == ZIPFIAN) {
+            double[] cumulative = new double[keys.length];
+            double total = 0;
+            for (int i = 0; i < keys.length; i++) {
+                total += 1.0 / (i + 1);
+                cumulative[i] = total;
+            }
+            for (int i = 0; i < count; i++) {
+                double target = random.nextDouble() * total;
+                int rank = Arrays.binarySearch(cumulative, target);
+                probes[i] = keys[rank >= 0 ? rank : Math.min(-rank - 1, keys.length - 1)];
+            }
+        } else if (this == RANDOM) {
+            for (int i = 0; i < count; i++) {
+                probes[i] = keys[random.nextInt(keys.length)];
+            }
+        } else {
+            for (int i = 0; i < count; i++) {
+                probes[i] = keys[i % keys.length];
+            }
+        }
+        return probes;
+    }
+
+    private static void shuffle(int[] values, Random random) {
+        for (int i = values.length - 1; i > 0; i--) {
+            swap(values, i, random.nextInt(i + 1));
+        }
+    }
+
+    private static void swap(int[] values, int i, int j) {
+        int tmp = values[i];
+        values[i] = values[j];
+        values[j] = tmp;
+    }
+}
@@ -0,0 +1,31 @@
+package escuelaing.edu.co.benchmarks;
+
+/**
+ * Key classes the benchmarks run with. String keys are zero-padded so that their order
+ * matches the numeric order of the generated keys.
+ */
+public enum KeyType {
+    INTEGER {
+        @Override
+        public Comparable<?> key(int value) {
+            return value;
+        }
+    },
+    STRING {
+        @Override
+        public Comparable<?> key(int value) {
+            return String.format("key-%010d", value);
+        }
+    };
+
+    public abstract Comparable<?> key(int value);
+
+    @SuppressWarnings("rawtypes")
+    public Comparable[] keys(int[] values) {
+        Comparable[] keys = new Comparable[values.length];
+        for (int i = 0; i < values.length; i++) {
+            keys[i] = key(values[i]);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,63 @@
+package escuelaing.edu.co.benchmarks;
+
+import escuelaing.edu.co.BinarySearchTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups on uniform and Zipf-skewed traces for each balancing mode, including the
+ * semi-splay mode whose searches restructure the tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SplayBenchmark {
+    private static final int PROBES = 1 << 16;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"RANDOM", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    @Param({"NONE", "AVL", "SPLAY"})
+    public BinarySearchTree.Balancing balancing;
+
+    private BinarySearchTree<Integer> tree;
+    private Integer[] probes;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] keys = distribution.keys(size, 42);
+        int[] rawProbes = distribution.probes(keys, PROBES, 43);
+        probes = new Integer[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            probes[i] = rawProbes[i];
+        }
+
+        tree = new BinarySearchTree<>(balancing);
+        for (int key : keys) {
+            tree.add(key);
+        }
+    }
+
+    private int next() {
+        return cursor++ & (PROBES - 1);
+    }
+
+    @Benchmark
+    public Integer search() {
+        return tree.search(probes[next()]);
+    }
+
+    @Benchmark
+    public boolean removeThenAdd() {
+        Integer key = probes[next()];
+        return tree.remove(key) & tree.add(key);
+    }
+}
@@ -0,0 +1,99 @@
+package escuelaing.edu.co.benchmarks;
+
+import escuelaing.edu.co.BinarySearchTree;
+import escuelaing.edu.co.IntBinarySearchTree;
+import escuelaing.edu.co.LongBinarySearchTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup and update latency of the generic tree, with linked and with array node storage,
+ * against the primitive trees on identical AVL-balanced integer key sets.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class StorageEngineBenchmark {
+    private static final int PROBES = 1 << 16;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"RANDOM", "ZIPFIAN"})
+    public KeyDistribution distribution;
+
+    private BinarySearchTree<Integer> generic;
+    private IntBinarySearchTree ints;
+    private LongBinarySearchTree longs;
+    private BinarySearchTree<Integer> arrays;
+    private int[] probes;
+    private Integer[] boxedProbes;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] keys = distribution.keys(size, 42);
+        probes = distribution.probes(keys, PROBES, 43);
+        boxedProbes = new Integer[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            boxedProbes[i] = probes[i];
+        }
+
+        generic = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        ints = new IntBinarySearchTree(BinarySearchTree.Balancing.AVL);
+        longs = new LongBinarySearchTree(BinarySearchTree.Balancing.AVL);
+        arrays = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL, false, BinarySearchTree.Storage.ARRAY);
+        for (int key : keys) {
+            generic.add(key);
+            ints.add(key);
+            longs.add(key);
+            arrays.add(key);
+        }
+    }
+
+    private int next() {
+        return cursor++ & (PROBES - 1);
+    }
+
+    @Benchmark
+    public boolean genericContains() {
+        return generic.contains(boxedProbes[next()]);
+    }
+
+    @Benchmark
+    public boolean intContains() {
+        return ints.contains(probes[next()]);
+    }
+
+    @Benchmark
+    public boolean longContains() {
+        return longs.contains(probes[next()]);
+    }
+
+    @Benchmark
+    public boolean arrayContains() {
+        return arrays.contains(boxedProbes[next()]);
+    }
+
+    @Benchmark
+    public boolean genericRemoveThenAdd() {
+        Integer key = boxedProbes[next()];
+        return generic.remove(key) & generic.add(key);
+    }
+
+    @Benchmark
+    public boolean intRemoveThenAdd() {
+        int key = probes[next()];
+        return ints.remove(key) & ints.add(key);
+    }
+
+    @Benchmark
+    public boolean arrayRemoveThenAdd() {
+        Integer key = boxedProbes[next()];
+        return arrays.remove(key) & arrays.add(key);
+    }
+}
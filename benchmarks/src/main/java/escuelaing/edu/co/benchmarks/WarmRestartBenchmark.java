@@ -0,0 +1,64 @@
+package escuelaing.edu.co.benchmarks;
+
+import escuelaing.edu.co.BinarySearchTree;
+import escuelaing.edu.co.KeyCodec;
+import escuelaing.edu.co.MappedBinarySearchTree;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to get a usable tree back after a restart: re-inserting every key, reloading a
+ * snapshot file with an O(n) balanced build, or mapping the file as a read-only tree.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WarmRestartBenchmark {
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private int[] keys;
+    private Path file;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        keys = KeyDistribution.RANDOM.keys(size, 42);
+        BinarySearchTree<Integer> tree = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        for (int key : keys) {
+            tree.add(key);
+        }
+        file = Files.createTempFile("tree", ".bin");
+        tree.writeTo(file, KeyCodec.INTEGER);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public BinarySearchTree<Integer> reinsert() {
+        BinarySearchTree<Integer> tree = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        for (int key : keys) {
+            tree.add(key);
+        }
+        return tree;
+    }
+
+    @Benchmark
+    public BinarySearchTree<Integer> readFrom() throws IOException {
+        return BinarySearchTree.readFrom(file, KeyCodec.INTEGER, BinarySearchTree.Balancing.AVL);
+    }
+
+    @Benchmark
+    public MappedBinarySearchTree<Integer> map() throws IOException {
+        return MappedBinarySearchTree.open(file, KeyCodec.INTEGER);
+    }
+}
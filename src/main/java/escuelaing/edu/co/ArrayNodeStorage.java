@@ -0,0 +1,1461 @@
+package escuelaing.edu.co;
+
+import escuelaing.edu.co.BinarySearchTree.Node;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * {@link NodeStorage} of a {@link BinarySearchTree.Storage#ARRAY} tree: the fields of node
+ * {@code i} live at index {@code i} of parallel arrays, and children are node numbers. A
+ * node costs no object header and no references besides its value, and nodes allocated
+ * together sit next to each other. Slot {@code 0} is the empty tree, whose height, size and
+ * counts stay zero, so children are read without null checks. Slots freed by removals are
+ * chained through {@link #left} and reused.
+ * <p>
+ * Updates run the algorithms of {@link TreeCore} over an {@code int} path. The arrays cannot
+ * be shared between trees, so {@link #snapshot()} copies them in O(n), and the join-based
+ * methods merge the sorted contents and rebuild a perfectly balanced tree in O(n + m).
+ */
+final class ArrayNodeStorage<T> implements NodeStorage<T> {
+    private static final int NIL = 0;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final BinarySearchTree.Balancing balancing;
+    private final boolean multiset;
+    private final boolean readOnly;
+    private Object[] values;
+    private int[] left;
+    private int[] right;
+    private int[] height;
+    private int[] subtreeSize;
+    /** Occurrences of each value, always 1 outside multiset mode. */
+    private int[] count;
+    /** Sum of the depths of each subtree's nodes, measured from its root. */
+    private long[] pathLength;
+    /** Number of nodes in each subtree whose children differ in height by more than one. */
+    private int[] unbalanced;
+    /** Sum of {@link #count} over each subtree. */
+    private long[] occurrences;
+    private int root = NIL;
+    /** Number of nodes, which is the number of distinct values. */
+    private int size;
+    /** First slot never used; the slots below it are nodes or on the free list. */
+    private int nextSlot;
+    private int freeList = NIL;
+    private int modCount;
+    /**
+     * Bumped by splay rotations, which change the shape but not the values, so iterators
+     * re-seek on it instead of failing.
+     */
+    private int restructureCount;
+    private int[] pathBuffer;
+    private TreeMetrics metrics;
+    /** Number of comparisons made by the last descent, reported to {@link #metrics}. */
+    private int comparisons;
+
+    ArrayNodeStorage(BinarySearchTree.Balancing balancing, boolean multiset) {
+        this.balancing = balancing;
+        this.multiset = multiset;
+        this.readOnly = false;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    private ArrayNodeStorage(ArrayNodeStorage<T> source) {
+        this.balancing = source.balancing;
+        this.multiset = source.multiset;
+        this.readOnly = true;
+        int length = source.nextSlot;
+        values = Arrays.copyOf(source.values, length);
+        left = Arrays.copyOf(source.left, length);
+        right = Arrays.copyOf(source.right, length);
+        height = Arrays.copyOf(source.height, length);
+        subtreeSize = Arrays.copyOf(source.subtreeSize, length);
+        count = Arrays.copyOf(source.count, length);
+        pathLength = Arrays.copyOf(source.pathLength, length);
+        unbalanced = Arrays.copyOf(source.unbalanced, length);
+        occurrences = Arrays.copyOf(source.occurrences, length);
+        root = source.root;
+        size = source.size;
+        nextSlot = length;
+        freeList = source.freeList;
+    }
+
+    /**
+     * Replaces the arrays by empty ones with room for {@code capacity} nodes.
+     */
+    private void allocate(int capacity) {
+        int length = capacity + 1;
+        values = new Object[length];
+        left = new int[length];
+        right = new int[length];
+        height = new int[length];
+        subtreeSize = new int[length];
+        count = new int[length];
+        pathLength = new long[length];
+        unbalanced = new int[length];
+        occurrences = new long[length];
+        root = NIL;
+        size = 0;
+        nextSlot = 1;
+        freeList = NIL;
+    }
+
+    private void grow() {
+        int length = values.length + Math.max(values.length >> 1, INITIAL_CAPACITY);
+        values = Arrays.copyOf(values, length);
+        left = Arrays.copyOf(left, length);
+        right = Arrays.copyOf(right, length);
+        height = Arrays.copyOf(height, length);
+        subtreeSize = Arrays.copyOf(subtreeSize, length);
+        count = Arrays.copyOf(count, length);
+        pathLength = Arrays.copyOf(pathLength, length);
+        unbalanced = Arrays.copyOf(unbalanced, length);
+        occurrences = Arrays.copyOf(occurrences, length);
+    }
+
+    private int newNode(Object value, int occurrences) {
+        int node;
+        if (freeList != NIL) {
+            node = freeList;
+            freeList = left[node];
+        } else {
+            if (nextSlot == values.length) {
+                grow();
+            }
+            node = nextSlot++;
+        }
+        values[node] = value;
+        left[node] = NIL;
+        right[node] = NIL;
+        height[node] = 1;
+        subtreeSize[node] = 1;
+        count[node] = occurrences;
+        pathLength[node] = 0;
+        unbalanced[node] = 0;
+        this.occurrences[node] = occurrences;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        values[node] = null;
+        left[node] = freeList;
+        freeList = node;
+    }
+
+    @Override
+    public BinarySearchTree.Balancing balancing() {
+        return balancing;
+    }
+
+    @Override
+    public boolean isMultiset() {
+        return multiset;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    @Override
+    public void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Snapshot is read-only");
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long occurrences() {
+        return occurrences[root];
+    }
+
+    @Override
+    public int modCount() {
+        return modCount;
+    }
+
+    @Override
+    public int comparisons() {
+        return comparisons;
+    }
+
+    @Override
+    public TreeMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public void setMetrics(TreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static int compare(Object key, Object value) {
+        return ((Comparable<Object>) key).compareTo(value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T valueOf(int node) {
+        return (T) values[node];
+    }
+
+    /**
+     * Returns a read-only copy of the arrays, in O(n).
+     */
+    @Override
+    public ArrayNodeStorage<T> snapshot() {
+        return readOnly ? this : new ArrayNodeStorage<>(this);
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        allocate(INITIAL_CAPACITY);
+        modCount++;
+    }
+
+    /**
+     * Returns a scratch array large enough to hold any root-to-leaf path of the tree.
+     */
+    private int[] pathBuffer() {
+        int required = height() + 1;
+        if (pathBuffer == null || pathBuffer.length < required) {
+            pathBuffer = new int[Math.max(required, 2 * (pathBuffer == null ? 16 : pathBuffer.length))];
+        }
+        return pathBuffer;
+    }
+
+    private int[] newStack() {
+        return new int[height() + 1];
+    }
+
+    /**
+     * Records the ancestors of {@code key} in {@code path} and returns their number
+     * {@code depth}; {@code path[depth]} holds the node of {@code key}, or {@link #NIL}.
+     */
+    private int descend(Object key, int[] path) {
+        int depth = 0;
+        int node = root;
+        while (node != NIL) {
+            int compareResult = compare(key, values[node]);
+            if (compareResult == 0) {
+                break;
+            }
+            path[depth++] = node;
+            node = compareResult < 0 ? left[node] : right[node];
+        }
+        path[depth] = node;
+        comparisons = node == NIL ? depth : depth + 1;
+        return depth;
+    }
+
+    @Override
+    public int link(T value, int occurrences) {
+        checkWritable();
+        int[] path = pathBuffer();
+        int depth = descend(value, path);
+        int node = path[depth];
+        if (node == NIL) {
+            insertAt(path, depth, value, occurrences);
+            return 0;
+        }
+        int previous = count[node];
+        if (multiset) {
+            if (previous + (long) occurrences > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many occurrences of " + value);
+            }
+            setCount(path, depth, previous + occurrences);
+        } else if (balancing == BinarySearchTree.Balancing.SPLAY) {
+            splay(path, depth);
+        }
+        return previous;
+    }
+
+    /**
+     * Links a new node for {@code key} below {@code path[depth - 1]}, where
+     * {@link #descend(Object, int[])} stopped, and rebalances.
+     */
+    private void insertAt(int[] path, int depth, T key, int occurrences) {
+        if (depth == 0) {
+            // Type-checks the first key, as later ones are checked against it.
+            compare(key, key);
+            root = newNode(key, occurrences);
+            size++;
+            modCount++;
+            return;
+        }
+        int added = newNode(key, occurrences);
+        int parent = path[depth - 1];
+        if (compare(key, values[parent]) < 0) {
+            left[parent] = added;
+        } else {
+            right[parent] = added;
+        }
+        size++;
+        modCount++;
+        if (balancing == BinarySearchTree.Balancing.SPLAY) {
+            updatePath(path, depth);
+            path[depth] = added;
+            splay(path, depth);
+        } else {
+            retrace(path, depth);
+        }
+    }
+
+    @Override
+    public int unlink(Object value, int occurrences) {
+        checkWritable();
+        int[] path = pathBuffer();
+        int depth = descend(value, path);
+        int node = path[depth];
+        if (node == NIL) {
+            if (balancing == BinarySearchTree.Balancing.SPLAY && depth > 0) {
+                splay(path, depth - 1);
+            }
+            return 0;
+        }
+        int previous = count[node];
+        if (previous > occurrences) {
+            setCount(path, depth, previous - occurrences);
+            return previous;
+        }
+        removeAt(path, depth);
+        return previous;
+    }
+
+    /**
+     * Unlinks the node {@link #descend(Object, int[])} found at {@code path[depth]}. A node
+     * with two children takes the value and count of its in-order successor, whose node is
+     * unlinked instead.
+     */
+    private void removeAt(int[] path, int depth) {
+        int node = path[depth];
+        if (left[node] != NIL && right[node] != NIL) {
+            int target = node;
+            path[depth++] = node;
+            node = right[node];
+            while (left[node] != NIL) {
+                path[depth++] = node;
+                node = left[node];
+            }
+            values[target] = values[node];
+            count[target] = count[node];
+        }
+        replaceChild(path, depth, node, left[node] != NIL ? left[node] : right[node]);
+        freeNode(node);
+        size--;
+        modCount++;
+        if (balancing == BinarySearchTree.Balancing.SPLAY && depth > 0) {
+            // Splay the parent of the unlinked node, once the sizes along the path are fixed.
+            updatePath(path, depth);
+            splay(path, depth - 1);
+        } else {
+            retrace(path, depth);
+        }
+    }
+
+    /**
+     * Changes the count of the node found at {@code path[depth]}, whose ancestors fill the
+     * rest of the path, without changing the shape of the tree.
+     */
+    private void setCount(int[] path, int depth, int count) {
+        this.count[path[depth]] = count;
+        modCount++;
+        updatePath(path, depth + 1);
+        if (balancing == BinarySearchTree.Balancing.SPLAY) {
+            splay(path, depth);
+        }
+    }
+
+    /**
+     * Recomputes the fields of {@code path[depth - 1]} up to the root, bottom-up.
+     */
+    private void updatePath(int[] path, int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            update(path[i]);
+        }
+    }
+
+    /**
+     * Finds the node of {@code key}, semi-splaying a writable
+     * {@link BinarySearchTree.Balancing#SPLAY} tree and recording the search in the metrics if
+     * any are attached.
+     */
+    private int findNode(Object key) {
+        if (balancing == BinarySearchTree.Balancing.SPLAY && !readOnly) {
+            return splaySearch(key);
+        }
+        TreeMetrics metrics = this.metrics;
+        return metrics == null ? searchNode(key) : measuredSearchNode(key, metrics);
+    }
+
+    private int splaySearch(Object key) {
+        TreeMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : System.nanoTime();
+        int[] path = pathBuffer();
+        int depth = -1;
+        int node = root;
+        int found = NIL;
+        while (node != NIL) {
+            path[++depth] = node;
+            int compareResult = compare(key, values[node]);
+            if (compareResult == 0) {
+                found = node;
+                break;
+            }
+            node = compareResult < 0 ? left[node] : right[node];
+        }
+        if (depth >= 0) {
+            splay(path, depth);
+        }
+        if (metrics != null) {
+            metrics.record(TreeMetrics.Operation.SEARCH, depth + 1, depth + 1, found != NIL,
+                    System.nanoTime() - start, size);
+        }
+        return found;
+    }
+
+    private int measuredSearchNode(Object key, TreeMetrics metrics) {
+        long start = System.nanoTime();
+        int depth = 0;
+        int node = root;
+        while (node != NIL) {
+            depth++;
+            int compareResult = compare(key, values[node]);
+            if (compareResult == 0) {
+                break;
+            }
+            node = compareResult < 0 ? left[node] : right[node];
+        }
+        metrics.record(TreeMetrics.Operation.SEARCH, depth, depth, node != NIL, System.nanoTime() - start, size);
+        return node;
+    }
+
+    private int searchNode(Object key) {
+        int node = root;
+        while (node != NIL) {
+            int compareResult = compare(key, values[node]);
+            if (compareResult == 0) {
+                return node;
+            }
+            node = compareResult < 0 ? left[node] : right[node];
+        }
+        return NIL;
+    }
+
+    @Override
+    public T find(Object key) {
+        return valueOf(findNode(key));
+    }
+
+    @Override
+    public int count(Object key) {
+        return count[findNode(key)];
+    }
+
+    @Override
+    public T lookup(Object key) {
+        return valueOf(searchNode(key));
+    }
+
+    /**
+     * Semi-splays {@code path[depth]} towards the root, as {@link TreeCore} does, leaving
+     * nodes shallower than floor(log2(n)) in place.
+     */
+    private void splay(int[] path, int depth) {
+        if (depth < 2 || depth < 31 - Integer.numberOfLeadingZeros(size)) {
+            return;
+        }
+        int i = depth;
+        while (i >= 2) {
+            int node = path[i];
+            int parent = path[i - 1];
+            int grandparent = path[i - 2];
+            boolean nodeLeft = left[parent] == node;
+            boolean parentLeft = left[grandparent] == parent;
+            int top;
+            if (nodeLeft == parentLeft) {
+                top = parentLeft ? rotateRight(grandparent) : rotateLeft(grandparent);
+            } else if (parentLeft) {
+                left[grandparent] = rotateLeft(parent);
+                top = rotateRight(grandparent);
+            } else {
+                right[grandparent] = rotateRight(parent);
+                top = rotateLeft(grandparent);
+            }
+            replaceChild(path, i - 2, grandparent, top);
+            path[i - 2] = top;
+            i -= 2;
+        }
+        for (int j = i - 1; j >= 0; j--) {
+            update(path[j]);
+        }
+        restructureCount++;
+    }
+
+    /**
+     * Walks the recorded path back up to the root, refreshing heights and rebalancing
+     * each ancestor, and relinks every rotated subtree to its parent.
+     */
+    private void retrace(int[] path, int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            int node = path[i];
+            int balanced = rebalance(node);
+            if (balanced != node) {
+                replaceChild(path, i, node, balanced);
+            }
+        }
+    }
+
+    /**
+     * Makes {@code replacement} the child that {@code child} was of {@code path[depth - 1]},
+     * or the root when {@code depth} is zero.
+     */
+    private void replaceChild(int[] path, int depth, int child, int replacement) {
+        if (depth == 0) {
+            root = replacement;
+        } else if (left[path[depth - 1]] == child) {
+            left[path[depth - 1]] = replacement;
+        } else {
+            right[path[depth - 1]] = replacement;
+        }
+    }
+
+    private int rebalance(int node) {
+        update(node);
+        return balancing == BinarySearchTree.Balancing.AVL ? balance(node) : node;
+    }
+
+    /**
+     * Restores the AVL invariant at {@code node}, whose fields are up to date and whose
+     * subtrees differ in height by at most 2, with one single or double rotation.
+     */
+    private int balance(int node) {
+        int balanceFactor = height[left[node]] - height[right[node]];
+        if (balanceFactor > 1) {
+            int child = left[node];
+            if (height[left[child]] < height[right[child]]) {
+                left[node] = rotateLeft(child);
+            }
+            return rotateRight(node);
+        }
+        if (balanceFactor < -1) {
+            int child = right[node];
+            if (height[right[child]] < height[left[child]]) {
+                right[node] = rotateRight(child);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private int rotateRight(int node) {
+        if (metrics != null) {
+            metrics.recordRotation();
+        }
+        int pivot = left[node];
+        left[node] = right[pivot];
+        right[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private int rotateLeft(int node) {
+        if (metrics != null) {
+            metrics.recordRotation();
+        }
+        int pivot = right[node];
+        right[node] = left[pivot];
+        left[pivot] = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    /**
+     * Recomputes the augmented fields of {@code node} from its children.
+     */
+    private void update(int node) {
+        int l = left[node];
+        int r = right[node];
+        height[node] = Math.max(height[l], height[r]) + 1;
+        subtreeSize[node] = subtreeSize[l] + subtreeSize[r] + 1;
+        // Every node below this one is one level deeper than below its child.
+        pathLength[node] = pathLength[l] + subtreeSize[l] + pathLength[r] + subtreeSize[r];
+        unbalanced[node] = unbalanced[l] + unbalanced[r] + (Math.abs(height[l] - height[r]) > 1 ? 1 : 0);
+        occurrences[node] = occurrences[l] + occurrences[r] + count[node];
+    }
+
+    @Override
+    public int height() {
+        return height[root];
+    }
+
+    @Override
+    public boolean isBalanced() {
+        return unbalanced[root] == 0;
+    }
+
+    @Override
+    public TreeStats stats() {
+        return new TreeStats(subtreeSize[root], height[root], pathLength[root], unbalanced[root]);
+    }
+
+    @Override
+    public T rootValue() {
+        return valueOf(root);
+    }
+
+    /**
+     * Builds linked nodes mirroring the arrays, children before parents, in O(n). They are
+     * stamped with a fresh epoch, so a tree they are linked into copies them before any
+     * change.
+     */
+    @Override
+    public Node<T> root() {
+        if (root == NIL) {
+            return null;
+        }
+        Object epoch = new Object();
+        @SuppressWarnings("unchecked")
+        Node<T>[] built = (Node<T>[]) new Node<?>[nextSlot];
+        int[] stack = newStack();
+        int top = 0;
+        int node = root;
+        int lastVisited = NIL;
+        while (node != NIL || top > 0) {
+            while (node != NIL) {
+                stack[top++] = node;
+                node = left[node];
+            }
+            int peek = stack[top - 1];
+            if (right[peek] != NIL && right[peek] != lastVisited) {
+                node = right[peek];
+            } else {
+                Node<T> copy = new Node<>(valueOf(peek), epoch);
+                copy.left = built[left[peek]];
+                copy.right = built[right[peek]];
+                copy.height = height[peek];
+                copy.size = subtreeSize[peek];
+                copy.pathLength = pathLength[peek];
+                copy.unbalanced = unbalanced[peek];
+                copy.count = count[peek];
+                copy.occurrences = occurrences[peek];
+                built[peek] = copy;
+                lastVisited = stack[--top];
+            }
+        }
+        return built[root];
+    }
+
+    @Override
+    public boolean inOrderTraversal(TreeVisitor<? super T> visitor) {
+        int[] stack = newStack();
+        int[] depths = new int[stack.length];
+        int top = 0;
+        int depth = 0;
+        int node = root;
+        while (node != NIL || top > 0) {
+            while (node != NIL) {
+                depths[top] = depth++;
+                stack[top++] = node;
+                node = left[node];
+            }
+            node = stack[--top];
+            depth = depths[top];
+            if (!visitor.visit(valueOf(node), depth++)) {
+                return false;
+            }
+            node = right[node];
+        }
+        return true;
+    }
+
+    @Override
+    public boolean preOrderTraversal(TreeVisitor<? super T> visitor) {
+        if (root == NIL) {
+            return true;
+        }
+        int[] stack = newStack();
+        int[] depths = new int[stack.length];
+        int top = 0;
+        depths[top] = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            int node = stack[--top];
+            int depth = depths[top];
+            if (!visitor.visit(valueOf(node), depth)) {
+                return false;
+            }
+            if (right[node] != NIL) {
+                depths[top] = depth + 1;
+                stack[top++] = right[node];
+            }
+            if (left[node] != NIL) {
+                depths[top] = depth + 1;
+                stack[top++] = left[node];
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean postOrderTraversal(TreeVisitor<? super T> visitor) {
+        int[] stack = newStack();
+        int top = 0;
+        int node = root;
+        int lastVisited = NIL;
+        while (node != NIL || top > 0) {
+            while (node != NIL) {
+                stack[top++] = node;
+                node = left[node];
+            }
+            int peek = stack[top - 1];
+            if (right[peek] != NIL && right[peek] != lastVisited) {
+                node = right[peek];
+            } else {
+                // The stack holds the path from the root, so its length gives the depth.
+                if (!visitor.visit(valueOf(peek), top - 1)) {
+                    return false;
+                }
+                lastVisited = stack[--top];
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean rangeTraversal(T lo, T hi, TreeVisitor<? super T> visitor) {
+        if (compare(lo, hi) > 0) {
+            return true;
+        }
+        int[] stack = newStack();
+        int[] depths = new int[stack.length];
+        int top = 0;
+        int depth = 0;
+        int node = root;
+        while (true) {
+            while (node != NIL) {
+                if (compare(values[node], lo) < 0) {
+                    node = right[node];
+                    depth++;
+                } else {
+                    depths[top] = depth++;
+                    stack[top++] = node;
+                    node = left[node];
+                }
+            }
+            if (top == 0) {
+                return true;
+            }
+            node = stack[--top];
+            depth = depths[top];
+            if (compare(values[node], hi) > 0) {
+                return true;
+            }
+            if (!visitor.visit(valueOf(node), depth++)) {
+                return false;
+            }
+            node = right[node];
+        }
+    }
+
+    /**
+     * Visits the values level by level, left to right, queueing node numbers in one
+     * {@code int} array.
+     */
+    @Override
+    public boolean levelOrderTraversal(TreeVisitor<? super T> visitor) {
+        if (root == NIL) {
+            return true;
+        }
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        for (int depth = 0; head < tail; depth++) {
+            for (int levelEnd = tail; head < levelEnd; head++) {
+                int node = queue[head];
+                if (!visitor.visit(valueOf(node), depth)) {
+                    return false;
+                }
+                if (left[node] != NIL) {
+                    queue[tail++] = left[node];
+                }
+                if (right[node] != NIL) {
+                    queue[tail++] = right[node];
+                }
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public T first() {
+        int node = root;
+        while (node != NIL && left[node] != NIL) {
+            node = left[node];
+        }
+        return valueOf(node);
+    }
+
+    @Override
+    public T last() {
+        int node = root;
+        while (node != NIL && right[node] != NIL) {
+            node = right[node];
+        }
+        return valueOf(node);
+    }
+
+    @Override
+    public T lower(Object key) {
+        int node = root;
+        int best = NIL;
+        while (node != NIL) {
+            if (compare(key, values[node]) > 0) {
+                best = node;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return valueOf(best);
+    }
+
+    @Override
+    public T floor(Object key) {
+        int node = root;
+        int best = NIL;
+        while (node != NIL) {
+            int compareResult = compare(key, values[node]);
+            if (compareResult == 0) {
+                return valueOf(node);
+            }
+            if (compareResult > 0) {
+                best = node;
+                node = right[node];
+            } else {
+                node = left[node];
+            }
+        }
+        return valueOf(best);
+    }
+
+    @Override
+    public T ceiling(Object key) {
+        int node = root;
+        int best = NIL;
+        while (node != NIL) {
+            int compareResult = compare(key, values[node]);
+            if (compareResult == 0) {
+                return valueOf(node);
+            }
+            if (compareResult < 0) {
+                best = node;
+                node = left[node];
+            } else {
+                node = right[node];
+            }
+        }
+        return valueOf(best);
+    }
+
+    @Override
+    public T higher(Object key) {
+        int node = root;
+        int best = NIL;
+        while (node != NIL) {
+            if (compare(key, values[node]) < 0) {
+                best = node;
+                node = left[node];
+            } else {
+                node = right[node];
+            }
+        }
+        return valueOf(best);
+    }
+
+    @Override
+    public T select(int k) {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + size);
+        }
+        int node = root;
+        while (true) {
+            int leftSize = subtreeSize[left[node]];
+            if (k < leftSize) {
+                node = left[node];
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                node = right[node];
+            } else {
+                return valueOf(node);
+            }
+        }
+    }
+
+    @Override
+    public int countLess(Object key, boolean inclusive) {
+        int result = 0;
+        int node = root;
+        while (node != NIL) {
+            int compareResult = compare(key, values[node]);
+            if (compareResult < 0 || (compareResult == 0 && !inclusive)) {
+                node = left[node];
+            } else {
+                result += subtreeSize[left[node]] + 1;
+                if (compareResult == 0) {
+                    break;
+                }
+                node = right[node];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public long occurrencesLess(Object key, boolean inclusive) {
+        long result = 0;
+        int node = root;
+        while (node != NIL) {
+            int compareResult = compare(key, values[node]);
+            if (compareResult < 0 || (compareResult == 0 && !inclusive)) {
+                node = left[node];
+            } else {
+                result += occurrences[left[node]] + count[node];
+                if (compareResult == 0) {
+                    break;
+                }
+                node = right[node];
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Iterator<T> iterator(T lo, boolean loInclusive, T hi, boolean hiInclusive, boolean descending,
+                                Consumer<T> remover) {
+        return new Cursor(lo, loInclusive, hi, hiInclusive, descending, remover);
+    }
+
+    /**
+     * In-order iterator that keeps only the pending spine on a stack of node numbers, so it
+     * costs O(height) memory and yields the first element without visiting the rest of the
+     * tree.
+     */
+    private final class Cursor implements Iterator<T> {
+        private final T lo;
+        private final boolean loInclusive;
+        private final T hi;
+        private final boolean hiInclusive;
+        private final boolean descending;
+        private final Consumer<T> remover;
+        private int[] stack = newStack();
+        private int top;
+        private T lastReturned;
+        /** Occurrences of the value on top of the stack already returned, in a multiset. */
+        private int repeated;
+        private int expectedModCount = modCount;
+        private int expectedRestructureCount = restructureCount;
+
+        Cursor(T lo, boolean loInclusive, T hi, boolean hiInclusive, boolean descending, Consumer<T> remover) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+            this.remover = remover;
+            if (descending) {
+                seek(hi, hiInclusive);
+            } else {
+                seek(lo, loInclusive);
+            }
+        }
+
+        /**
+         * Rebuilds the stack so that it yields, in iteration order, the values at or past
+         * {@code bound}.
+         */
+        private void seek(T bound, boolean inclusive) {
+            if (stack.length <= height()) {
+                // Splaying may have deepened the tree since the stack was sized.
+                stack = newStack();
+            }
+            top = 0;
+            int node = root;
+            while (node != NIL) {
+                int compareResult = bound == null ? 1 : compare(values[node], bound);
+                if (descending && bound != null) {
+                    compareResult = -compareResult;
+                }
+                if (compareResult > 0 || (compareResult == 0 && inclusive)) {
+                    stack[top++] = node;
+                    node = descending ? right[node] : left[node];
+                } else {
+                    node = descending ? left[node] : right[node];
+                }
+            }
+        }
+
+        private boolean pastEnd(Object value) {
+            if (descending) {
+                if (lo == null) {
+                    return false;
+                }
+                int compareResult = compare(value, lo);
+                return compareResult < 0 || (compareResult == 0 && !loInclusive);
+            }
+            if (hi == null) {
+                return false;
+            }
+            int compareResult = compare(value, hi);
+            return compareResult > 0 || (compareResult == 0 && !hiInclusive);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return top > 0 && !pastEnd(values[stack[top - 1]]);
+        }
+
+        @Override
+        public T next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (restructureCount != expectedRestructureCount) {
+                // A splay relinked the nodes below the stack; the values are the same.
+                expectedRestructureCount = restructureCount;
+                if (top > 0) {
+                    seek(valueOf(stack[top - 1]), true);
+                }
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int node = stack[top - 1];
+            T value = valueOf(node);
+            lastReturned = value;
+            if (++repeated < count[node]) {
+                return value;
+            }
+            repeated = 0;
+            top--;
+            int child = descending ? left[node] : right[node];
+            while (child != NIL) {
+                stack[top++] = child;
+                child = descending ? right[child] : left[child];
+            }
+            return value;
+        }
+
+        @Override
+        public void remove() {
+            if (remover == null) {
+                throw new UnsupportedOperationException();
+            }
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // Deleting a node with two children moves its successor's value, so the stack is
+            // rebuilt from the root instead of being patched. A multiset value with
+            // occurrences left to return stays on the stack.
+            T value = lastReturned;
+            boolean pending = repeated > 0;
+            remover.accept(value);
+            expectedModCount = modCount;
+            expectedRestructureCount = restructureCount;
+            seek(value, pending);
+            if (pending) {
+                repeated--;
+            }
+            lastReturned = null;
+        }
+    }
+
+    @Override
+    public Spliterator<T> spliterator() {
+        int characteristics = Spliterator.SORTED | (multiset ? 0 : Spliterator.DISTINCT) | Spliterator.ORDERED
+                | Spliterator.NONNULL;
+        if (balancing == BinarySearchTree.Balancing.SPLAY && !readOnly) {
+            return Spliterators.spliterator(iterator(null, false, null, false, false, null), occurrences(),
+                    characteristics);
+        }
+        return new TreeSpliterator(characteristics | Spliterator.SIZED | Spliterator.SUBSIZED);
+    }
+
+    /**
+     * In-order spliterator over a stack of entries, each standing for one node's value
+     * followed by every value of a subtree, split as in {@link TreeCore}.
+     */
+    private final class TreeSpliterator implements Spliterator<T> {
+        private final int characteristics;
+        private final int[] nodes;
+        private final int[] subtrees;
+        private int top;
+        private long remaining;
+        /** Occurrences of the value on top of the stack already consumed, in a multiset. */
+        private int repeated;
+        private final int expectedModCount;
+
+        TreeSpliterator(int characteristics) {
+            this.characteristics = characteristics;
+            nodes = newStack();
+            subtrees = newStack();
+            remaining = occurrences();
+            expectedModCount = modCount;
+            pushLeft(root);
+        }
+
+        private TreeSpliterator(int characteristics, int[] nodes, int[] subtrees, int top, long remaining,
+                                int repeated, int expectedModCount) {
+            this.characteristics = characteristics;
+            this.nodes = nodes;
+            this.subtrees = subtrees;
+            this.top = top;
+            this.remaining = remaining;
+            this.repeated = repeated;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private void pushLeft(int node) {
+            while (node != NIL) {
+                nodes[top] = node;
+                subtrees[top++] = right[node];
+                node = left[node];
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            if (top == 0) {
+                return false;
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            int node = nodes[top - 1];
+            T value = valueOf(node);
+            remaining--;
+            if (++repeated < count[node]) {
+                action.accept(value);
+                return true;
+            }
+            repeated = 0;
+            pushLeft(subtrees[--top]);
+            action.accept(value);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            while (top > 0) {
+                int node = nodes[--top];
+                pushLeft(subtrees[top]);
+                T value = valueOf(node);
+                for (int i = repeated; i < count[node]; i++) {
+                    action.accept(value);
+                }
+                repeated = 0;
+            }
+            remaining = 0;
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (top == 0) {
+                return null;
+            }
+            if (top == 1) {
+                // A single entry (v, S) is rewritten as (v, S.left) followed by (S, S.right).
+                int subtree = subtrees[0];
+                if (subtree == NIL) {
+                    return null;
+                }
+                nodes[1] = nodes[0];
+                subtrees[1] = left[subtree];
+                nodes[0] = subtree;
+                subtrees[0] = right[subtree];
+                top = 2;
+            }
+            int[] prefixNodes = new int[nodes.length];
+            int[] prefixSubtrees = new int[subtrees.length];
+            System.arraycopy(nodes, 1, prefixNodes, 0, top - 1);
+            System.arraycopy(subtrees, 1, prefixSubtrees, 0, top - 1);
+
+            // The value partly consumed, if any, is on top of the stack and goes to the prefix.
+            long suffixSize = count[nodes[0]] + occurrences[subtrees[0]];
+            TreeSpliterator prefix = new TreeSpliterator(characteristics, prefixNodes, prefixSubtrees, top - 1,
+                    remaining - suffixSize, repeated, expectedModCount);
+            top = 1;
+            remaining = suffixSize;
+            repeated = 0;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return null;
+        }
+    }
+
+    /**
+     * Sorted distinct values with their counts, {@code null} when every count is 1: the
+     * form in which the bulk methods merge trees.
+     */
+    private static final class Run {
+        final Object[] values;
+        final int[] counts;
+        int length;
+
+        Run(int capacity, boolean counted) {
+            values = new Object[capacity];
+            counts = counted ? new int[capacity] : null;
+        }
+
+        Run(Object[] values, int length) {
+            this.values = values;
+            this.counts = null;
+            this.length = length;
+        }
+
+        void add(Object value, int count) {
+            values[length] = value;
+            if (counts != null) {
+                counts[length] = count;
+            }
+            length++;
+        }
+
+        int count(int i) {
+            return counts == null ? 1 : counts[i];
+        }
+
+        /**
+         * Returns the index of the first value not less than {@code key}, or past it when
+         * {@code inclusive} is false.
+         */
+        int search(Object key, boolean inclusive) {
+            int low = 0;
+            int high = length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                int compareResult = compare(values[mid], key);
+                if (compareResult < 0 || (compareResult == 0 && !inclusive)) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    private Run contents() {
+        Run run = new Run(size, multiset);
+        int[] stack = newStack();
+        int top = 0;
+        int node = root;
+        while (node != NIL || top > 0) {
+            while (node != NIL) {
+                stack[top++] = node;
+                node = left[node];
+            }
+            node = stack[--top];
+            run.add(values[node], count[node]);
+            node = right[node];
+        }
+        return run;
+    }
+
+    /**
+     * Returns the sorted contents of {@code c}, read straight from the nodes of another
+     * {@link BinarySearchTree} of the same mode and sorted otherwise.
+     */
+    @SuppressWarnings("unchecked")
+    private Run contents(Collection<?> c) {
+        if (c instanceof BinarySearchTree && ((BinarySearchTree<?>) c).isMultiset() == multiset) {
+            NodeStorage<T> storage = (NodeStorage<T>) ((BinarySearchTree<?>) c).storage();
+            if (storage instanceof ArrayNodeStorage) {
+                return ((ArrayNodeStorage<T>) storage).contents();
+            }
+            Run run = new Run(storage.size(), multiset);
+            Node<T> node = storage.root();
+            Node<T>[] stack = (Node<T>[]) new Node<?>[storage.height() + 1];
+            int top = 0;
+            while (node != null || top > 0) {
+                while (node != null) {
+                    stack[top++] = node;
+                    node = node.left;
+                }
+                node = stack[--top];
+                run.add(node.value, node.count);
+                node = node.right;
+            }
+            return run;
+        }
+        Object[] values = c.toArray();
+        int count = BinarySearchTree.isSortedSet(c) ? values.length : BinarySearchTree.sortDistinct(values);
+        return new Run(values, count);
+    }
+
+    /**
+     * Replaces the contents with the values of {@code run} in {@code [from, to)}, rebuilt
+     * perfectly balanced into new arrays.
+     */
+    private void load(Run run, int from, int to) {
+        allocate(to - from);
+        root = build(run, from, to);
+        size = to - from;
+        modCount++;
+    }
+
+    /**
+     * Links the sorted values in {@code [from, to)} into a perfectly balanced subtree.
+     * The recursion depth is only log2(n).
+     */
+    private int build(Run run, int from, int to) {
+        if (from >= to) {
+            return NIL;
+        }
+        int mid = (from + to) >>> 1;
+        int node = newNode(run.values[mid], run.count(mid));
+        left[node] = build(run, from, mid);
+        right[node] = build(run, mid + 1, to);
+        update(node);
+        return node;
+    }
+
+    @Override
+    public void load(Object[] values, int count) {
+        load(new Run(values, count), 0, count);
+    }
+
+    @Override
+    public void union(Collection<?> other) {
+        Run mine = contents();
+        Run theirs = contents(other);
+        Run merged = new Run(mine.length + theirs.length, false);
+        int i = 0;
+        int j = 0;
+        while (i < mine.length && j < theirs.length) {
+            int compareResult = compare(mine.values[i], theirs.values[j]);
+            if (compareResult <= 0) {
+                merged.add(mine.values[i++], 1);
+                if (compareResult == 0) {
+                    j++;
+                }
+            } else {
+                merged.add(theirs.values[j++], 1);
+            }
+        }
+        while (i < mine.length) {
+            merged.add(mine.values[i++], 1);
+        }
+        while (j < theirs.length) {
+            merged.add(theirs.values[j++], 1);
+        }
+        load(merged, 0, merged.length);
+    }
+
+    @Override
+    public void intersection(Collection<?> other) {
+        Run mine = contents();
+        Run theirs = contents(other);
+        Run kept = new Run(mine.length, false);
+        int j = 0;
+        for (int i = 0; i < mine.length; i++) {
+            while (j < theirs.length && compare(theirs.values[j], mine.values[i]) < 0) {
+                j++;
+            }
+            if (j < theirs.length && compare(theirs.values[j], mine.values[i]) == 0) {
+                kept.add(mine.values[i], 1);
+            }
+        }
+        load(kept, 0, kept.length);
+    }
+
+    @Override
+    public void difference(Collection<?> other) {
+        Run mine = contents();
+        Run theirs = contents(other);
+        Run kept = new Run(mine.length, false);
+        int j = 0;
+        for (int i = 0; i < mine.length; i++) {
+            while (j < theirs.length && compare(theirs.values[j], mine.values[i]) < 0) {
+                j++;
+            }
+            if (j == theirs.length || compare(theirs.values[j], mine.values[i]) != 0) {
+                kept.add(mine.values[i], 1);
+            }
+        }
+        load(kept, 0, kept.length);
+    }
+
+    @Override
+    public ArrayNodeStorage<T> splitOff(T key) {
+        Run mine = contents();
+        int cut = mine.search(key, true);
+        ArrayNodeStorage<T> greater = new ArrayNodeStorage<>(balancing, multiset);
+        greater.load(mine, cut, mine.length);
+        load(mine, 0, cut);
+        return greater;
+    }
+
+    @Override
+    public void join(Collection<?> other) {
+        Run mine = contents();
+        Run theirs = contents(other);
+        Run joined = new Run(mine.length + theirs.length, multiset);
+        for (int i = 0; i < mine.length; i++) {
+            joined.add(mine.values[i], mine.count(i));
+        }
+        for (int j = 0; j < theirs.length; j++) {
+            joined.add(theirs.values[j], theirs.count(j));
+        }
+        load(joined, 0, joined.length);
+    }
+
+    @Override
+    public void removeRange(T lo, T hi) {
+        Run mine = contents();
+        int from = mine.search(lo, true);
+        int to = mine.search(hi, false);
+        Run kept = new Run(mine.length, multiset);
+        for (int i = 0; i < mine.length; i++) {
+            if (i < from || i >= to) {
+                kept.add(mine.values[i], mine.count(i));
+            }
+        }
+        load(kept, 0, kept.length);
+    }
+}
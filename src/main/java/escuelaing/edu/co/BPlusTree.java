@@ -0,0 +1,502 @@
+package escuelaing.edu.co;
+
+import java.util.*;
+
+/**
+ * B+-tree with the {@link Collection} contract and lookup API of {@link BinarySearchTree}.
+ * Every page holds up to {@code fanout - 1} keys in an array that is binary searched, so a
+ * lookup touches only log_fanout(n) pages instead of one node per comparison. All values
+ * live in the leaves, which are linked left to right for in-order scans.
+ */
+public class BPlusTree<T extends Comparable<T>> extends AbstractCollection<T> {
+    public static final int DEFAULT_FANOUT = 32;
+
+    private final int maxKeys;
+    private final int minKeys;
+    private Page root;
+    /** Number of inner page levels above the leaves. */
+    private int innerLevels;
+    private int size;
+    private int modCount;
+    /** Root-to-leaf path of the current update, reused across calls. */
+    private Inner[] path = new Inner[0];
+    private int[] indexes = new int[0];
+
+    private abstract static class Page {
+        final Object[] keys;
+        int count;
+
+        Page(int capacity) {
+            keys = new Object[capacity];
+        }
+    }
+
+    private static final class Leaf extends Page {
+        Leaf next;
+
+        Leaf(int capacity) {
+            super(capacity);
+        }
+    }
+
+    /**
+     * Inner page; {@code keys[i]} separates {@code children[i]}, whose values are all smaller,
+     * from {@code children[i + 1]}, whose values are all greater or equal.
+     */
+    private static final class Inner extends Page {
+        final Page[] children;
+
+        Inner(int capacity) {
+            super(capacity);
+            children = new Page[capacity + 1];
+        }
+    }
+
+    public BPlusTree() {
+        this(DEFAULT_FANOUT);
+    }
+
+    /**
+     * @param fanout maximum number of children of an inner page, at least 3
+     */
+    public BPlusTree(int fanout) {
+        if (fanout < 3) {
+            throw new IllegalArgumentException("Fanout must be at least 3: " + fanout);
+        }
+        this.maxKeys = fanout - 1;
+        this.minKeys = maxKeys / 2;
+        clear();
+    }
+
+    public int getFanout() {
+        return maxKeys + 1;
+    }
+
+    /**
+     * Returns the index of {@code value} in {@code page}, or {@code -(insertion point) - 1}.
+     */
+    @SuppressWarnings("unchecked")
+    private int indexOf(Page page, T value) {
+        int low = 0;
+        int high = page.count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compareResult = ((T) page.keys[mid]).compareTo(value);
+            if (compareResult < 0) {
+                low = mid + 1;
+            } else if (compareResult > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Returns the index of the child of {@code page} whose range holds {@code value}.
+     */
+    private int childIndex(Inner page, T value) {
+        int index = indexOf(page, value);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+
+    private Leaf findLeaf(T value) {
+        Page page = root;
+        while (page instanceof Inner) {
+            Inner inner = (Inner) page;
+            page = inner.children[childIndex(inner, value)];
+        }
+        return (Leaf) page;
+    }
+
+    @Override
+    public boolean add(T value) {
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null");
+        }
+        try {
+            return insert(value);
+        } finally {
+            Arrays.fill(path, null);
+        }
+    }
+
+    private boolean insert(T value) {
+        Leaf leaf = descend(value);
+        int index = indexOf(leaf, value);
+        if (index >= 0) {
+            return false;
+        }
+        insertAt(leaf, -index - 1, value);
+        size++;
+        modCount++;
+        if (leaf.count <= maxKeys) {
+            return true;
+        }
+
+        // Split the overflowing pages bottom-up.
+        Page left = leaf;
+        Page right = splitLeaf(leaf);
+        Object separator = right.keys[0];
+        for (int depth = innerLevels - 1; depth >= 0; depth--) {
+            Inner parent = path[depth];
+            int at = indexes[depth];
+            System.arraycopy(parent.keys, at, parent.keys, at + 1, parent.count - at);
+            System.arraycopy(parent.children, at + 1, parent.children, at + 2, parent.count - at);
+            parent.keys[at] = separator;
+            parent.children[at + 1] = right;
+            parent.count++;
+            if (parent.count <= maxKeys) {
+                return true;
+            }
+            left = parent;
+            separator = parent.keys[(parent.count) / 2];
+            right = splitInner(parent);
+        }
+
+        Inner newRoot = new Inner(maxKeys + 1);
+        newRoot.keys[0] = separator;
+        newRoot.children[0] = left;
+        newRoot.children[1] = right;
+        newRoot.count = 1;
+        root = newRoot;
+        innerLevels++;
+        return true;
+    }
+
+    /**
+     * Walks from the root to the leaf whose range holds {@code value}, recording the inner
+     * pages and child indexes in {@link #path} and {@link #indexes}.
+     */
+    private Leaf descend(T value) {
+        if (path.length < innerLevels) {
+            path = new Inner[innerLevels];
+            indexes = new int[innerLevels];
+        }
+        Page page = root;
+        for (int depth = 0; page instanceof Inner; depth++) {
+            Inner inner = (Inner) page;
+            path[depth] = inner;
+            indexes[depth] = childIndex(inner, value);
+            page = inner.children[indexes[depth]];
+        }
+        return (Leaf) page;
+    }
+
+    private void insertAt(Leaf leaf, int index, T value) {
+        System.arraycopy(leaf.keys, index, leaf.keys, index + 1, leaf.count - index);
+        leaf.keys[index] = value;
+        leaf.count++;
+    }
+
+    private Leaf splitLeaf(Leaf leaf) {
+        Leaf right = new Leaf(maxKeys + 1);
+        int keep = leaf.count / 2;
+        right.count = leaf.count - keep;
+        System.arraycopy(leaf.keys, keep, right.keys, 0, right.count);
+        Arrays.fill(leaf.keys, keep, leaf.count, null);
+        leaf.count = keep;
+        right.next = leaf.next;
+        leaf.next = right;
+        return right;
+    }
+
+    /**
+     * Moves the keys after the middle one to a new page. The middle key is dropped from both
+     * pages; the caller pushes it up as the separator.
+     */
+    private Inner splitInner(Inner page) {
+        Inner right = new Inner(maxKeys + 1);
+        int middle = page.count / 2;
+        right.count = page.count - middle - 1;
+        System.arraycopy(page.keys, middle + 1, right.keys, 0, right.count);
+        System.arraycopy(page.children, middle + 1, right.children, 0, right.count + 1);
+        Arrays.fill(page.keys, middle, page.count, null);
+        Arrays.fill(page.children, middle + 1, page.count + 1, null);
+        page.count = middle;
+        return right;
+    }
+
+    public T search(T value) {
+        Leaf leaf = findLeaf(value);
+        int index = indexOf(leaf, value);
+        @SuppressWarnings("unchecked")
+        T found = index >= 0 ? (T) leaf.keys[index] : null;
+        return found;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Comparable)) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) o;
+        return indexOf(findLeaf(value), value) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object obj) {
+        if (!(obj instanceof Comparable)) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) obj;
+        return delete(value);
+    }
+
+    private boolean delete(T value) {
+        try {
+            return unlink(value);
+        } finally {
+            Arrays.fill(path, null);
+        }
+    }
+
+    private boolean unlink(T value) {
+        Leaf leaf = descend(value);
+        int index = indexOf(leaf, value);
+        if (index < 0) {
+            return false;
+        }
+        System.arraycopy(leaf.keys, index + 1, leaf.keys, index, leaf.count - index - 1);
+        leaf.keys[--leaf.count] = null;
+        size--;
+        modCount++;
+
+        // Refill or merge underflowing pages bottom-up.
+        Page current = leaf;
+        for (int depth = innerLevels - 1; depth >= 0 && current.count < minKeys; depth--) {
+            Inner parent = path[depth];
+            int at = indexes[depth];
+            if (current instanceof Leaf) {
+                rebalanceLeaf(parent, at);
+            } else {
+                rebalanceInner(parent, at);
+            }
+            current = parent;
+        }
+        if (root instanceof Inner && root.count == 0) {
+            root = ((Inner) root).children[0];
+            innerLevels--;
+        }
+        return true;
+    }
+
+    private void rebalanceLeaf(Inner parent, int at) {
+        Leaf leaf = (Leaf) parent.children[at];
+        Leaf left = at > 0 ? (Leaf) parent.children[at - 1] : null;
+        Leaf right = at < parent.count ? (Leaf) parent.children[at + 1] : null;
+
+        if (left != null && left.count > minKeys) {
+            System.arraycopy(leaf.keys, 0, leaf.keys, 1, leaf.count);
+            leaf.keys[0] = left.keys[--left.count];
+            left.keys[left.count] = null;
+            leaf.count++;
+            parent.keys[at - 1] = leaf.keys[0];
+        } else if (right != null && right.count > minKeys) {
+            leaf.keys[leaf.count++] = right.keys[0];
+            System.arraycopy(right.keys, 1, right.keys, 0, right.count - 1);
+            right.keys[--right.count] = null;
+            parent.keys[at] = right.keys[0];
+        } else if (left != null) {
+            System.arraycopy(leaf.keys, 0, left.keys, left.count, leaf.count);
+            left.count += leaf.count;
+            left.next = leaf.next;
+            removeFromParent(parent, at - 1);
+        } else {
+            System.arraycopy(right.keys, 0, leaf.keys, leaf.count, right.count);
+            leaf.count += right.count;
+            leaf.next = right.next;
+            removeFromParent(parent, at);
+        }
+    }
+
+    private void rebalanceInner(Inner parent, int at) {
+        Inner page = (Inner) parent.children[at];
+        Inner left = at > 0 ? (Inner) parent.children[at - 1] : null;
+        Inner right = at < parent.count ? (Inner) parent.children[at + 1] : null;
+
+        if (left != null && left.count > minKeys) {
+            System.arraycopy(page.keys, 0, page.keys, 1, page.count);
+            System.arraycopy(page.children, 0, page.children, 1, page.count + 1);
+            page.keys[0] = parent.keys[at - 1];
+            page.children[0] = left.children[left.count];
+            page.count++;
+            parent.keys[at - 1] = left.keys[left.count - 1];
+            left.keys[left.count - 1] = null;
+            left.children[left.count] = null;
+            left.count--;
+        } else if (right != null && right.count > minKeys) {
+            page.keys[page.count] = parent.keys[at];
+            page.children[page.count + 1] = right.children[0];
+            page.count++;
+            parent.keys[at] = right.keys[0];
+            System.arraycopy(right.keys, 1, right.keys, 0, right.count - 1);
+            System.arraycopy(right.children, 1, right.children, 0, right.count);
+            right.keys[right.count - 1] = null;
+            right.children[right.count] = null;
+            right.count--;
+        } else if (left != null) {
+            mergeInner(left, parent.keys[at - 1], page);
+            removeFromParent(parent, at - 1);
+        } else {
+            mergeInner(page, parent.keys[at], right);
+            removeFromParent(parent, at);
+        }
+    }
+
+    private void mergeInner(Inner left, Object separator, Inner right) {
+        left.keys[left.count] = separator;
+        System.arraycopy(right.keys, 0, left.keys, left.count + 1, right.count);
+        System.arraycopy(right.children, 0, left.children, left.count + 1, right.count + 1);
+        left.count += right.count + 1;
+    }
+
+    /**
+     * Removes {@code keys[index]} and {@code children[index + 1]} from {@code parent}.
+     */
+    private void removeFromParent(Inner parent, int index) {
+        System.arraycopy(parent.keys, index + 1, parent.keys, index, parent.count - index - 1);
+        System.arraycopy(parent.children, index + 2, parent.children, index + 1, parent.count - index - 1);
+        parent.count--;
+        parent.keys[parent.count] = null;
+        parent.children[parent.count + 1] = null;
+    }
+
+    private Leaf firstLeaf() {
+        Page page = root;
+        while (page instanceof Inner) {
+            page = ((Inner) page).children[0];
+        }
+        return (Leaf) page;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T findMin() {
+        if (size == 0) return null;
+        return (T) firstLeaf().keys[0];
+    }
+
+    @SuppressWarnings("unchecked")
+    public T findMax() {
+        if (size == 0) return null;
+        Page page = root;
+        while (page instanceof Inner) {
+            page = ((Inner) page).children[page.count];
+        }
+        return (T) page.keys[page.count - 1];
+    }
+
+    /**
+     * Returns the number of page levels, counted like {@link BinarySearchTree#height}: 0 for
+     * an empty tree and 1 for a tree that fits in a single leaf.
+     */
+    public int height() {
+        return size == 0 ? 0 : innerLevels + 1;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void inOrderTraversal(List<T> result) {
+        for (Leaf leaf = firstLeaf(); leaf != null; leaf = leaf.next) {
+            for (int i = 0; i < leaf.count; i++) {
+                result.add((T) leaf.keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Appends the values {@code v} with {@code lo <= v <= hi} in ascending order, in
+     * O(log n + k) by walking the leaf chain from the leaf holding {@code lo}.
+     */
+    @SuppressWarnings("unchecked")
+    public void rangeTraversal(T lo, T hi, List<T> result) {
+        Leaf leaf = findLeaf(lo);
+        int index = indexOf(leaf, lo);
+        index = index >= 0 ? index : -index - 1;
+        for (; leaf != null; leaf = leaf.next, index = 0) {
+            for (; index < leaf.count; index++) {
+                T value = (T) leaf.keys[index];
+                if (value.compareTo(hi) > 0) {
+                    return;
+                }
+                result.add(value);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        root = new Leaf(maxKeys + 1);
+        innerLevels = 0;
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns an iterator that walks the leaf chain in ascending order.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private Leaf leaf = firstLeaf();
+            private int index;
+            private T lastReturned;
+            private int expectedModCount = modCount;
+
+            private void skipExhausted() {
+                while (leaf != null && index >= leaf.count) {
+                    leaf = leaf.next;
+                    index = 0;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                skipExhausted();
+                return leaf != null;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = (T) leaf.keys[index++];
+                return lastReturned;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                // Removal can merge or refill leaves, so the position is looked up again.
+                delete(lastReturned);
+                expectedModCount = modCount;
+                leaf = findLeaf(lastReturned);
+                int position = indexOf(leaf, lastReturned);
+                index = position >= 0 ? position + 1 : -position - 1;
+                lastReturned = null;
+            }
+        };
+    }
+}
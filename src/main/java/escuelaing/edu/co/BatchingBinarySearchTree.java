@@ -0,0 +1,233 @@
+package escuelaing.edu.co;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Tree updated by a single writer thread, for workloads where many threads add and remove
+ * values and would otherwise contend on a lock.
+ * <p>
+ * {@link #add(Comparable)} and {@link #remove(Comparable)} queue the mutation in a bounded
+ * queue and return a future of its result; a producer blocks while the queue is full, which
+ * slows producers down to the writer's pace. The writer drains up to {@code maxBatchSize}
+ * mutations at a time, sorts them by value, keeping the submission order of mutations of the
+ * same value, and applies them to its private tree. Consecutive mutations then walk mostly
+ * the same path, and the nodes that copy-on-write copies for the first of them are updated in
+ * place by the next ones. After each batch the writer publishes a {@link BinarySearchTree#snapshot()}
+ * and only then completes the batch's futures, so a caller that waited on its future reads
+ * its own update.
+ * <p>
+ * {@link #search(Comparable)}, {@link #contains(Object)} and {@link #snapshot()} read the
+ * last published snapshot through one volatile read, without locking; they see whole batches
+ * or nothing of them.
+ */
+public class BatchingBinarySearchTree<T extends Comparable<T>> implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 8_192;
+    public static final int DEFAULT_MAX_BATCH_SIZE = 1_024;
+
+    private static final Mutation<?> CLOSE = new Mutation<>(null, false);
+
+    private final BinarySearchTree<T> tree;
+    private final BlockingQueue<Mutation<T>> queue;
+    private final int maxBatchSize;
+    private final Thread writer;
+    private volatile BinarySearchTree<T> published;
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private volatile boolean terminated;
+    private volatile long batches;
+
+    private static final class Mutation<T> {
+        private final T value;
+        private final boolean add;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+
+        Mutation(T value, boolean add) {
+            this.value = value;
+            this.add = add;
+        }
+    }
+
+    public BatchingBinarySearchTree() {
+        this(BinarySearchTree.Balancing.AVL, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * @param queueCapacity mutations that can wait for the writer before producers block
+     * @param maxBatchSize  mutations applied between two published snapshots
+     */
+    public BatchingBinarySearchTree(BinarySearchTree.Balancing balancing, int queueCapacity, int maxBatchSize) {
+        if (queueCapacity < 1) {
+            throw new IllegalArgumentException("Queue capacity must be positive: " + queueCapacity);
+        }
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be positive: " + maxBatchSize);
+        }
+        this.tree = new BinarySearchTree<>(balancing);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.maxBatchSize = maxBatchSize;
+        this.published = tree.snapshot();
+        this.writer = new Thread(this::applyBatches, "bst-batch-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues the insertion of {@code value}, blocking while the queue is full.
+     *
+     * @return a future of whether the value was added, completed once the change is visible
+     *         to readers
+     * @throws IllegalStateException if the tree is closed
+     */
+    public CompletableFuture<Boolean> add(T value) throws InterruptedException {
+        return submit(value, true);
+    }
+
+    /**
+     * Queues the removal of {@code value}, blocking while the queue is full.
+     *
+     * @return a future of whether the value was removed, completed once the change is visible
+     *         to readers
+     * @throws IllegalStateException if the tree is closed
+     */
+    public CompletableFuture<Boolean> remove(T value) throws InterruptedException {
+        return submit(value, false);
+    }
+
+    private CompletableFuture<Boolean> submit(T value, boolean add) throws InterruptedException {
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null");
+        }
+        if (closed.get()) {
+            throw new IllegalStateException("Tree is closed");
+        }
+        Mutation<T> mutation = new Mutation<>(value, add);
+        queue.put(mutation);
+        // A mutation queued after the writer's last drain would never be applied.
+        if (terminated && queue.remove(mutation)) {
+            mutation.result.completeExceptionally(new IllegalStateException("Tree is closed"));
+        }
+        return mutation.result;
+    }
+
+    public T search(T value) {
+        return published.search(value);
+    }
+
+    public boolean contains(Object o) {
+        return published.contains(o);
+    }
+
+    /**
+     * Returns the number of values in the last published snapshot.
+     */
+    public int size() {
+        return published.size();
+    }
+
+    /**
+     * Returns the last published snapshot, which never changes.
+     */
+    public BinarySearchTree<T> snapshot() {
+        return published;
+    }
+
+    /**
+     * Returns the number of batches applied, which is also the number of snapshots
+     * published after the initial one.
+     */
+    public long getBatches() {
+        return batches;
+    }
+
+    /**
+     * Stops accepting mutations, applies those already queued and waits for the writer to
+     * finish. An interrupt does not cut the wait short; it is kept for the caller to see.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void close() {
+        boolean interrupted = false;
+        if (closed.compareAndSet(false, true)) {
+            boolean queued = false;
+            while (!queued && !terminated) {
+                try {
+                    queued = queue.offer((Mutation<T>) CLOSE, 10, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void applyBatches() {
+        List<Mutation<T>> batch = new ArrayList<>(maxBatchSize);
+        Comparator<Mutation<T>> byValue = (a, b) -> a.value.compareTo(b.value);
+        boolean closing = false;
+        try {
+            while (!closing) {
+                batch.add(queue.take());
+                queue.drainTo(batch, maxBatchSize - 1);
+                closing = batch.removeIf(mutation -> mutation == CLOSE);
+                try {
+                    // List.sort is stable, so mutations of one value keep their order.
+                    batch.sort(byValue);
+                } catch (RuntimeException e) {
+                    // A compareTo that throws fails this batch, not the writer.
+                    for (Mutation<T> mutation : batch) {
+                        mutation.result.completeExceptionally(e);
+                    }
+                    batch.clear();
+                    continue;
+                }
+                apply(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            terminated = true;
+            queue.drainTo(batch);
+            for (Mutation<T> mutation : batch) {
+                mutation.result.completeExceptionally(new IllegalStateException("Tree is closed"));
+            }
+        }
+    }
+
+    private void apply(List<Mutation<T>> batch) {
+        boolean[] results = new boolean[batch.size()];
+        RuntimeException[] failures = new RuntimeException[batch.size()];
+        for (int i = 0; i < batch.size(); i++) {
+            Mutation<T> mutation = batch.get(i);
+            try {
+                results[i] = mutation.add ? tree.add(mutation.value) : tree.remove(mutation.value);
+            } catch (RuntimeException e) {
+                failures[i] = e;
+            }
+        }
+        published = tree.snapshot();
+        batches++;
+        for (int i = 0; i < batch.size(); i++) {
+            if (failures[i] != null) {
+                batch.get(i).result.completeExceptionally(failures[i]);
+            } else {
+                batch.get(i).result.complete(results[i]);
+            }
+        }
+    }
+}
@@ -1,19 +1,99 @@
 package escuelaing.edu.co;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+public class BinarySearchTree<T extends Comparable<T>> implements NavigableSet<T> {
+    /**
+     * {@link #addAll(Collection)} rebuilds the tree from a merged array instead of inserting
+     * one by one once the argument holds at least 1/BULK_LOAD_RATIO of the current size.
+     */
+    private static final int BULK_LOAD_RATIO = 8;
+
+    private final NodeStorage<T> storage;
+    private final Balancing balancing;
+    private final boolean multiset;
+    private BloomFilter bloomFilter;
+
+    /**
+     * Rebalancing strategy applied by {@link #add(Comparable)} and {@link #remove(Object)}.
+     */
+    public enum Balancing {
+        /** Plain binary search tree, the shape depends on the insertion order. */
+        NONE,
+        /** AVL tree, rotations keep the height within 1.44 * log2(n). */
+        AVL,
+        /**
+         * Semi-splay tree: {@link #search(Comparable)}, {@link #contains(Object)},
+         * {@link #add(Comparable)} and {@link #remove(Object)} restructure the path they walk
+         * so that the accessed node moves about half way to the root. Frequently accessed
+         * values stay near the top, and any sequence of operations costs amortized O(log n)
+         * each. Lookups only rotate nodes, so iterators continue from their next value
+         * instead of failing; read-only snapshots do not restructure.
+         */
+        SPLAY
+    }
 
-public class BinarySearchTree<T extends Comparable<T>> implements Collection<T> {
-    private Node<T> root;
-    private int size;
+    /**
+     * Layout of the nodes of a tree.
+     */
+    public enum Storage {
+        /**
+         * One object per node, linked by references. Snapshots share nodes and cost O(1), and
+         * the join-based methods run in logarithmic time on AVL trees.
+         */
+        LINKED,
+        /**
+         * Parallel arrays indexed by node number, without a header and child references per
+         * node, so a tree takes less memory and its nodes sit closer together. Snapshots copy
+         * the arrays in O(n), and the join-based methods merge the sorted contents and
+         * rebuild a balanced tree in O(n + m).
+         */
+        ARRAY
+    }
 
     public static class Node<T> {
-        private T value;
-        private Node<T> left, right;
-        private int height;
-
-        Node(T value) {
+        T value;
+        Node<T> left, right;
+        int height;
+        int size;
+        /** Sum of the depths of the subtree's nodes, measured from this node. */
+        long pathLength;
+        /** Number of nodes in the subtree whose children differ in height by more than one. */
+        int unbalanced;
+        /** Occurrences of {@link #value}, always 1 outside multiset mode. */
+        int count;
+        /** Sum of {@link #count} over the subtree. */
+        long occurrences;
+        /** Value a {@link BinarySearchTreeMap} maps {@link #value} to, unused by sets. */
+        Object mapped;
+        final Object epoch;
+
+        Node(T value, Object epoch) {
             this.value = value;
             this.height = 1;
+            this.size = 1;
+            this.count = 1;
+            this.occurrences = 1;
+            this.epoch = epoch;
+        }
+
+        Node<T> copy(Object epoch) {
+            Node<T> copy = new Node<>(value, epoch);
+            copy.left = left;
+            copy.right = right;
+            copy.height = height;
+            copy.size = size;
+            copy.pathLength = pathLength;
+            copy.unbalanced = unbalanced;
+            copy.count = count;
+            copy.occurrences = occurrences;
+            copy.mapped = mapped;
+            return copy;
         }
 
         public T getValue() {
@@ -31,6 +111,89 @@ public class BinarySearchTree<T extends Comparable<T>> implements Collection<T>
         public int getHeight() {
             return height;
         }
+
+        /**
+         * Returns the number of nodes in the subtree rooted at this node.
+         */
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Returns how many times the value was added, which is 1 unless the tree is a multiset.
+         */
+        public int getCount() {
+            return count;
+        }
+    }
+
+    public BinarySearchTree() {
+        this(Balancing.NONE);
+    }
+
+    public BinarySearchTree(Balancing balancing) {
+        this(balancing, false);
+    }
+
+    /**
+     * Creates a tree that, when {@code multiset} is set, counts duplicates instead of
+     * rejecting them. A multiset keeps one node per distinct value with its number of
+     * occurrences: {@link #add(Comparable)} and {@link #remove(Object)} add and remove one
+     * occurrence, {@link #size()} and the iterators count every occurrence, and
+     * {@link #getNumberOfNodes()} gives the number of distinct values. Traversals, navigation
+     * and order statistics such as {@link #select(int)} and {@link #rank(Comparable)} see
+     * each distinct value once. The set algebra methods {@link #union(Collection)},
+     * {@link #intersection(Collection)} and {@link #difference(Collection)} and
+     * {@link #writeTo(Path, KeyCodec)} are not supported on multisets.
+     */
+    public BinarySearchTree(Balancing balancing, boolean multiset) {
+        this(balancing, multiset, Storage.LINKED);
+    }
+
+    /**
+     * Creates a tree whose nodes are laid out as {@code storage} says; the behaviour is the
+     * same, see {@link Storage} for the costs that differ.
+     */
+    public BinarySearchTree(Balancing balancing, boolean multiset, Storage storage) {
+        if (balancing == null) {
+            throw new NullPointerException("Balancing cannot be null");
+        }
+        if (storage == null) {
+            throw new NullPointerException("Storage cannot be null");
+        }
+        this.storage = storage == Storage.ARRAY
+                ? new ArrayNodeStorage<>(balancing, multiset)
+                : new TreeCore<>(null, balancing, multiset);
+        this.balancing = balancing;
+        this.multiset = multiset;
+    }
+
+    private BinarySearchTree(NodeStorage<T> storage) {
+        this.storage = storage;
+        this.balancing = storage.balancing();
+        this.multiset = storage.isMultiset();
+    }
+
+    public Balancing getBalancing() {
+        return balancing;
+    }
+
+    public boolean isMultiset() {
+        return multiset;
+    }
+
+    public Storage getStorage() {
+        return storage instanceof ArrayNodeStorage ? Storage.ARRAY : Storage.LINKED;
+    }
+
+    NodeStorage<T> storage() {
+        return storage;
+    }
+
+    private void checkMultiset() {
+        if (!multiset) {
+            throw new UnsupportedOperationException("Tree is not a multiset");
+        }
     }
 
     @Override
@@ -38,42 +201,97 @@ public class BinarySearchTree<T extends Comparable<T>> implements Collection<T>
         if (value == null) {
             throw new NullPointerException("Value cannot be null");
         }
-        int initialSize = size;
-        root = insert(root, value);
-        return size > initialSize;
+        return insert(value, 1) == 0 || multiset;
     }
 
-    private Node insert(Node node, T value) {
-        if (node == null) {
-            size++;
-            return new Node(value);
+    /**
+     * Adds {@code occurrences} occurrences of {@code value} to a multiset in one descent.
+     *
+     * @return the number of occurrences before the call
+     * @throws IllegalArgumentException if {@code occurrences} is negative or the count would
+     *                                  exceed {@link Integer#MAX_VALUE}
+     * @throws UnsupportedOperationException if the tree is not a multiset
+     */
+    public int addOccurrences(T value, int occurrences) {
+        checkMultiset();
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null");
         }
-
-        int compareResult = value.compareTo((T) node.value);
-        if (compareResult < 0) {
-            node.left = insert(node.left, value);
-        } else if (compareResult > 0) {
-            node.right = insert(node.right, value);
+        if (occurrences < 0) {
+            throw new IllegalArgumentException("Occurrences cannot be negative: " + occurrences);
         }
+        return occurrences == 0 ? count(value) : insert(value, occurrences);
+    }
 
-        node.height = Math.max(getHeight(node.left), getHeight(node.right)) + 1;
-        return node;
+    /**
+     * Returns how many times {@code value} occurs: its multiplicity in a multiset, 0 or 1
+     * otherwise.
+     */
+    public int count(T value) {
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null");
+        }
+        if (!mightContain(value)) {
+            return 0;
+        }
+        int count = storage.count(value);
+        if (count == 0) {
+            recordFalsePositive();
+        }
+        return count;
     }
 
+    private int insert(T value, int occurrences) {
+        TreeMetrics metrics = storage.metrics();
+        long hash = bloomFilter == null ? 0 : bloomFilter.hash(value);
+        int previous;
+        if (metrics == null) {
+            previous = storage.link(value, occurrences);
+        } else {
+            long start = System.nanoTime();
+            previous = storage.link(value, occurrences);
+            metrics.record(TreeMetrics.Operation.INSERT, storage.comparisons(), storage.comparisons(),
+                    previous == 0 || multiset, System.nanoTime() - start, storage.size());
+        }
+        if (previous == 0 && bloomFilter != null) {
+            bloomFilter.add(hash);
+            checkBloomFilter();
+        }
+        return previous;
+    }
     public T search(T value) {
-        Node result = searchNode(root, value);
-        return result != null ? (T) result.value : null;
+        if (!mightContain(value)) {
+            return null;
+        }
+        T result = storage.find(value);
+        if (result == null) {
+            recordFalsePositive();
+        }
+        return result;
     }
 
-    private Node searchNode(Node node, T value) {
-        if (node == null || value.compareTo((T) node.value) == 0) {
-            return node;
+    /**
+     * Returns {@code false} when the Bloom filter rules {@code value} out, recording the
+     * lookup it saved in the metrics.
+     */
+    private boolean mightContain(T value) {
+        BloomFilter filter = bloomFilter;
+        if (filter == null || filter.mightContain(value)) {
+            return true;
         }
-        return value.compareTo((T) node.value) < 0
-                ? searchNode(node.left, value)
-                : searchNode(node.right, value);
+        TreeMetrics metrics = storage.metrics();
+        if (metrics != null) {
+            metrics.record(TreeMetrics.Operation.SEARCH, 0, 0, false, 0, storage.size());
+        }
+        return false;
     }
 
+    private void recordFalsePositive() {
+        BloomFilter filter = bloomFilter;
+        if (filter != null) {
+            filter.recordFalsePositive();
+        }
+    }
     @Override
     public boolean remove(Object obj) {
         if (!(obj instanceof Comparable)) {
@@ -81,163 +299,379 @@ public class BinarySearchTree<T extends Comparable<T>> implements Collection<T>
         }
         @SuppressWarnings("unchecked")
         T value = (T) obj;
-        int initialSize = size;
-        root = delete(root, value);
-        return size < initialSize;
+        return delete(value, 1) > 0;
     }
 
-    private Node delete(Node node, T value) {
-        if (node == null) {
-            return null;
+    /**
+     * Removes up to {@code occurrences} occurrences of {@code value} from a multiset in one
+     * descent; the value is unlinked once none are left.
+     *
+     * @return the number of occurrences before the call
+     * @throws IllegalArgumentException if {@code occurrences} is negative
+     * @throws UnsupportedOperationException if the tree is not a multiset
+     */
+    public int removeOccurrences(T value, int occurrences) {
+        checkMultiset();
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null");
+        }
+        if (occurrences < 0) {
+            throw new IllegalArgumentException("Occurrences cannot be negative: " + occurrences);
         }
+        return occurrences == 0 ? count(value) : delete(value, occurrences);
+    }
 
-        int compareResult = value.compareTo((T) node.value);
-        if (compareResult < 0) {
-            node.left = delete(node.left, value);
-        } else if (compareResult > 0) {
-            node.right = delete(node.right, value);
+    private int delete(T value, int occurrences) {
+        TreeMetrics metrics = storage.metrics();
+        int previous;
+        if (metrics == null) {
+            previous = storage.unlink(value, occurrences);
         } else {
-            if (node.left == null) {
-                size--;
-                return node.right;
-            } else if (node.right == null) {
-                size--;
-                return node.left;
-            }
-
-            Node successor = findMin(node.right);
-            node.value = successor.value;
-            node.right = delete(node.right, (T) successor.value);
+            long start = System.nanoTime();
+            previous = storage.unlink(value, occurrences);
+            metrics.record(TreeMetrics.Operation.DELETE, storage.comparisons(), storage.comparisons(), previous > 0,
+                    System.nanoTime() - start, storage.size());
         }
-
-        node.height = Math.max(getHeight(node.left), getHeight(node.right)) + 1;
-        return node;
+        if (previous > 0 && previous <= occurrences) {
+            bloomFilterRemoved(1);
+        }
+        return previous;
     }
 
-    public void inOrderTraversal(List<T> result) {
-        inOrderTraversal(root, result);
+    private void checkWritable() {
+        storage.checkWritable();
     }
 
-    private void inOrderTraversal(Node node, List<T> result) {
-        if (node != null) {
-            inOrderTraversal(node.left, result);
-            result.add((T) node.value);
-            inOrderTraversal(node.right, result);
+    /**
+     * Returns a read-only view of the current contents in O(1). The snapshot shares its
+     * nodes with this tree; later updates copy the O(log n) nodes on the path they touch
+     * instead of modifying shared ones, so the snapshot never changes. With
+     * {@link Storage#ARRAY} the snapshot copies the arrays in O(n) instead.
+     */
+    public BinarySearchTree<T> snapshot() {
+        if (storage.isReadOnly()) {
+            return this;
         }
+        return new BinarySearchTree<>(storage.snapshot());
     }
 
-    public void preOrderTraversal(List<T> result) {
-        preOrderTraversal(root, result);
+    public boolean isReadOnly() {
+        return storage.isReadOnly();
     }
 
-    private void preOrderTraversal(Node node, List<T> result) {
-        if (node != null) {
-            result.add((T) node.value);
-            preOrderTraversal(node.left, result);
-            preOrderTraversal(node.right, result);
+    /**
+     * Writes the values in ascending order to a compact snapshot file that
+     * {@link #readFrom(Path, KeyCodec)} reloads in O(n) and {@link MappedBinarySearchTree}
+     * opens without deserializing.
+     */
+    public void writeTo(Path path, KeyCodec<? super T> codec) throws IOException {
+        if (multiset) {
+            throw new UnsupportedOperationException("Snapshot files hold distinct values only");
         }
+        MappedBinarySearchTree.write(path, this, codec);
     }
 
-    public T getRoot() {
-        return root != null ? root.getValue() : null;
+    public static <T extends Comparable<T>> BinarySearchTree<T> readFrom(Path path, KeyCodec<T> codec)
+            throws IOException {
+        return readFrom(path, codec, Balancing.NONE);
     }
 
-
-    public void postOrderTraversal(List<T> result) {
-        postOrderTraversal(root, result);
+    /**
+     * Loads a file written by {@link #writeTo(Path, KeyCodec)}. The values are stored in
+     * order, so the tree is built balanced in O(n) without sorting them; one comparison per
+     * value checks that order.
+     *
+     * @throws IOException if the file cannot be read, is not a snapshot, or does not hold
+     *                     sorted distinct values
+     */
+    public static <T extends Comparable<T>> BinarySearchTree<T> readFrom(Path path, KeyCodec<T> codec,
+                                                                         Balancing balancing) throws IOException {
+        Object[] values = MappedBinarySearchTree.open(path, codec).toArray();
+        for (int i = 1; i < values.length; i++) {
+            @SuppressWarnings("unchecked")
+            T previous = (T) values[i - 1];
+            @SuppressWarnings("unchecked")
+            T value = (T) values[i];
+            if (previous.compareTo(value) >= 0) {
+                throw new IOException("Tree snapshot is not sorted and distinct at position " + i + ": " + path);
+            }
+        }
+        BinarySearchTree<T> tree = new BinarySearchTree<>(balancing);
+        tree.bulkAdd(values, true);
+        return tree;
     }
 
-    private void postOrderTraversal(Node node, List<T> result) {
-        if (node != null) {
-            postOrderTraversal(node.left, result);
-            postOrderTraversal(node.right, result);
-            result.add((T) node.value);
+    /**
+     * Starts recording {@link TreeMetrics} for this tree, or returns the ones already attached.
+     */
+    public TreeMetrics enableMetrics() {
+        if (storage.metrics() == null) {
+            storage.setMetrics(new TreeMetrics());
         }
+        return storage.metrics();
     }
 
-    public T findMin() {
-        if (root == null) return null;
-        return (T) findMin(root).value;
+    public void disableMetrics() {
+        storage.setMetrics(null);
     }
 
-    private Node findMin(Node node) {
-        while (node.left != null) {
-            node = node.left;
-        }
-        return node;
+    /**
+     * Returns the attached metrics, or {@code null} when instrumentation is disabled.
+     */
+    public TreeMetrics getMetrics() {
+        return storage.metrics();
     }
 
-    public T findMax() {
-        if (root == null) return null;
-        return (T) findMax(root).value;
+    /**
+     * Puts a {@link BloomFilter} in front of {@link #search(Comparable)},
+     * {@link #contains(Object)} and {@link #count(Comparable)}, or returns the one already
+     * attached. Lookups of absent values then usually return after reading one word of the
+     * filter instead of descending to a leaf. Filling it costs O(n); afterwards every
+     * insertion adds one hash, and the filter is rebuilt in O(n) after it outgrows its
+     * capacity or after many removals, which it cannot undo.
+     *
+     * <p>The filter hashes values with {@link Object#hashCode()}, which is only safe when
+     * {@code compareTo} is consistent with {@code equals}; it accepts the JDK types known to
+     * be, such as boxed primitives, {@link String} and enums, and throws for others. Use
+     * {@link #enableBloomFilter(double, ToIntFunction)} for other types.
+     *
+     * @param falsePositiveRate the share of absent values the filter should let through,
+     *                          which sets its size at about 1.44 * log2(1 / rate) bits per
+     *                          value
+     * @throws IllegalArgumentException if a value is of a type whose ordering may disagree
+     *                                  with its hash code
+     */
+    public BloomFilter enableBloomFilter(double falsePositiveRate) {
+        return attachBloomFilter(falsePositiveRate, null);
     }
 
-    private Node findMax(Node node) {
-        while (node.right != null) {
-            node = node.right;
+    /**
+     * Puts a {@link BloomFilter} keyed by {@code hash} in front of the lookups, see
+     * {@link #enableBloomFilter(double)}.
+     *
+     * @param hash must return the same value for any two values that {@code compareTo}
+     *             reports equal, e.g. {@code v -> v.stripTrailingZeros().hashCode()} for
+     *             {@link java.math.BigDecimal}
+     */
+    public BloomFilter enableBloomFilter(double falsePositiveRate, ToIntFunction<? super T> hash) {
+        if (hash == null) {
+            throw new NullPointerException("Hash cannot be null");
         }
-        return node;
+        return attachBloomFilter(falsePositiveRate, hash);
     }
 
-    public int height() {
-        return getHeight(root);
+    @SuppressWarnings("unchecked")
+    private BloomFilter attachBloomFilter(double falsePositiveRate, ToIntFunction<? super T> hash) {
+        if (bloomFilter == null) {
+            BloomFilter filter = new BloomFilter(falsePositiveRate, storage.size(), (ToIntFunction<Object>) hash);
+            bloomFilter = filter;
+            try {
+                fillBloomFilter();
+            } catch (RuntimeException e) {
+                bloomFilter = null;
+                throw e;
+            }
+        }
+        return bloomFilter;
     }
 
-    private int getHeight(Node node) {
-        return node == null ? 0 : node.height;
+    public void disableBloomFilter() {
+        bloomFilter = null;
     }
 
-    public boolean isBalanced() {
-        return isBalanced(root);
+    /**
+     * Returns the attached Bloom filter, or {@code null} when lookups go straight to the tree.
+     */
+    public BloomFilter getBloomFilter() {
+        return bloomFilter;
     }
 
-    private boolean isBalanced(Node node) {
-        if (node == null) {
+    private void fillBloomFilter() {
+        BloomFilter filter = bloomFilter;
+        inOrderTraversal((value, depth) -> {
+            filter.add(value);
             return true;
+        });
+    }
+
+    private void checkBloomFilter() {
+        if (bloomFilter.needsRebuild()) {
+            bloomFilter.reset(storage.size());
+            fillBloomFilter();
         }
+    }
 
-        int balanceFactor = Math.abs(getHeight(node.left) - getHeight(node.right));
-        return balanceFactor <= 1 && isBalanced(node.left) && isBalanced(node.right);
+    private void bloomFilterAdded(Iterable<?> values) {
+        if (bloomFilter != null) {
+            for (Object value : values) {
+                bloomFilter.add(value);
+            }
+            checkBloomFilter();
+        }
     }
 
-    public List<T> levelOrderTraversal() {
-        List<T> result = new ArrayList<>();
-        if (root == null) {
-            return result;
+    private void bloomFilterRemoved(int count) {
+        if (bloomFilter != null && count > 0) {
+            bloomFilter.removed(count);
+            checkBloomFilter();
         }
+    }
+
+    public void inOrderTraversal(List<T> result) {
+        inOrderTraversal((value, depth) -> result.add(value));
+    }
 
-        Queue<Node> queue = new LinkedList<>();
-        queue.offer(root);
+    /**
+     * Visits the values in ascending order.
+     *
+     * @return {@code true} if every value was visited, {@code false} if the visitor stopped
+     */
+    public boolean inOrderTraversal(TreeVisitor<? super T> visitor) {
+        return storage.inOrderTraversal(visitor);
+    }
 
-        while (!queue.isEmpty()) {
-            Node current = queue.poll();
-            result.add((T) current.value);
+    public void preOrderTraversal(List<T> result) {
+        preOrderTraversal((value, depth) -> result.add(value));
+    }
 
-            if (current.left != null) {
-                queue.offer(current.left);
-            }
-            if (current.right != null) {
-                queue.offer(current.right);
-            }
+    /**
+     * Visits each value before the values of its subtrees.
+     *
+     * @return {@code true} if every value was visited, {@code false} if the visitor stopped
+     */
+    public boolean preOrderTraversal(TreeVisitor<? super T> visitor) {
+        return storage.preOrderTraversal(visitor);
+    }
+
+    public T getRoot() {
+        return storage.rootValue();
+    }
+
+    Node<T> getRootNode() {
+        return storage.root();
+    }
+
+
+    public void postOrderTraversal(List<T> result) {
+        postOrderTraversal((value, depth) -> result.add(value));
+    }
+
+    /**
+     * Visits each value after the values of its subtrees.
+     *
+     * @return {@code true} if every value was visited, {@code false} if the visitor stopped
+     */
+    public boolean postOrderTraversal(TreeVisitor<? super T> visitor) {
+        return storage.postOrderTraversal(visitor);
+    }
+
+    /**
+     * Appends the values {@code v} with {@code lo <= v <= hi} in ascending order.
+     */
+    public void rangeTraversal(T lo, T hi, List<T> result) {
+        rangeTraversal(lo, hi, (value, depth) -> result.add(value));
+    }
+
+    /**
+     * Visits the values {@code v} with {@code lo <= v <= hi} in ascending order, skipping
+     * the subtrees that lie outside the range.
+     *
+     * @return {@code true} if every value in the range was visited, {@code false} if the
+     *         visitor stopped
+     */
+    public boolean rangeTraversal(T lo, T hi, TreeVisitor<? super T> visitor) {
+        return storage.rangeTraversal(lo, hi, visitor);
+    }
+
+    public T findMin() {
+        return storage.first();
+    }
+
+    public T findMax() {
+        return storage.last();
+    }
+
+    public int height() {
+        return storage.height();
+    }
+
+    /**
+     * Returns the value at zero-based position {@code k} of the sorted order in O(log n).
+     *
+     * @throws IndexOutOfBoundsException if {@code k} is negative or not less than {@link #size()}
+     */
+    public T select(int k) {
+        return storage.select(k);
+    }
+
+    /**
+     * Returns the number of values strictly less than {@code value}, which is the position
+     * {@code value} has, or would have, in the sorted order.
+     */
+    public int rank(T value) {
+        return storage.countLess(value, false);
+    }
+
+    /**
+     * Returns the number of values {@code v} with {@code lo <= v <= hi} in O(log n).
+     */
+    public int countInRange(T lo, T hi) {
+        if (lo.compareTo(hi) > 0) {
+            return 0;
         }
+        return storage.countLess(hi, true) - storage.countLess(lo, false);
+    }
 
+    /**
+     * Returns whether every node's subtrees differ in height by at most one, in O(1).
+     */
+    public boolean isBalanced() {
+        return storage.isBalanced();
+    }
+
+    /**
+     * Returns the structural statistics of the tree in O(1). They are kept in the nodes and
+     * updated along the path of every insert, delete and rotation.
+     */
+    public TreeStats stats() {
+        return storage.stats();
+    }
+
+    public List<T> levelOrderTraversal() {
+        List<T> result = new ArrayList<>(storage.size());
+        levelOrderTraversal((value, depth) -> result.add(value));
         return result;
     }
 
+    /**
+     * Visits the values level by level, left to right. The queue holds at most two levels.
+     *
+     * @return {@code true} if every value was visited, {@code false} if the visitor stopped
+     */
+    public boolean levelOrderTraversal(TreeVisitor<? super T> visitor) {
+        return storage.levelOrderTraversal(visitor);
+    }
+
     @Override
     public void clear() {
-        root = null;
-        size = 0;
+        storage.clear();
+        if (bloomFilter != null) {
+            bloomFilter.reset(0);
+        }
     }
 
+    /**
+     * Returns the number of values, counting every occurrence in a multiset; a multiset with
+     * more than {@link Integer#MAX_VALUE} occurrences reports {@link Integer#MAX_VALUE}.
+     */
     @Override
     public int size() {
-        return size;
+        return multiset ? (int) Math.min(storage.occurrences(), Integer.MAX_VALUE) : storage.size();
     }
 
     @Override
     public boolean isEmpty() {
-        return size == 0;
+        return storage.size() == 0;
     }
 
     @Override
@@ -252,46 +686,437 @@ public class BinarySearchTree<T extends Comparable<T>> implements Collection<T>
 
     @Override
     public Iterator<T> iterator() {
-        return new Iterator<T>() {
-            private final List<T> elements = new ArrayList<>();
-            private int index = 0;
+        return iterator(null, false, null, false, false);
+    }
+
+    @Override
+    public Iterator<T> descendingIterator() {
+        return iterator(null, false, null, false, true);
+    }
+
+    /**
+     * Returns an in-order iterator over the values between two bounds, {@code null} when
+     * unbounded, whose {@code remove()} goes through {@link #delete(Comparable, int)}, so the
+     * metrics and the Bloom filter follow it.
+     */
+    private Iterator<T> iterator(T lo, boolean loInclusive, T hi, boolean hiInclusive, boolean descending) {
+        return storage.iterator(lo, loInclusive, hi, hiInclusive, descending, value -> delete(value, 1));
+    }
+
+    @Override
+    public Comparator<? super T> comparator() {
+        return null;
+    }
+
+    @Override
+    public T first() {
+        T value = storage.first();
+        if (value == null) {
+            throw new NoSuchElementException();
+        }
+        return value;
+    }
+
+    @Override
+    public T last() {
+        T value = storage.last();
+        if (value == null) {
+            throw new NoSuchElementException();
+        }
+        return value;
+    }
+
+    @Override
+    public T lower(T value) {
+        return storage.lower(value);
+    }
+
+    @Override
+    public T floor(T value) {
+        return storage.floor(value);
+    }
+
+    @Override
+    public T ceiling(T value) {
+        return storage.ceiling(value);
+    }
 
-            {
-                inOrderTraversal(elements);
+    @Override
+    public T higher(T value) {
+        return storage.higher(value);
+    }
+
+    @Override
+    public T pollFirst() {
+        T value = storage.first();
+        if (value != null) {
+            delete(value, 1);
+        }
+        return value;
+    }
+
+    @Override
+    public T pollLast() {
+        T value = storage.last();
+        if (value != null) {
+            delete(value, 1);
+        }
+        return value;
+    }
+
+    @Override
+    public NavigableSet<T> descendingSet() {
+        return new SubSet(null, false, null, false, true);
+    }
+
+    @Override
+    public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+        if (fromElement.compareTo(toElement) > 0) {
+            throw new IllegalArgumentException("fromElement > toElement");
+        }
+        return new SubSet(fromElement, fromInclusive, toElement, toInclusive, false);
+    }
+
+    @Override
+    public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+        return new SubSet(null, false, Objects.requireNonNull(toElement), inclusive, false);
+    }
+
+    @Override
+    public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+        return new SubSet(Objects.requireNonNull(fromElement), inclusive, null, false, false);
+    }
+
+    @Override
+    public SortedSet<T> subSet(T fromElement, T toElement) {
+        return subSet(fromElement, true, toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> headSet(T toElement) {
+        return headSet(toElement, false);
+    }
+
+    @Override
+    public SortedSet<T> tailSet(T fromElement) {
+        return tailSet(fromElement, true);
+    }
+
+    /**
+     * Returns a spliterator that splits at subtree boundaries and reports
+     * {@link Spliterator#SORTED}, {@link Spliterator#DISTINCT}, {@link Spliterator#ORDERED},
+     * {@link Spliterator#NONNULL} and an exact {@link Spliterator#SIZED} size. A writable
+     * {@link Balancing#SPLAY} tree is traversed through its iterator instead, which survives
+     * the rotations of lookups made during the traversal but splits in batches.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        return storage.spliterator();
+    }
+
+    /**
+     * Live view over the values of a range of the tree, optionally in descending order.
+     * Navigation and iteration run directly against the backing tree, so a view over k
+     * values iterates in O(log n + k).
+     */
+    private class SubSet extends AbstractSet<T> implements NavigableSet<T> {
+        private final T lo;
+        private final boolean loInclusive;
+        private final T hi;
+        private final boolean hiInclusive;
+        private final boolean descending;
+
+        SubSet(T lo, boolean loInclusive, T hi, boolean hiInclusive, boolean descending) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+            this.descending = descending;
+        }
+
+        private boolean tooLow(T value) {
+            if (lo == null) {
+                return false;
             }
+            int compareResult = value.compareTo(lo);
+            return compareResult < 0 || (compareResult == 0 && !loInclusive);
+        }
 
-            @Override
-            public boolean hasNext() {
-                return index < elements.size();
+        private boolean tooHigh(T value) {
+            if (hi == null) {
+                return false;
             }
+            int compareResult = value.compareTo(hi);
+            return compareResult > 0 || (compareResult == 0 && !hiInclusive);
+        }
+
+        private boolean inRange(T value) {
+            return !tooLow(value) && !tooHigh(value);
+        }
 
-            @Override
-            public T next() {
-                if (!hasNext()) {
-                    throw new NoSuchElementException();
+        private void checkBound(T bound, boolean inclusive) {
+            if (lo != null) {
+                int compareResult = bound.compareTo(lo);
+                if (compareResult < 0 || (compareResult == 0 && !loInclusive && inclusive)) {
+                    throw new IllegalArgumentException("Bound out of range");
                 }
-                return elements.get(index++);
             }
-        };
+            if (hi != null) {
+                int compareResult = bound.compareTo(hi);
+                if (compareResult > 0 || (compareResult == 0 && !hiInclusive && inclusive)) {
+                    throw new IllegalArgumentException("Bound out of range");
+                }
+            }
+        }
+
+        private T absLowest() {
+            T value = lo == null ? storage.first() : loInclusive ? storage.ceiling(lo) : storage.higher(lo);
+            return value == null || tooHigh(value) ? null : value;
+        }
+
+        private T absHighest() {
+            T value = hi == null ? storage.last() : hiInclusive ? storage.floor(hi) : storage.lower(hi);
+            return value == null || tooLow(value) ? null : value;
+        }
+
+        private T absCeiling(T value) {
+            if (tooLow(value)) {
+                return absLowest();
+            }
+            T result = storage.ceiling(value);
+            return result == null || tooHigh(result) ? null : result;
+        }
+
+        private T absHigher(T value) {
+            if (tooLow(value)) {
+                return absLowest();
+            }
+            T result = storage.higher(value);
+            return result == null || tooHigh(result) ? null : result;
+        }
+
+        private T absFloor(T value) {
+            if (tooHigh(value)) {
+                return absHighest();
+            }
+            T result = storage.floor(value);
+            return result == null || tooLow(result) ? null : result;
+        }
+
+        private T absLower(T value) {
+            if (tooHigh(value)) {
+                return absHighest();
+            }
+            T result = storage.lower(value);
+            return result == null || tooLow(result) ? null : result;
+        }
+
+        @Override
+        public int size() {
+            if (multiset) {
+                long upper = hi == null ? storage.occurrences() : storage.occurrencesLess(hi, hiInclusive);
+                long lower = lo == null ? 0 : storage.occurrencesLess(lo, !loInclusive);
+                return (int) Math.min(Math.max(upper - lower, 0), Integer.MAX_VALUE);
+            }
+            int upper = hi == null ? storage.size() : storage.countLess(hi, hiInclusive);
+            int lower = lo == null ? 0 : storage.countLess(lo, !loInclusive);
+            return Math.max(upper - lower, 0);
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return absLowest() == null;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof Comparable)) {
+                return false;
+            }
+            @SuppressWarnings("unchecked")
+            T value = (T) o;
+            return inRange(value) && BinarySearchTree.this.contains(value);
+        }
+
+        @Override
+        public boolean add(T value) {
+            if (value == null) {
+                throw new NullPointerException("Value cannot be null");
+            }
+            if (!inRange(value)) {
+                throw new IllegalArgumentException("Value out of range");
+            }
+            return BinarySearchTree.this.add(value);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof Comparable)) {
+                return false;
+            }
+            @SuppressWarnings("unchecked")
+            T value = (T) o;
+            return inRange(value) && BinarySearchTree.this.remove(value);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return BinarySearchTree.this.iterator(lo, loInclusive, hi, hiInclusive, descending);
+        }
+
+        @Override
+        public Iterator<T> descendingIterator() {
+            return BinarySearchTree.this.iterator(lo, loInclusive, hi, hiInclusive, !descending);
+        }
+
+        @Override
+        public Comparator<? super T> comparator() {
+            return descending ? Collections.reverseOrder() : null;
+        }
+
+        @Override
+        public T first() {
+            T value = descending ? absHighest() : absLowest();
+            if (value == null) {
+                throw new NoSuchElementException();
+            }
+            return value;
+        }
+
+        @Override
+        public T last() {
+            T value = descending ? absLowest() : absHighest();
+            if (value == null) {
+                throw new NoSuchElementException();
+            }
+            return value;
+        }
+
+        @Override
+        public T lower(T value) {
+            return descending ? absHigher(value) : absLower(value);
+        }
+
+        @Override
+        public T floor(T value) {
+            return descending ? absCeiling(value) : absFloor(value);
+        }
+
+        @Override
+        public T ceiling(T value) {
+            return descending ? absFloor(value) : absCeiling(value);
+        }
+
+        @Override
+        public T higher(T value) {
+            return descending ? absLower(value) : absHigher(value);
+        }
+
+        @Override
+        public T pollFirst() {
+            T value = descending ? absHighest() : absLowest();
+            if (value != null) {
+                delete(value, 1);
+            }
+            return value;
+        }
+
+        @Override
+        public T pollLast() {
+            T value = descending ? absLowest() : absHighest();
+            if (value != null) {
+                delete(value, 1);
+            }
+            return value;
+        }
+
+        @Override
+        public NavigableSet<T> descendingSet() {
+            return new SubSet(lo, loInclusive, hi, hiInclusive, !descending);
+        }
+
+        @Override
+        public NavigableSet<T> subSet(T fromElement, boolean fromInclusive, T toElement, boolean toInclusive) {
+            if (descending) {
+                return tailSet(fromElement, fromInclusive).headSet(toElement, toInclusive);
+            }
+            if (fromElement.compareTo(toElement) > 0) {
+                throw new IllegalArgumentException("fromElement > toElement");
+            }
+            checkBound(fromElement, fromInclusive);
+            checkBound(toElement, toInclusive);
+            return new SubSet(fromElement, fromInclusive, toElement, toInclusive, false);
+        }
+
+        @Override
+        public NavigableSet<T> headSet(T toElement, boolean inclusive) {
+            checkBound(toElement, inclusive);
+            return descending
+                    ? new SubSet(toElement, inclusive, hi, hiInclusive, true)
+                    : new SubSet(lo, loInclusive, toElement, inclusive, false);
+        }
+
+        @Override
+        public NavigableSet<T> tailSet(T fromElement, boolean inclusive) {
+            checkBound(fromElement, inclusive);
+            return descending
+                    ? new SubSet(lo, loInclusive, fromElement, inclusive, true)
+                    : new SubSet(fromElement, inclusive, hi, hiInclusive, false);
+        }
+
+        @Override
+        public SortedSet<T> subSet(T fromElement, T toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<T> headSet(T toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<T> tailSet(T fromElement) {
+            return tailSet(fromElement, true);
+        }
     }
 
     @Override
     public Object[] toArray() {
-        List<T> list = new ArrayList<>();
-        inOrderTraversal(list);
-        return list.toArray();
+        return valueList().toArray();
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <E> E[] toArray(E[] a) {
-        List<T> list = new ArrayList<>();
-        inOrderTraversal(list);
-        return list.toArray(a);
+        return valueList().toArray(a);
+    }
+
+    /**
+     * Returns the values in order, repeating each as often as it occurs in a multiset.
+     */
+    private List<T> valueList() {
+        List<T> list = new ArrayList<>(size());
+        if (multiset) {
+            forEach(list::add);
+        } else {
+            inOrderTraversal(list);
+        }
+        return list;
     }
 
     @Override
     public boolean containsAll(Collection<?> c) {
+        if (c == this) {
+            return true;
+        }
+        if (isSortedSet(c)) {
+            if (c.size() > storage.size()) {
+                return false;
+            }
+            if ((long) c.size() * BULK_LOAD_RATIO >= storage.size()) {
+                return containsAllSorted(c);
+            }
+        }
         for (Object element : c) {
             if (!contains(element)) {
                 return false;
@@ -300,8 +1125,44 @@ public class BinarySearchTree<T extends Comparable<T>> implements Collection<T>
         return true;
     }
 
+    /**
+     * Walks this tree and the ascending values of {@code c} side by side, stopping at the
+     * first value of {@code c} that the walk passes without finding.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean containsAllSorted(Collection<?> c) {
+        Iterator<T> mine = iterator();
+        for (Object element : c) {
+            T value = (T) element;
+            int compareResult = -1;
+            while (compareResult < 0) {
+                if (!mine.hasNext()) {
+                    return false;
+                }
+                compareResult = mine.next().compareTo(value);
+            }
+            if (compareResult > 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public boolean addAll(Collection<? extends T> c) {
+        if (multiset) {
+            boolean modified = false;
+            for (T element : c) {
+                modified |= add(element);
+            }
+            return modified;
+        }
+        if (isSortedSet(c)) {
+            return union(c);
+        }
+        if (c.size() > 1 && (long) c.size() * BULK_LOAD_RATIO >= storage.size()) {
+            return bulkAdd(c.toArray(), false);
+        }
         boolean modified = false;
         for (T element : c) {
             if (add(element)) {
@@ -311,8 +1172,156 @@ public class BinarySearchTree<T extends Comparable<T>> implements Collection<T>
         return modified;
     }
 
+    /**
+     * Builds a tree holding the given values in O(n) when they are already sorted, or after a
+     * parallel sort otherwise. The result is perfectly balanced whatever the balancing mode.
+     */
+    public static <T extends Comparable<T>> BinarySearchTree<T> of(Collection<? extends T> values) {
+        return of(values, Balancing.NONE);
+    }
+
+    public static <T extends Comparable<T>> BinarySearchTree<T> of(Collection<? extends T> values,
+                                                                   Balancing balancing) {
+        BinarySearchTree<T> tree = new BinarySearchTree<>(balancing);
+        tree.bulkAdd(values.toArray(), isSortedSet(values));
+        return tree;
+    }
+
+    public static <T extends Comparable<T>> BinarySearchTree<T> of(T[] values) {
+        return of(values, Balancing.NONE);
+    }
+
+    public static <T extends Comparable<T>> BinarySearchTree<T> of(T[] values, Balancing balancing) {
+        BinarySearchTree<T> tree = new BinarySearchTree<>(balancing);
+        tree.bulkAdd(values.clone(), false);
+        return tree;
+    }
+
+    /**
+     * Merges {@code incoming} with the current contents and rebuilds a balanced tree.
+     * The array is sorted in place unless {@code sortedDistinct} says it already is.
+     */
+    private boolean bulkAdd(Object[] incoming, boolean sortedDistinct) {
+        checkWritable();
+        int incomingCount = sortedDistinct ? incoming.length : sortDistinct(incoming);
+        int size = storage.size();
+        int count = incomingCount;
+        Object[] values = incoming;
+        Object[] existing = null;
+        if (size > 0) {
+            existing = toArray();
+            values = mergeDistinct(existing, size, incoming, incomingCount);
+            count = values.length;
+            if (count == size) {
+                return false;
+            }
+        }
+        if (count == 0) {
+            return false;
+        }
+        storage.load(values, count);
+        TreeMetrics metrics = storage.metrics();
+        if (metrics != null) {
+            metrics.recordBulkLoad();
+        }
+        if (bloomFilter != null) {
+            bloomFilterAdded(inserted(existing, incoming, incomingCount));
+        }
+        return true;
+    }
+
+    /**
+     * Returns the sorted distinct {@code incoming} values that {@code existing}, sorted too,
+     * lacks.
+     */
+    @SuppressWarnings("unchecked")
+    private List<Object> inserted(Object[] existing, Object[] incoming, int incomingCount) {
+        List<Object> inserted = new ArrayList<>();
+        int i = 0;
+        for (int j = 0; j < incomingCount; j++) {
+            T value = (T) incoming[j];
+            while (existing != null && i < existing.length && ((T) existing[i]).compareTo(value) < 0) {
+                i++;
+            }
+            if (existing == null || i == existing.length || ((T) existing[i]).compareTo(value) != 0) {
+                inserted.add(value);
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Sorts {@code values}, which must be mutually comparable, unless they already are and
+     * moves the distinct ones to the front.
+     *
+     * @return the number of distinct values
+     */
+    @SuppressWarnings("unchecked")
+    static int sortDistinct(Object[] values) {
+        boolean sorted = true;
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null) {
+                throw new NullPointerException("Value cannot be null");
+            }
+            if (sorted && i > 0 && ((Comparable<Object>) values[i - 1]).compareTo(values[i]) > 0) {
+                sorted = false;
+            }
+        }
+        if (!sorted) {
+            Arrays.parallelSort(values, (a, b) -> ((Comparable<Object>) a).compareTo(b));
+        }
+        int count = 0;
+        for (Object value : values) {
+            if (count == 0 || ((Comparable<Object>) values[count - 1]).compareTo(value) != 0) {
+                values[count++] = value;
+            }
+        }
+        return count;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object[] mergeDistinct(Object[] left, int leftCount, Object[] right, int rightCount) {
+        Object[] merged = new Object[leftCount + rightCount];
+        int i = 0;
+        int j = 0;
+        int count = 0;
+        while (i < leftCount && j < rightCount) {
+            int compareResult = ((T) left[i]).compareTo((T) right[j]);
+            if (compareResult <= 0) {
+                merged[count++] = left[i++];
+                if (compareResult == 0) {
+                    j++;
+                }
+            } else {
+                merged[count++] = right[j++];
+            }
+        }
+        while (i < leftCount) {
+            merged[count++] = left[i++];
+        }
+        while (j < rightCount) {
+            merged[count++] = right[j++];
+        }
+        return count == merged.length ? merged : Arrays.copyOf(merged, count);
+    }
+
     @Override
     public boolean removeAll(Collection<?> c) {
+        if (multiset) {
+            // Every occurrence goes, as Collection.removeAll asks.
+            boolean modified = false;
+            for (Object element : c) {
+                if (element instanceof Comparable) {
+                    @SuppressWarnings("unchecked")
+                    T value = (T) element;
+                    modified |= delete(value, Integer.MAX_VALUE) > 0;
+                }
+            }
+            return modified;
+        }
+        if (isSortedSet(c)) {
+            return difference(c);
+        }
         boolean modified = false;
         for (Object element : c) {
             if (remove(element)) {
@@ -324,103 +1333,287 @@ public class BinarySearchTree<T extends Comparable<T>> implements Collection<T>
 
     @Override
     public boolean retainAll(Collection<?> c) {
-        List<T> toRemove = new ArrayList<>();
-        for (T element : this) {
-            if (!c.contains(element)) {
-                toRemove.add(element);
+        if (multiset) {
+            Collection<?> retained = c;
+            return removeIf(value -> !retained.contains(value));
+        }
+        if (isSortedSet(c)) {
+            return intersection(c);
+        }
+        if (!(c instanceof Set)) {
+            // Matched with this tree's ordering, like contains, not with equals. Nulls can
+            // match nothing.
+            List<Object> retained = new ArrayList<>(c.size());
+            for (Object element : c) {
+                if (element != null) {
+                    retained.add(element);
+                }
             }
+            return intersection(retained);
+        }
+        checkWritable();
+        Object[] values = toArray();
+        int count = 0;
+        for (Object value : values) {
+            if (c.contains(value)) {
+                values[count++] = value;
+            }
+        }
+        int removed = storage.size() - count;
+        if (removed == 0) {
+            return false;
         }
-        return removeAll(toRemove);
+        storage.load(values, count);
+        bloomFilterRemoved(removed);
+        return true;
     }
 
-    // Añade estos métodos a tu clase BinarySearchTree
-    public void printTreePyramid() {
-        if (root == null) {
-            System.out.println("Árbol vacío");
-            return;
+    /**
+     * Adds every value of {@code other}, sharing the subtrees of {@code other} that hold no
+     * value of this tree. {@code other} is left unchanged. Takes O(m log(n/m + 1)) for AVL
+     * trees of sizes m <= n and O(n + m) otherwise; the result is shaped as described for
+     * {@link #split(Comparable)}.
+     *
+     * @return whether this tree changed
+     */
+    public boolean union(Collection<? extends T> other) {
+        checkWritable();
+        checkSet();
+        if (other == this || other.isEmpty()) {
+            return false;
         }
-        int maxLevel = height();
-        System.out.println("\nÁrbol BST (Vista Pirámide):");
-        printNodeInternal(Collections.singletonList(root), 1, maxLevel);
+        // Only the values missing here go to the Bloom filter, in O(m log n) like the union.
+        List<T> missing = null;
+        if (bloomFilter != null) {
+            missing = new ArrayList<>();
+            for (T value : other) {
+                if (storage.lookup(value) == null) {
+                    missing.add(value);
+                }
+            }
+        }
+        int before = storage.size();
+        storage.union(other);
+        if (missing != null) {
+            bloomFilterAdded(missing);
+        }
+        return storage.size() != before;
     }
 
-    private void printNodeInternal(List<Node> nodes, int level, int maxLevel) {
-        if (nodes.isEmpty() || isAllElementsNull(nodes)) return;
-
-        int floor = maxLevel - level;
-        int endgeLines = (int) Math.pow(2, (Math.max(floor - 1, 0)));
-        int firstSpaces = (int) Math.pow(2, (floor)) - 1;
-        int betweenSpaces = (int) Math.pow(2, (floor + 1)) - 1;
+    /**
+     * Keeps only the values also in {@code other}, in O(m log(n/m + 1)) for AVL trees and
+     * O(n + m) otherwise; the result is shaped as described for {@link #split(Comparable)}.
+     *
+     * @return whether this tree changed
+     */
+    public boolean intersection(Collection<?> other) {
+        checkWritable();
+        checkSet();
+        if (other == this || isEmpty()) {
+            return false;
+        }
+        int before = storage.size();
+        storage.intersection(other);
+        bloomFilterRemoved(before - storage.size());
+        return storage.size() != before;
+    }
 
-        printWhitespaces(firstSpaces);
+    /**
+     * Removes every value of {@code other}, in O(m log(n/m + 1)) for AVL trees and O(n + m)
+     * otherwise; the result is shaped as described for {@link #split(Comparable)}.
+     *
+     * @return whether this tree changed
+     */
+    public boolean difference(Collection<?> other) {
+        checkWritable();
+        checkSet();
+        if (other == this) {
+            boolean modified = !isEmpty();
+            clear();
+            return modified;
+        }
+        if (isEmpty() || other.isEmpty()) {
+            return false;
+        }
+        int before = storage.size();
+        storage.difference(other);
+        bloomFilterRemoved(before - storage.size());
+        return storage.size() != before;
+    }
 
-        List<Node> newNodes = new ArrayList<>();
-        for (Node node : nodes) {
-            if (node != null) {
-                System.out.print(node.value);
-                newNodes.add(node.left);
-                newNodes.add(node.right);
-            } else {
-                newNodes.add(null);
-                newNodes.add(null);
-                System.out.print(" ");
-            }
-            printWhitespaces(betweenSpaces);
+    /**
+     * Moves the values greater than or equal to {@code key} to a new tree, in O(log n) for
+     * AVL trees and O(n) otherwise.
+     * <p>
+     * Like the other join-based methods, {@link #join(BinarySearchTree)},
+     * {@link #removeRange(Comparable, Comparable)} and the set algebra, it gives both trees
+     * an AVL shape whatever their balancing mode. A {@link Balancing#NONE} or
+     * {@link Balancing#SPLAY} tree taller than twice the AVL height bound, such as one built
+     * from sorted values, is first rebuilt balanced in O(n); a shorter one is cut along the
+     * search path and rejoined with AVL rotations. Later updates follow the tree's own mode
+     * again. The logarithmic bounds hold for {@link Storage#LINKED}; with
+     * {@link Storage#ARRAY} these methods merge the sorted contents and rebuild a perfectly
+     * balanced tree in O(n + m).
+     */
+    public BinarySearchTree<T> split(T key) {
+        checkWritable();
+        if (key == null) {
+            throw new NullPointerException("Value cannot be null");
         }
-        System.out.println();
+        BinarySearchTree<T> result = new BinarySearchTree<>(storage.splitOff(key));
+        bloomFilterRemoved(result.storage.size());
+        return result;
+    }
 
-        for (int i = 1; i <= endgeLines; i++) {
-            for (Node node : nodes) {
-                printWhitespaces(firstSpaces - i);
-                if (node == null) {
-                    printWhitespaces(endgeLines + endgeLines + i + 1);
-                    continue;
-                }
+    /**
+     * Appends the values of {@code other}, which must all be greater than those of this tree,
+     * in O(log n + log m) for AVL trees and O(n + m) otherwise; the result is shaped as
+     * described for {@link #split(Comparable)}. The two trees share nodes afterwards;
+     * {@code other} is moved to a new epoch so that neither modifies them in place.
+     *
+     * @throws IllegalArgumentException if a value of {@code other} is not greater than
+     *                                  {@link #last()}
+     */
+    public void join(BinarySearchTree<T> other) {
+        checkWritable();
+        if (other == this) {
+            throw new IllegalArgumentException("Cannot join a tree with itself");
+        }
+        if (other.multiset != multiset) {
+            throw new IllegalArgumentException("Cannot join a set and a multiset");
+        }
+        if (other.isEmpty()) {
+            return;
+        }
+        if (!isEmpty() && findMax().compareTo(other.findMin()) >= 0) {
+            throw new IllegalArgumentException("Joined values must be greater than " + findMax());
+        }
+        storage.join(other);
+        if (bloomFilter != null) {
+            // Distinct values only, a multiset would repeat them.
+            List<T> joined = new ArrayList<>(other.storage.size());
+            other.inOrderTraversal(joined);
+            bloomFilterAdded(joined);
+        }
+    }
 
-                if (node.left != null) {
-                    System.out.print("/");
-                } else {
-                    printWhitespaces(1);
-                }
+    /**
+     * Removes the values {@code v} with {@code lo <= v <= hi}, in O(log n) for AVL trees and
+     * O(n) otherwise; the remaining tree is shaped as described for {@link #split(Comparable)}.
+     *
+     * @return the number of values removed, counting every occurrence in a multiset
+     */
+    public int removeRange(T lo, T hi) {
+        checkWritable();
+        int removed = countInRange(lo, hi);
+        if (removed == 0) {
+            return 0;
+        }
+        long before = storage.occurrences();
+        storage.removeRange(lo, hi);
+        bloomFilterRemoved(removed);
+        return multiset ? (int) Math.min(before - storage.occurrences(), Integer.MAX_VALUE) : removed;
+    }
 
-                printWhitespaces(i + i - 1);
+    private void checkSet() {
+        if (multiset) {
+            throw new UnsupportedOperationException("Set algebra is not defined on a multiset");
+        }
+    }
 
-                if (node.right != null) {
-                    System.out.print("\\");
-                } else {
-                    printWhitespaces(1);
-                }
+    /**
+     * Returns whether {@code c} is a set in natural order, whose values the join algorithms
+     * can take as they are.
+     */
+    static boolean isSortedSet(Collection<?> c) {
+        return c instanceof SortedSet && ((SortedSet<?>) c).comparator() == null
+                && !(c instanceof BinarySearchTree && ((BinarySearchTree<?>) c).multiset);
+    }
 
-                printWhitespaces(endgeLines + endgeLines - i);
-            }
-            System.out.println();
+    /**
+     * Returns a read-only AVL tree over the values of {@code parts}, read-only AVL sets whose
+     * values each exceed those of the part before, in O(k log n) for k parts. The result
+     * shares their nodes apart from the O(log n) per part on the spines it joins them along.
+     */
+    static <T extends Comparable<T>> BinarySearchTree<T> concat(List<BinarySearchTree<T>> parts) {
+        TreeCore<T> builder = new TreeCore<>(null, Balancing.AVL, false);
+        Node<T> root = null;
+        for (BinarySearchTree<T> part : parts) {
+            root = builder.join2(root, part.storage.root());
         }
-
-        printNodeInternal(newNodes, level + 1, maxLevel);
+        return new BinarySearchTree<>(builder.readOnly(root));
     }
 
-    private void printWhitespaces(int count) {
-        for (int i = 0; i < count; i++) {
-            System.out.print(" ");
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (multiset || o instanceof BinarySearchTree && ((BinarySearchTree<?>) o).multiset) {
+            // Multisets are equal when they hold the same values the same number of times.
+            if (!(o instanceof BinarySearchTree) || !((BinarySearchTree<?>) o).multiset
+                    || ((BinarySearchTree<?>) o).size() != size()) {
+                return false;
+            }
+            Iterator<?> theirs = ((BinarySearchTree<?>) o).iterator();
+            for (T value : this) {
+                if (!value.equals(theirs.next())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (!(o instanceof Set)) {
+            return false;
+        }
+        Collection<?> other = (Collection<?>) o;
+        if (other.size() != storage.size()) {
+            return false;
+        }
+        try {
+            return containsAll(other);
+        } catch (ClassCastException | NullPointerException e) {
+            return false;
         }
     }
 
-    private boolean isAllElementsNull(List<Node> list) {
-        for (Node node : list) {
-            if (node != null) return false;
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (T value : this) {
+            hash += value.hashCode();
         }
-        return true;
+        return hash;
     }
 
-    public int getNumberOfNodes() {
-        return getNumberOfNodes(root);
+    /**
+     * Prints the whole tree to {@code System.out}. The pyramid is {@code 2^height} characters
+     * wide, so dumps of large trees should use {@link #printTreePyramid(int, int)}.
+     */
+    public void printTreePyramid() {
+        printTreePyramid(TreeRenderer.UNLIMITED, TreeRenderer.UNLIMITED);
     }
 
-    private int getNumberOfNodes(Node<T> node) {
-        if (node == null) {
-            return 0;
+    /**
+     * Prints the first {@code maxDepth} levels of the tree to {@code System.out}, cutting lines
+     * at {@code maxWidth} characters; use {@link TreeRenderer} for other formats or targets.
+     */
+    public void printTreePyramid(int maxDepth, int maxWidth) {
+        TreeRenderer renderer = new TreeRenderer(TreeRenderer.Style.PYRAMID, maxDepth, maxWidth);
+        if (storage.size() == 0) {
+            System.out.println("Árbol vacío");
+            return;
+        }
+        System.out.println("\nÁrbol BST (Vista Pirámide):");
+        try {
+            renderer.render(this, System.out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        return 1 + getNumberOfNodes(node.left) + getNumberOfNodes(node.right);
+    }
+
+    public int getNumberOfNodes() {
+        return storage.size();
     }
 
 
@@ -0,0 +1,926 @@
+package escuelaing.edu.co;
+
+import escuelaing.edu.co.BinarySearchTree.Node;
+
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * Sorted map on the node engine of {@link BinarySearchTree}: an AVL tree of the keys whose
+ * nodes also hold the value each key maps to. It is updated iteratively over a reusable path
+ * buffer and keeps subtree sizes for O(log n) range sizes. Keys are ordered by the comparator
+ * given at construction, or by their natural order. Null keys are rejected; null values are
+ * allowed.
+ * <p>
+ * {@link #compute}, {@link #computeIfAbsent}, {@link #computeIfPresent}, {@link #merge} and
+ * {@link #putIfAbsent} descend once and insert or remove at the position they found. Like
+ * {@link TreeMap}, removing a key whose node has two children moves the successor's key and
+ * value into that node, so an entry of {@link #entrySet()} is only valid until the next
+ * removal.
+ */
+public class BinarySearchTreeMap<K, V> extends AbstractMap<K, V> implements NavigableMap<K, V> {
+    private final TreeCore<K> core;
+
+    /**
+     * Live entry of the entry set iterators; navigation methods hand out immutable copies.
+     */
+    private final class Entry implements Map.Entry<K, V> {
+        private final Node<K> node;
+
+        Entry(Node<K> node) {
+            this.node = node;
+        }
+
+        @Override
+        public K getKey() {
+            return node.value;
+        }
+
+        @Override
+        public V getValue() {
+            return valueOf(node);
+        }
+
+        @Override
+        public V setValue(V value) {
+            V oldValue = valueOf(node);
+            node.mapped = value;
+            return oldValue;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            return getKey().equals(entry.getKey()) && Objects.equals(getValue(), entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return getKey().hashCode() ^ Objects.hashCode(getValue());
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + getValue();
+        }
+    }
+
+    public BinarySearchTreeMap() {
+        this(null);
+    }
+
+    /**
+     * @param comparator key order, or {@code null} for the natural order
+     */
+    public BinarySearchTreeMap(Comparator<? super K> comparator) {
+        this.core = new TreeCore<>(comparator, BinarySearchTree.Balancing.AVL, false);
+    }
+
+    private static <T> T checkKey(T key) {
+        if (key == null) {
+            throw new NullPointerException("Key cannot be null");
+        }
+        return key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueOf(Node<K> node) {
+        return (V) node.mapped;
+    }
+
+    public int height() {
+        return core.height();
+    }
+
+    private int descend(Object key, Node<K>[] path) {
+        return core.descend(checkKey(key), path);
+    }
+
+    /**
+     * Links a new node mapping {@code key} to {@code value} below {@code path[depth - 1]},
+     * where {@link #descend} stopped.
+     */
+    private void insertAt(Node<K>[] path, int depth, K key, V value) {
+        core.insertAt(path, depth, key, 1).mapped = value;
+    }
+
+    /**
+     * Removes {@code key} in one descent and reports whether it was present.
+     */
+    private boolean deleteKey(Object key) {
+        Node<K>[] path = core.pathBuffer();
+        int depth = descend(key, path);
+        if (path[depth] == null) {
+            core.release(path, depth);
+            return false;
+        }
+        core.removeAt(path, depth);
+        return true;
+    }
+
+    private Node<K> getNode(Object key) {
+        return core.searchNode(checkKey(key));
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K> node = getNode(key);
+        return node == null ? null : valueOf(node);
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        Node<K> node = getNode(key);
+        return node == null ? defaultValue : valueOf(node);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return getNode(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        Node<K>[] path = core.pathBuffer();
+        int depth = descend(key, path);
+        Node<K> node = path[depth];
+        if (node != null) {
+            core.release(path, depth);
+            V oldValue = valueOf(node);
+            node.mapped = value;
+            return oldValue;
+        }
+        insertAt(path, depth, key, value);
+        return null;
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        Node<K>[] path = core.pathBuffer();
+        int depth = descend(key, path);
+        Node<K> node = path[depth];
+        if (node != null) {
+            core.release(path, depth);
+            if (node.mapped == null) {
+                node.mapped = value;
+                return null;
+            }
+            return valueOf(node);
+        }
+        insertAt(path, depth, key, value);
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        Node<K>[] path = core.pathBuffer();
+        int depth = descend(key, path);
+        Node<K> node = path[depth];
+        if (node == null) {
+            core.release(path, depth);
+            return null;
+        }
+        V value = valueOf(node);
+        core.removeAt(path, depth);
+        return value;
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        Node<K> node = getNode(key);
+        if (node == null || !Objects.equals(node.mapped, value)) {
+            return false;
+        }
+        deleteKey(key);
+        return true;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        Node<K> node = getNode(key);
+        if (node == null) {
+            return null;
+        }
+        V oldValue = valueOf(node);
+        node.mapped = value;
+        return oldValue;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        Node<K> node = getNode(key);
+        if (node == null || !Objects.equals(node.mapped, oldValue)) {
+            return false;
+        }
+        node.mapped = newValue;
+        return true;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        Node<K>[] path = core.newPath();
+        int depth = descend(key, path);
+        Node<K> node = path[depth];
+        if (node != null && node.mapped != null) {
+            return valueOf(node);
+        }
+        int expectedModCount = core.modCount();
+        V value = mappingFunction.apply(key);
+        if (core.modCount() != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (value == null) {
+            return null;
+        }
+        if (node != null) {
+            node.mapped = value;
+        } else {
+            insertAt(path, depth, key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        Node<K>[] path = core.newPath();
+        int depth = descend(key, path);
+        Node<K> node = path[depth];
+        if (node == null || node.mapped == null) {
+            return null;
+        }
+        int expectedModCount = core.modCount();
+        return remap(path, depth, remappingFunction.apply(key, valueOf(node)), expectedModCount);
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        Node<K>[] path = core.newPath();
+        int depth = descend(key, path);
+        Node<K> node = path[depth];
+        int expectedModCount = core.modCount();
+        V value = remappingFunction.apply(key, node == null ? null : valueOf(node));
+        if (node == null) {
+            if (core.modCount() != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (value != null) {
+                insertAt(path, depth, key, value);
+            }
+            return value;
+        }
+        return remap(path, depth, value, expectedModCount);
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(remappingFunction);
+        Node<K>[] path = core.newPath();
+        int depth = descend(key, path);
+        Node<K> node = path[depth];
+        if (node == null) {
+            insertAt(path, depth, key, value);
+            return value;
+        }
+        if (node.mapped == null) {
+            node.mapped = value;
+            return value;
+        }
+        int expectedModCount = core.modCount();
+        return remap(path, depth, remappingFunction.apply(valueOf(node), value), expectedModCount);
+    }
+
+    /**
+     * Stores the result of a remapping function in the node at {@code path[depth]}, or
+     * removes the node when the result is {@code null}.
+     */
+    private V remap(Node<K>[] path, int depth, V value, int expectedModCount) {
+        if (core.modCount() != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+        if (value == null) {
+            core.removeAt(path, depth);
+        } else {
+            path[depth].mapped = value;
+        }
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        core.clear();
+    }
+
+    @Override
+    public int size() {
+        return core.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return core.size() == 0;
+    }
+
+    /**
+     * Returns an immutable copy of the entry of {@code node}, as navigation methods do not
+     * hand out live entries.
+     */
+    private Map.Entry<K, V> exportEntry(Node<K> node) {
+        return node == null ? null : new AbstractMap.SimpleImmutableEntry<>(node.value, valueOf(node));
+    }
+
+    private static <K> K keyOf(Node<K> node) {
+        return node == null ? null : node.value;
+    }
+
+    private static <K> K keyOrThrow(Node<K> node) {
+        if (node == null) {
+            throw new NoSuchElementException();
+        }
+        return node.value;
+    }
+
+    private Map.Entry<K, V> pollNode(Node<K> node) {
+        if (node == null) {
+            return null;
+        }
+        Map.Entry<K, V> entry = exportEntry(node);
+        deleteKey(node.value);
+        return entry;
+    }
+
+    @Override
+    public Comparator<? super K> comparator() {
+        return core.comparator();
+    }
+
+    @Override
+    public K firstKey() {
+        return keyOrThrow(core.firstNode());
+    }
+
+    @Override
+    public K lastKey() {
+        return keyOrThrow(core.lastNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> firstEntry() {
+        return exportEntry(core.firstNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> lastEntry() {
+        return exportEntry(core.lastNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> pollFirstEntry() {
+        return pollNode(core.firstNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> pollLastEntry() {
+        return pollNode(core.lastNode());
+    }
+
+    @Override
+    public Map.Entry<K, V> lowerEntry(K key) {
+        return exportEntry(core.lowerNode(checkKey(key)));
+    }
+
+    @Override
+    public K lowerKey(K key) {
+        return keyOf(core.lowerNode(checkKey(key)));
+    }
+
+    @Override
+    public Map.Entry<K, V> floorEntry(K key) {
+        return exportEntry(core.floorNode(checkKey(key)));
+    }
+
+    @Override
+    public K floorKey(K key) {
+        return keyOf(core.floorNode(checkKey(key)));
+    }
+
+    @Override
+    public Map.Entry<K, V> ceilingEntry(K key) {
+        return exportEntry(core.ceilingNode(checkKey(key)));
+    }
+
+    @Override
+    public K ceilingKey(K key) {
+        return keyOf(core.ceilingNode(checkKey(key)));
+    }
+
+    @Override
+    public Map.Entry<K, V> higherEntry(K key) {
+        return exportEntry(core.higherNode(checkKey(key)));
+    }
+
+    @Override
+    public K higherKey(K key) {
+        return keyOf(core.higherNode(checkKey(key)));
+    }
+
+    @Override
+    public Set<Map.Entry<K, V>> entrySet() {
+        return new EntrySet(core.range(null, false, null, false), false);
+    }
+
+    @Override
+    public Set<K> keySet() {
+        return navigableKeySet();
+    }
+
+    @Override
+    public NavigableSet<K> navigableKeySet() {
+        return new KeySet<>(this, this::deleteKey);
+    }
+
+    @Override
+    public NavigableSet<K> descendingKeySet() {
+        return descendingMap().navigableKeySet();
+    }
+
+    @Override
+    public NavigableMap<K, V> descendingMap() {
+        return new SubMap(core.range(null, false, null, false), true);
+    }
+
+    @Override
+    public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+        checkKey(fromKey);
+        checkKey(toKey);
+        if (core.compare(fromKey, toKey) > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        return new SubMap(core.range(fromKey, fromInclusive, toKey, toInclusive), false);
+    }
+
+    @Override
+    public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+        return new SubMap(core.range(null, false, checkKey(toKey), inclusive), false);
+    }
+
+    @Override
+    public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+        return new SubMap(core.range(checkKey(fromKey), inclusive, null, false), false);
+    }
+
+    @Override
+    public SortedMap<K, V> subMap(K fromKey, K toKey) {
+        return subMap(fromKey, true, toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> headMap(K toKey) {
+        return headMap(toKey, false);
+    }
+
+    @Override
+    public SortedMap<K, V> tailMap(K fromKey) {
+        return tailMap(fromKey, true);
+    }
+
+    /**
+     * Live entry set of the keys in a range.
+     */
+    private class EntrySet extends AbstractSet<Map.Entry<K, V>> {
+        private final TreeCore<K>.Range range;
+        private final boolean descending;
+
+        EntrySet(TreeCore<K>.Range range, boolean descending) {
+            this.range = range;
+            this.descending = descending;
+        }
+
+        private Node<K> nodeOf(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return null;
+            }
+            Map.Entry<?, ?> entry = (Map.Entry<?, ?>) o;
+            Object key = entry.getKey();
+            if (key == null || !range.inRange(key)) {
+                return null;
+            }
+            Node<K> node = getNode(key);
+            return node != null && Objects.equals(node.mapped, entry.getValue()) ? node : null;
+        }
+
+        @Override
+        public Iterator<Map.Entry<K, V>> iterator() {
+            return range.iterator(descending, Entry::new, BinarySearchTreeMap.this::deleteKey);
+        }
+
+        @Override
+        public int size() {
+            return range.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return nodeOf(o) != null;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            Node<K> node = nodeOf(o);
+            if (node == null) {
+                return false;
+            }
+            deleteKey(node.value);
+            return true;
+        }
+
+        @Override
+        public void clear() {
+            if (range.lo == null && range.hi == null) {
+                BinarySearchTreeMap.this.clear();
+            } else {
+                super.clear();
+            }
+        }
+    }
+
+    /**
+     * Live view of the entries of a range of keys, in ascending or descending order.
+     */
+    private class SubMap extends AbstractMap<K, V> implements NavigableMap<K, V> {
+        private final TreeCore<K>.Range range;
+        private final boolean descending;
+
+        SubMap(TreeCore<K>.Range range, boolean descending) {
+            this.range = range;
+            this.descending = descending;
+        }
+
+        private SubMap subRange(K lo, boolean loInclusive, K hi, boolean hiInclusive, boolean descending) {
+            return new SubMap(core.range(lo, loInclusive, hi, hiInclusive), descending);
+        }
+
+        private void checkBound(K bound, boolean inclusive) {
+            range.checkBound(checkKey(bound), inclusive);
+        }
+
+        @Override
+        public int size() {
+            return range.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return range.lowest() == null;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key != null && range.inRange(key) && BinarySearchTreeMap.this.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return key != null && range.inRange(key) ? BinarySearchTreeMap.this.get(key) : null;
+        }
+
+        @Override
+        public V put(K key, V value) {
+            if (!range.inRange(checkKey(key))) {
+                throw new IllegalArgumentException("Key out of range");
+            }
+            return BinarySearchTreeMap.this.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return key != null && range.inRange(key) ? BinarySearchTreeMap.this.remove(key) : null;
+        }
+
+        @Override
+        public Set<Map.Entry<K, V>> entrySet() {
+            return new EntrySet(range, descending);
+        }
+
+        @Override
+        public Set<K> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> navigableKeySet() {
+            return new KeySet<>(this, key -> key != null && range.inRange(key) && deleteKey(key));
+        }
+
+        @Override
+        public NavigableSet<K> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return descending ? Collections.reverseOrder(core.comparator()) : core.comparator();
+        }
+
+        private Node<K> first() {
+            return descending ? range.highest() : range.lowest();
+        }
+
+        private Node<K> last() {
+            return descending ? range.lowest() : range.highest();
+        }
+
+        private Node<K> lower(K key) {
+            return descending ? range.higher(checkKey(key)) : range.lower(checkKey(key));
+        }
+
+        private Node<K> floor(K key) {
+            return descending ? range.ceiling(checkKey(key)) : range.floor(checkKey(key));
+        }
+
+        private Node<K> ceiling(K key) {
+            return descending ? range.floor(checkKey(key)) : range.ceiling(checkKey(key));
+        }
+
+        private Node<K> higher(K key) {
+            return descending ? range.lower(checkKey(key)) : range.higher(checkKey(key));
+        }
+
+        @Override
+        public K firstKey() {
+            return keyOrThrow(first());
+        }
+
+        @Override
+        public K lastKey() {
+            return keyOrThrow(last());
+        }
+
+        @Override
+        public Map.Entry<K, V> firstEntry() {
+            return exportEntry(first());
+        }
+
+        @Override
+        public Map.Entry<K, V> lastEntry() {
+            return exportEntry(last());
+        }
+
+        @Override
+        public Map.Entry<K, V> pollFirstEntry() {
+            return pollNode(first());
+        }
+
+        @Override
+        public Map.Entry<K, V> pollLastEntry() {
+            return pollNode(last());
+        }
+
+        @Override
+        public Map.Entry<K, V> lowerEntry(K key) {
+            return exportEntry(lower(key));
+        }
+
+        @Override
+        public K lowerKey(K key) {
+            return keyOf(lower(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> floorEntry(K key) {
+            return exportEntry(floor(key));
+        }
+
+        @Override
+        public K floorKey(K key) {
+            return keyOf(floor(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> ceilingEntry(K key) {
+            return exportEntry(ceiling(key));
+        }
+
+        @Override
+        public K ceilingKey(K key) {
+            return keyOf(ceiling(key));
+        }
+
+        @Override
+        public Map.Entry<K, V> higherEntry(K key) {
+            return exportEntry(higher(key));
+        }
+
+        @Override
+        public K higherKey(K key) {
+            return keyOf(higher(key));
+        }
+
+        @Override
+        public NavigableMap<K, V> descendingMap() {
+            return new SubMap(range, !descending);
+        }
+
+        @Override
+        public NavigableMap<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+            if (descending) {
+                return tailMap(fromKey, fromInclusive).headMap(toKey, toInclusive);
+            }
+            checkBound(fromKey, fromInclusive);
+            checkBound(toKey, toInclusive);
+            if (core.compare(fromKey, toKey) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            return subRange(fromKey, fromInclusive, toKey, toInclusive, false);
+        }
+
+        @Override
+        public NavigableMap<K, V> headMap(K toKey, boolean inclusive) {
+            checkBound(toKey, inclusive);
+            return descending
+                    ? subRange(toKey, inclusive, range.hi, range.hiInclusive, true)
+                    : subRange(range.lo, range.loInclusive, toKey, inclusive, false);
+        }
+
+        @Override
+        public NavigableMap<K, V> tailMap(K fromKey, boolean inclusive) {
+            checkBound(fromKey, inclusive);
+            return descending
+                    ? subRange(range.lo, range.loInclusive, fromKey, inclusive, true)
+                    : subRange(fromKey, inclusive, range.hi, range.hiInclusive, false);
+        }
+
+        @Override
+        public SortedMap<K, V> subMap(K fromKey, K toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> headMap(K toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<K, V> tailMap(K fromKey) {
+            return tailMap(fromKey, true);
+        }
+    }
+
+    /**
+     * Live key view of a map or of one of its sub-maps.
+     */
+    private static final class KeySet<K> extends AbstractSet<K> implements NavigableSet<K> {
+        private final NavigableMap<K, ?> map;
+        /** Removes a key in one descent and reports whether it was present. */
+        private final Predicate<Object> remover;
+
+        KeySet(NavigableMap<K, ?> map, Predicate<Object> remover) {
+            this.map = map;
+            this.remover = remover;
+        }
+
+        private static <K> Iterator<K> keys(Iterator<? extends Map.Entry<K, ?>> entries) {
+            return new Iterator<K>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public K next() {
+                    return entries.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        @Override
+        public Iterator<K> iterator() {
+            return keys(map.entrySet().iterator());
+        }
+
+        @Override
+        public Iterator<K> descendingIterator() {
+            return keys(map.descendingMap().entrySet().iterator());
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            return remover.test(o);
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Comparator<? super K> comparator() {
+            return map.comparator();
+        }
+
+        @Override
+        public K first() {
+            return map.firstKey();
+        }
+
+        @Override
+        public K last() {
+            return map.lastKey();
+        }
+
+        @Override
+        public K lower(K key) {
+            return map.lowerKey(key);
+        }
+
+        @Override
+        public K floor(K key) {
+            return map.floorKey(key);
+        }
+
+        @Override
+        public K ceiling(K key) {
+            return map.ceilingKey(key);
+        }
+
+        @Override
+        public K higher(K key) {
+            return map.higherKey(key);
+        }
+
+        @Override
+        public K pollFirst() {
+            Map.Entry<K, ?> entry = map.pollFirstEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public K pollLast() {
+            Map.Entry<K, ?> entry = map.pollLastEntry();
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public NavigableSet<K> descendingSet() {
+            return map.descendingMap().navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> subSet(K fromElement, boolean fromInclusive, K toElement, boolean toInclusive) {
+            return map.subMap(fromElement, fromInclusive, toElement, toInclusive).navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> headSet(K toElement, boolean inclusive) {
+            return map.headMap(toElement, inclusive).navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<K> tailSet(K fromElement, boolean inclusive) {
+            return map.tailMap(fromElement, inclusive).navigableKeySet();
+        }
+
+        @Override
+        public SortedSet<K> subSet(K fromElement, K toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> headSet(K toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<K> tailSet(K fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package escuelaing.edu.co;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToIntFunction;
+
+/**
+ * Negative-lookup filter of a {@link BinarySearchTree}, attached with
+ * {@link BinarySearchTree#enableBloomFilter(double)}. A lookup that the filter rejects returns
+ * without comparing any value; the others search the tree as usual.
+ *
+ * <p>The filter is blocked: all the bits of a value fall in one 64-bit word, so a lookup
+ * reads a single word instead of one cache line per hash function. This costs a somewhat
+ * higher false positive rate than a classic Bloom filter of the same size, which
+ * {@link #getExpectedFalsePositiveRate()} accounts for. Bits cannot be cleared, so removed
+ * values keep their bits until the tree rebuilds the filter, which it does once the removed
+ * values outnumber half of those encoded, or when more values are added than the filter was
+ * sized for. Lookups are counted safely from concurrent readers.
+ *
+ * <p>The tree finds values with {@code compareTo}, so the filter must give the same hash to
+ * any two values that {@code compareTo} reports equal, or it rejects values that are
+ * present. {@link Object#hashCode()} only does so for types whose ordering is consistent
+ * with {@code equals}, which the filter checks against a list of such JDK types; other types,
+ * such as {@link java.math.BigDecimal}, need a hash derived from their ordering, given to
+ * {@link BinarySearchTree#enableBloomFilter(double, ToIntFunction)}.
+ */
+public final class BloomFilter {
+    /** Smallest number of values a filter is sized for. */
+    static final int MIN_CAPACITY = 64;
+    private static final int MAX_HASHES = 8;
+    /** Types whose {@code compareTo} is consistent with {@code equals} and {@code hashCode}. */
+    private static final Set<Class<?>> CONSISTENT_TYPES = Set.of(Integer.class, Long.class, Short.class,
+            Byte.class, Character.class, Boolean.class, Float.class, Double.class, String.class, UUID.class,
+            LocalDate.class, LocalDateTime.class, Instant.class);
+
+    private final double targetFalsePositiveRate;
+    private final double bitsPerValue;
+    private final int hashes;
+    /** Hash consistent with the ordering of the tree, or {@code null} for a checked hashCode. */
+    private final ToIntFunction<Object> hash;
+    /** Last type found consistent, to skip the lookup in {@link #CONSISTENT_TYPES}. */
+    private Class<?> checkedType;
+    private long[] words;
+    private int wordMask;
+    private int capacity;
+    /** Values added since the last rebuild, including those removed since. */
+    private int encoded;
+    private int removed;
+
+    private final LongAdder lookups = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+
+    BloomFilter(double targetFalsePositiveRate, int expectedValues, ToIntFunction<Object> hash) {
+        if (!(targetFalsePositiveRate > 0 && targetFalsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be in (0, 1): " + targetFalsePositiveRate);
+        }
+        this.targetFalsePositiveRate = targetFalsePositiveRate;
+        double ln2 = Math.log(2);
+        this.bitsPerValue = -Math.log(targetFalsePositiveRate) / (ln2 * ln2);
+        this.hashes = (int) Math.max(1, Math.min(MAX_HASHES, Math.round(bitsPerValue * ln2)));
+        this.hash = hash;
+        reset(expectedValues);
+    }
+
+    /**
+     * Empties the filter and sizes it for twice {@code expectedValues}, leaving room to grow.
+     */
+    void reset(int expectedValues) {
+        capacity = (int) Math.min(Math.max(2L * expectedValues, MIN_CAPACITY), Integer.MAX_VALUE / 2);
+        long bits = (long) Math.ceil(capacity * bitsPerValue);
+        int wordCount = Integer.highestOneBit((int) Math.min(Math.max(bits / 64, 1), 1 << 30));
+        if (wordCount * 64L < bits && wordCount < 1 << 30) {
+            wordCount <<= 1;
+        }
+        if (words != null && words.length == wordCount) {
+            Arrays.fill(words, 0);
+        } else {
+            words = new long[wordCount];
+        }
+        wordMask = wordCount - 1;
+        encoded = 0;
+        removed = 0;
+        rebuilds.increment();
+    }
+
+    void add(Object value) {
+        add(hash(value));
+    }
+
+    /**
+     * Adds a value by its {@link #hash(Object)}, which the tree computes before inserting so
+     * that a value the filter cannot hash is rejected before the tree changes.
+     */
+    void add(long hash) {
+        words[(int) (hash >>> 32) & wordMask] |= bits(hash);
+        encoded++;
+    }
+
+    long hash(Object value) {
+        return mix(hashOf(value));
+    }
+
+    /**
+     * Records that {@code count} encoded values left the tree.
+     */
+    void removed(int count) {
+        removed += count;
+    }
+
+    /**
+     * Returns the number of values added since the last rebuild.
+     */
+    int getEncoded() {
+        return encoded;
+    }
+
+    /**
+     * Returns whether the filter is over capacity or holds too many removed values.
+     */
+    boolean needsRebuild() {
+        return encoded > capacity || removed > Math.max(encoded / 2, MIN_CAPACITY);
+    }
+
+    /**
+     * Returns {@code false} when {@code value} is certainly absent.
+     */
+    boolean mightContain(Object value) {
+        lookups.increment();
+        long hash = hash(value);
+        long bits = bits(hash);
+        if ((words[(int) (hash >>> 32) & wordMask] & bits) != bits) {
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Records a lookup that the filter let through but the tree did not find.
+     */
+    void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    private int hashOf(Object value) {
+        if (hash != null) {
+            return hash.applyAsInt(value);
+        }
+        Class<?> type = value.getClass();
+        if (type != checkedType) {
+            if (!CONSISTENT_TYPES.contains(type) && !(value instanceof Enum)) {
+                throw new IllegalArgumentException(type.getName() + " may order values as equal that hash "
+                        + "differently; give the filter a hash derived from the ordering");
+            }
+            checkedType = type;
+        }
+        return value.hashCode();
+    }
+
+    private static long mix(int hashCode) {
+        long z = hashCode * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Picks {@link #hashes} bits of a word, six bits of hash each. The high half of
+     * {@code hash} selects the word, so it is remixed first to keep the two choices apart.
+     */
+    private long bits(long hash) {
+        long z = hash * 0xD6E8FEB86659FD93L;
+        z ^= z >>> 32;
+        long bits = 0;
+        for (int i = 0; i < hashes; i++) {
+            bits |= 1L << (z >>> (6 * i));
+        }
+        return bits;
+    }
+
+    public double getTargetFalsePositiveRate() {
+        return targetFalsePositiveRate;
+    }
+
+    /**
+     * Estimates the false positive rate from the bits currently set: a lookup of an absent
+     * value passes when all its bits are set in its word, which is likelier in fuller words.
+     */
+    public double getExpectedFalsePositiveRate() {
+        double rate = 0;
+        for (long word : words) {
+            rate += Math.pow(Long.bitCount(word) / 64.0, hashes);
+        }
+        return rate / words.length;
+    }
+
+    /**
+     * Returns the share of lookups of absent values that the filter let through, or 0 before
+     * any such lookup.
+     */
+    public double getObservedFalsePositiveRate() {
+        long passed = falsePositives.sum();
+        long misses = passed + rejected.sum();
+        return misses == 0 ? 0 : passed / (double) misses;
+    }
+
+    public long getLookups() {
+        return lookups.sum();
+    }
+
+    /**
+     * Returns the number of lookups answered by the filter alone.
+     */
+    public long getRejectedLookups() {
+        return rejected.sum();
+    }
+
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * Returns how many times the filter was sized and filled, including the first.
+     */
+    public long getRebuilds() {
+        return rebuilds.sum();
+    }
+
+    /**
+     * Returns the number of values the filter holds before the tree rebuilds it larger.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getHashFunctions() {
+        return hashes;
+    }
+
+    /**
+     * Returns the size of the bit array in bytes.
+     */
+    public long getMemoryBytes() {
+        return 8L * words.length;
+    }
+
+    @Override
+    public String toString() {
+        return "BloomFilter{capacity=" + capacity + ", memoryBytes=" + getMemoryBytes()
+                + ", expectedFalsePositiveRate=" + String.format("%.4f", getExpectedFalsePositiveRate())
+                + ", observedFalsePositiveRate=" + String.format("%.4f", getObservedFalsePositiveRate()) + "}";
+    }
+}
@@ -0,0 +1,477 @@
+package escuelaing.edu.co;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe AVL tree with the {@link Collection} contract of {@link BinarySearchTree}.
+ * <p>
+ * The key space is cut into stripes, contiguous key ranges that each hold an AVL tree of up
+ * to {@link #DEFAULT_STRIPE_SIZE} values guarded by its own lock. A writer locks only the
+ * stripe its key falls in, so writers to different ranges run in parallel. A stripe that
+ * outgrows the limit is split at its median with {@link BinarySearchTree#split(Comparable)},
+ * and one that shrinks to a quarter of it is merged into a neighbour, so the number of
+ * stripes follows the size of the tree.
+ * <p>
+ * After every update a stripe publishes an O(1) read-only {@link BinarySearchTree#snapshot()}
+ * of its tree through a volatile field. {@link #search(Comparable)} and
+ * {@link #contains(Object)} look up the stripe in the current stripe table and search its
+ * published snapshot: they take no lock and never wait for a writer. The price is on the
+ * writer, whose next update of the stripe copies the O(log n) nodes on its path instead of
+ * modifying the ones the snapshot shares.
+ * <p>
+ * Iterators, {@link #size()}, {@link #findMin()} and {@link #findMax()} read the published
+ * snapshots without locking either. They are weakly consistent, like those of
+ * {@link java.util.concurrent.ConcurrentSkipListSet}: each stripe is seen as of one moment,
+ * but different stripes may be seen at different moments. {@link #snapshot()} returns an
+ * atomic view. Bulk operations such as {@link #addAll(Collection)} apply their values one by
+ * one and are not atomic.
+ */
+public class ConcurrentBinarySearchTree<T extends Comparable<T>> extends AbstractCollection<T> {
+    /** Number of values above which a stripe is split in two. */
+    public static final int DEFAULT_STRIPE_SIZE = 1 << 12;
+
+    /**
+     * Double collects {@link #snapshot()} tries before it locks the stripes to get a
+     * consistent view.
+     */
+    private static final int SNAPSHOT_ATTEMPTS = 3;
+
+    /**
+     * A key range and the tree holding its values.
+     */
+    private static final class Stripe<T extends Comparable<T>> {
+        final ReentrantLock lock = new ReentrantLock();
+        /** Modified only under {@link #lock}. */
+        final BinarySearchTree<T> tree;
+        /** Read-only snapshot of {@link #tree} as of the last update. */
+        volatile BinarySearchTree<T> published;
+        /**
+         * Set under {@link #lock} once the stripe has been replaced in the table by a split,
+         * a merge or a clear; a writer that locks a retired stripe looks it up again.
+         */
+        boolean retired;
+
+        Stripe(BinarySearchTree<T> tree) {
+            this.tree = tree;
+            this.published = tree.snapshot();
+        }
+
+        void publish() {
+            published = tree.snapshot();
+        }
+    }
+
+    /**
+     * Immutable array of stripes in key order. Stripe {@code i > 0} holds the values greater
+     * than or equal to {@code bounds[i - 1]} and less than {@code bounds[i]}.
+     */
+    private static final class Table<T extends Comparable<T>> {
+        final Stripe<T>[] stripes;
+        final Object[] bounds;
+
+        Table(Stripe<T>[] stripes, Object[] bounds) {
+            this.stripes = stripes;
+            this.bounds = bounds;
+        }
+
+        @SuppressWarnings("unchecked")
+        Stripe<T> stripeFor(T value) {
+            int low = 0;
+            int high = bounds.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (((T) bounds[mid]).compareTo(value) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return stripes[low];
+        }
+
+        int indexOf(Stripe<T> stripe) {
+            for (int i = 0; i < stripes.length; i++) {
+                if (stripes[i] == stripe) {
+                    return i;
+                }
+            }
+            throw new IllegalStateException("Stripe is not in the table");
+        }
+    }
+
+    private final int stripeSize;
+    private volatile Table<T> table;
+    /** Serializes changes to {@link #table}; taken after a stripe lock, never before one. */
+    private final ReentrantLock tableLock = new ReentrantLock();
+
+    public ConcurrentBinarySearchTree() {
+        this(DEFAULT_STRIPE_SIZE);
+    }
+
+    public ConcurrentBinarySearchTree(Collection<? extends T> values) {
+        this(DEFAULT_STRIPE_SIZE);
+        addAll(values);
+    }
+
+    /**
+     * @param stripeSize number of values above which a stripe is split in two, at least 4
+     */
+    public ConcurrentBinarySearchTree(int stripeSize) {
+        if (stripeSize < 4) {
+            throw new IllegalArgumentException("Stripe size must be at least 4: " + stripeSize);
+        }
+        this.stripeSize = stripeSize;
+        this.table = singleStripe();
+    }
+
+    private Table<T> singleStripe() {
+        Stripe<T>[] stripes = newStripes(1);
+        stripes[0] = new Stripe<>(new BinarySearchTree<T>(BinarySearchTree.Balancing.AVL));
+        return new Table<>(stripes, new Object[0]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends Comparable<T>> Stripe<T>[] newStripes(int length) {
+        return (Stripe<T>[]) new Stripe<?>[length];
+    }
+
+    /**
+     * Locks the stripe that holds {@code value} in the current table. The caller unlocks it.
+     */
+    private Stripe<T> lockStripe(T value) {
+        while (true) {
+            Stripe<T> stripe = table.stripeFor(value);
+            stripe.lock.lock();
+            if (!stripe.retired) {
+                return stripe;
+            }
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean add(T value) {
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null");
+        }
+        Stripe<T> stripe = lockStripe(value);
+        try {
+            if (!stripe.tree.add(value)) {
+                return false;
+            }
+            stripe.publish();
+            if (stripe.tree.size() > stripeSize) {
+                split(stripe);
+            }
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object obj) {
+        if (!(obj instanceof Comparable)) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) obj;
+        Stripe<T> stripe = lockStripe(value);
+        try {
+            if (!stripe.tree.remove(value)) {
+                return false;
+            }
+            stripe.publish();
+            if (stripe.tree.size() <= stripeSize / 4) {
+                tryMerge(stripe);
+            }
+            return true;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /**
+     * Replaces {@code stripe}, locked by the caller, by two stripes split at its median.
+     */
+    private void split(Stripe<T> stripe) {
+        tableLock.lock();
+        try {
+            Table<T> current = table;
+            int index = current.indexOf(stripe);
+            T median = stripe.tree.select(stripe.tree.size() / 2);
+            BinarySearchTree<T> upper = stripe.tree.split(median);
+
+            Stripe<T>[] stripes = newStripes(current.stripes.length + 1);
+            System.arraycopy(current.stripes, 0, stripes, 0, index);
+            stripes[index] = new Stripe<>(stripe.tree);
+            stripes[index + 1] = new Stripe<>(upper);
+            System.arraycopy(current.stripes, index + 1, stripes, index + 2, current.stripes.length - index - 1);
+            Object[] bounds = new Object[current.bounds.length + 1];
+            System.arraycopy(current.bounds, 0, bounds, 0, index);
+            bounds[index] = median;
+            System.arraycopy(current.bounds, index, bounds, index + 1, current.bounds.length - index);
+            table = new Table<>(stripes, bounds);
+            stripe.retired = true;
+        } finally {
+            tableLock.unlock();
+        }
+    }
+
+    /**
+     * Merges {@code stripe}, locked by the caller, with a neighbour if their values fit in
+     * half a stripe. The neighbour is only try-locked, so the merge is skipped while it is
+     * being written.
+     */
+    private void tryMerge(Stripe<T> stripe) {
+        tableLock.lock();
+        try {
+            Table<T> current = table;
+            if (current.stripes.length == 1) {
+                return;
+            }
+            int index = current.indexOf(stripe);
+            // Merge with the smaller neighbour, so that emptied stripes are absorbed first.
+            int left = index - 1;
+            if (index == 0 || index + 1 < current.stripes.length
+                    && current.stripes[index + 1].published.size() < current.stripes[index - 1].published.size()) {
+                left = index;
+            }
+            Stripe<T> neighbour = current.stripes[left == index ? index + 1 : left];
+            if (stripe.tree.size() + neighbour.published.size() > stripeSize / 2 || !neighbour.lock.tryLock()) {
+                return;
+            }
+            try {
+                // Holding the table lock, a stripe in the current table cannot be retired.
+                Stripe<T> lower = current.stripes[left];
+                Stripe<T> higher = current.stripes[left + 1];
+                lower.tree.join(higher.tree);
+
+                Stripe<T>[] stripes = newStripes(current.stripes.length - 1);
+                System.arraycopy(current.stripes, 0, stripes, 0, left);
+                stripes[left] = new Stripe<>(lower.tree);
+                System.arraycopy(current.stripes, left + 2, stripes, left + 1, current.stripes.length - left - 2);
+                Object[] bounds = new Object[current.bounds.length - 1];
+                System.arraycopy(current.bounds, 0, bounds, 0, left);
+                System.arraycopy(current.bounds, left + 1, bounds, left, current.bounds.length - left - 1);
+                table = new Table<>(stripes, bounds);
+                lower.retired = true;
+                higher.retired = true;
+            } finally {
+                neighbour.lock.unlock();
+            }
+        } finally {
+            tableLock.unlock();
+        }
+    }
+
+    /**
+     * Locks every stripe of the current table in key order and returns the table. The caller
+     * unlocks them with {@link #unlockAll(Table)}.
+     */
+    private Table<T> lockAll() {
+        while (true) {
+            Table<T> current = table;
+            int locked = 0;
+            for (Stripe<T> stripe : current.stripes) {
+                stripe.lock.lock();
+                locked++;
+                if (stripe.retired) {
+                    break;
+                }
+            }
+            if (locked == current.stripes.length && !current.stripes[locked - 1].retired) {
+                return current;
+            }
+            for (int i = 0; i < locked; i++) {
+                current.stripes[i].lock.unlock();
+            }
+        }
+    }
+
+    private void unlockAll(Table<T> locked) {
+        for (Stripe<T> stripe : locked.stripes) {
+            stripe.lock.unlock();
+        }
+    }
+
+    @Override
+    public void clear() {
+        Table<T> locked = lockAll();
+        try {
+            tableLock.lock();
+            try {
+                table = singleStripe();
+                for (Stripe<T> stripe : locked.stripes) {
+                    stripe.retired = true;
+                }
+            } finally {
+                tableLock.unlock();
+            }
+        } finally {
+            unlockAll(locked);
+        }
+    }
+
+    public T search(T value) {
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null");
+        }
+        return table.stripeFor(value).published.search(value);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Comparable)) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) o;
+        return search(value) != null;
+    }
+
+    public T findMin() {
+        for (Stripe<T> stripe : table.stripes) {
+            T min = stripe.published.findMin();
+            if (min != null) {
+                return min;
+            }
+        }
+        return null;
+    }
+
+    public T findMax() {
+        Stripe<T>[] stripes = table.stripes;
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            T max = stripes[i].published.findMax();
+            if (max != null) {
+                return max;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the height of {@link #snapshot()}, which joins the stripes into one AVL tree.
+     */
+    public int height() {
+        return snapshot().height();
+    }
+
+    public boolean isBalanced() {
+        return snapshot().isBalanced();
+    }
+
+    /**
+     * Returns the number of stripes the key space is currently cut into.
+     */
+    int stripeCount() {
+        return table.stripes.length;
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+        for (Stripe<T> stripe : table.stripes) {
+            size += stripe.published.size();
+        }
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        for (Stripe<T> stripe : table.stripes) {
+            if (!stripe.published.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a read-only view of the contents at one moment, see
+     * {@link BinarySearchTree#snapshot()}. It reads the published snapshots of the stripes
+     * twice and accepts them if nothing changed in between; under a steady stream of writes
+     * it locks the stripes, one at a time in key order, to read them. The stripes are then
+     * joined into one AVL tree in O(k log n) for k stripes.
+     */
+    public BinarySearchTree<T> snapshot() {
+        for (int attempt = 0; attempt < SNAPSHOT_ATTEMPTS; attempt++) {
+            Table<T> current = table;
+            List<BinarySearchTree<T>> parts = collect(current);
+            if (table == current && unchanged(current, parts)) {
+                return BinarySearchTree.concat(parts);
+            }
+            Thread.onSpinWait();
+        }
+        Table<T> locked = lockAll();
+        try {
+            return BinarySearchTree.concat(collect(locked));
+        } finally {
+            unlockAll(locked);
+        }
+    }
+
+    private List<BinarySearchTree<T>> collect(Table<T> current) {
+        List<BinarySearchTree<T>> parts = new ArrayList<>(current.stripes.length);
+        for (Stripe<T> stripe : current.stripes) {
+            parts.add(stripe.published);
+        }
+        return parts;
+    }
+
+    /**
+     * Returns whether every stripe still publishes the snapshot in {@code parts}. Snapshots
+     * are new objects on every update, so an unchanged reference means an unchanged stripe.
+     */
+    private boolean unchanged(Table<T> current, List<BinarySearchTree<T>> parts) {
+        for (int i = 0; i < parts.size(); i++) {
+            if (current.stripes[i].published != parts.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns a weakly consistent iterator over the published snapshots of the stripes; it
+     * never blocks and never throws {@link ConcurrentModificationException}. {@code remove()}
+     * removes the last returned value from the tree.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        Stripe<T>[] stripes = table.stripes;
+        return new Iterator<T>() {
+            private int next;
+            private Iterator<T> values = Collections.emptyIterator();
+            private T lastReturned;
+
+            @Override
+            public boolean hasNext() {
+                while (!values.hasNext() && next < stripes.length) {
+                    values = stripes[next++].published.iterator();
+                }
+                return values.hasNext();
+            }
+
+            @Override
+            public T next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                lastReturned = values.next();
+                return lastReturned;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                ConcurrentBinarySearchTree.this.remove(lastReturned);
+                lastReturned = null;
+            }
+        };
+    }
+}
@@ -0,0 +1,707 @@
+package escuelaing.edu.co;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Thread-safe AVL tree whose updates survive a crash. Every {@code add}, {@code remove} and
+ * {@code clear} that changes the tree appends a record to a write-ahead log in the tree's
+ * directory. Logs are forced with group commit: the first writer that needs its record on
+ * disk writes and forces everything appended so far, and the writers that arrived while it
+ * was forcing share its next force, so concurrent updates pay for one fsync per batch.
+ * <p>
+ * Every {@link #DEFAULT_CHECKPOINT_INTERVAL} records, or on {@link #checkpoint()}, the
+ * contents are written in the {@link MappedBinarySearchTree} format and the log is started
+ * over. The checkpoint is written from an O(1) snapshot, so updates continue meanwhile;
+ * automatic checkpoints run on a background thread, so the update that makes one due only
+ * schedules it.
+ * {@link #open(Path, KeyCodec)} loads the newest checkpoint and replays only the logs
+ * written after it, discarding a record torn by the crash.
+ * <p>
+ * Files: {@code checkpoint-<g>.bin} holds the contents before log {@code wal-<g>.log};
+ * logs {@code wal-<g>.log}, {@code wal-<g + 1>.log}, ... follow it.
+ * <p>
+ * Log record: {@code byte operation, int length, byte value[length], int crc32}, with the
+ * checksum covering the first three fields.
+ */
+public class DurableBinarySearchTree<T extends Comparable<T>> extends AbstractCollection<T> implements Closeable {
+    /**
+     * When an update is on disk relative to the call that made it.
+     */
+    public enum Durability {
+        /** The call returns once its record is forced; concurrent calls share a force. */
+        SYNC,
+        /**
+         * The call returns once its record is appended; the log is forced every
+         * {@code groupCommitSize} records and by {@link #sync()}, {@link #checkpoint()} and
+         * {@link #close()}. A crash loses at most the records not yet forced.
+         */
+        GROUP
+    }
+
+    public static final int DEFAULT_GROUP_COMMIT_SIZE = 1024;
+    public static final long DEFAULT_CHECKPOINT_INTERVAL = 1L << 20;
+
+    private static final byte ADD = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final int RECORD_HEADER_BYTES = 1 + Integer.BYTES;
+    private static final int INITIAL_BUFFER_BYTES = 1 << 16;
+
+    private static final String LOG_PREFIX = "wal-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String CHECKPOINT_PREFIX = "checkpoint-";
+    private static final String CHECKPOINT_SUFFIX = ".bin";
+
+    private final Path directory;
+    private final KeyCodec<T> codec;
+    private final Durability durability;
+    private final int groupCommitSize;
+    private final long checkpointInterval;
+    private final ConcurrentBinarySearchTree<T> tree = new ConcurrentBinarySearchTree<>();
+
+    /** Orders updates with their log records; guards the fields up to {@link #syncMonitor}. */
+    private final ReentrantLock lock = new ReentrantLock();
+    private final CRC32 checksum = new CRC32();
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_BUFFER_BYTES);
+    private long appended;
+    private long generation;
+    private FileChannel log;
+    private boolean closed;
+
+    /** Elects the single thread that writes and forces the log; guards the fields below it. */
+    private final Object syncMonitor = new Object();
+    private volatile long durable;
+    private boolean syncing;
+    private volatile IOException failure;
+
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+    private volatile long nextCheckpoint;
+    /** Runs automatic checkpoints; its thread exits when idle. */
+    private final ThreadPoolExecutor checkpointer;
+    /** Set while an automatic checkpoint is queued, so that due updates queue only one. */
+    private final AtomicBoolean checkpointQueued = new AtomicBoolean();
+    private volatile IOException checkpointFailure;
+
+    private DurableBinarySearchTree(Path directory, KeyCodec<T> codec, Durability durability,
+                                    int groupCommitSize, long checkpointInterval) {
+        this.directory = directory;
+        this.codec = codec;
+        this.durability = durability;
+        this.groupCommitSize = groupCommitSize;
+        this.checkpointInterval = checkpointInterval;
+        this.checkpointer = new ThreadPoolExecutor(0, 1, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "checkpoint-" + directory.getFileName());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public static <T extends Comparable<T>> DurableBinarySearchTree<T> open(Path directory, KeyCodec<T> codec)
+            throws IOException {
+        return open(directory, codec, Durability.SYNC);
+    }
+
+    public static <T extends Comparable<T>> DurableBinarySearchTree<T> open(Path directory, KeyCodec<T> codec,
+                                                                           Durability durability) throws IOException {
+        return open(directory, codec, durability, DEFAULT_GROUP_COMMIT_SIZE, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+    /**
+     * Opens, or creates, the tree stored in {@code directory} and recovers its contents.
+     *
+     * @param groupCommitSize    records appended between forces in {@link Durability#GROUP} mode
+     * @param checkpointInterval records logged between automatic checkpoints
+     * @throws IOException if the files cannot be read or a log other than the last is corrupt
+     */
+    public static <T extends Comparable<T>> DurableBinarySearchTree<T> open(Path directory, KeyCodec<T> codec,
+                                                                           Durability durability,
+                                                                           int groupCommitSize,
+                                                                           long checkpointInterval)
+            throws IOException {
+        if (groupCommitSize < 1) {
+            throw new IllegalArgumentException("Group commit size must be positive: " + groupCommitSize);
+        }
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + checkpointInterval);
+        }
+        Files.createDirectories(directory);
+        DurableBinarySearchTree<T> tree = new DurableBinarySearchTree<>(directory, codec, durability,
+                groupCommitSize, checkpointInterval);
+        tree.recover();
+        return tree;
+    }
+
+    private void recover() throws IOException {
+        long checkpoint = -1;
+        List<Long> logs = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(MappedBinarySearchTree.TEMPORARY_SUFFIX)) {
+                    // A checkpoint that was still being written when the process stopped.
+                    Files.delete(file);
+                    continue;
+                }
+                checkpoint = Math.max(checkpoint, generationOf(name, CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX));
+                long log = generationOf(name, LOG_PREFIX, LOG_SUFFIX);
+                if (log >= 0) {
+                    logs.add(log);
+                }
+            }
+        }
+
+        generation = Math.max(checkpoint, 0);
+        if (checkpoint >= 0) {
+            tree.addAll(BinarySearchTree.readFrom(checkpointPath(checkpoint), codec));
+        }
+        Collections.sort(logs);
+        for (int i = 0; i < logs.size(); i++) {
+            long log = logs.get(i);
+            if (log >= generation) {
+                replay(logPath(log), i == logs.size() - 1);
+                generation = log + 1;
+            }
+        }
+        deleteBefore(Math.max(checkpoint, 0));
+        log = openLog(generation);
+        nextCheckpoint = checkpointInterval;
+    }
+
+    /**
+     * Applies the records of a log. A torn or corrupt record ends the last log, which is
+     * truncated there; in an earlier log it means records were lost, which is an error.
+     */
+    private void replay(Path path, boolean last) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+            long length = channel.size();
+            long valid = 0;
+            byte[] header = new byte[RECORD_HEADER_BYTES];
+            CRC32 crc = new CRC32();
+            while (valid + RECORD_HEADER_BYTES + Integer.BYTES <= length) {
+                in.readFully(header);
+                byte operation = header[0];
+                int size = ByteBuffer.wrap(header).getInt(1);
+                if (size < 0 || size > length - valid - RECORD_HEADER_BYTES - Integer.BYTES) {
+                    break;
+                }
+                byte[] value = new byte[size];
+                in.readFully(value);
+                crc.reset();
+                crc.update(header);
+                crc.update(value);
+                if (in.readInt() != (int) crc.getValue() || !apply(operation, value)) {
+                    break;
+                }
+                valid += RECORD_HEADER_BYTES + size + Integer.BYTES;
+            }
+            if (valid < length) {
+                if (!last) {
+                    throw new IOException("Corrupt write-ahead log: " + path);
+                }
+                channel.truncate(valid);
+                channel.force(true);
+            }
+        }
+    }
+
+    private boolean apply(byte operation, byte[] value) {
+        switch (operation) {
+            case ADD:
+                tree.add(codec.decode(ByteBuffer.wrap(value), 0, value.length));
+                return true;
+            case REMOVE:
+                tree.remove(codec.decode(ByteBuffer.wrap(value), 0, value.length));
+                return true;
+            case CLEAR:
+                tree.clear();
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static long generationOf(String name, String prefix, String suffix) {
+        if (!name.startsWith(prefix) || !name.endsWith(suffix)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private Path logPath(long generation) {
+        return directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX);
+    }
+
+    private Path checkpointPath(long generation) {
+        return directory.resolve(CHECKPOINT_PREFIX + generation + CHECKPOINT_SUFFIX);
+    }
+
+    private FileChannel openLog(long generation) throws IOException {
+        return FileChannel.open(logPath(generation), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Deletes the checkpoints and logs superseded by checkpoint {@code generation}.
+     */
+    private void deleteBefore(long generation) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long checkpoint = generationOf(name, CHECKPOINT_PREFIX, CHECKPOINT_SUFFIX);
+                long log = generationOf(name, LOG_PREFIX, LOG_SUFFIX);
+                if ((checkpoint >= 0 && checkpoint < generation) || (log >= 0 && log < generation)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Tree is closed");
+        }
+        IOException failure = this.failure;
+        if (failure != null) {
+            throw new UncheckedIOException("Write-ahead log failed", failure);
+        }
+    }
+
+    /**
+     * Appends a record to the pending batch and returns its sequence number. The caller
+     * holds {@link #lock}.
+     */
+    private long append(byte operation, T value) {
+        int size = value == null ? 0 : codec.encodedLength(value);
+        int needed = RECORD_HEADER_BYTES + size + Integer.BYTES;
+        if (pending.remaining() < needed) {
+            ByteBuffer larger = ByteBuffer.allocate(Math.max(pending.capacity() * 2, pending.position() + needed));
+            pending.flip();
+            larger.put(pending);
+            pending = larger;
+        }
+        int start = pending.position();
+        pending.put(operation).putInt(size);
+        if (value != null) {
+            codec.encode(value, pending);
+        }
+        checksum.reset();
+        checksum.update(pending.array(), start, RECORD_HEADER_BYTES + size);
+        pending.putInt((int) checksum.getValue());
+        return ++appended;
+    }
+
+    /**
+     * Takes the pending batch for writing. The caller holds {@link #lock}.
+     */
+    private ByteBuffer drain() {
+        ByteBuffer batch = pending;
+        batch.flip();
+        pending = ByteBuffer.allocate(Math.max(INITIAL_BUFFER_BYTES, batch.limit()));
+        return batch;
+    }
+
+    /**
+     * Makes the update with sequence number {@code sequence} as durable as the mode asks and
+     * schedules a checkpoint when one is due.
+     */
+    private void commit(long sequence) {
+        try {
+            // Bulk updates append several records at once, so count the records not yet forced
+            // rather than waiting for the sequence to hit a multiple of the group size.
+            if (durability == Durability.SYNC || sequence - durable >= groupCommitSize) {
+                sync(sequence);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (sequence >= nextCheckpoint && checkpointQueued.compareAndSet(false, true)) {
+            try {
+                checkpointer.execute(this::automaticCheckpoint);
+            } catch (RejectedExecutionException e) {
+                // The tree is being closed.
+                checkpointQueued.set(false);
+            }
+        }
+    }
+
+    /**
+     * Runs on {@link #checkpointer}. A failure to write the checkpoint file leaves the previous
+     * checkpoint and the logs in place, so it is only reported by {@link #close()}.
+     */
+    private void automaticCheckpoint() {
+        checkpointQueued.set(false);
+        try {
+            boolean due;
+            lock.lock();
+            try {
+                due = !closed && appended >= nextCheckpoint;
+            } finally {
+                lock.unlock();
+            }
+            if (due) {
+                checkpoint();
+            }
+        } catch (IOException e) {
+            checkpointFailure = e;
+        } catch (UncheckedIOException e) {
+            checkpointFailure = e.getCause();
+        } catch (IllegalStateException e) {
+            // Closed after the check above.
+        }
+    }
+
+    /**
+     * Waits until record {@code sequence} is durable or this thread is elected to make it so.
+     *
+     * @return whether this thread must write and force the log, then call {@link #release(long)}
+     */
+    private boolean lead(long sequence) throws IOException {
+        boolean interrupted = false;
+        try {
+            synchronized (syncMonitor) {
+                while (durable < sequence && syncing && failure == null) {
+                    try {
+                        syncMonitor.wait();
+                    } catch (InterruptedException e) {
+                        interrupted = true;
+                    }
+                }
+                if (failure != null) {
+                    throw new IOException("Write-ahead log failed", failure);
+                }
+                if (durable >= sequence) {
+                    return false;
+                }
+                syncing = true;
+                return true;
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void release(long reached) {
+        synchronized (syncMonitor) {
+            if (reached > durable) {
+                durable = reached;
+            }
+            syncing = false;
+            syncMonitor.notifyAll();
+        }
+    }
+
+    private void sync(long sequence) throws IOException {
+        if (!lead(sequence)) {
+            return;
+        }
+        long reached = -1;
+        try {
+            long target;
+            ByteBuffer batch;
+            FileChannel channel;
+            lock.lock();
+            try {
+                target = appended;
+                batch = drain();
+                channel = log;
+            } finally {
+                lock.unlock();
+            }
+            write(channel, batch);
+            reached = target;
+        } catch (IOException | RuntimeException e) {
+            failure = e instanceof IOException ? (IOException) e : new IOException(e);
+            throw e;
+        } finally {
+            release(reached);
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer batch) throws IOException {
+        while (batch.hasRemaining()) {
+            channel.write(batch);
+        }
+        channel.force(false);
+    }
+
+    /**
+     * Forces every update made so far to disk.
+     */
+    public void sync() throws IOException {
+        long sequence;
+        lock.lock();
+        try {
+            sequence = appended;
+        } finally {
+            lock.unlock();
+        }
+        sync(sequence);
+    }
+
+    /**
+     * Writes the current contents to a new checkpoint, starts a new log and deletes the files
+     * the checkpoint supersedes. Updates are only blocked while the log is switched.
+     */
+    public void checkpoint() throws IOException {
+        checkpointLock.lock();
+        try {
+            BinarySearchTree<T> snapshot;
+            long next;
+            lead(Long.MAX_VALUE);
+            long reached = -1;
+            try {
+                long target;
+                ByteBuffer batch;
+                FileChannel previous;
+                lock.lock();
+                try {
+                    checkOpen();
+                    snapshot = tree.snapshot();
+                    target = appended;
+                    batch = drain();
+                    previous = log;
+                    next = generation + 1;
+                    log = openLog(next);
+                    generation = next;
+                    nextCheckpoint = appended + checkpointInterval;
+                } finally {
+                    lock.unlock();
+                }
+                write(previous, batch);
+                previous.close();
+                reached = target;
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            } finally {
+                release(reached);
+            }
+
+            // writeTo renames the finished file into place and forces the directory, so the
+            // checkpoint is on disk before the files it supersedes are deleted.
+            snapshot.writeTo(checkpointPath(next), codec);
+            deleteBefore(next);
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    /**
+     * Forces the log and closes it, after waiting for an automatic checkpoint in progress;
+     * queued ones are dropped. Later updates throw {@link IllegalStateException}.
+     *
+     * @throws IOException if forcing the log fails or an automatic checkpoint failed
+     */
+    @Override
+    public void close() throws IOException {
+        long sequence;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            sequence = appended;
+        } finally {
+            lock.unlock();
+        }
+        checkpointer.shutdown();
+        checkpointLock.lock();
+        try {
+            sync(sequence);
+        } finally {
+            log.close();
+            checkpointLock.unlock();
+        }
+        IOException failure = checkpointFailure;
+        if (failure != null) {
+            throw new IOException("Automatic checkpoint failed", failure);
+        }
+    }
+
+    @Override
+    public boolean add(T value) {
+        long sequence;
+        lock.lock();
+        try {
+            checkOpen();
+            if (!tree.add(value)) {
+                return false;
+            }
+            sequence = append(ADD, value);
+        } finally {
+            lock.unlock();
+        }
+        commit(sequence);
+        return true;
+    }
+
+    @Override
+    public boolean remove(Object obj) {
+        if (!(obj instanceof Comparable)) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) obj;
+        long sequence;
+        lock.lock();
+        try {
+            checkOpen();
+            if (!tree.remove(value)) {
+                return false;
+            }
+            sequence = append(REMOVE, value);
+        } finally {
+            lock.unlock();
+        }
+        commit(sequence);
+        return true;
+    }
+
+    @Override
+    public void clear() {
+        long sequence;
+        lock.lock();
+        try {
+            checkOpen();
+            tree.clear();
+            sequence = append(CLEAR, null);
+        } finally {
+            lock.unlock();
+        }
+        commit(sequence);
+    }
+
+    /**
+     * Adds the values with one log append and, in {@link Durability#SYNC} mode, one force.
+     */
+    @Override
+    public boolean addAll(Collection<? extends T> c) {
+        long sequence = -1;
+        lock.lock();
+        try {
+            checkOpen();
+            for (T value : c) {
+                if (tree.add(value)) {
+                    sequence = append(ADD, value);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (sequence < 0) {
+            return false;
+        }
+        commit(sequence);
+        return true;
+    }
+
+    /**
+     * Removes the values with one log append and, in {@link Durability#SYNC} mode, one force.
+     */
+    @Override
+    public boolean removeAll(Collection<?> c) {
+        long sequence = -1;
+        lock.lock();
+        try {
+            checkOpen();
+            for (Object value : c) {
+                if (tree.remove(value)) {
+                    @SuppressWarnings("unchecked")
+                    T removed = (T) value;
+                    sequence = append(REMOVE, removed);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (sequence < 0) {
+            return false;
+        }
+        commit(sequence);
+        return true;
+    }
+
+    public T search(T value) {
+        return tree.search(value);
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return tree.contains(o);
+    }
+
+    public T findMin() {
+        return tree.findMin();
+    }
+
+    public T findMax() {
+        return tree.findMax();
+    }
+
+    @Override
+    public int size() {
+        return tree.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return tree.isEmpty();
+    }
+
+    /**
+     * Returns a read-only view of the current contents, see {@link BinarySearchTree#snapshot()}.
+     */
+    public BinarySearchTree<T> snapshot() {
+        return tree.snapshot();
+    }
+
+    /**
+     * Returns an iterator over the values present when it was created. {@code remove()}
+     * removes the last returned value from the tree and logs it.
+     */
+    @Override
+    public Iterator<T> iterator() {
+        Iterator<T> values = tree.snapshot().iterator();
+        return new Iterator<T>() {
+            private T lastReturned;
+
+            @Override
+            public boolean hasNext() {
+                return values.hasNext();
+            }
+
+            @Override
+            public T next() {
+                lastReturned = values.next();
+                return lastReturned;
+            }
+
+            @Override
+            public void remove() {
+                if (lastReturned == null) {
+                    throw new IllegalStateException();
+                }
+                DurableBinarySearchTree.this.remove(lastReturned);
+                lastReturned = null;
+            }
+        };
+    }
+}
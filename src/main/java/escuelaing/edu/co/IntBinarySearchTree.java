@@ -0,0 +1,465 @@
+package escuelaing.edu.co;
+
+import java.util.*;
+import java.util.function.IntConsumer;
+
+/**
+ * Binary search tree over {@code int} keys. It offers the same operations as
+ * {@link BinarySearchTree} but stores keys unboxed in the nodes and compares them without
+ * going through {@link Comparable#compareTo}. Where the generic tree returns {@code null}
+ * for a missing key or an empty tree, the methods here return an empty {@link OptionalInt}.
+ * <p>
+ * {@link LongBinarySearchTree} is the same code with {@code long} keys. The two files differ
+ * only in the key type, so a change to one must be copied to the other.
+ */
+public class IntBinarySearchTree {
+    private Node root;
+    private int size;
+    private int modCount;
+    private final BinarySearchTree.Balancing balancing;
+    private Node[] pathBuffer;
+
+    static final class Node {
+        private final int value;
+        private Node left, right;
+        private int height;
+
+        Node(int value) {
+            this.value = value;
+            this.height = 1;
+        }
+    }
+
+    public IntBinarySearchTree() {
+        this(BinarySearchTree.Balancing.NONE);
+    }
+
+    public IntBinarySearchTree(BinarySearchTree.Balancing balancing) {
+        if (balancing == null) {
+            throw new NullPointerException("Balancing cannot be null");
+        }
+        if (balancing == BinarySearchTree.Balancing.SPLAY) {
+            throw new IllegalArgumentException("IntBinarySearchTree does not support SPLAY balancing");
+        }
+        this.balancing = balancing;
+    }
+
+    public BinarySearchTree.Balancing getBalancing() {
+        return balancing;
+    }
+
+    public boolean add(int value) {
+        if (root == null) {
+            root = new Node(value);
+            size++;
+            modCount++;
+            return true;
+        }
+
+        Node[] path = pathBuffer();
+        int depth = 0;
+        Node node = root;
+        while (true) {
+            if (value == node.value) {
+                Arrays.fill(path, 0, depth, null);
+                return false;
+            }
+            path[depth++] = node;
+            Node next = value < node.value ? node.left : node.right;
+            if (next == null) {
+                break;
+            }
+            node = next;
+        }
+
+        if (value < node.value) {
+            node.left = new Node(value);
+        } else {
+            node.right = new Node(value);
+        }
+        size++;
+        modCount++;
+        retrace(path, depth);
+        return true;
+    }
+
+    /**
+     * Returns the key equal to {@code value}, or an empty {@link OptionalInt} if the tree does
+     * not contain it; the counterpart of {@link BinarySearchTree#search}.
+     */
+    public OptionalInt search(int value) {
+        return contains(value) ? OptionalInt.of(value) : OptionalInt.empty();
+    }
+
+    public boolean contains(int value) {
+        Node node = root;
+        while (node != null) {
+            if (value == node.value) {
+                return true;
+            }
+            node = value < node.value ? node.left : node.right;
+        }
+        return false;
+    }
+
+    public boolean remove(int value) {
+        Node[] path = pathBuffer();
+        int depth = 0;
+        Node node = root;
+        while (node != null && value != node.value) {
+            path[depth++] = node;
+            node = value < node.value ? node.left : node.right;
+        }
+        if (node == null) {
+            Arrays.fill(path, 0, depth, null);
+            return false;
+        }
+
+        if (node.left != null && node.right != null) {
+            // Keys are final, so the successor node takes the removed node's place.
+            Node target = node;
+            int targetDepth = depth;
+            path[depth++] = node;
+            Node successor = node.right;
+            while (successor.left != null) {
+                path[depth++] = successor;
+                successor = successor.left;
+            }
+            Node parent = path[depth - 1];
+            if (parent.left == successor) {
+                parent.left = successor.right;
+            } else {
+                parent.right = successor.right;
+            }
+            successor.left = target.left;
+            successor.right = target.right;
+            path[targetDepth] = successor;
+            replaceChild(path, targetDepth, target, successor);
+        } else {
+            replaceChild(path, depth, node, node.left != null ? node.left : node.right);
+        }
+        size--;
+        modCount++;
+        retrace(path, depth);
+        return true;
+    }
+
+    private void replaceChild(Node[] path, int depth, Node child, Node replacement) {
+        if (depth == 0) {
+            root = replacement;
+        } else if (path[depth - 1].left == child) {
+            path[depth - 1].left = replacement;
+        } else {
+            path[depth - 1].right = replacement;
+        }
+    }
+
+    private void retrace(Node[] path, int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            Node node = path[i];
+            Node balanced = rebalance(node);
+            if (balanced != node) {
+                replaceChild(path, i, node, balanced);
+            }
+            path[i] = null;
+        }
+    }
+
+    private Node[] pathBuffer() {
+        int required = height() + 1;
+        if (pathBuffer == null || pathBuffer.length < required) {
+            pathBuffer = new Node[Math.max(required, 2 * (pathBuffer == null ? 16 : pathBuffer.length))];
+        }
+        return pathBuffer;
+    }
+
+    private Node[] newStack() {
+        return new Node[height() + 1];
+    }
+
+    private Node rebalance(Node node) {
+        update(node);
+        if (balancing != BinarySearchTree.Balancing.AVL) {
+            return node;
+        }
+
+        int balanceFactor = getHeight(node.left) - getHeight(node.right);
+        if (balanceFactor > 1) {
+            if (getHeight(node.left.left) < getHeight(node.left.right)) {
+                node.left = rotateLeft(node.left);
+            }
+            return rotateRight(node);
+        }
+        if (balanceFactor < -1) {
+            if (getHeight(node.right.right) < getHeight(node.right.left)) {
+                node.right = rotateRight(node.right);
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node rotateRight(Node node) {
+        Node pivot = node.left;
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node rotateLeft(Node node) {
+        Node pivot = node.right;
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private void update(Node node) {
+        node.height = Math.max(getHeight(node.left), getHeight(node.right)) + 1;
+    }
+
+    private int getHeight(Node node) {
+        return node == null ? 0 : node.height;
+    }
+
+    /**
+     * Returns the smallest key, or an empty {@link OptionalInt} if the tree is empty; the
+     * counterpart of {@link BinarySearchTree#findMin}.
+     */
+    public OptionalInt findMin() {
+        if (root == null) {
+            return OptionalInt.empty();
+        }
+        Node node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return OptionalInt.of(node.value);
+    }
+
+    /**
+     * Returns the largest key, or an empty {@link OptionalInt} if the tree is empty; the
+     * counterpart of {@link BinarySearchTree#findMax}.
+     */
+    public OptionalInt findMax() {
+        if (root == null) {
+            return OptionalInt.empty();
+        }
+        Node node = root;
+        while (node.right != null) {
+            node = node.right;
+        }
+        return OptionalInt.of(node.value);
+    }
+
+    public void inOrderTraversal(IntConsumer action) {
+        Node[] stack = newStack();
+        int top = 0;
+        Node node = root;
+        while (node != null || top > 0) {
+            while (node != null) {
+                stack[top++] = node;
+                node = node.left;
+            }
+            node = stack[--top];
+            action.accept(node.value);
+            node = node.right;
+        }
+    }
+
+    public void preOrderTraversal(IntConsumer action) {
+        if (root == null) {
+            return;
+        }
+        Node[] stack = newStack();
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Node node = stack[--top];
+            action.accept(node.value);
+            if (node.right != null) {
+                stack[top++] = node.right;
+            }
+            if (node.left != null) {
+                stack[top++] = node.left;
+            }
+        }
+    }
+
+    public void postOrderTraversal(IntConsumer action) {
+        Node[] stack = newStack();
+        int top = 0;
+        Node node = root;
+        Node lastVisited = null;
+        while (node != null || top > 0) {
+            while (node != null) {
+                stack[top++] = node;
+                node = node.left;
+            }
+            Node peek = stack[top - 1];
+            if (peek.right != null && peek.right != lastVisited) {
+                node = peek.right;
+            } else {
+                action.accept(peek.value);
+                lastVisited = stack[--top];
+            }
+        }
+    }
+
+    public int[] levelOrderTraversal() {
+        int[] result = new int[size];
+        if (root == null) {
+            return result;
+        }
+        Node[] queue = new Node[size];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = root;
+        while (head < tail) {
+            Node current = queue[head];
+            queue[head] = null;
+            result[head++] = current.value;
+            if (current.left != null) {
+                queue[tail++] = current.left;
+            }
+            if (current.right != null) {
+                queue[tail++] = current.right;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the keys in ascending order.
+     */
+    public int[] toArray() {
+        int[] result = new int[size];
+        int[] index = {0};
+        inOrderTraversal(value -> result[index[0]++] = value);
+        return result;
+    }
+
+    /**
+     * Returns the key at the root, or an empty {@link OptionalInt} if the tree is empty; the
+     * counterpart of {@link BinarySearchTree#getRoot}.
+     */
+    public OptionalInt getRoot() {
+        return root == null ? OptionalInt.empty() : OptionalInt.of(root.value);
+    }
+
+    public int height() {
+        return getHeight(root);
+    }
+
+    public boolean isBalanced() {
+        if (root == null) {
+            return true;
+        }
+        Node[] stack = newStack();
+        int top = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Node node = stack[--top];
+            if (Math.abs(getHeight(node.left) - getHeight(node.right)) > 1) {
+                return false;
+            }
+            if (node.right != null) {
+                stack[top++] = node.right;
+            }
+            if (node.left != null) {
+                stack[top++] = node.left;
+            }
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getNumberOfNodes() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        root = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns a lazy in-order iterator that yields unboxed keys.
+     */
+    public PrimitiveIterator.OfInt iterator() {
+        return new PrimitiveIterator.OfInt() {
+            private final Node[] stack = newStack();
+            private int top;
+            private int expectedModCount = modCount;
+            private boolean canRemove;
+            private int lastReturned;
+
+            {
+                pushLeft(root);
+            }
+
+            private void pushLeft(Node node) {
+                while (node != null) {
+                    stack[top++] = node;
+                    node = node.left;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return top > 0;
+            }
+
+            @Override
+            public int nextInt() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (top == 0) {
+                    throw new NoSuchElementException();
+                }
+                Node node = stack[--top];
+                stack[top] = null;
+                pushLeft(node.right);
+                lastReturned = node.value;
+                canRemove = true;
+                return node.value;
+            }
+
+            @Override
+            public void remove() {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                IntBinarySearchTree.this.remove(lastReturned);
+                expectedModCount = modCount;
+                canRemove = false;
+                top = 0;
+                Node node = root;
+                while (node != null) {
+                    if (lastReturned < node.value) {
+                        stack[top++] = node;
+                        node = node.left;
+                    } else {
+                        node = node.right;
+                    }
+                }
+                Arrays.fill(stack, top, stack.length, null);
+            }
+        };
+    }
+}
@@ -0,0 +1,103 @@
+package escuelaing.edu.co;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary encoding of the values stored in a tree snapshot file, see
+ * {@link BinarySearchTree#writeTo(java.nio.file.Path, KeyCodec)} and
+ * {@link MappedBinarySearchTree}.
+ */
+public interface KeyCodec<T> {
+    /** Width reported by codecs whose encoded values differ in length. */
+    int VARIABLE_WIDTH = -1;
+
+    KeyCodec<Integer> INTEGER = new KeyCodec<Integer>() {
+        @Override
+        public int width() {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public int encodedLength(Integer value) {
+            return Integer.BYTES;
+        }
+
+        @Override
+        public void encode(Integer value, ByteBuffer out) {
+            out.putInt(value);
+        }
+
+        @Override
+        public Integer decode(ByteBuffer in, int offset, int length) {
+            return in.getInt(offset);
+        }
+    };
+
+    KeyCodec<Long> LONG = new KeyCodec<Long>() {
+        @Override
+        public int width() {
+            return Long.BYTES;
+        }
+
+        @Override
+        public int encodedLength(Long value) {
+            return Long.BYTES;
+        }
+
+        @Override
+        public void encode(Long value, ByteBuffer out) {
+            out.putLong(value);
+        }
+
+        @Override
+        public Long decode(ByteBuffer in, int offset, int length) {
+            return in.getLong(offset);
+        }
+    };
+
+    /** UTF-8 strings. */
+    KeyCodec<String> STRING = new KeyCodec<String>() {
+        @Override
+        public int width() {
+            return VARIABLE_WIDTH;
+        }
+
+        @Override
+        public int encodedLength(String value) {
+            return value.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        @Override
+        public void encode(String value, ByteBuffer out) {
+            out.put(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String decode(ByteBuffer in, int offset, int length) {
+            byte[] bytes = new byte[length];
+            in.get(offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * Returns the number of bytes of every encoded value, or {@link #VARIABLE_WIDTH}. Files
+     * written with a fixed-width codec need no offsets table.
+     */
+    int width();
+
+    int encodedLength(T value);
+
+    /**
+     * Writes {@code value} at the position of {@code out}, which has at least
+     * {@link #encodedLength(Object)} bytes remaining.
+     */
+    void encode(T value, ByteBuffer out);
+
+    /**
+     * Reads the value stored in {@code length} bytes at absolute {@code offset} of {@code in}
+     * without moving its position, so a shared buffer can be decoded from several threads.
+     */
+    T decode(ByteBuffer in, int offset, int length);
+}
@@ -0,0 +1,350 @@
+package escuelaing.edu.co;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Read-only tree backed by a memory-mapped snapshot file written by
+ * {@link BinarySearchTree#writeTo(Path, KeyCodec)}. Opening a file only maps it; lookups
+ * binary search the in-order key array in place and decode the O(log n) keys they compare
+ * against, so a warm restart does not pay for deserializing every value.
+ * <p>
+ * File layout, all integers big-endian:
+ * <pre>
+ * int magic, int version, int width, int count
+ * int offsets[count + 1]    only when width is {@link KeyCodec#VARIABLE_WIDTH}
+ * byte data[]               the encoded values in ascending order
+ * </pre>
+ * Offsets are relative to the start of {@code data}. A single mapping is limited to 2 GB,
+ * which bounds the file size.
+ * <p>
+ * Reads use absolute positions only, so an instance can be shared between threads.
+ */
+public final class MappedBinarySearchTree<T extends Comparable<T>> extends AbstractCollection<T> {
+    private static final int MAGIC = 0x42535431;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * Integer.BYTES;
+    private static final int WRITE_BUFFER_BYTES = 1 << 16;
+    /** Suffix of the sibling file that {@link #write} fills before renaming it into place. */
+    static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final ByteBuffer buffer;
+    private final KeyCodec<T> codec;
+    private final int width;
+    private final int size;
+    private final int dataStart;
+
+    private MappedBinarySearchTree(ByteBuffer buffer, KeyCodec<T> codec, Path path) throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a tree snapshot: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + buffer.getInt(4) + ": " + path);
+        }
+        this.buffer = buffer;
+        this.codec = codec;
+        this.width = buffer.getInt(8);
+        this.size = buffer.getInt(12);
+        if (width != codec.width()) {
+            throw new IOException("Snapshot was written with a codec of width " + width
+                    + ", not " + codec.width() + ": " + path);
+        }
+        long start = HEADER_BYTES;
+        long dataLength = (long) size * width;
+        if (width == KeyCodec.VARIABLE_WIDTH && size >= 0) {
+            start += (size + 1L) * Integer.BYTES;
+            dataLength = start <= buffer.capacity() ? buffer.getInt((int) start - Integer.BYTES) : -1;
+        }
+        if (size < 0 || dataLength < 0 || start + dataLength != buffer.capacity()) {
+            throw new IOException("Truncated or corrupt tree snapshot: " + path);
+        }
+        this.dataStart = (int) start;
+    }
+
+    /**
+     * Maps a snapshot file read-only. The mapping stays valid after the file is closed and
+     * is released when the returned tree is garbage collected.
+     * <p>
+     * Opening does not read the values, so it cannot check that they are sorted and distinct.
+     * Lookups binary search the file and miss values that are present if it does not hold
+     * that order, which {@link BinarySearchTree#writeTo(Path, KeyCodec)} guarantees;
+     * {@link BinarySearchTree#readFrom(Path, KeyCodec)} decodes every value and checks it.
+     *
+     * @throws IOException if the file cannot be read, is not a snapshot, or was written with
+     *                     a codec of a different width
+     */
+    public static <T extends Comparable<T>> MappedBinarySearchTree<T> open(Path path, KeyCodec<T> codec)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("Tree snapshot larger than 2 GB cannot be mapped: " + path);
+            }
+            return new MappedBinarySearchTree<>(channel.map(FileChannel.MapMode.READ_ONLY, 0, length), codec, path);
+        }
+    }
+
+    /**
+     * Writes {@code values}, which must be sorted and distinct, in the layout described above.
+     * The file is written and forced under a sibling name and then renamed over {@code path},
+     * so a reader that mapped the previous file keeps a valid mapping, and a crash leaves
+     * either the previous file or the complete new one.
+     */
+    static <T> void write(Path path, Collection<T> values, KeyCodec<? super T> codec) throws IOException {
+        int count = values.size();
+        int width = codec.width();
+        int[] offsets = null;
+        long dataLength;
+        if (width == KeyCodec.VARIABLE_WIDTH) {
+            offsets = new int[count + 1];
+            int i = 0;
+            long position = 0;
+            for (T value : values) {
+                offsets[i++] = (int) position;
+                position += codec.encodedLength(value);
+                if (position > Integer.MAX_VALUE) {
+                    throw new IOException("Tree snapshot larger than 2 GB cannot be mapped: " + path);
+                }
+            }
+            offsets[count] = (int) position;
+            dataLength = position;
+        } else {
+            dataLength = (long) count * width;
+        }
+        long fileLength = HEADER_BYTES + (offsets == null ? 0 : (count + 1L) * Integer.BYTES) + dataLength;
+        if (fileLength > Integer.MAX_VALUE) {
+            throw new IOException("Tree snapshot larger than 2 GB cannot be mapped: " + path);
+        }
+
+        Path temporary = path.resolveSibling(path.getFileName() + TEMPORARY_SUFFIX);
+        try {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer out = ByteBuffer.allocateDirect(WRITE_BUFFER_BYTES);
+                out.putInt(MAGIC).putInt(VERSION).putInt(width).putInt(count);
+                if (offsets != null) {
+                    for (int offset : offsets) {
+                        if (out.remaining() < Integer.BYTES) {
+                            flush(channel, out);
+                        }
+                        out.putInt(offset);
+                    }
+                }
+                for (T value : values) {
+                    int length = codec.encodedLength(value);
+                    if (out.remaining() < length) {
+                        flush(channel, out);
+                    }
+                    if (length > out.capacity()) {
+                        ByteBuffer large = ByteBuffer.allocate(length);
+                        codec.encode(value, large);
+                        flush(channel, large);
+                    } else {
+                        codec.encode(value, out);
+                    }
+                }
+                flush(channel, out);
+                channel.force(true);
+            }
+            Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        // The rename must reach the disk before the caller relies on the new file.
+        forceDirectory(path.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Forces the directory entries, so that a rename or a new file survives a crash. Platforms
+     * that cannot open a directory, such as Windows, make renames durable without it.
+     */
+    static void forceDirectory(Path directory) throws IOException {
+        FileChannel channel;
+        try {
+            channel = FileChannel.open(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            return;
+        }
+        try (channel) {
+            channel.force(true);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer out) throws IOException {
+        out.flip();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+    }
+
+    /**
+     * Decodes the value at zero-based position {@code index} of the sorted order.
+     */
+    private T valueAt(int index) {
+        if (width != KeyCodec.VARIABLE_WIDTH) {
+            return codec.decode(buffer, dataStart + index * width, width);
+        }
+        int entry = HEADER_BYTES + index * Integer.BYTES;
+        int start = buffer.getInt(entry);
+        int end = buffer.getInt(entry + Integer.BYTES);
+        return codec.decode(buffer, dataStart + start, end - start);
+    }
+
+    /**
+     * Returns the position of {@code value}, or {@code -(insertion point) - 1}.
+     */
+    private int indexOf(T value) {
+        if (value == null) {
+            throw new NullPointerException("Value cannot be null");
+        }
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int compareResult = valueAt(mid).compareTo(value);
+            if (compareResult < 0) {
+                low = mid + 1;
+            } else if (compareResult > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Returns the position of the first value greater than, or equal to when {@code inclusive},
+     * {@code value}.
+     */
+    private int lowerBound(T value, boolean inclusive) {
+        int index = indexOf(value);
+        if (index < 0) {
+            return -index - 1;
+        }
+        return inclusive ? index : index + 1;
+    }
+
+    public T search(T value) {
+        int index = indexOf(value);
+        return index >= 0 ? valueAt(index) : null;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (!(o instanceof Comparable)) {
+            return false;
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) o;
+        return indexOf(value) >= 0;
+    }
+
+    public T findMin() {
+        return size == 0 ? null : valueAt(0);
+    }
+
+    public T findMax() {
+        return size == 0 ? null : valueAt(size - 1);
+    }
+
+    /**
+     * Returns the value at zero-based position {@code k} of the sorted order in O(1).
+     *
+     * @throws IndexOutOfBoundsException if {@code k} is negative or not less than {@link #size()}
+     */
+    public T select(int k) {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + size);
+        }
+        return valueAt(k);
+    }
+
+    /**
+     * Returns the number of values strictly less than {@code value}.
+     */
+    public int rank(T value) {
+        return lowerBound(value, true);
+    }
+
+    /**
+     * Returns the number of values {@code v} with {@code lo <= v <= hi} in O(log n).
+     */
+    public int countInRange(T lo, T hi) {
+        if (lo.compareTo(hi) > 0) {
+            return 0;
+        }
+        return lowerBound(hi, false) - lowerBound(lo, true);
+    }
+
+    public void inOrderTraversal(List<T> result) {
+        for (int i = 0; i < size; i++) {
+            result.add(valueAt(i));
+        }
+    }
+
+    /**
+     * Appends the values {@code v} with {@code lo <= v <= hi} in ascending order, decoding
+     * only the values in the range.
+     */
+    public void rangeTraversal(T lo, T hi, List<T> result) {
+        if (lo.compareTo(hi) > 0) {
+            return;
+        }
+        int end = lowerBound(hi, false);
+        for (int i = lowerBound(lo, true); i < end; i++) {
+            result.add(valueAt(i));
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] values = new Object[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = valueAt(i);
+        }
+        return values;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new Iterator<T>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return next < size;
+            }
+
+            @Override
+            public T next() {
+                if (next >= size) {
+                    throw new NoSuchElementException();
+                }
+                return valueAt(next++);
+            }
+        };
+    }
+}
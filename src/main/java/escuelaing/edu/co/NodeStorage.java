@@ -0,0 +1,188 @@
+package escuelaing.edu.co;
+
+import escuelaing.edu.co.BinarySearchTree.Node;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Storage of the nodes of a {@link BinarySearchTree}, chosen through
+ * {@link BinarySearchTree.Storage}. An implementation lays the nodes out and runs every
+ * operation that walks or reshapes them in the tree's {@link BinarySearchTree.Balancing} mode;
+ * the tree keeps the argument checks, the Bloom filter and the views. Values are compared in
+ * their natural order.
+ */
+interface NodeStorage<T> {
+    BinarySearchTree.Balancing balancing();
+
+    boolean isMultiset();
+
+    boolean isReadOnly();
+
+    /**
+     * @throws UnsupportedOperationException if this is a read-only snapshot
+     */
+    void checkWritable();
+
+    /**
+     * Returns the number of nodes, which is the number of distinct values.
+     */
+    int size();
+
+    /**
+     * Returns the number of values, counting every occurrence in a multiset.
+     */
+    long occurrences();
+
+    int modCount();
+
+    /**
+     * Returns the number of comparisons made by the last insert or delete.
+     */
+    int comparisons();
+
+    TreeMetrics metrics();
+
+    void setMetrics(TreeMetrics metrics);
+
+    /**
+     * Inserts {@code value}, or adds to its count in a multiset, and returns the count it
+     * had before.
+     */
+    int link(T value, int occurrences);
+
+    /**
+     * Removes up to {@code occurrences} occurrences of {@code value}, unlinking its node when
+     * none are left, and returns the count it had before.
+     */
+    int unlink(Object value, int occurrences);
+
+    /**
+     * Returns the stored value equal to {@code value}, or {@code null}. Semi-splays a
+     * writable {@link BinarySearchTree.Balancing#SPLAY} tree and records the search in the
+     * metrics if any are attached.
+     */
+    T find(Object value);
+
+    /**
+     * Returns the number of occurrences of {@code value}, searching like {@link #find(Object)}.
+     */
+    int count(Object value);
+
+    /**
+     * Returns the stored value equal to {@code value}, or {@code null}, without restructuring
+     * or recording anything.
+     */
+    T lookup(Object value);
+
+    /**
+     * Returns a read-only storage holding the current contents, which later updates of this
+     * one do not change.
+     */
+    NodeStorage<T> snapshot();
+
+    void clear();
+
+    int height();
+
+    /**
+     * Returns whether every node's subtrees differ in height by at most one, in O(1).
+     */
+    boolean isBalanced();
+
+    TreeStats stats();
+
+    T rootValue();
+
+    /**
+     * Returns the root node. Storages that keep no node objects build a copy of the tree in
+     * O(n).
+     */
+    Node<T> root();
+
+    boolean inOrderTraversal(TreeVisitor<? super T> visitor);
+
+    boolean preOrderTraversal(TreeVisitor<? super T> visitor);
+
+    boolean postOrderTraversal(TreeVisitor<? super T> visitor);
+
+    boolean rangeTraversal(T lo, T hi, TreeVisitor<? super T> visitor);
+
+    boolean levelOrderTraversal(TreeVisitor<? super T> visitor);
+
+    T first();
+
+    T last();
+
+    T lower(Object value);
+
+    T floor(Object value);
+
+    T ceiling(Object value);
+
+    T higher(Object value);
+
+    T select(int k);
+
+    /**
+     * Counts the distinct values less than {@code value}, or less than or equal when
+     * {@code inclusive}.
+     */
+    int countLess(Object value, boolean inclusive);
+
+    /**
+     * Counts the occurrences of the values less than {@code value}, or less than or equal
+     * when {@code inclusive}.
+     */
+    long occurrencesLess(Object value, boolean inclusive);
+
+    /**
+     * Returns an iterator over the values between two bounds, {@code null} when the
+     * corresponding side is unbounded, once per occurrence in a multiset. Its
+     * {@code remove()} calls {@code remover}.
+     */
+    Iterator<T> iterator(T lo, boolean loInclusive, T hi, boolean hiInclusive, boolean descending,
+                         Consumer<T> remover);
+
+    Spliterator<T> spliterator();
+
+    /**
+     * Replaces the contents with the first {@code count} values of {@code values}, sorted and
+     * distinct, in a perfectly balanced tree.
+     */
+    void load(Object[] values, int count);
+
+    /**
+     * Adds the values of {@code other} to a set.
+     */
+    void union(Collection<?> other);
+
+    /**
+     * Keeps only the values of a set that are also in {@code other}.
+     */
+    void intersection(Collection<?> other);
+
+    /**
+     * Removes the values of {@code other} from a set.
+     */
+    void difference(Collection<?> other);
+
+    /**
+     * Moves the values greater than or equal to {@code key} to a new storage of the same
+     * kind and returns it.
+     */
+    NodeStorage<T> splitOff(T key);
+
+    /**
+     * Appends the values of {@code other}, a {@link BinarySearchTree} of the same mode whose
+     * values all exceed those of this one, keeping their counts.
+     */
+    void join(Collection<?> other);
+
+    /**
+     * Removes the values {@code v} with {@code lo <= v <= hi}.
+     */
+    void removeRange(T lo, T hi);
+}
@@ -0,0 +1,1742 @@
+package escuelaing.edu.co;
+
+import escuelaing.edu.co.BinarySearchTree.Node;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Node engine shared by {@link BinarySearchTree} and {@link BinarySearchTreeMap}: the nodes,
+ * the iterative insert and delete over a reusable path buffer, the
+ * {@link BinarySearchTree.Balancing} modes, copy-on-write epochs for snapshots, navigation,
+ * order statistics, traversals, iterators and the join-based bulk algorithms. Keys are
+ * ordered by a comparator, or by their natural order when it is {@code null}. A map keeps
+ * the value of each key in the node's {@code mapped} slot, which sets leave empty. It is the
+ * {@link NodeStorage} of a {@link BinarySearchTree.Storage#LINKED} tree.
+ * <p>
+ * The front ends own everything that is not about the shape of the tree: argument checks,
+ * Bloom filters, the recording of {@link TreeMetrics} per operation, and the views.
+ */
+final class TreeCore<T> implements NodeStorage<T> {
+    private final Comparator<? super T> comparator;
+    private final BinarySearchTree.Balancing balancing;
+    private final boolean multiset;
+    private final boolean readOnly;
+    private Node<T> root;
+    /** Number of nodes, which is the number of distinct keys. */
+    private int size;
+    private int modCount;
+    /**
+     * Bumped by splay rotations, which change the shape but not the values, so iterators
+     * re-seek on it instead of failing.
+     */
+    private int restructureCount;
+    /**
+     * Write epoch. A tree may only modify nodes stamped with its current epoch;
+     * {@link #snapshot()} moves the tree to a fresh epoch, so every node reachable from the
+     * snapshot is copied before it is changed. Epochs are compared by identity, so starting
+     * one takes no shared counter and they never wrap around.
+     */
+    private Object epoch = new Object();
+    private Node<T>[] pathBuffer;
+    private TreeMetrics metrics;
+    /** Number of comparisons made by the last descent, reported to {@link #metrics}. */
+    private int comparisons;
+
+    TreeCore(Comparator<? super T> comparator, BinarySearchTree.Balancing balancing, boolean multiset) {
+        this(comparator, balancing, multiset, false, null);
+    }
+
+    private TreeCore(Comparator<? super T> comparator, BinarySearchTree.Balancing balancing, boolean multiset,
+                     boolean readOnly, Node<T> root) {
+        this.comparator = comparator;
+        this.balancing = balancing;
+        this.multiset = multiset;
+        this.readOnly = readOnly;
+        this.root = root;
+        this.size = getSize(root);
+    }
+
+    Comparator<? super T> comparator() {
+        return comparator;
+    }
+
+    @Override
+    public BinarySearchTree.Balancing balancing() {
+        return balancing;
+    }
+
+    @Override
+    public boolean isMultiset() {
+        return multiset;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return readOnly;
+    }
+
+    @Override
+    public Node<T> root() {
+        return root;
+    }
+
+    /**
+     * Returns the number of nodes; a multiset counts its occurrences with {@link #occurrences()}.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long occurrences() {
+        return getOccurrences(root);
+    }
+
+    @Override
+    public int modCount() {
+        return modCount;
+    }
+
+    @Override
+    public int comparisons() {
+        return comparisons;
+    }
+
+    @Override
+    public TreeMetrics metrics() {
+        return metrics;
+    }
+
+    @Override
+    public void setMetrics(TreeMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @SuppressWarnings("unchecked")
+    int compare(Object key, T other) {
+        return comparator == null
+                ? ((Comparable<? super T>) key).compareTo(other)
+                : comparator.compare((T) key, other);
+    }
+
+    @Override
+    public void checkWritable() {
+        if (readOnly) {
+            throw new UnsupportedOperationException("Snapshot is read-only");
+        }
+    }
+
+    /**
+     * Returns a read-only core over the current contents in O(1). It shares its nodes with
+     * this one; later updates copy the O(log n) nodes on the path they touch instead of
+     * modifying shared ones, so the snapshot never changes.
+     */
+    @Override
+    public TreeCore<T> snapshot() {
+        if (readOnly) {
+            return this;
+        }
+        TreeCore<T> snapshot = readOnly(root);
+        epoch = new Object();
+        return snapshot;
+    }
+
+    /**
+     * Returns a read-only core with this one's ordering and mode over {@code root}.
+     */
+    TreeCore<T> readOnly(Node<T> root) {
+        return new TreeCore<>(comparator, balancing, multiset, true, root);
+    }
+
+    /**
+     * Moves this tree to a new epoch, before its nodes are linked into another tree.
+     */
+    void share() {
+        epoch = new Object();
+    }
+
+    /**
+     * Makes {@code root}, which must hold nodes of this tree's ordering, the whole tree.
+     */
+    void replaceRoot(Node<T> root) {
+        this.root = root;
+        this.size = getSize(root);
+        modCount++;
+    }
+
+    @Override
+    public void clear() {
+        checkWritable();
+        root = null;
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Returns a scratch array large enough to hold any root-to-leaf path of the tree.
+     */
+    @SuppressWarnings("unchecked")
+    Node<T>[] pathBuffer() {
+        int required = height() + 1;
+        if (pathBuffer == null || pathBuffer.length < required) {
+            pathBuffer = (Node<T>[]) new Node<?>[Math.max(required, 2 * (pathBuffer == null ? 16 : pathBuffer.length))];
+        }
+        return pathBuffer;
+    }
+
+    /**
+     * Returns a private path array, for updates that call back into user code which may
+     * itself use {@link #pathBuffer()}.
+     */
+    @SuppressWarnings("unchecked")
+    Node<T>[] newPath() {
+        return (Node<T>[]) new Node<?>[height() + 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    private Node<T>[] newStack() {
+        return (Node<T>[]) new Node<?>[height() + 1];
+    }
+
+    /**
+     * Records the ancestors of {@code key} in {@code path} and returns their number
+     * {@code depth}; {@code path[depth]} holds the node of {@code key}, or {@code null}.
+     */
+    int descend(Object key, Node<T>[] path) {
+        int depth = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int compareResult = compare(key, node.value);
+            if (compareResult == 0) {
+                break;
+            }
+            path[depth++] = node;
+            node = compareResult < 0 ? node.left : node.right;
+        }
+        path[depth] = node;
+        comparisons = node == null ? depth : depth + 1;
+        return depth;
+    }
+
+    void release(Node<T>[] path, int depth) {
+        Arrays.fill(path, 0, depth + 1, null);
+    }
+
+    /**
+     * Inserts {@code value}, or adds to its count in a multiset, and returns the count it
+     * had before.
+     */
+    @Override
+    public int link(T value, int occurrences) {
+        checkWritable();
+        Node<T>[] path = pathBuffer();
+        int depth = descend(value, path);
+        Node<T> node = path[depth];
+        if (node == null) {
+            insertAt(path, depth, value, occurrences);
+            return 0;
+        }
+        int previous = node.count;
+        if (multiset) {
+            if (previous + (long) occurrences > Integer.MAX_VALUE) {
+                release(path, depth);
+                throw new IllegalArgumentException("Too many occurrences of " + value);
+            }
+            setCount(path, depth, previous + occurrences);
+        } else if (balancing == BinarySearchTree.Balancing.SPLAY) {
+            splay(path, depth);
+        } else {
+            release(path, depth);
+        }
+        return previous;
+    }
+
+    /**
+     * Links a new node for {@code key} below {@code path[depth - 1]}, where
+     * {@link #descend(Object, Node[])} stopped, rebalances and returns the node.
+     */
+    Node<T> insertAt(Node<T>[] path, int depth, T key, int occurrences) {
+        Node<T> added = newNode(key, occurrences);
+        if (depth == 0) {
+            // Type-checks the first key, as later ones are checked against it.
+            compare(key, key);
+            root = added;
+            size++;
+            modCount++;
+            path[0] = null;
+            return added;
+        }
+        ownPath(path, depth);
+        Node<T> parent = path[depth - 1];
+        if (compare(key, parent.value) < 0) {
+            parent.left = added;
+        } else {
+            parent.right = added;
+        }
+        size++;
+        modCount++;
+        if (balancing == BinarySearchTree.Balancing.SPLAY) {
+            updatePath(path, depth);
+            path[depth] = added;
+            splay(path, depth);
+        } else {
+            path[depth] = null;
+            retrace(path, depth);
+        }
+        return added;
+    }
+
+    private Node<T> newNode(T value, int occurrences) {
+        Node<T> node = new Node<>(value, epoch);
+        node.count = occurrences;
+        node.occurrences = occurrences;
+        return node;
+    }
+
+    /**
+     * Removes up to {@code occurrences} occurrences of {@code value}, unlinking its node when
+     * none are left, and returns the count it had before.
+     */
+    @Override
+    public int unlink(Object value, int occurrences) {
+        checkWritable();
+        Node<T>[] path = pathBuffer();
+        int depth = descend(value, path);
+        Node<T> node = path[depth];
+        if (node == null) {
+            if (balancing == BinarySearchTree.Balancing.SPLAY && depth > 0) {
+                splay(path, depth - 1);
+            } else {
+                release(path, depth);
+            }
+            return 0;
+        }
+        int previous = node.count;
+        if (previous > occurrences) {
+            setCount(path, depth, previous - occurrences);
+            return previous;
+        }
+        removeAt(path, depth);
+        return previous;
+    }
+
+    /**
+     * Unlinks the node {@link #descend(Object, Node[])} found at {@code path[depth]}. A node
+     * with two children takes the key, count and mapped value of its in-order successor,
+     * whose node is unlinked instead.
+     */
+    void removeAt(Node<T>[] path, int depth) {
+        Node<T> node = path[depth];
+        path[depth] = null;
+        if (node.left != null && node.right != null) {
+            int targetDepth = depth;
+            path[depth++] = node;
+            Node<T> successor = node.right;
+            while (successor.left != null) {
+                path[depth++] = successor;
+                successor = successor.left;
+            }
+            ownPath(path, depth);
+            Node<T> target = path[targetDepth];
+            target.value = successor.value;
+            target.count = successor.count;
+            target.mapped = successor.mapped;
+            node = successor;
+        } else {
+            ownPath(path, depth);
+        }
+
+        replaceChild(path, depth, node, node.left != null ? node.left : node.right);
+        size--;
+        modCount++;
+        if (balancing == BinarySearchTree.Balancing.SPLAY && depth > 0) {
+            // Splay the parent of the unlinked node, once the sizes along the path are fixed.
+            updatePath(path, depth);
+            splay(path, depth - 1);
+        } else {
+            retrace(path, depth);
+        }
+    }
+
+    /**
+     * Changes the count of the node found at {@code path[depth]}, whose ancestors fill the
+     * rest of the path, without changing the shape of the tree.
+     */
+    private void setCount(Node<T>[] path, int depth, int count) {
+        ownPath(path, depth + 1);
+        path[depth].count = count;
+        modCount++;
+        updatePath(path, depth + 1);
+        if (balancing == BinarySearchTree.Balancing.SPLAY) {
+            splay(path, depth);
+        } else {
+            release(path, depth);
+        }
+    }
+
+    /**
+     * Recomputes the fields of {@code path[depth - 1]} up to the root, bottom-up.
+     */
+    private void updatePath(Node<T>[] path, int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            update(path[i]);
+        }
+    }
+
+    /**
+     * Finds the node of {@code key}, semi-splaying a writable {@link BinarySearchTree.Balancing#SPLAY}
+     * tree and recording the search in the metrics if any are attached.
+     */
+    Node<T> findNode(Object key) {
+        if (balancing == BinarySearchTree.Balancing.SPLAY && !readOnly) {
+            return splaySearch(key);
+        }
+        TreeMetrics metrics = this.metrics;
+        return metrics == null ? searchNode(key) : measuredSearchNode(key, metrics);
+    }
+
+    /**
+     * Searches a {@link BinarySearchTree.Balancing#SPLAY} tree, semi-splaying the node found
+     * or, when {@code key} is absent, the last node visited.
+     */
+    private Node<T> splaySearch(Object key) {
+        TreeMetrics metrics = this.metrics;
+        long start = metrics == null ? 0 : System.nanoTime();
+        Node<T>[] path = pathBuffer();
+        int depth = -1;
+        Node<T> node = root;
+        Node<T> found = null;
+        while (node != null) {
+            path[++depth] = node;
+            int compareResult = compare(key, node.value);
+            if (compareResult == 0) {
+                found = node;
+                break;
+            }
+            node = compareResult < 0 ? node.left : node.right;
+        }
+        if (depth >= 0) {
+            splay(path, depth);
+        }
+        if (metrics != null) {
+            metrics.record(TreeMetrics.Operation.SEARCH, depth + 1, depth + 1, found != null,
+                    System.nanoTime() - start, size);
+        }
+        return found;
+    }
+
+    private Node<T> measuredSearchNode(Object key, TreeMetrics metrics) {
+        long start = System.nanoTime();
+        int depth = 0;
+        Node<T> node = root;
+        while (node != null) {
+            depth++;
+            int compareResult = compare(key, node.value);
+            if (compareResult == 0) {
+                break;
+            }
+            node = compareResult < 0 ? node.left : node.right;
+        }
+        metrics.record(TreeMetrics.Operation.SEARCH, depth, depth, node != null, System.nanoTime() - start, size);
+        return node;
+    }
+
+    @Override
+    public T find(Object key) {
+        return valueOf(findNode(key));
+    }
+
+    @Override
+    public int count(Object key) {
+        Node<T> node = findNode(key);
+        return node == null ? 0 : node.count;
+    }
+
+    @Override
+    public T lookup(Object key) {
+        return valueOf(searchNode(key));
+    }
+
+    /**
+     * Finds the node of {@code key} without restructuring or recording anything.
+     */
+    Node<T> searchNode(Object key) {
+        Node<T> node = root;
+        while (node != null) {
+            int compareResult = compare(key, node.value);
+            if (compareResult == 0) {
+                return node;
+            }
+            node = compareResult < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Semi-splays {@code path[depth]} towards the root; the fields of every node on the path
+     * must be up to date. Each step looks at the node, its parent and its grandparent: when
+     * they line up, a single rotation lifts the parent and the splay continues from there;
+     * otherwise a double rotation lifts the node. Every step moves the access path half way
+     * up, with at most half the rotations a full splay makes. Shared nodes on the path are
+     * copied first.
+     * <p>
+     * Nodes shallower than floor(log2(n)) are left in place, so hot values near the top stop
+     * being rewritten on every access. This keeps the amortized O(log n) bound of
+     * semi-splaying (Sleator and Tarjan, Self-Adjusting Binary Search Trees, 1985): with the
+     * potential taken as the sum of log2 of the subtree sizes, a skipped access costs fewer
+     * than log2(n) comparisons and leaves the potential unchanged, and every other access is
+     * semi-splayed in full. Rotations bump {@link #restructureCount}, not {@link #modCount}.
+     */
+    private void splay(Node<T>[] path, int depth) {
+        if (depth < 2 || depth < 31 - Integer.numberOfLeadingZeros(size)) {
+            release(path, depth);
+            return;
+        }
+        ownPath(path, depth + 1);
+        int i = depth;
+        while (i >= 2) {
+            Node<T> node = path[i];
+            Node<T> parent = path[i - 1];
+            Node<T> grandparent = path[i - 2];
+            boolean nodeLeft = parent.left == node;
+            boolean parentLeft = grandparent.left == parent;
+            Node<T> top;
+            if (nodeLeft == parentLeft) {
+                top = parentLeft ? rotateRight(grandparent) : rotateLeft(grandparent);
+            } else if (parentLeft) {
+                grandparent.left = rotateLeft(parent);
+                top = rotateRight(grandparent);
+            } else {
+                grandparent.right = rotateRight(parent);
+                top = rotateLeft(grandparent);
+            }
+            replaceChild(path, i - 2, grandparent, top);
+            path[i - 2] = top;
+            i -= 2;
+        }
+        for (int j = i - 1; j >= 0; j--) {
+            update(path[j]);
+        }
+        release(path, depth);
+        restructureCount++;
+    }
+
+    /**
+     * Walks the recorded path back up to the root, refreshing heights and rebalancing
+     * each ancestor, and relinks every rotated subtree to its parent.
+     */
+    private void retrace(Node<T>[] path, int depth) {
+        for (int i = depth - 1; i >= 0; i--) {
+            Node<T> node = path[i];
+            Node<T> balanced = rebalance(node);
+            if (balanced != node) {
+                replaceChild(path, i, node, balanced);
+            }
+            path[i] = null;
+        }
+    }
+
+    /**
+     * Makes {@code replacement} the child that {@code child} was of {@code path[depth - 1]},
+     * or the root when {@code depth} is zero.
+     */
+    private void replaceChild(Node<T>[] path, int depth, Node<T> child, Node<T> replacement) {
+        if (depth == 0) {
+            root = replacement;
+        } else if (path[depth - 1].left == child) {
+            path[depth - 1].left = replacement;
+        } else {
+            path[depth - 1].right = replacement;
+        }
+    }
+
+    /**
+     * Replaces every node of the path that is shared with a snapshot by a private copy,
+     * top-down so that each copy is linked into an already private parent.
+     */
+    private void ownPath(Node<T>[] path, int depth) {
+        for (int i = 0; i < depth; i++) {
+            Node<T> node = path[i];
+            if (node.epoch != epoch) {
+                Node<T> copy = copy(node);
+                replaceChild(path, i, node, copy);
+                path[i] = copy;
+            }
+        }
+    }
+
+    private Node<T> mutable(Node<T> node) {
+        return node.epoch == epoch ? node : copy(node);
+    }
+
+    private Node<T> copy(Node<T> node) {
+        if (metrics != null) {
+            metrics.recordNodeCopy();
+        }
+        return node.copy(epoch);
+    }
+
+    private Node<T> rebalance(Node<T> node) {
+        update(node);
+        return balancing == BinarySearchTree.Balancing.AVL ? balance(node) : node;
+    }
+
+    /**
+     * Restores the AVL invariant at {@code node}, whose fields are up to date and whose
+     * subtrees differ in height by at most 2, with one single or double rotation.
+     */
+    private Node<T> balance(Node<T> node) {
+        int balanceFactor = getHeight(node.left) - getHeight(node.right);
+        if (balanceFactor > 1) {
+            if (getHeight(node.left.left) < getHeight(node.left.right)) {
+                node.left = rotateLeft(mutable(node.left));
+            }
+            return rotateRight(node);
+        }
+        if (balanceFactor < -1) {
+            if (getHeight(node.right.right) < getHeight(node.right.left)) {
+                node.right = rotateRight(mutable(node.right));
+            }
+            return rotateLeft(node);
+        }
+        return node;
+    }
+
+    private Node<T> rotateRight(Node<T> node) {
+        if (metrics != null) {
+            metrics.recordRotation();
+        }
+        Node<T> pivot = mutable(node.left);
+        node.left = pivot.right;
+        pivot.right = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    private Node<T> rotateLeft(Node<T> node) {
+        if (metrics != null) {
+            metrics.recordRotation();
+        }
+        Node<T> pivot = mutable(node.right);
+        node.right = pivot.left;
+        pivot.left = node;
+        update(node);
+        update(pivot);
+        return pivot;
+    }
+
+    /**
+     * Recomputes the augmented fields of {@code node} from its children.
+     */
+    private void update(Node<T> node) {
+        Node<T> left = node.left;
+        Node<T> right = node.right;
+        int leftHeight = getHeight(left);
+        int rightHeight = getHeight(right);
+        node.height = Math.max(leftHeight, rightHeight) + 1;
+        node.size = getSize(left) + getSize(right) + 1;
+        // Every node below this one is one level deeper than below its child.
+        node.pathLength = (left == null ? 0 : left.pathLength + left.size)
+                + (right == null ? 0 : right.pathLength + right.size);
+        node.unbalanced = (left == null ? 0 : left.unbalanced) + (right == null ? 0 : right.unbalanced)
+                + (Math.abs(leftHeight - rightHeight) > 1 ? 1 : 0);
+        node.occurrences = getOccurrences(left) + getOccurrences(right) + node.count;
+    }
+
+    @Override
+    public int height() {
+        return getHeight(root);
+    }
+
+    int getHeight(Node<T> node) {
+        return node == null ? 0 : node.height;
+    }
+
+    int getSize(Node<T> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    long getOccurrences(Node<T> node) {
+        return node == null ? 0 : node.occurrences;
+    }
+
+    /**
+     * Returns whether every node's subtrees differ in height by at most one, in O(1).
+     */
+    @Override
+    public boolean isBalanced() {
+        return root == null || root.unbalanced == 0;
+    }
+
+    @Override
+    public TreeStats stats() {
+        return root == null
+                ? new TreeStats(0, 0, 0, 0)
+                : new TreeStats(root.size, root.height, root.pathLength, root.unbalanced);
+    }
+
+    /**
+     * Visits the keys in ascending order.
+     *
+     * @return {@code true} if every key was visited, {@code false} if the visitor stopped
+     */
+    @Override
+    public boolean inOrderTraversal(TreeVisitor<? super T> visitor) {
+        Node<T>[] stack = newStack();
+        int[] depths = new int[stack.length];
+        int top = 0;
+        int depth = 0;
+        Node<T> node = root;
+        while (node != null || top > 0) {
+            while (node != null) {
+                depths[top] = depth++;
+                stack[top++] = node;
+                node = node.left;
+            }
+            node = stack[--top];
+            depth = depths[top];
+            if (!visitor.visit(node.value, depth++)) {
+                return false;
+            }
+            node = node.right;
+        }
+        return true;
+    }
+
+    /**
+     * Visits each key before the keys of its subtrees.
+     *
+     * @return {@code true} if every key was visited, {@code false} if the visitor stopped
+     */
+    @Override
+    public boolean preOrderTraversal(TreeVisitor<? super T> visitor) {
+        if (root == null) {
+            return true;
+        }
+        Node<T>[] stack = newStack();
+        int[] depths = new int[stack.length];
+        int top = 0;
+        depths[top] = 0;
+        stack[top++] = root;
+        while (top > 0) {
+            Node<T> node = stack[--top];
+            int depth = depths[top];
+            if (!visitor.visit(node.value, depth)) {
+                return false;
+            }
+            if (node.right != null) {
+                depths[top] = depth + 1;
+                stack[top++] = node.right;
+            }
+            if (node.left != null) {
+                depths[top] = depth + 1;
+                stack[top++] = node.left;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits each key after the keys of its subtrees.
+     *
+     * @return {@code true} if every key was visited, {@code false} if the visitor stopped
+     */
+    @Override
+    public boolean postOrderTraversal(TreeVisitor<? super T> visitor) {
+        Node<T>[] stack = newStack();
+        int top = 0;
+        Node<T> node = root;
+        Node<T> lastVisited = null;
+        while (node != null || top > 0) {
+            while (node != null) {
+                stack[top++] = node;
+                node = node.left;
+            }
+            Node<T> peek = stack[top - 1];
+            if (peek.right != null && peek.right != lastVisited) {
+                node = peek.right;
+            } else {
+                // The stack holds the path from the root, so its length gives the depth.
+                if (!visitor.visit(peek.value, top - 1)) {
+                    return false;
+                }
+                lastVisited = stack[--top];
+                stack[top] = null;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Visits the keys {@code k} with {@code lo <= k <= hi} in ascending order, skipping the
+     * subtrees that lie outside the range.
+     *
+     * @return {@code true} if every key in the range was visited, {@code false} if the
+     *         visitor stopped
+     */
+    @Override
+    public boolean rangeTraversal(T lo, T hi, TreeVisitor<? super T> visitor) {
+        if (compare(lo, hi) > 0) {
+            return true;
+        }
+        Node<T>[] stack = newStack();
+        int[] depths = new int[stack.length];
+        int top = 0;
+        int depth = 0;
+        Node<T> node = root;
+        while (true) {
+            while (node != null) {
+                if (compare(node.value, lo) < 0) {
+                    node = node.right;
+                    depth++;
+                } else {
+                    depths[top] = depth++;
+                    stack[top++] = node;
+                    node = node.left;
+                }
+            }
+            if (top == 0) {
+                return true;
+            }
+            node = stack[--top];
+            depth = depths[top];
+            if (compare(node.value, hi) > 0) {
+                return true;
+            }
+            if (!visitor.visit(node.value, depth++)) {
+                return false;
+            }
+            node = node.right;
+        }
+    }
+
+    /**
+     * Visits the keys level by level, left to right. The queue holds at most two levels.
+     *
+     * @return {@code true} if every key was visited, {@code false} if the visitor stopped
+     */
+    @Override
+    public boolean levelOrderTraversal(TreeVisitor<? super T> visitor) {
+        if (root == null) {
+            return true;
+        }
+        ArrayDeque<Node<T>> queue = new ArrayDeque<>();
+        queue.offer(root);
+        for (int depth = 0; !queue.isEmpty(); depth++) {
+            for (int remaining = queue.size(); remaining > 0; remaining--) {
+                Node<T> current = queue.poll();
+                if (!visitor.visit(current.value, depth)) {
+                    return false;
+                }
+                if (current.left != null) {
+                    queue.offer(current.left);
+                }
+                if (current.right != null) {
+                    queue.offer(current.right);
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Appends the nodes of the subtree of {@code node} in ascending order.
+     */
+    @SuppressWarnings("unchecked")
+    private void inOrderNodes(Node<T> node, List<Node<T>> nodes) {
+        Node<T>[] stack = (Node<T>[]) new Node<?>[getHeight(node) + 1];
+        int top = 0;
+        while (node != null || top > 0) {
+            while (node != null) {
+                stack[top++] = node;
+                node = node.left;
+            }
+            node = stack[--top];
+            nodes.add(node);
+            node = node.right;
+        }
+    }
+
+    private T valueOf(Node<T> node) {
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public T rootValue() {
+        return valueOf(root);
+    }
+
+    @Override
+    public T first() {
+        return valueOf(firstNode());
+    }
+
+    @Override
+    public T last() {
+        return valueOf(lastNode());
+    }
+
+    @Override
+    public T lower(Object key) {
+        return valueOf(lowerNode(key));
+    }
+
+    @Override
+    public T floor(Object key) {
+        return valueOf(floorNode(key));
+    }
+
+    @Override
+    public T ceiling(Object key) {
+        return valueOf(ceilingNode(key));
+    }
+
+    @Override
+    public T higher(Object key) {
+        return valueOf(higherNode(key));
+    }
+
+    Node<T> firstNode() {
+        Node<T> node = root;
+        while (node != null && node.left != null) {
+            node = node.left;
+        }
+        return node;
+    }
+
+    Node<T> lastNode() {
+        Node<T> node = root;
+        while (node != null && node.right != null) {
+            node = node.right;
+        }
+        return node;
+    }
+
+    Node<T> lowerNode(Object key) {
+        Node<T> node = root;
+        Node<T> best = null;
+        while (node != null) {
+            if (compare(key, node.value) > 0) {
+                best = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return best;
+    }
+
+    Node<T> floorNode(Object key) {
+        Node<T> node = root;
+        Node<T> best = null;
+        while (node != null) {
+            int compareResult = compare(key, node.value);
+            if (compareResult == 0) {
+                return node;
+            }
+            if (compareResult > 0) {
+                best = node;
+                node = node.right;
+            } else {
+                node = node.left;
+            }
+        }
+        return best;
+    }
+
+    Node<T> ceilingNode(Object key) {
+        Node<T> node = root;
+        Node<T> best = null;
+        while (node != null) {
+            int compareResult = compare(key, node.value);
+            if (compareResult == 0) {
+                return node;
+            }
+            if (compareResult < 0) {
+                best = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return best;
+    }
+
+    Node<T> higherNode(Object key) {
+        Node<T> node = root;
+        Node<T> best = null;
+        while (node != null) {
+            if (compare(key, node.value) < 0) {
+                best = node;
+                node = node.left;
+            } else {
+                node = node.right;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Returns the key at zero-based position {@code k} of the sorted order in O(log n).
+     *
+     * @throws IndexOutOfBoundsException if {@code k} is negative or not less than {@link #size()}
+     */
+    @Override
+    public T select(int k) {
+        if (k < 0 || k >= size) {
+            throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + size);
+        }
+        Node<T> node = root;
+        while (true) {
+            int leftSize = getSize(node.left);
+            if (k < leftSize) {
+                node = node.left;
+            } else if (k > leftSize) {
+                k -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    /**
+     * Counts the keys less than {@code key}, or less than or equal when {@code inclusive}.
+     */
+    @Override
+    public int countLess(Object key, boolean inclusive) {
+        int count = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int compareResult = compare(key, node.value);
+            if (compareResult < 0 || (compareResult == 0 && !inclusive)) {
+                node = node.left;
+            } else {
+                count += getSize(node.left) + 1;
+                if (compareResult == 0) {
+                    break;
+                }
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Counts the occurrences of the keys less than {@code key}, or less than or equal when
+     * {@code inclusive}.
+     */
+    @Override
+    public long occurrencesLess(Object key, boolean inclusive) {
+        long count = 0;
+        Node<T> node = root;
+        while (node != null) {
+            int compareResult = compare(key, node.value);
+            if (compareResult < 0 || (compareResult == 0 && !inclusive)) {
+                node = node.left;
+            } else {
+                count += getOccurrences(node.left) + node.count;
+                if (compareResult == 0) {
+                    break;
+                }
+                node = node.right;
+            }
+        }
+        return count;
+    }
+
+    Range range(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+        return new Range(lo, loInclusive, hi, hiInclusive);
+    }
+
+    @Override
+    public Iterator<T> iterator(T lo, boolean loInclusive, T hi, boolean hiInclusive, boolean descending,
+                                Consumer<T> remover) {
+        return range(lo, loInclusive, hi, hiInclusive).iterator(descending, this::valueOf, remover);
+    }
+
+    /**
+     * The keys between two optional bounds, {@code null} when the corresponding side is
+     * unbounded, behind the range views of the front ends. Navigation and iteration run
+     * directly against the tree, so a view over k keys iterates in O(log n + k).
+     */
+    final class Range {
+        final T lo;
+        final boolean loInclusive;
+        final T hi;
+        final boolean hiInclusive;
+
+        private Range(T lo, boolean loInclusive, T hi, boolean hiInclusive) {
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        boolean tooLow(Object key) {
+            if (lo == null) {
+                return false;
+            }
+            int compareResult = compare(key, lo);
+            return compareResult < 0 || (compareResult == 0 && !loInclusive);
+        }
+
+        boolean tooHigh(Object key) {
+            if (hi == null) {
+                return false;
+            }
+            int compareResult = compare(key, hi);
+            return compareResult > 0 || (compareResult == 0 && !hiInclusive);
+        }
+
+        boolean inRange(Object key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        /**
+         * Checks that a sub-range bound lies within this range.
+         */
+        void checkBound(T bound, boolean inclusive) {
+            if (lo != null) {
+                int compareResult = compare(bound, lo);
+                if (compareResult < 0 || (compareResult == 0 && !loInclusive && inclusive)) {
+                    throw new IllegalArgumentException("Bound out of range");
+                }
+            }
+            if (hi != null) {
+                int compareResult = compare(bound, hi);
+                if (compareResult > 0 || (compareResult == 0 && !hiInclusive && inclusive)) {
+                    throw new IllegalArgumentException("Bound out of range");
+                }
+            }
+        }
+
+        Node<T> lowest() {
+            Node<T> node = lo == null ? firstNode() : loInclusive ? ceilingNode(lo) : higherNode(lo);
+            return node == null || tooHigh(node.value) ? null : node;
+        }
+
+        Node<T> highest() {
+            Node<T> node = hi == null ? lastNode() : hiInclusive ? floorNode(hi) : lowerNode(hi);
+            return node == null || tooLow(node.value) ? null : node;
+        }
+
+        Node<T> ceiling(Object key) {
+            if (tooLow(key)) {
+                return lowest();
+            }
+            Node<T> node = ceilingNode(key);
+            return node == null || tooHigh(node.value) ? null : node;
+        }
+
+        Node<T> higher(Object key) {
+            if (tooLow(key)) {
+                return lowest();
+            }
+            Node<T> node = higherNode(key);
+            return node == null || tooHigh(node.value) ? null : node;
+        }
+
+        Node<T> floor(Object key) {
+            if (tooHigh(key)) {
+                return highest();
+            }
+            Node<T> node = floorNode(key);
+            return node == null || tooLow(node.value) ? null : node;
+        }
+
+        Node<T> lower(Object key) {
+            if (tooHigh(key)) {
+                return highest();
+            }
+            Node<T> node = lowerNode(key);
+            return node == null || tooLow(node.value) ? null : node;
+        }
+
+        /**
+         * Returns the number of keys in the range, counting every occurrence in a multiset.
+         */
+        int size() {
+            if (multiset) {
+                long upper = hi == null ? getOccurrences(root) : occurrencesLess(hi, hiInclusive);
+                long lower = lo == null ? 0 : occurrencesLess(lo, !loInclusive);
+                return (int) Math.min(Math.max(upper - lower, 0), Integer.MAX_VALUE);
+            }
+            int upper = hi == null ? TreeCore.this.size : countLess(hi, hiInclusive);
+            int lower = lo == null ? 0 : countLess(lo, !loInclusive);
+            return Math.max(upper - lower, 0);
+        }
+
+        /**
+         * Returns an iterator over {@code export} of the nodes in the range, once per
+         * occurrence in a multiset. Its {@code remove()} calls {@code remover}, or throws
+         * {@link UnsupportedOperationException} when it is {@code null}.
+         */
+        <E> Iterator<E> iterator(boolean descending, Function<Node<T>, E> export, Consumer<T> remover) {
+            return new Cursor<>(this, descending, export, remover);
+        }
+    }
+
+    /**
+     * In-order iterator that keeps only the pending spine on a stack, so it costs
+     * O(height) memory and yields the first element without visiting the rest of the tree.
+     */
+    private final class Cursor<E> implements Iterator<E> {
+        private final Range range;
+        private final boolean descending;
+        private final Function<Node<T>, E> export;
+        private final Consumer<T> remover;
+        private final Node<T>[] stack = newStack();
+        private int top;
+        private Node<T> lastReturned;
+        /** Occurrences of the key on top of the stack already returned, in a multiset. */
+        private int repeated;
+        private int expectedModCount = modCount;
+        private int expectedRestructureCount = restructureCount;
+
+        Cursor(Range range, boolean descending, Function<Node<T>, E> export, Consumer<T> remover) {
+            this.range = range;
+            this.descending = descending;
+            this.export = export;
+            this.remover = remover;
+            if (descending) {
+                seek(range.hi, range.hiInclusive);
+            } else {
+                seek(range.lo, range.loInclusive);
+            }
+        }
+
+        /**
+         * Rebuilds the stack so that it yields, in iteration order, the keys at or past
+         * {@code bound}.
+         */
+        private void seek(T bound, boolean inclusive) {
+            top = 0;
+            Node<T> node = root;
+            while (node != null) {
+                int compareResult = bound == null ? 1 : compare(node.value, bound);
+                if (descending && bound != null) {
+                    compareResult = -compareResult;
+                }
+                if (compareResult > 0 || (compareResult == 0 && inclusive)) {
+                    stack[top++] = node;
+                    node = descending ? node.right : node.left;
+                } else {
+                    node = descending ? node.left : node.right;
+                }
+            }
+            Arrays.fill(stack, top, stack.length, null);
+        }
+
+        private boolean pastEnd(T key) {
+            return descending ? range.tooLow(key) : range.tooHigh(key);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return top > 0 && !pastEnd(stack[top - 1].value);
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (restructureCount != expectedRestructureCount) {
+                // A splay relinked the nodes below the stack; the keys are the same.
+                expectedRestructureCount = restructureCount;
+                if (top > 0) {
+                    seek(stack[top - 1].value, true);
+                }
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Node<T> node = stack[top - 1];
+            lastReturned = node;
+            if (++repeated < node.count) {
+                return export.apply(node);
+            }
+            repeated = 0;
+            stack[--top] = null;
+            Node<T> child = descending ? node.left : node.right;
+            while (child != null) {
+                stack[top++] = child;
+                child = descending ? child.right : child.left;
+            }
+            return export.apply(node);
+        }
+
+        @Override
+        public void remove() {
+            if (remover == null) {
+                throw new UnsupportedOperationException();
+            }
+            if (lastReturned == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            // Deleting a node with two children moves its successor's key, so the stack is
+            // rebuilt from the root instead of being patched. A multiset key with occurrences
+            // left to return stays on the stack.
+            T key = lastReturned.value;
+            boolean pending = repeated > 0;
+            remover.accept(key);
+            expectedModCount = modCount;
+            expectedRestructureCount = restructureCount;
+            seek(key, pending);
+            if (pending) {
+                repeated--;
+            }
+            lastReturned = null;
+        }
+    }
+
+    /**
+     * Returns a spliterator over the keys, once per occurrence, that splits at subtree
+     * boundaries and reports an exact size. A writable {@link BinarySearchTree.Balancing#SPLAY}
+     * tree is traversed through an iterator instead, which survives the rotations of lookups
+     * made during the traversal but splits in batches.
+     */
+    @Override
+    public Spliterator<T> spliterator() {
+        int characteristics = Spliterator.SORTED | (multiset ? 0 : Spliterator.DISTINCT) | Spliterator.ORDERED
+                | Spliterator.NONNULL;
+        if (balancing == BinarySearchTree.Balancing.SPLAY && !readOnly) {
+            Iterator<T> keys = iterator(null, false, null, false, false, null);
+            return Spliterators.spliterator(keys, getOccurrences(root), characteristics);
+        }
+        return new TreeSpliterator(characteristics | Spliterator.SIZED | Spliterator.SUBSIZED);
+    }
+
+    /**
+     * In-order spliterator whose remaining elements are a stack of entries, each standing for
+     * one node's key followed by every key of a subtree. Splitting hands off all entries but
+     * the last one, which for a fresh spliterator means the left subtree of the root against
+     * the root and its right subtree. Subtree sizes keep the size exact.
+     */
+    private final class TreeSpliterator implements Spliterator<T> {
+        private final int characteristics;
+        private final Node<T>[] values;
+        private final Node<T>[] subtrees;
+        private int top;
+        private long remaining;
+        /** Occurrences of the key on top of the stack already consumed, in a multiset. */
+        private int repeated;
+        private final int expectedModCount;
+
+        TreeSpliterator(int characteristics) {
+            this.characteristics = characteristics;
+            values = newStack();
+            subtrees = newStack();
+            remaining = getOccurrences(root);
+            expectedModCount = modCount;
+            pushLeft(root);
+        }
+
+        private TreeSpliterator(int characteristics, Node<T>[] values, Node<T>[] subtrees, int top, long remaining,
+                                int repeated, int expectedModCount) {
+            this.characteristics = characteristics;
+            this.values = values;
+            this.subtrees = subtrees;
+            this.top = top;
+            this.remaining = remaining;
+            this.repeated = repeated;
+            this.expectedModCount = expectedModCount;
+        }
+
+        private void pushLeft(Node<T> node) {
+            while (node != null) {
+                values[top] = node;
+                subtrees[top++] = node.right;
+                node = node.left;
+            }
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            if (top == 0) {
+                return false;
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            Node<T> node = values[top - 1];
+            remaining--;
+            if (++repeated < node.count) {
+                action.accept(node.value);
+                return true;
+            }
+            repeated = 0;
+            Node<T> subtree = subtrees[--top];
+            values[top] = null;
+            subtrees[top] = null;
+            pushLeft(subtree);
+            action.accept(node.value);
+            return true;
+        }
+
+        @Override
+        public void forEachRemaining(Consumer<? super T> action) {
+            if (action == null) {
+                throw new NullPointerException();
+            }
+            while (top > 0) {
+                Node<T> node = values[--top];
+                Node<T> subtree = subtrees[top];
+                values[top] = null;
+                subtrees[top] = null;
+                pushLeft(subtree);
+                for (int i = repeated; i < node.count; i++) {
+                    action.accept(node.value);
+                }
+                repeated = 0;
+            }
+            remaining = 0;
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (top == 0) {
+                return null;
+            }
+            if (top == 1) {
+                // A single entry (v, S) is rewritten as (v, S.left) followed by (S, S.right).
+                Node<T> subtree = subtrees[0];
+                if (subtree == null) {
+                    return null;
+                }
+                values[1] = values[0];
+                subtrees[1] = subtree.left;
+                values[0] = subtree;
+                subtrees[0] = subtree.right;
+                top = 2;
+            }
+            Node<T>[] prefixValues = Arrays.copyOf(values, values.length);
+            Node<T>[] prefixSubtrees = Arrays.copyOf(subtrees, subtrees.length);
+            System.arraycopy(values, 1, prefixValues, 0, top - 1);
+            System.arraycopy(subtrees, 1, prefixSubtrees, 0, top - 1);
+            Arrays.fill(prefixValues, top - 1, prefixValues.length, null);
+            Arrays.fill(prefixSubtrees, top - 1, prefixSubtrees.length, null);
+            Arrays.fill(values, 1, top, null);
+            Arrays.fill(subtrees, 1, top, null);
+
+            // The key partly consumed, if any, is on top of the stack and goes to the prefix.
+            long suffixSize = values[0].count + getOccurrences(subtrees[0]);
+            TreeSpliterator prefix = new TreeSpliterator(characteristics, prefixValues, prefixSubtrees, top - 1,
+                    remaining - suffixSize, repeated, expectedModCount);
+            top = 1;
+            remaining = suffixSize;
+            repeated = 0;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return remaining;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics;
+        }
+
+        @Override
+        public Comparator<? super T> getComparator() {
+            return comparator;
+        }
+    }
+
+    @Override
+    public void load(Object[] values, int count) {
+        replaceRoot(build(values, 0, count));
+    }
+
+    /**
+     * Links the sorted keys in {@code [from, to)} into a perfectly balanced subtree.
+     * The recursion depth is only log2(n).
+     */
+    @SuppressWarnings("unchecked")
+    private Node<T> build(Object[] values, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        Node<T> node = new Node<>((T) values[mid], epoch);
+        node.left = build(values, from, mid);
+        node.right = build(values, mid + 1, to);
+        update(node);
+        return node;
+    }
+
+    /**
+     * Links copies of the nodes in {@code [from, to)}, sorted, into a perfectly balanced
+     * subtree, keeping their counts.
+     */
+    private Node<T> build(List<Node<T>> nodes, int from, int to) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        Node<T> node = newNode(nodes.get(mid).value, nodes.get(mid).count);
+        node.left = build(nodes, from, mid);
+        node.right = build(nodes, mid + 1, to);
+        update(node);
+        return node;
+    }
+
+    /**
+     * Result of splitting a subtree by a key: the subtrees of smaller and greater keys and
+     * the node holding the key, if any.
+     */
+    private static final class Split<T> {
+        private Node<T> left;
+        private Node<T> right;
+        private Node<T> match;
+    }
+
+    /**
+     * Returns the root of a tree holding the keys of {@code c} for the join algorithms, which
+     * recurse once per level; see {@link #joinRoot(NodeStorage, boolean)} for the nodes of
+     * another {@link BinarySearchTree} of the same mode. Other collections are built into a
+     * new balanced tree.
+     */
+    @SuppressWarnings("unchecked")
+    private Node<T> joinRoot(Collection<?> c, boolean shared) {
+        if (c instanceof BinarySearchTree && ((BinarySearchTree<?>) c).isMultiset() == multiset) {
+            return joinRoot((NodeStorage<T>) ((BinarySearchTree<?>) c).storage(), shared);
+        }
+        Object[] values = c.toArray();
+        int count = BinarySearchTree.isSortedSet(c) ? values.length : BinarySearchTree.sortDistinct(values);
+        return build(values, 0, count);
+    }
+
+    /**
+     * Returns the root of {@code storage}'s tree when it is within twice the AVL height
+     * bound, or else of a balanced copy. When {@code shared}, the nodes of another core will
+     * be linked into this one, so that core moves to a new epoch and copies them before any
+     * change.
+     */
+    private Node<T> joinRoot(NodeStorage<T> storage, boolean shared) {
+        if (storage.height() <= 2 * (32 - Integer.numberOfLeadingZeros(storage.size()))) {
+            if (shared && storage != this && storage instanceof TreeCore) {
+                ((TreeCore<T>) storage).share();
+            }
+            return storage.root();
+        }
+        List<Node<T>> nodes = new ArrayList<>(storage.size());
+        inOrderNodes(storage.root(), nodes);
+        return build(nodes, 0, nodes.size());
+    }
+
+    /**
+     * Cuts the tree at {@code key} and returns a core holding the keys greater than or equal
+     * to it. Both trees then hold nodes of the current epoch, so this tree moves to a new
+     * one.
+     */
+    @Override
+    public TreeCore<T> splitOff(T key) {
+        Split<T> parts = new Split<>();
+        split(joinRoot(this, false), key, parts);
+        Node<T> greater = parts.right;
+        if (parts.match != null) {
+            greater = join(null, mutable(parts.match), greater);
+        }
+        replaceRoot(parts.left);
+        epoch = new Object();
+        TreeCore<T> result = new TreeCore<>(comparator, balancing, multiset);
+        result.replaceRoot(greater);
+        return result;
+    }
+
+    @Override
+    public void removeRange(T lo, T hi) {
+        Split<T> parts = new Split<>();
+        split(joinRoot(this, false), lo, parts);
+        Node<T> less = parts.left;
+        split(parts.right, hi, parts);
+        replaceRoot(join2(less, parts.right));
+    }
+
+    @Override
+    public void join(Collection<?> other) {
+        Node<T> theirs = joinRoot(other, true);
+        replaceRoot(join2(joinRoot(this, false), theirs));
+    }
+
+    /**
+     * Links {@code left < middle < right} into one AVL tree in O(|h(left) - h(right)|) by
+     * descending the spine of the taller tree to a subtree of the other's height. The
+     * subtrees must be AVL trees; {@code middle} must be owned by this tree.
+     */
+    private Node<T> join(Node<T> left, Node<T> middle, Node<T> right) {
+        if (getHeight(left) > getHeight(right) + 1) {
+            return joinRight(left, middle, right);
+        }
+        if (getHeight(right) > getHeight(left) + 1) {
+            return joinLeft(left, middle, right);
+        }
+        middle.left = left;
+        middle.right = right;
+        update(middle);
+        return middle;
+    }
+
+    private Node<T> joinRight(Node<T> left, Node<T> middle, Node<T> right) {
+        if (getHeight(left) <= getHeight(right) + 1) {
+            middle.left = left;
+            middle.right = right;
+            update(middle);
+            return middle;
+        }
+        Node<T> node = mutable(left);
+        node.right = joinRight(node.right, middle, right);
+        update(node);
+        return balance(node);
+    }
+
+    private Node<T> joinLeft(Node<T> left, Node<T> middle, Node<T> right) {
+        if (getHeight(right) <= getHeight(left) + 1) {
+            middle.left = left;
+            middle.right = right;
+            update(middle);
+            return middle;
+        }
+        Node<T> node = mutable(right);
+        node.left = joinLeft(left, middle, node.left);
+        update(node);
+        return balance(node);
+    }
+
+    /**
+     * Links {@code left < right} by joining them around the maximum of {@code left}.
+     */
+    Node<T> join2(Node<T> left, Node<T> right) {
+        if (left == null) {
+            return right;
+        }
+        if (right == null) {
+            return left;
+        }
+        Split<T> parts = new Split<>();
+        splitLast(left, parts);
+        return join(parts.left, mutable(parts.match), right);
+    }
+
+    private void splitLast(Node<T> node, Split<T> parts) {
+        if (node.right == null) {
+            parts.left = node.left;
+            parts.match = node;
+            return;
+        }
+        Node<T> left = node.left;
+        splitLast(node.right, parts);
+        parts.left = join(left, mutable(node), parts.left);
+    }
+
+    /**
+     * Splits {@code node} into the subtrees of keys less than and greater than {@code key},
+     * rejoining the O(log n) nodes on the search path.
+     */
+    private void split(Node<T> node, T key, Split<T> parts) {
+        if (node == null) {
+            parts.left = null;
+            parts.right = null;
+            parts.match = null;
+            return;
+        }
+        int compareResult = compare(key, node.value);
+        if (compareResult == 0) {
+            parts.left = node.left;
+            parts.right = node.right;
+            parts.match = node;
+            return;
+        }
+        Node<T> left = node.left;
+        Node<T> right = node.right;
+        if (compareResult < 0) {
+            split(left, key, parts);
+            parts.right = join(parts.right, mutable(node), right);
+        } else {
+            split(right, key, parts);
+            parts.left = join(left, mutable(node), parts.left);
+        }
+    }
+
+    @Override
+    public void union(Collection<?> other) {
+        Node<T> theirs = joinRoot(other, true);
+        replaceRoot(union(joinRoot(this, false), theirs, new Split<>()));
+    }
+
+    private Node<T> union(Node<T> mine, Node<T> theirs, Split<T> parts) {
+        if (mine == null) {
+            return theirs;
+        }
+        if (theirs == null) {
+            return mine;
+        }
+        Node<T> left = mine.left;
+        Node<T> right = mine.right;
+        split(theirs, mine.value, parts);
+        Node<T> theirRight = parts.right;
+        Node<T> unionLeft = union(left, parts.left, parts);
+        Node<T> unionRight = union(right, theirRight, parts);
+        return join(unionLeft, mutable(mine), unionRight);
+    }
+
+    @Override
+    public void intersection(Collection<?> other) {
+        replaceRoot(intersection(joinRoot(this, false), joinRoot(other, false), new Split<>()));
+    }
+
+    private Node<T> intersection(Node<T> mine, Node<T> theirs, Split<T> parts) {
+        if (mine == null || theirs == null) {
+            return null;
+        }
+        Node<T> left = mine.left;
+        Node<T> right = mine.right;
+        split(theirs, mine.value, parts);
+        Node<T> theirRight = parts.right;
+        boolean found = parts.match != null;
+        Node<T> intersectionLeft = intersection(left, parts.left, parts);
+        Node<T> intersectionRight = intersection(right, theirRight, parts);
+        if (found) {
+            return join(intersectionLeft, mutable(mine), intersectionRight);
+        }
+        return join2(intersectionLeft, intersectionRight);
+    }
+
+    @Override
+    public void difference(Collection<?> other) {
+        replaceRoot(difference(joinRoot(this, false), joinRoot(other, false)));
+    }
+
+    /**
+     * Removes the keys of {@code theirs} from {@code mine}. Only the nodes of {@code mine}
+     * are split, so {@code theirs} may be any tree, including this one's.
+     */
+    private Node<T> difference(Node<T> mine, Node<T> theirs) {
+        if (mine == null || theirs == null) {
+            return mine;
+        }
+        Split<T> parts = new Split<>();
+        split(mine, theirs.value, parts);
+        Node<T> myRight = parts.right;
+        Node<T> differenceLeft = difference(parts.left, theirs.left);
+        Node<T> differenceRight = difference(myRight, theirs.right);
+        return join2(differenceLeft, differenceRight);
+    }
+}
@@ -0,0 +1,250 @@
+package escuelaing.edu.co;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Operation counters of a {@link BinarySearchTree}, attached with
+ * {@link BinarySearchTree#enableMetrics()}. A tree without metrics only pays a null check per
+ * operation. Recording is safe to read from monitoring threads while the tree is in use;
+ * every recorded operation is also emitted as a {@link TreeOperationEvent} when a Java Flight
+ * Recorder recording has that event enabled.
+ */
+public final class TreeMetrics {
+    /**
+     * Instrumented tree operations.
+     */
+    public enum Operation {
+        SEARCH,
+        INSERT,
+        DELETE
+    }
+
+    /** Searches deeper than this many levels are counted in the last depth bucket. */
+    public static final int MAX_TRACKED_DEPTH = 127;
+
+    private final Map<Operation, OperationCounters> counters = new EnumMap<>(Operation.class);
+    private final AtomicLongArray searchDepths = new AtomicLongArray(MAX_TRACKED_DEPTH + 1);
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder nodeCopies = new LongAdder();
+    private final LongAdder bulkLoads = new LongAdder();
+
+    TreeMetrics() {
+        for (Operation operation : Operation.values()) {
+            counters.put(operation, new OperationCounters());
+        }
+    }
+
+    /**
+     * Records one operation.
+     *
+     * @param comparisons calls to {@code compareTo} made by the operation
+     * @param depth       number of levels the operation descended
+     * @param hit         whether the value was found (search), added (insert) or removed (delete)
+     */
+    void record(Operation operation, int comparisons, int depth, boolean hit, long nanos, int treeSize) {
+        OperationCounters counter = counters.get(operation);
+        counter.count.increment();
+        counter.comparisons.add(comparisons);
+        if (hit) {
+            counter.hits.increment();
+        }
+        counter.latency.record(nanos);
+        if (operation == Operation.SEARCH) {
+            searchDepths.incrementAndGet(Math.min(depth, MAX_TRACKED_DEPTH));
+        }
+
+        TreeOperationEvent event = new TreeOperationEvent();
+        if (event.isEnabled()) {
+            event.operation = operation.name();
+            event.comparisons = comparisons;
+            event.depth = depth;
+            event.hit = hit;
+            event.latency = nanos;
+            event.treeSize = treeSize;
+            event.commit();
+        }
+    }
+
+    void recordRotation() {
+        rotations.increment();
+    }
+
+    void recordNodeCopy() {
+        nodeCopies.increment();
+    }
+
+    void recordBulkLoad() {
+        bulkLoads.increment();
+    }
+
+    /**
+     * Returns a point-in-time copy of the counters.
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(this);
+    }
+
+    private static final class OperationCounters {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder comparisons = new LongAdder();
+        private final LatencyHistogram latency = new LatencyHistogram();
+    }
+
+    /**
+     * Log-linear histogram: values are grouped by their highest set bit and each power of two
+     * is split into {@link #SUB_BUCKETS} linear buckets, so percentiles are exact to within
+     * 1/SUB_BUCKETS of the value.
+     */
+    static final class LatencyHistogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+
+        void record(long value) {
+            buckets.incrementAndGet(bucketOf(Math.max(value, 0)));
+        }
+
+        static int bucketOf(long value) {
+            if (value < SUB_BUCKETS) {
+                return (int) value;
+            }
+            int magnitude = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (magnitude - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+            return (magnitude - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        /**
+         * Returns the largest value that falls into {@code bucket}.
+         */
+        static long upperBoundOf(int bucket) {
+            if (bucket < SUB_BUCKETS) {
+                return bucket;
+            }
+            int magnitude = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long subBucket = bucket % SUB_BUCKETS;
+            long lower = (1L << magnitude) | (subBucket << (magnitude - SUB_BUCKET_BITS));
+            return lower + (1L << (magnitude - SUB_BUCKET_BITS)) - 1;
+        }
+
+        long[] counts() {
+            long[] counts = new long[buckets.length()];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = buckets.get(i);
+            }
+            return counts;
+        }
+    }
+
+    /**
+     * Immutable copy of the metrics of one tree.
+     */
+    public static final class Snapshot {
+        private final Map<Operation, long[]> latencies = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> counts = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> hits = new EnumMap<>(Operation.class);
+        private final Map<Operation, Long> comparisons = new EnumMap<>(Operation.class);
+        private final long[] searchDepths;
+        private final long rotations;
+        private final long nodeCopies;
+        private final long bulkLoads;
+
+        private Snapshot(TreeMetrics metrics) {
+            for (Map.Entry<Operation, OperationCounters> entry : metrics.counters.entrySet()) {
+                OperationCounters counter = entry.getValue();
+                counts.put(entry.getKey(), counter.count.sum());
+                hits.put(entry.getKey(), counter.hits.sum());
+                comparisons.put(entry.getKey(), counter.comparisons.sum());
+                latencies.put(entry.getKey(), counter.latency.counts());
+            }
+            searchDepths = new long[metrics.searchDepths.length()];
+            for (int i = 0; i < searchDepths.length; i++) {
+                searchDepths[i] = metrics.searchDepths.get(i);
+            }
+            rotations = metrics.rotations.sum();
+            nodeCopies = metrics.nodeCopies.sum();
+            bulkLoads = metrics.bulkLoads.sum();
+        }
+
+        public long getCount(Operation operation) {
+            return counts.get(operation);
+        }
+
+        /**
+         * Returns how many operations found (search), added (insert) or removed (delete) a value.
+         */
+        public long getHits(Operation operation) {
+            return hits.get(operation);
+        }
+
+        public long getComparisons(Operation operation) {
+            return comparisons.get(operation);
+        }
+
+        public double getMeanComparisons(Operation operation) {
+            long count = counts.get(operation);
+            return count == 0 ? 0 : comparisons.get(operation) / (double) count;
+        }
+
+        /**
+         * Returns the latency, in nanoseconds, below which the given fraction of the operations
+         * completed, e.g. {@code 0.99} for the 99th percentile.
+         */
+        public long getLatencyPercentile(Operation operation, double fraction) {
+            if (fraction < 0 || fraction > 1) {
+                throw new IllegalArgumentException("Fraction must be between 0 and 1: " + fraction);
+            }
+            long[] buckets = latencies.get(operation);
+            long count = counts.get(operation);
+            if (count == 0) {
+                return 0;
+            }
+            long target = Math.max(1, (long) Math.ceil(fraction * count));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    return LatencyHistogram.upperBoundOf(i);
+                }
+            }
+            return LatencyHistogram.upperBoundOf(buckets.length - 1);
+        }
+
+        /**
+         * Returns how many searches stopped at each depth. Index {@code d} counts searches that
+         * visited {@code d} nodes; the last index also counts every deeper search.
+         */
+        public long[] getSearchDepthHistogram() {
+            return searchDepths.clone();
+        }
+
+        public double getMeanSearchDepth() {
+            long total = 0;
+            long weighted = 0;
+            for (int depth = 0; depth < searchDepths.length; depth++) {
+                total += searchDepths[depth];
+                weighted += depth * searchDepths[depth];
+            }
+            return total == 0 ? 0 : weighted / (double) total;
+        }
+
+        public long getRotations() {
+            return rotations;
+        }
+
+        /**
+         * Returns how many nodes were copied because they were shared with a snapshot.
+         */
+        public long getNodeCopies() {
+            return nodeCopies;
+        }
+
+        public long getBulkLoads() {
+            return bulkLoads;
+        }
+    }
+}
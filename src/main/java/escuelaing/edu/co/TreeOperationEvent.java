@@ -0,0 +1,40 @@
+package escuelaing.edu.co;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Flight Recorder event emitted for every operation of a tree with {@link TreeMetrics} enabled.
+ * Disabled by default; enable {@code escuelaing.edu.co.TreeOperation} in the recording settings.
+ */
+@Name("escuelaing.edu.co.TreeOperation")
+@Label("Tree Operation")
+@Category({"Binary Search Tree"})
+@Description("Search, insert or delete on an instrumented BinarySearchTree")
+@StackTrace(false)
+final class TreeOperationEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Comparisons")
+    int comparisons;
+
+    @Label("Depth")
+    int depth;
+
+    @Label("Hit")
+    @Description("Whether the value was found, added or removed")
+    boolean hit;
+
+    @Label("Latency")
+    @Timespan(Timespan.NANOSECONDS)
+    long latency;
+
+    @Label("Tree Size")
+    int treeSize;
+}
@@ -0,0 +1,251 @@
+package escuelaing.edu.co;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Text rendering of a {@link BinarySearchTree} for debugging dumps. Output is limited to
+ * {@code maxDepth} levels and {@code maxWidth} characters per line, either of which may be
+ * {@link #UNLIMITED}; the subtrees cut off by a limit are drawn as {@value #ELIDED}. Each line is built in memory and written to the
+ * {@link Appendable} with a single call, and the work is proportional to the rendered nodes
+ * and lines, not to the height of the tree.
+ */
+public final class TreeRenderer {
+    public enum Style {
+        /** Root on top, children centered below their parent, one line per level. */
+        PYRAMID,
+        /**
+         * Tree turned on its side, one node per line indented by depth, right subtree above
+         * its parent and left subtree below.
+         */
+        SIDEWAYS
+    }
+
+    public static final int DEFAULT_MAX_DEPTH = 6;
+    public static final int DEFAULT_MAX_WIDTH = 120;
+    /**
+     * Lifts a limit. A pyramid level is {@code 2^depth} slots wide, so an unlimited pyramid
+     * still stops at the level that would not fit in {@link Integer#MAX_VALUE} characters.
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+    static final String ELIDED = "...";
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+    private static final int INDENT = 2;
+
+    private final Style style;
+    private final int maxDepth;
+    private final int maxWidth;
+
+    public TreeRenderer(Style style) {
+        this(style, DEFAULT_MAX_DEPTH, DEFAULT_MAX_WIDTH);
+    }
+
+    /**
+     * @param maxDepth number of levels rendered, at least 1
+     * @param maxWidth characters per line, at least 4
+     */
+    public TreeRenderer(Style style, int maxDepth, int maxWidth) {
+        if (style == null) {
+            throw new NullPointerException("Style cannot be null");
+        }
+        if (maxDepth < 1) {
+            throw new IllegalArgumentException("maxDepth must be at least 1: " + maxDepth);
+        }
+        if (maxWidth <= ELIDED.length()) {
+            throw new IllegalArgumentException("maxWidth must be at least " + (ELIDED.length() + 1) + ": " + maxWidth);
+        }
+        this.style = style;
+        this.maxDepth = maxDepth;
+        this.maxWidth = maxWidth;
+    }
+
+    /**
+     * Writes {@code tree} to {@code out}; an empty tree writes nothing.
+     */
+    public void render(BinarySearchTree<?> tree, Appendable out) throws IOException {
+        BinarySearchTree.Node<?> root = tree.getRootNode();
+        if (root == null) {
+            return;
+        }
+        if (style == Style.PYRAMID) {
+            renderPyramid(root, out);
+        } else {
+            renderSideways(root, tree.height(), out);
+        }
+    }
+
+    public String render(BinarySearchTree<?> tree) {
+        StringBuilder out = new StringBuilder();
+        try {
+            render(tree, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toString();
+    }
+
+    private String label(BinarySearchTree.Node<?> node) {
+        String label = String.valueOf(node.getValue());
+        return label.length() <= maxWidth ? label : label.substring(0, maxWidth - ELIDED.length()) + ELIDED;
+    }
+
+    /**
+     * Nodes of one pyramid level with their slot, the position they would have among the
+     * {@code 2^depth} slots of a complete level.
+     */
+    private static final class Level {
+        final List<BinarySearchTree.Node<?>> nodes = new ArrayList<>();
+        final List<String> labels = new ArrayList<>();
+        final List<Long> slots = new ArrayList<>();
+
+        void add(BinarySearchTree.Node<?> node, String label, long slot) {
+            nodes.add(node);
+            labels.add(label);
+            slots.add(slot);
+        }
+    }
+
+    private void renderPyramid(BinarySearchTree.Node<?> root, Appendable out) throws IOException {
+        // Collect levels while the widest label still fits in every slot of the level.
+        List<Level> levels = new ArrayList<>();
+        Level level = new Level();
+        level.add(root, label(root), 0);
+        int cellWidth = 2;
+        for (int depth = 0; depth < maxDepth && !level.nodes.isEmpty(); depth++) {
+            int width = cellWidth;
+            for (String label : level.labels) {
+                width = Math.max(width, label.length() + 1);
+            }
+            if (depth > 0 && (1L << depth) * width > maxWidth) {
+                break;
+            }
+            cellWidth = width;
+            levels.add(level);
+            Level next = new Level();
+            for (int i = 0; i < level.nodes.size(); i++) {
+                BinarySearchTree.Node<?> node = level.nodes.get(i);
+                long slot = level.slots.get(i);
+                if (node.getLeft() != null) {
+                    next.add(node.getLeft(), label(node.getLeft()), 2 * slot);
+                }
+                if (node.getRight() != null) {
+                    next.add(node.getRight(), label(node.getRight()), 2 * slot + 1);
+                }
+            }
+            level = next;
+        }
+
+        long totalWidth = (1L << (levels.size() - 1)) * cellWidth;
+        StringBuilder line = new StringBuilder();
+        for (int depth = 0; depth < levels.size(); depth++) {
+            Level current = levels.get(depth);
+            for (int i = 0; i < current.nodes.size(); i++) {
+                String label = current.labels.get(i);
+                pad(line, center(current.slots.get(i), depth, totalWidth) - label.length() / 2);
+                line.append(label);
+            }
+            writeLine(line, out);
+
+            // Edges to the next level, or to the subtrees that are not rendered.
+            boolean last = depth == levels.size() - 1;
+            for (int i = 0; i < current.nodes.size(); i++) {
+                BinarySearchTree.Node<?> node = current.nodes.get(i);
+                long parent = center(current.slots.get(i), depth, totalWidth);
+                if (node.getLeft() != null) {
+                    pad(line, (parent + center(2 * current.slots.get(i), depth + 1, totalWidth)) / 2);
+                    line.append('/');
+                }
+                if (node.getRight() != null) {
+                    pad(line, (parent + center(2 * current.slots.get(i) + 1, depth + 1, totalWidth)) / 2);
+                    line.append('\\');
+                }
+            }
+            if (line.length() > 0) {
+                writeLine(line, out);
+            }
+            if (last && !level.nodes.isEmpty()) {
+                for (long slot : level.slots) {
+                    pad(line, center(slot, depth + 1, totalWidth) - ELIDED.length() / 2);
+                    line.append(ELIDED);
+                }
+                writeLine(line, out);
+            }
+        }
+    }
+
+    /**
+     * Returns the column at the middle of slot {@code slot} of level {@code depth}.
+     */
+    private static long center(long slot, int depth, long totalWidth) {
+        return (2 * slot + 1) * totalWidth >> (depth + 1);
+    }
+
+    /**
+     * Pads {@code line} with spaces up to {@code column}, keeping one space after the text
+     * already on the line.
+     */
+    private void pad(StringBuilder line, long column) {
+        long target = Math.max(column, line.length() == 0 ? 0 : line.length() + 1);
+        target = Math.min(target, maxWidth);
+        while (line.length() < target) {
+            line.append(' ');
+        }
+    }
+
+    private void renderSideways(BinarySearchTree.Node<?> root, int height, Appendable out) throws IOException {
+        int capacity = Math.min(height, maxDepth);
+        BinarySearchTree.Node<?>[] stack = new BinarySearchTree.Node<?>[capacity];
+        int[] depths = new int[capacity];
+        int top = 0;
+        StringBuilder line = new StringBuilder();
+        BinarySearchTree.Node<?> node = root;
+        int depth = 0;
+        while (true) {
+            // Reverse in-order, so that reading from the top follows descending values.
+            while (node != null) {
+                if (depth == maxDepth) {
+                    indent(line, depth);
+                    line.append(ELIDED).append('(').append(node.getSize()).append(')');
+                    writeLine(line, out);
+                    break;
+                }
+                depths[top] = depth++;
+                stack[top++] = node;
+                node = node.getRight();
+            }
+            if (top == 0) {
+                return;
+            }
+            node = stack[--top];
+            depth = depths[top];
+            stack[top] = null;
+            indent(line, depth);
+            line.append(label(node));
+            writeLine(line, out);
+            node = node.getLeft();
+            depth++;
+        }
+    }
+
+    private void indent(StringBuilder line, int depth) {
+        long width = Math.min((long) depth * INDENT, maxWidth - 1);
+        for (long i = 0; i < width; i++) {
+            line.append(' ');
+        }
+    }
+
+    /**
+     * Writes {@code line}, cut to {@code maxWidth} characters, in one call and clears it.
+     */
+    private void writeLine(StringBuilder line, Appendable out) throws IOException {
+        if (line.length() > maxWidth) {
+            line.setLength(maxWidth - ELIDED.length());
+            line.append(ELIDED);
+        }
+        line.append(LINE_SEPARATOR);
+        out.append(line);
+        line.setLength(0);
+    }
+}
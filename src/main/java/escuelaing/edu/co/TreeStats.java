@@ -0,0 +1,81 @@
+package escuelaing.edu.co;
+
+/**
+ * Immutable structural statistics of a {@link BinarySearchTree}, returned by
+ * {@link BinarySearchTree#stats()} in O(1).
+ */
+public final class TreeStats {
+    private final int size;
+    private final int height;
+    private final long internalPathLength;
+    private final int unbalancedNodes;
+
+    TreeStats(int size, int height, long internalPathLength, int unbalancedNodes) {
+        this.size = size;
+        this.height = height;
+        this.internalPathLength = internalPathLength;
+        this.unbalancedNodes = unbalancedNodes;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the sum of the depths of all nodes, the root being at depth zero.
+     */
+    public long getInternalPathLength() {
+        return internalPathLength;
+    }
+
+    /**
+     * Returns the mean depth of a node, which is the number of comparisons a successful
+     * search makes on average, minus one.
+     */
+    public double getAverageDepth() {
+        return size == 0 ? 0 : internalPathLength / (double) size;
+    }
+
+    /**
+     * Returns the smallest mean depth any tree of this size can have, reached by a complete
+     * tree.
+     */
+    public double getOptimalAverageDepth() {
+        if (size == 0) {
+            return 0;
+        }
+        // A complete tree holds 2^d nodes at every depth d above its last, partial level.
+        long pathLength = 0;
+        long remaining = size;
+        for (int depth = 0; remaining > 0; depth++) {
+            long level = Math.min(remaining, 1L << depth);
+            pathLength += level * depth;
+            remaining -= level;
+        }
+        return pathLength / (double) size;
+    }
+
+    /**
+     * Returns the number of nodes whose subtrees differ in height by more than one.
+     */
+    public int getUnbalancedNodes() {
+        return unbalancedNodes;
+    }
+
+    /**
+     * Returns whether the tree satisfies the AVL balance condition at every node.
+     */
+    public boolean isBalanced() {
+        return unbalancedNodes == 0;
+    }
+
+    @Override
+    public String toString() {
+        return "TreeStats{size=" + size + ", height=" + height + ", averageDepth="
+                + String.format("%.2f", getAverageDepth()) + ", unbalancedNodes=" + unbalancedNodes + "}";
+    }
+}
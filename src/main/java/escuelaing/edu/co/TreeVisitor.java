@@ -0,0 +1,17 @@
+package escuelaing.edu.co;
+
+/**
+ * Callback for the traversals of {@link BinarySearchTree} that visit values in place
+ * instead of collecting them into a list.
+ */
+@FunctionalInterface
+public interface TreeVisitor<T> {
+    /**
+     * Visits one value.
+     *
+     * @param value the value stored in the node
+     * @param depth the depth of the node, the root being at depth zero
+     * @return {@code true} to continue the traversal, {@code false} to stop it
+     */
+    boolean visit(T value, int depth);
+}
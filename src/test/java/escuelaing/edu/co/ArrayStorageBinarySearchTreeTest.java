@@ -0,0 +1,65 @@
+package escuelaing.edu.co;
+
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the {@link BinarySearchTreeTest} suite on {@link BinarySearchTree.Storage#ARRAY} trees,
+ * plus the cases particular to that layout.
+ */
+class ArrayStorageBinarySearchTreeTest extends BinarySearchTreeTest {
+    @Override
+    BinarySearchTree.Storage storage() {
+        return BinarySearchTree.Storage.ARRAY;
+    }
+
+    @Test
+    @DisplayName("Removed slots should be reused")
+    void removedSlotsShouldBeReused() {
+        BinarySearchTree<Integer> tree = newTree(BinarySearchTree.Balancing.AVL);
+        Arrays.asList(50, 30, 70, 20, 40, 60, 80).forEach(tree::add);
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(tree.remove(50));
+            assertTrue(tree.add(50));
+        }
+        assertEquals(7, tree.size());
+        assertEquals(Arrays.asList(20, 30, 40, 50, 60, 70, 80), new ArrayList<>(tree));
+        assertEquals(BinarySearchTree.Storage.ARRAY, tree.getStorage());
+    }
+
+    @Test
+    @DisplayName("Join-based methods should combine array and linked trees")
+    void joinBasedMethodsShouldCombineStorages() {
+        BinarySearchTree<Integer> arrays = newTree(BinarySearchTree.Balancing.AVL);
+        BinarySearchTree<Integer> linked = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL, false,
+                BinarySearchTree.Storage.LINKED);
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 100; i++) {
+            arrays.add(2 * i);
+            linked.add(3 * i);
+            expected.add(2 * i);
+            expected.add(3 * i);
+        }
+
+        assertTrue(arrays.union(linked));
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(arrays));
+        assertTrue(arrays.isBalanced());
+        assertTrue(linked.difference(arrays));
+        assertTrue(linked.isEmpty());
+
+        BinarySearchTree<Integer> upper = arrays.split(150);
+        assertEquals(BinarySearchTree.Storage.ARRAY, upper.getStorage());
+        assertEquals(new ArrayList<>(expected.headSet(150)), new ArrayList<>(arrays));
+        assertEquals(new ArrayList<>(expected.tailSet(150)), new ArrayList<>(upper));
+
+        linked.addAll(Arrays.asList(1_000, 1_001));
+        upper.join(linked);
+        arrays.join(upper);
+        expected.addAll(Arrays.asList(1_000, 1_001));
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(arrays));
+        assertTrue(arrays.isBalanced());
+        assertEquals(arrays.getRoot(), arrays.getRootNode().getValue());
+        assertEquals(arrays.getNumberOfNodes(), arrays.getRootNode().getSize());
+    }
+}
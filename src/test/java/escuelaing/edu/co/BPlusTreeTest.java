@@ -0,0 +1,141 @@
+package escuelaing.edu.co;
+
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BPlusTreeTest {
+    private BPlusTree<Integer> tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new BPlusTree<>(4);
+        int[] values = {50, 30, 70, 20, 40, 60, 80};
+        Arrays.stream(values).forEach(tree::add);
+    }
+
+    @Test
+    @DisplayName("Should add, search and reject duplicates")
+    void shouldAddSearchAndRejectDuplicates() {
+        assertEquals(7, tree.size());
+        assertEquals(Integer.valueOf(40), tree.search(40));
+        assertNull(tree.search(45));
+        assertTrue(tree.contains(60));
+        assertFalse(tree.contains(65));
+        assertFalse(tree.add(40));
+        assertThrows(NullPointerException.class, () -> tree.add(null));
+        assertEquals(Integer.valueOf(20), tree.findMin());
+        assertEquals(Integer.valueOf(80), tree.findMax());
+        assertThrows(IllegalArgumentException.class, () -> new BPlusTree<Integer>(2));
+    }
+
+    @Test
+    @DisplayName("Leaf chain should yield values in order")
+    void leafChainShouldYieldValuesInOrder() {
+        List<Integer> result = new ArrayList<>();
+        tree.inOrderTraversal(result);
+        assertEquals(Arrays.asList(20, 30, 40, 50, 60, 70, 80), result);
+        assertEquals(result, new ArrayList<>(tree));
+
+        result.clear();
+        tree.rangeTraversal(35, 70, result);
+        assertEquals(Arrays.asList(40, 50, 60, 70), result);
+    }
+
+    @Test
+    @DisplayName("Height should grow logarithmically in the fanout")
+    void heightShouldGrowLogarithmicallyInFanout() {
+        BPlusTree<Integer> wide = new BPlusTree<>(64);
+        for (int i = 0; i < 100_000; i++) {
+            wide.add(i);
+        }
+        assertTrue(wide.height() <= 4, "height was " + wide.height());
+        assertEquals(Integer.valueOf(0), wide.findMin());
+        assertEquals(Integer.valueOf(99_999), wide.findMax());
+
+        for (int i = 0; i < 100_000; i++) {
+            assertTrue(wide.remove(i));
+        }
+        assertTrue(wide.isEmpty());
+        assertEquals(0, wide.height());
+        assertNull(wide.findMin());
+    }
+
+    @Test
+    @DisplayName("Height should count page levels and be zero for an empty tree")
+    void heightShouldCountPageLevels() {
+        BPlusTree<Integer> tree = new BPlusTree<>(4);
+        assertEquals(0, tree.height());
+        tree.add(1);
+        assertEquals(1, tree.height());
+        for (int i = 2; i <= 4; i++) {
+            tree.add(i);
+        }
+        assertEquals(2, tree.height());
+        tree.clear();
+        assertEquals(0, tree.height());
+    }
+
+    @Test
+    @DisplayName("Should match a TreeSet under random updates for every fanout")
+    void shouldMatchTreeSetUnderRandomUpdates() {
+        for (int fanout : new int[] {3, 4, 5, 16}) {
+            BPlusTree<Integer> btree = new BPlusTree<>(fanout);
+            TreeSet<Integer> expected = new TreeSet<>();
+            Random random = new Random(fanout);
+            for (int i = 0; i < 20_000; i++) {
+                int value = random.nextInt(2_000);
+                if (random.nextInt(3) > 0) {
+                    assertEquals(expected.add(value), btree.add(value));
+                } else {
+                    assertEquals(expected.remove(value), btree.remove(value));
+                }
+            }
+            assertEquals(expected.size(), btree.size());
+            assertEquals(new ArrayList<>(expected), new ArrayList<>(btree));
+            assertEquals(expected.first(), btree.findMin());
+            assertEquals(expected.last(), btree.findMax());
+
+            List<Integer> range = new ArrayList<>();
+            btree.rangeTraversal(500, 1_500, range);
+            assertEquals(new ArrayList<>(expected.subSet(500, true, 1_500, true)), range);
+        }
+    }
+
+    @Test
+    @DisplayName("Iterator should remove values and detect concurrent modification")
+    void iteratorShouldRemoveAndFailFast() {
+        BPlusTree<Integer> btree = new BPlusTree<>(3);
+        for (int i = 0; i < 1_000; i++) {
+            btree.add(i);
+        }
+        Iterator<Integer> iterator = btree.iterator();
+        assertThrows(IllegalStateException.class, iterator::remove);
+        while (iterator.hasNext()) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(500, btree.size());
+        int expected = 1;
+        for (int value : btree) {
+            assertEquals(expected, value);
+            expected += 2;
+        }
+
+        Iterator<Integer> stale = btree.iterator();
+        btree.add(-1);
+        assertThrows(ConcurrentModificationException.class, stale::next);
+    }
+
+    @Test
+    @DisplayName("Clear should empty the tree")
+    void clearShouldEmptyTree() {
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertFalse(tree.iterator().hasNext());
+        assertNull(tree.findMax());
+        assertTrue(tree.add(1));
+        assertEquals(1, tree.size());
+    }
+}
@@ -0,0 +1,215 @@
+package escuelaing.edu.co;
+
+import org.junit.jupiter.api.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingBinarySearchTreeTest {
+    private BatchingBinarySearchTree<Integer> tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new BatchingBinarySearchTree<>(BinarySearchTree.Balancing.AVL, 64, 16);
+    }
+
+    @AfterEach
+    void tearDown() {
+        tree.close();
+    }
+
+    @Test
+    @DisplayName("Futures should complete in submission order once readers see the change")
+    void futuresShouldCompleteInSubmissionOrder() throws Exception {
+        CompletableFuture<Boolean> first = tree.add(5);
+        CompletableFuture<Boolean> duplicate = tree.add(5);
+        CompletableFuture<Boolean> removed = tree.remove(5);
+        CompletableFuture<Boolean> missing = tree.remove(5);
+        CompletableFuture<Boolean> last = tree.add(3);
+
+        assertTrue(first.get(10, TimeUnit.SECONDS));
+        assertFalse(duplicate.get(10, TimeUnit.SECONDS));
+        assertTrue(removed.get(10, TimeUnit.SECONDS));
+        assertFalse(missing.get(10, TimeUnit.SECONDS));
+        assertTrue(last.get(10, TimeUnit.SECONDS));
+        assertTrue(tree.contains(3));
+        assertFalse(tree.contains(5));
+        assertEquals(Integer.valueOf(3), tree.search(3));
+        assertEquals(1, tree.size());
+        assertTrue(tree.snapshot().isReadOnly());
+        assertThrows(NullPointerException.class, () -> tree.add(null));
+    }
+
+    @Test
+    @DisplayName("Concurrent producers and lock-free readers should keep the tree consistent")
+    void concurrentProducersShouldKeepTreeConsistent() throws Exception {
+        int producers = 4;
+        int readers = 2;
+        int operations = 20_000;
+        int stableKeys = 1_000;
+
+        // Even keys are never removed, so readers must always find them.
+        List<CompletableFuture<Boolean>> setup = new ArrayList<>();
+        for (int i = 0; i < stableKeys; i++) {
+            setup.add(tree.add(i * 2));
+        }
+        for (CompletableFuture<Boolean> result : setup) {
+            result.get(10, TimeUnit.SECONDS);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(producers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger missedStableKeys = new AtomicInteger();
+        List<Future<Set<Integer>>> producerResults = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            producerResults.add(executor.submit(() -> {
+                Set<Integer> owned = new HashSet<>();
+                Random random = new Random(id);
+                start.await();
+                List<CompletableFuture<Boolean>> results = new ArrayList<>();
+                List<Boolean> expected = new ArrayList<>();
+                for (int i = 0; i < operations; i++) {
+                    // Odd keys, partitioned between producers.
+                    int key = (random.nextInt(500) * producers + id) * 2 + 1;
+                    if (random.nextBoolean()) {
+                        expected.add(owned.add(key));
+                        results.add(tree.add(key));
+                    } else {
+                        expected.add(owned.remove(key));
+                        results.add(tree.remove(key));
+                    }
+                }
+                for (int i = 0; i < operations; i++) {
+                    assertEquals(expected.get(i), results.get(i).get(10, TimeUnit.SECONDS));
+                }
+                return owned;
+            }));
+        }
+        for (int r = 0; r < readers; r++) {
+            int id = r;
+            executor.submit(() -> {
+                Random random = new Random(100 + id);
+                start.await();
+                for (int i = 0; i < operations; i++) {
+                    if (!tree.contains(random.nextInt(stableKeys) * 2)) {
+                        missedStableKeys.incrementAndGet();
+                    }
+                }
+                return null;
+            });
+        }
+
+        start.countDown();
+        Set<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < stableKeys; i++) {
+            expected.add(i * 2);
+        }
+        for (Future<Set<Integer>> result : producerResults) {
+            expected.addAll(result.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(60, TimeUnit.SECONDS));
+
+        assertEquals(0, missedStableKeys.get());
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(tree.snapshot()));
+        assertTrue(tree.snapshot().isBalanced());
+        assertTrue(tree.getBatches() < stableKeys + producers * operations);
+    }
+
+    @Test
+    @DisplayName("Closing should apply queued mutations and reject new ones")
+    void closeShouldDrainQueue() throws Exception {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            results.add(tree.add(i));
+        }
+        tree.close();
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.isDone());
+            assertTrue(result.get());
+        }
+        assertEquals(500, tree.size());
+        assertThrows(IllegalStateException.class, () -> tree.add(1_000));
+        assertThrows(IllegalArgumentException.class,
+                () -> new BatchingBinarySearchTree<Integer>(BinarySearchTree.Balancing.AVL, 0, 1));
+    }
+
+    @Test
+    @DisplayName("A compareTo that throws should fail its batch and keep the writer alive")
+    void throwingCompareToShouldFailOnlyItsBatch() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try (BatchingBinarySearchTree<Key> keys = new BatchingBinarySearchTree<>(BinarySearchTree.Balancing.AVL, 64, 16)) {
+            assertTrue(keys.add(new Key(1, null, null)).get(10, TimeUnit.SECONDS));
+            // Holds the writer in its descent so that the next mutations form one batch.
+            CompletableFuture<Boolean> blocking = keys.add(new Key(2, entered, release));
+            assertTrue(entered.await(10, TimeUnit.SECONDS));
+            List<CompletableFuture<Boolean>> batch = List.of(keys.add(new Key(3, null, null)),
+                    keys.add(new Key(-1, null, null)), keys.add(new Key(4, null, null)));
+            release.countDown();
+            assertTrue(blocking.get(10, TimeUnit.SECONDS));
+            for (CompletableFuture<Boolean> result : batch) {
+                ExecutionException failure = assertThrows(ExecutionException.class,
+                        () -> result.get(10, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+            }
+            assertTrue(keys.add(new Key(5, null, null)).get(10, TimeUnit.SECONDS));
+            assertEquals(3, keys.size());
+        }
+    }
+
+    @Test
+    @DisplayName("Racing close calls should stop the writer once")
+    void racingCloseCallsShouldStopWriterOnce() throws Exception {
+        List<CompletableFuture<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(tree.add(i));
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        List<Future<?>> closes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            closes.add(executor.submit(tree::close));
+        }
+        for (Future<?> close : closes) {
+            close.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+        for (CompletableFuture<Boolean> result : results) {
+            assertTrue(result.get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(50, tree.size());
+    }
+
+    /**
+     * Key whose comparison rejects negative ids and can hold the writer until released.
+     */
+    private static final class Key implements Comparable<Key> {
+        private final int id;
+        private final CountDownLatch entered;
+        private final CountDownLatch release;
+
+        Key(int id, CountDownLatch entered, CountDownLatch release) {
+            this.id = id;
+            this.entered = entered;
+            this.release = release;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            if (id < 0 || other.id < 0) {
+                throw new IllegalArgumentException("Negative id");
+            }
+            if (entered != null) {
+                entered.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return Integer.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package escuelaing.edu.co;
+
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BinarySearchTreeMapTest {
+    private BinarySearchTreeMap<Integer, String> map;
+
+    @BeforeEach
+    void setUp() {
+        map = new BinarySearchTreeMap<>();
+        int[] keys = {50, 30, 70, 20, 40, 60, 80};
+        Arrays.stream(keys).forEach(key -> map.put(key, "v" + key));
+    }
+
+    @Test
+    @DisplayName("Should match TreeMap under random puts and removes")
+    void shouldMatchTreeMapUnderRandomOperations() {
+        BinarySearchTreeMap<Integer, Integer> tree = new BinarySearchTreeMap<>();
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 20_000; i++) {
+            int key = random.nextInt(2_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(key), tree.remove(key));
+            } else {
+                assertEquals(expected.put(key, i), tree.put(key, i));
+            }
+        }
+        assertEquals(expected, tree);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(tree.keySet()));
+        assertTrue(tree.height() <= 1.45 * (32 - Integer.numberOfLeadingZeros(tree.size() + 1)));
+        assertThrows(NullPointerException.class, () -> tree.put(null, 1));
+    }
+
+    @Test
+    @DisplayName("Compute family should follow the Map contract")
+    void computeFamilyShouldFollowMapContract() {
+        assertEquals("v50", map.putIfAbsent(50, "x"));
+        assertNull(map.putIfAbsent(55, "v55"));
+        assertEquals("v55", map.get(55));
+
+        assertEquals("v30", map.computeIfAbsent(30, key -> "x"));
+        assertEquals("k35", map.computeIfAbsent(35, key -> "k" + key));
+        assertNull(map.computeIfAbsent(36, key -> null));
+        assertFalse(map.containsKey(36));
+
+        assertEquals("v40!", map.computeIfPresent(40, (key, value) -> value + "!"));
+        assertNull(map.computeIfPresent(45, (key, value) -> "x"));
+        assertNull(map.computeIfPresent(40, (key, value) -> null));
+        assertFalse(map.containsKey(40));
+
+        assertEquals("new", map.compute(41, (key, value) -> value == null ? "new" : "old"));
+        assertNull(map.compute(50, (key, value) -> null));
+        assertFalse(map.containsKey(50));
+
+        assertEquals("v20+a", map.merge(20, "a", (a, b) -> a + "+" + b));
+        assertEquals("b", map.merge(21, "b", (a, b) -> a + "+" + b));
+        assertNull(map.merge(21, "c", (a, b) -> null));
+        assertFalse(map.containsKey(21));
+        assertThrows(NullPointerException.class, () -> map.merge(22, null, (a, b) -> a));
+
+        assertThrows(ConcurrentModificationException.class,
+                () -> map.computeIfAbsent(90, key -> map.put(91, "x")));
+        assertEquals(List.of(20, 30, 35, 41, 55, 60, 70, 80, 91), new ArrayList<>(map.keySet()));
+    }
+
+    @Test
+    @DisplayName("Remapping callbacks that change the structure should be detected")
+    void remappingCallbacksChangingStructureShouldThrow() {
+        BinarySearchTreeMap<Integer, Integer> tree = new BinarySearchTreeMap<>();
+        for (int key = 0; key < 16; key++) {
+            tree.put(key, key);
+        }
+        assertThrows(ConcurrentModificationException.class, () -> tree.computeIfPresent(15, (key, value) -> {
+            for (int i = 100; i < 200; i++) {
+                tree.put(i, i);
+            }
+            return null;
+        }));
+        assertThrows(ConcurrentModificationException.class,
+                () -> tree.compute(3, (key, value) -> tree.remove(4)));
+        assertThrows(ConcurrentModificationException.class,
+                () -> tree.merge(5, 1, (a, b) -> tree.put(300, 0)));
+        assertEquals(15, tree.get(15));
+        assertTrue(tree.height() <= 1.45 * (32 - Integer.numberOfLeadingZeros(tree.size() + 1)));
+
+        // Key views remove in one descent and report absent keys, even with null values.
+        tree.put(400, null);
+        assertTrue(tree.keySet().remove(400));
+        assertFalse(tree.keySet().remove(400));
+        assertFalse(tree.navigableKeySet().headSet(10, false).remove(12));
+        assertTrue(tree.navigableKeySet().descendingSet().headSet(10, false).remove(12));
+        assertFalse(tree.containsKey(12));
+    }
+
+    @Test
+    @DisplayName("Should order keys with a comparator")
+    void shouldOrderKeysWithComparator() {
+        BinarySearchTreeMap<String, Integer> byLength =
+                new BinarySearchTreeMap<>(Comparator.comparingInt(String::length).thenComparing(Comparator.reverseOrder()));
+        for (String key : List.of("pear", "fig", "banana", "kiwi", "apple")) {
+            byLength.merge(key, 1, Integer::sum);
+        }
+        byLength.merge("fig", 1, Integer::sum);
+        assertEquals(List.of("fig", "pear", "kiwi", "apple", "banana"), new ArrayList<>(byLength.keySet()));
+        assertEquals(Integer.valueOf(2), byLength.get("fig"));
+        assertEquals("kiwi", byLength.higherKey("pear"));
+        assertNotNull(byLength.comparator());
+    }
+
+    @Test
+    @DisplayName("Navigation and views should match TreeMap")
+    void navigationAndViewsShouldMatchTreeMap() {
+        TreeMap<Integer, String> expected = new TreeMap<>(map);
+        for (int key = 15; key <= 85; key += 5) {
+            assertEquals(expected.lowerEntry(key), map.lowerEntry(key));
+            assertEquals(expected.floorKey(key), map.floorKey(key));
+            assertEquals(expected.ceilingEntry(key), map.ceilingEntry(key));
+            assertEquals(expected.higherKey(key), map.higherKey(key));
+        }
+        assertEquals(expected.firstEntry(), map.firstEntry());
+        assertEquals(expected.lastKey(), map.lastKey());
+
+        NavigableMap<Integer, String> sub = map.subMap(30, true, 70, false);
+        assertEquals(expected.subMap(30, true, 70, false), sub);
+        assertEquals(4, sub.size());
+        assertEquals(List.of(60, 50, 40, 30), new ArrayList<>(sub.descendingMap().keySet()));
+        assertEquals(expected.descendingMap().headMap(50, true), map.descendingMap().headMap(50, true));
+        assertEquals(List.of(80, 70, 60), new ArrayList<>(map.descendingKeySet().headSet(50)));
+        assertThrows(IllegalArgumentException.class, () -> sub.put(70, "x"));
+
+        sub.put(35, "v35");
+        assertEquals("v35", map.get(35));
+        assertEquals(Map.entry(30, "v30"), sub.pollFirstEntry());
+        assertFalse(map.containsKey(30));
+        sub.entrySet().iterator().next().setValue("changed");
+        assertEquals("changed", map.get(35));
+    }
+
+    @Test
+    @DisplayName("Iterator remove should keep iterating after rotations")
+    void iteratorRemoveShouldKeepIterating() {
+        BinarySearchTreeMap<Integer, Integer> tree = new BinarySearchTreeMap<>();
+        for (int i = 0; i < 1_000; i++) {
+            tree.put(i, i);
+        }
+        Iterator<Map.Entry<Integer, Integer>> iterator = tree.entrySet().iterator();
+        int seen = 0;
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Integer> entry = iterator.next();
+            assertEquals(seen++, entry.getKey());
+            if (entry.getKey() % 3 != 0) {
+                iterator.remove();
+                assertEquals(entry.getKey(), entry.getValue());
+            }
+        }
+        assertEquals(1_000, seen);
+        assertEquals(334, tree.size());
+        tree.keySet().removeIf(key -> key >= 900);
+        assertEquals(Integer.valueOf(897), tree.lastKey());
+
+        Iterator<Integer> keys = tree.keySet().iterator();
+        keys.next();
+        tree.put(-1, -1);
+        assertThrows(ConcurrentModificationException.class, keys::next);
+    }
+}
@@ -1,15 +1,32 @@
 package escuelaing.edu.co;
 
 import org.junit.jupiter.api.*;
+import java.math.BigDecimal;
 import java.util.*;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
 
 class BinarySearchTreeTest {
     private BinarySearchTree<Integer> bst;
 
     @BeforeEach
     void setUp() {
-        bst = new BinarySearchTree<>();
+        bst = newTree(BinarySearchTree.Balancing.NONE);
+    }
+
+    /**
+     * Returns the node layout of the trees under test; subclasses run the suite on another.
+     */
+    BinarySearchTree.Storage storage() {
+        return BinarySearchTree.Storage.LINKED;
+    }
+
+    <T extends Comparable<T>> BinarySearchTree<T> newTree(BinarySearchTree.Balancing balancing) {
+        return newTree(balancing, false);
+    }
+
+    <T extends Comparable<T>> BinarySearchTree<T> newTree(BinarySearchTree.Balancing balancing, boolean multiset) {
+        return new BinarySearchTree<>(balancing, multiset, storage());
     }
 
     @Nested
@@ -173,6 +190,53 @@ class BinarySearchTreeTest {
             Integer[] expected = {20, 40, 30, 60, 80, 70, 50};
             assertArrayEquals(expected, result.toArray(new Integer[0]));
         }
+
+        @Test
+        @DisplayName("Visitors should receive node depths in every order")
+        void visitorsShouldReceiveNodeDepths() {
+            Map<Integer, Integer> expectedDepths = Map.of(50, 0, 30, 1, 70, 1, 20, 2, 40, 2, 60, 2, 80, 2);
+            List<Integer> visited = new ArrayList<>();
+            TreeVisitor<Integer> visitor = (value, depth) -> {
+                assertEquals(expectedDepths.get(value), depth, "depth of " + value);
+                return visited.add(value);
+            };
+
+            assertTrue(bst.inOrderTraversal(visitor));
+            assertTrue(bst.preOrderTraversal(visitor));
+            assertTrue(bst.postOrderTraversal(visitor));
+            assertTrue(bst.levelOrderTraversal(visitor));
+            assertEquals(28, visited.size());
+        }
+
+        @Test
+        @DisplayName("Visitors should stop the traversal early")
+        void visitorsShouldStopEarly() {
+            List<Integer> visited = new ArrayList<>();
+            TreeVisitor<Integer> untilForty = (value, depth) -> visited.add(value) && value != 40;
+
+            assertFalse(bst.inOrderTraversal(untilForty));
+            assertEquals(List.of(20, 30, 40), visited);
+            visited.clear();
+            assertFalse(bst.levelOrderTraversal(untilForty));
+            assertEquals(List.of(50, 30, 70, 20, 40), visited);
+            visited.clear();
+            assertFalse(bst.postOrderTraversal(untilForty));
+            assertEquals(List.of(20, 40), visited);
+        }
+
+        @Test
+        @DisplayName("Range traversal should visit only values in the range")
+        void rangeTraversalShouldVisitOnlyValuesInRange() {
+            List<Integer> result = new ArrayList<>();
+            bst.rangeTraversal(35, 70, result);
+            assertEquals(List.of(40, 50, 60, 70), result);
+
+            result.clear();
+            assertFalse(bst.rangeTraversal(20, 80, (value, depth) -> result.add(value) && value < 30));
+            assertEquals(List.of(20, 30), result);
+            assertTrue(bst.rangeTraversal(81, 90, (value, depth) -> fail("visited " + value)));
+            assertTrue(bst.rangeTraversal(70, 30, (value, depth) -> fail("visited " + value)));
+        }
     }
 
     @Nested
@@ -312,7 +376,7 @@ class BinarySearchTreeTest {
 
         @BeforeEach
         void setUp() {
-            stringBst = new BinarySearchTree<>();
+            stringBst = newTree(BinarySearchTree.Balancing.NONE);
         }
 
         @Test
@@ -361,7 +425,7 @@ class BinarySearchTreeTest {
 
         @BeforeEach
         void setUp() {
-            doubleBst = new BinarySearchTree<>();
+            doubleBst = newTree(BinarySearchTree.Balancing.NONE);
         }
 
         @Test
@@ -408,7 +472,7 @@ class BinarySearchTreeTest {
 
         @BeforeEach
         void setUp() {
-            intBst = new BinarySearchTree<>();
+            intBst = newTree(BinarySearchTree.Balancing.NONE);
         }
 
         @Test
@@ -438,7 +502,1207 @@ class BinarySearchTreeTest {
 
     }
 
+    @Nested
+    @DisplayName("AVL Balancing Tests")
+    class AvlBalancingTests {
+        private BinarySearchTree<Integer> avl;
+
+        @BeforeEach
+        void setUp() {
+            avl = newTree(BinarySearchTree.Balancing.AVL);
+        }
+
+        @Test
+        @DisplayName("Default tree should not rebalance")
+        void defaultTreeShouldNotRebalance() {
+            assertEquals(BinarySearchTree.Balancing.NONE, bst.getBalancing());
+            for (int i = 1; i <= 10; i++) {
+                bst.add(i);
+            }
+            assertEquals(10, bst.height());
+            assertFalse(bst.isBalanced());
+        }
+
+        @Test
+        @DisplayName("Sequential insertions should keep logarithmic height")
+        void sequentialInsertionsShouldKeepLogarithmicHeight() {
+            int n = 100_000;
+            for (int i = 0; i < n; i++) {
+                avl.add(i);
+            }
+
+            assertEquals(n, avl.size());
+            assertTrue(avl.isBalanced());
+            assertTrue(avl.height() <= 1.44 * (Math.log(n + 2) / Math.log(2)));
+            assertEquals(Integer.valueOf(n - 1), avl.search(n - 1));
+        }
+
+        @Test
+        @DisplayName("Double rotations should restore balance")
+        void doubleRotationsShouldRestoreBalance() {
+            avl.add(30);
+            avl.add(10);
+            avl.add(20);
+            assertEquals(Integer.valueOf(20), avl.getRoot());
+            assertEquals(2, avl.height());
+
+            avl.add(40);
+            avl.add(35);
+            assertEquals(3, avl.height());
+            assertTrue(avl.isBalanced());
+        }
+
+        @Test
+        @DisplayName("Deletions should keep the tree balanced")
+        void deletionsShouldKeepTheTreeBalanced() {
+            Random random = new Random(42);
+            Set<Integer> expected = new TreeSet<>();
+            for (int i = 0; i < 5_000; i++) {
+                int value = random.nextInt(2_000);
+                if (random.nextBoolean()) {
+                    assertEquals(expected.add(value), avl.add(value));
+                } else {
+                    assertEquals(expected.remove(value), avl.remove(value));
+                }
+                assertTrue(avl.isBalanced());
+            }
+
+            List<Integer> inOrder = new ArrayList<>();
+            avl.inOrderTraversal(inOrder);
+            assertEquals(new ArrayList<>(expected), inOrder);
+            assertEquals(expected.size(), avl.size());
+        }
+
+        @Test
+        @DisplayName("Null balancing or storage should be rejected")
+        void nullBalancingShouldBeRejected() {
+            assertThrows(NullPointerException.class, () -> new BinarySearchTree<Integer>(null));
+            assertThrows(NullPointerException.class,
+                    () -> new BinarySearchTree<Integer>(BinarySearchTree.Balancing.AVL, false, null));
+        }
+    }
+
+    @Nested
+    @DisplayName("Deep Tree Tests")
+    class DeepTreeTests {
+        private static final int DEPTH = 20_000;
+
+        @BeforeEach
+        void setUpDeepTree() {
+            for (int i = 0; i < DEPTH; i++) {
+                bst.add(i);
+            }
+        }
+
+        @Test
+        @DisplayName("Degenerate tree should not overflow the stack")
+        void degenerateTreeShouldNotOverflowTheStack() {
+            assertEquals(DEPTH, bst.height());
+            assertEquals(Integer.valueOf(DEPTH - 1), bst.search(DEPTH - 1));
+            assertTrue(bst.contains(0));
+            assertFalse(bst.contains(DEPTH));
+            assertFalse(bst.add(DEPTH / 2));
+            assertEquals(DEPTH, bst.getNumberOfNodes());
+            assertFalse(bst.isBalanced());
+        }
+
+        @Test
+        @DisplayName("Traversals of a degenerate tree should visit every node")
+        void traversalsOfDegenerateTreeShouldVisitEveryNode() {
+            List<Integer> inOrder = new ArrayList<>();
+            bst.inOrderTraversal(inOrder);
+            assertEquals(DEPTH, inOrder.size());
+            assertTrue(isSorted(inOrder));
+
+            List<Integer> preOrder = new ArrayList<>();
+            bst.preOrderTraversal(preOrder);
+            assertEquals(inOrder, preOrder);
+
+            List<Integer> postOrder = new ArrayList<>();
+            bst.postOrderTraversal(postOrder);
+            Collections.reverse(postOrder);
+            assertEquals(inOrder, postOrder);
+        }
+
+        @Test
+        @DisplayName("Deleting from a degenerate tree should not overflow the stack")
+        void deletingFromDegenerateTreeShouldNotOverflowTheStack() {
+            assertTrue(bst.remove(DEPTH - 1));
+            assertTrue(bst.remove(0));
+            assertFalse(bst.remove(DEPTH));
+            assertEquals(DEPTH - 2, bst.size());
+            assertEquals(Integer.valueOf(DEPTH - 2), bst.findMax());
+            assertEquals(Integer.valueOf(1), bst.findMin());
+        }
+    }
+
+    @Nested
+    @DisplayName("Iterator Tests")
+    class IteratorTests {
+        @BeforeEach
+        void setUpIteratorTests() {
+            int[] values = {50, 30, 70, 20, 40, 60, 80};
+            Arrays.stream(values).forEach(bst::add);
+        }
+
+        @Test
+        @DisplayName("Iterator remove should delete the last returned element")
+        void iteratorRemoveShouldDeleteLastReturnedElement() {
+            Iterator<Integer> iterator = bst.iterator();
+            List<Integer> seen = new ArrayList<>();
+            while (iterator.hasNext()) {
+                Integer value = iterator.next();
+                seen.add(value);
+                if (value % 20 != 0) {
+                    iterator.remove();
+                }
+            }
+
+            assertEquals(Arrays.asList(20, 30, 40, 50, 60, 70, 80), seen);
+            assertEquals(Arrays.asList(20, 40, 60, 80), new ArrayList<>(bst));
+            assertEquals(4, bst.size());
+        }
+
+        @Test
+        @DisplayName("Iterator remove should work on nodes with two children")
+        void iteratorRemoveShouldWorkOnNodesWithTwoChildren() {
+            Iterator<Integer> iterator = bst.iterator();
+            while (iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+            }
+            assertTrue(bst.isEmpty());
+        }
+
+        @Test
+        @DisplayName("Iterator remove without next should fail")
+        void iteratorRemoveWithoutNextShouldFail() {
+            Iterator<Integer> iterator = bst.iterator();
+            assertThrows(IllegalStateException.class, iterator::remove);
+            iterator.next();
+            iterator.remove();
+            assertThrows(IllegalStateException.class, iterator::remove);
+        }
+
+        @Test
+        @DisplayName("Iterator should fail fast on concurrent modification")
+        void iteratorShouldFailFastOnConcurrentModification() {
+            Iterator<Integer> iterator = bst.iterator();
+            iterator.next();
+            bst.add(10);
+            assertThrows(ConcurrentModificationException.class, iterator::next);
+        }
+
+        @Test
+        @DisplayName("Exhausted iterator should throw NoSuchElementException")
+        void exhaustedIteratorShouldThrow() {
+            Iterator<Integer> iterator = bst.iterator();
+            for (int i = 0; i < 7; i++) {
+                iterator.next();
+            }
+            assertFalse(iterator.hasNext());
+            assertThrows(NoSuchElementException.class, iterator::next);
+        }
+    }
+
+    @Nested
+    @DisplayName("Navigable Set Tests")
+    class NavigableSetTests {
+        private final TreeSet<Integer> expected = new TreeSet<>();
+
+        @BeforeEach
+        void setUpNavigableSetTests() {
+            for (int value = 10; value <= 200; value += 10) {
+                bst.add(value);
+                expected.add(value);
+            }
+        }
+
+        @Test
+        @DisplayName("Navigation methods should match TreeSet")
+        void navigationMethodsShouldMatchTreeSet() {
+            for (int probe = 0; probe <= 210; probe += 5) {
+                assertEquals(expected.floor(probe), bst.floor(probe));
+                assertEquals(expected.ceiling(probe), bst.ceiling(probe));
+                assertEquals(expected.higher(probe), bst.higher(probe));
+                assertEquals(expected.lower(probe), bst.lower(probe));
+            }
+            assertEquals(expected.first(), bst.first());
+            assertEquals(expected.last(), bst.last());
+        }
+
+        @Test
+        @DisplayName("Poll should remove the extremes")
+        void pollShouldRemoveTheExtremes() {
+            assertEquals(Integer.valueOf(10), bst.pollFirst());
+            assertEquals(Integer.valueOf(200), bst.pollLast());
+            assertEquals(18, bst.size());
+            assertFalse(bst.contains(10));
+            assertFalse(bst.contains(200));
+
+            bst.clear();
+            assertNull(bst.pollFirst());
+            assertNull(bst.pollLast());
+            assertThrows(NoSuchElementException.class, bst::first);
+        }
+
+        @Test
+        @DisplayName("Range views should match TreeSet views")
+        void rangeViewsShouldMatchTreeSetViews() {
+            assertIterableEquals(expected.subSet(35, true, 120, true), bst.subSet(35, true, 120, true));
+            assertIterableEquals(expected.subSet(40, false, 120, false), bst.subSet(40, false, 120, false));
+            assertIterableEquals(expected.headSet(50), bst.headSet(50));
+            assertIterableEquals(expected.tailSet(150, false), bst.tailSet(150, false));
+            assertIterableEquals(expected.descendingSet(), bst.descendingSet());
+            assertIterableEquals(expected.descendingSet().subSet(120, true, 40, false),
+                    bst.descendingSet().subSet(120, true, 40, false));
+            assertIterableEquals(expected.subSet(20, true, 150, false).descendingSet().headSet(100),
+                    bst.subSet(20, true, 150, false).descendingSet().headSet(100));
+            assertEquals(expected.subSet(35, 120).size(), bst.subSet(35, 120).size());
+        }
+
+        @Test
+        @DisplayName("Range view navigation should respect bounds")
+        void rangeViewNavigationShouldRespectBounds() {
+            NavigableSet<Integer> view = bst.subSet(50, true, 100, false);
+            NavigableSet<Integer> reference = expected.subSet(50, true, 100, false);
+            for (int probe = 0; probe <= 210; probe += 5) {
+                assertEquals(reference.floor(probe), view.floor(probe));
+                assertEquals(reference.ceiling(probe), view.ceiling(probe));
+                assertEquals(reference.higher(probe), view.higher(probe));
+                assertEquals(reference.lower(probe), view.lower(probe));
+                assertEquals(reference.contains(probe), view.contains(probe));
+            }
+            assertEquals(Integer.valueOf(50), view.first());
+            assertEquals(Integer.valueOf(90), view.last());
+            assertEquals(Integer.valueOf(90), view.descendingSet().first());
+        }
+
+        @Test
+        @DisplayName("Range views should be live")
+        void rangeViewsShouldBeLive() {
+            NavigableSet<Integer> view = bst.subSet(50, true, 100, true);
+            bst.add(55);
+            assertTrue(view.contains(55));
+
+            assertTrue(view.remove(60));
+            assertFalse(bst.contains(60));
+            assertFalse(view.remove(10));
+            assertTrue(bst.contains(10));
+
+            assertThrows(IllegalArgumentException.class, () -> view.add(150));
+            assertThrows(IllegalArgumentException.class, () -> view.subSet(40, 90));
+
+            assertEquals(Integer.valueOf(50), view.pollFirst());
+            assertEquals(Integer.valueOf(100), view.pollLast());
+            view.clear();
+            assertTrue(view.isEmpty());
+            assertEquals(Arrays.asList(10, 20, 30, 40, 110), new ArrayList<>(bst.headSet(120)));
+        }
+
+        @Test
+        @DisplayName("Tree should honour the Set equality contract")
+        void treeShouldHonourSetEqualityContract() {
+            assertEquals(expected, bst);
+            assertEquals(bst, expected);
+            assertEquals(expected.hashCode(), bst.hashCode());
+            bst.remove(10);
+            assertNotEquals(expected, bst);
+        }
+    }
+
+    @Nested
+    @DisplayName("Order Statistic Tests")
+    class OrderStatisticTests {
+        @BeforeEach
+        void setUpOrderStatisticTests() {
+            int[] values = {50, 30, 70, 20, 40, 60, 80};
+            Arrays.stream(values).forEach(bst::add);
+        }
+
+        @Test
+        @DisplayName("Select should return the k-th smallest value")
+        void selectShouldReturnKthSmallestValue() {
+            Integer[] sorted = {20, 30, 40, 50, 60, 70, 80};
+            for (int k = 0; k < sorted.length; k++) {
+                assertEquals(sorted[k], bst.select(k));
+            }
+            assertThrows(IndexOutOfBoundsException.class, () -> bst.select(-1));
+            assertThrows(IndexOutOfBoundsException.class, () -> bst.select(7));
+        }
+
+        @Test
+        @DisplayName("Rank should count the smaller values")
+        void rankShouldCountSmallerValues() {
+            assertEquals(0, bst.rank(10));
+            assertEquals(0, bst.rank(20));
+            assertEquals(3, bst.rank(50));
+            assertEquals(4, bst.rank(55));
+            assertEquals(7, bst.rank(90));
+        }
+
+        @Test
+        @DisplayName("Count in range should include both bounds")
+        void countInRangeShouldIncludeBothBounds() {
+            assertEquals(3, bst.countInRange(30, 50));
+            assertEquals(2, bst.countInRange(31, 50));
+            assertEquals(7, bst.countInRange(0, 100));
+            assertEquals(0, bst.countInRange(51, 59));
+            assertEquals(0, bst.countInRange(60, 30));
+        }
+
+        @Test
+        @DisplayName("Subtree sizes should survive rotations and deletions")
+        void subtreeSizesShouldSurviveRotationsAndDeletions() {
+            BinarySearchTree<Integer> avl = newTree(BinarySearchTree.Balancing.AVL);
+            TreeSet<Integer> expected = new TreeSet<>();
+            Random random = new Random(7);
+            for (int i = 0; i < 3_000; i++) {
+                int value = random.nextInt(1_000);
+                if (random.nextInt(3) == 0) {
+                    avl.remove(value);
+                    expected.remove(value);
+                } else {
+                    avl.add(value);
+                    expected.add(value);
+                }
+            }
+
+            assertEquals(expected.size(), avl.getNumberOfNodes());
+            List<Integer> sorted = new ArrayList<>(expected);
+            for (int k = 0; k < sorted.size(); k++) {
+                assertEquals(sorted.get(k), avl.select(k));
+                assertEquals(k, avl.rank(sorted.get(k)));
+            }
+            assertEquals(expected.subSet(100, true, 700, true).size(), avl.countInRange(100, 700));
+            assertEquals(expected.subSet(100, false, 700, false).size(), avl.subSet(100, false, 700, false).size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Bulk Load Tests")
+    class BulkLoadTests {
+        @Test
+        @DisplayName("Sorted input should build a perfectly balanced tree")
+        void sortedInputShouldBuildPerfectlyBalancedTree() {
+            List<Integer> values = new ArrayList<>();
+            for (int i = 0; i < 1_023; i++) {
+                values.add(i);
+            }
+
+            BinarySearchTree<Integer> tree = BinarySearchTree.of(values);
+
+            assertEquals(1_023, tree.size());
+            assertEquals(10, tree.height());
+            assertTrue(tree.isBalanced());
+            assertEquals(values, new ArrayList<>(tree));
+        }
+
+        @Test
+        @DisplayName("Unsorted input with duplicates should be sorted and deduplicated")
+        void unsortedInputShouldBeSortedAndDeduplicated() {
+            Integer[] values = {5, 3, 9, 3, 1, 9, 7};
+
+            BinarySearchTree<Integer> tree = BinarySearchTree.of(values, BinarySearchTree.Balancing.AVL);
+
+            assertEquals(Arrays.asList(1, 3, 5, 7, 9), new ArrayList<>(tree));
+            assertEquals(Integer.valueOf(5), values[0]);
+            assertEquals(BinarySearchTree.Balancing.AVL, tree.getBalancing());
+            assertTrue(tree.add(4));
+            assertTrue(tree.isBalanced());
+        }
+
+        @Test
+        @DisplayName("Sorted set input should be loaded without duplicates")
+        void sortedSetInputShouldBeLoaded() {
+            TreeSet<Integer> values = new TreeSet<>(Arrays.asList(40, 10, 30, 20));
+
+            BinarySearchTree<Integer> tree = BinarySearchTree.of(values);
+
+            assertEquals(values, tree);
+            assertEquals(3, tree.height());
+        }
+
+        @Test
+        @DisplayName("Large addAll should merge with the existing values")
+        void largeAddAllShouldMergeWithExistingValues() {
+            bst.add(15);
+            bst.add(5);
+            assertTrue(bst.addAll(Arrays.asList(30, 10, 20, 5, 25)));
+
+            assertEquals(Arrays.asList(5, 10, 15, 20, 25, 30), new ArrayList<>(bst));
+            assertEquals(6, bst.getNumberOfNodes());
+            assertTrue(bst.isBalanced());
+            assertFalse(bst.addAll(Arrays.asList(10, 20)));
+        }
+
+        @Test
+        @DisplayName("Bulk load should reject null values")
+        void bulkLoadShouldRejectNullValues() {
+            assertThrows(NullPointerException.class, () -> bst.addAll(Arrays.asList(1, null, 3)));
+        }
+    }
+
+    @Nested
+    @DisplayName("Snapshot Tests")
+    class SnapshotTests {
+        @BeforeEach
+        void setUpSnapshotTests() {
+            int[] values = {50, 30, 70, 20, 40, 60, 80};
+            Arrays.stream(values).forEach(bst::add);
+        }
+
+        @Test
+        @DisplayName("Snapshot should not see later updates")
+        void snapshotShouldNotSeeLaterUpdates() {
+            BinarySearchTree<Integer> snapshot = bst.snapshot();
+
+            bst.add(10);
+            bst.remove(50);
+            bst.remove(30);
+            bst.add(65);
+
+            assertEquals(Arrays.asList(20, 30, 40, 50, 60, 70, 80), new ArrayList<>(snapshot));
+            assertEquals(7, snapshot.size());
+            assertEquals(7, snapshot.getNumberOfNodes());
+            assertEquals(Integer.valueOf(50), snapshot.getRoot());
+            assertEquals(Arrays.asList(10, 20, 40, 60, 65, 70, 80), new ArrayList<>(bst));
+        }
+
+        @Test
+        @DisplayName("Snapshot should share untouched nodes with the live tree")
+        void snapshotShouldShareUntouchedNodes() {
+            assumeTrue(storage() == BinarySearchTree.Storage.LINKED, "array snapshots copy the arrays");
+            BinarySearchTree<Integer> snapshot = bst.snapshot();
+            assertSame(snapshot.getRootNode(), bst.getRootNode());
+
+            bst.add(85);
+
+            assertNotSame(snapshot.getRootNode(), bst.getRootNode());
+            assertSame(snapshot.getRootNode().getLeft(), bst.getRootNode().getLeft());
+        }
 
+        @Test
+        @DisplayName("Snapshots of an AVL tree should survive rotations")
+        void snapshotsOfAvlTreeShouldSurviveRotations() {
+            BinarySearchTree<Integer> avl = newTree(BinarySearchTree.Balancing.AVL);
+            List<BinarySearchTree<Integer>> snapshots = new ArrayList<>();
+            List<List<Integer>> contents = new ArrayList<>();
+            TreeSet<Integer> expected = new TreeSet<>();
+            Random random = new Random(5);
+            for (int i = 0; i < 2_000; i++) {
+                int value = random.nextInt(500);
+                if (random.nextInt(3) == 0) {
+                    avl.remove(value);
+                    expected.remove(value);
+                } else {
+                    avl.add(value);
+                    expected.add(value);
+                }
+                if (i % 100 == 0) {
+                    snapshots.add(avl.snapshot());
+                    contents.add(new ArrayList<>(expected));
+                }
+            }
+
+            assertEquals(new ArrayList<>(expected), new ArrayList<>(avl));
+            assertTrue(avl.isBalanced());
+            for (int i = 0; i < snapshots.size(); i++) {
+                assertEquals(contents.get(i), new ArrayList<>(snapshots.get(i)));
+                assertTrue(snapshots.get(i).isBalanced());
+            }
+        }
 
+        @Test
+        @DisplayName("Snapshot should be read-only")
+        void snapshotShouldBeReadOnly() {
+            BinarySearchTree<Integer> snapshot = bst.snapshot();
+
+            assertTrue(snapshot.isReadOnly());
+            assertSame(snapshot, snapshot.snapshot());
+            assertThrows(UnsupportedOperationException.class, () -> snapshot.add(1));
+            assertThrows(UnsupportedOperationException.class, () -> snapshot.remove(50));
+            assertThrows(UnsupportedOperationException.class, snapshot::clear);
+            assertThrows(UnsupportedOperationException.class, snapshot::pollFirst);
+            Iterator<Integer> iterator = snapshot.iterator();
+            iterator.next();
+            assertThrows(UnsupportedOperationException.class, iterator::remove);
+            assertEquals(Integer.valueOf(40), snapshot.floor(45));
+            assertEquals(3, snapshot.subSet(30, true, 50, true).size());
+        }
+    }
+
+    @Nested
+    @DisplayName("Spliterator Tests")
+    class SpliteratorTests {
+        @Test
+        @DisplayName("Spliterator should report sorted distinct sized characteristics")
+        void spliteratorShouldReportCharacteristics() {
+            Arrays.asList(50, 30, 70).forEach(bst::add);
+            Spliterator<Integer> spliterator = bst.spliterator();
+
+            assertTrue(spliterator.hasCharacteristics(Spliterator.SORTED));
+            assertTrue(spliterator.hasCharacteristics(Spliterator.DISTINCT));
+            assertTrue(spliterator.hasCharacteristics(Spliterator.ORDERED));
+            assertTrue(spliterator.hasCharacteristics(Spliterator.NONNULL));
+            assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED));
+            assertNull(spliterator.getComparator());
+            assertEquals(3, spliterator.getExactSizeIfKnown());
+        }
+
+        @Test
+        @DisplayName("Splits should partition the elements in order with exact sizes")
+        void splitsShouldPartitionElementsInOrder() {
+            BinarySearchTree<Integer> tree = newTree(BinarySearchTree.Balancing.AVL);
+            for (int i = 0; i < 1_000; i++) {
+                tree.add(i);
+            }
+
+            List<Integer> collected = new ArrayList<>();
+            Deque<Spliterator<Integer>> pending = new ArrayDeque<>();
+            pending.push(tree.spliterator());
+            while (!pending.isEmpty()) {
+                Spliterator<Integer> current = pending.pop();
+                long expectedSize = current.estimateSize();
+                Spliterator<Integer> prefix = current.estimateSize() > 16 ? current.trySplit() : null;
+                if (prefix != null) {
+                    assertEquals(expectedSize, prefix.estimateSize() + current.estimateSize());
+                    assertTrue(prefix.estimateSize() > 0 && current.estimateSize() > 0);
+                    pending.push(current);
+                    pending.push(prefix);
+                } else {
+                    List<Integer> chunk = new ArrayList<>();
+                    current.forEachRemaining(chunk::add);
+                    assertEquals(expectedSize, chunk.size());
+                    collected.addAll(chunk);
+                }
+            }
+
+            List<Integer> expected = new ArrayList<>(tree);
+            assertEquals(expected, collected);
+        }
+
+        @Test
+        @DisplayName("First split of a balanced tree should be roughly even")
+        void firstSplitShouldBeRoughlyEven() {
+            BinarySearchTree<Integer> tree = newTree(BinarySearchTree.Balancing.AVL);
+            for (int i = 0; i < 10_000; i++) {
+                tree.add(i);
+            }
+            Spliterator<Integer> suffix = tree.spliterator();
+            Spliterator<Integer> prefix = suffix.trySplit();
+
+            assertTrue(prefix.estimateSize() > 2_500);
+            assertTrue(suffix.estimateSize() > 2_500);
+            assertTrue(prefix.tryAdvance(value -> assertEquals(Integer.valueOf(0), value)));
+        }
+
+        @Test
+        @DisplayName("Parallel streams should see every element once")
+        void parallelStreamsShouldSeeEveryElementOnce() {
+            BinarySearchTree<Integer> tree = newTree(BinarySearchTree.Balancing.AVL);
+            for (int i = 1; i <= 100_000; i++) {
+                tree.add(i);
+            }
+
+            assertEquals(5_000_050_000L, tree.parallelStream().mapToLong(Integer::longValue).sum());
+            assertEquals(new ArrayList<>(tree), tree.parallelStream().collect(java.util.stream.Collectors.toList()));
+        }
+
+        @Test
+        @DisplayName("Spliterator should fail fast on concurrent modification")
+        void spliteratorShouldFailFast() {
+            Arrays.asList(50, 30, 70).forEach(bst::add);
+            Spliterator<Integer> spliterator = bst.spliterator();
+            bst.add(10);
+            assertThrows(ConcurrentModificationException.class, () -> spliterator.tryAdvance(value -> { }));
+        }
+    }
+
+    @Nested
+    @DisplayName("Set Algebra Tests")
+    class SetAlgebraTests {
+        private BinarySearchTree<Integer> randomTree(Random random, int count, int bound, TreeSet<Integer> expected) {
+            BinarySearchTree<Integer> tree = newTree(BinarySearchTree.Balancing.AVL);
+            for (int i = 0; i < count; i++) {
+                int value = random.nextInt(bound);
+                tree.add(value);
+                expected.add(value);
+            }
+            return tree;
+        }
+
+        private void assertTree(TreeSet<Integer> expected, BinarySearchTree<Integer> tree) {
+            assertEquals(new ArrayList<>(expected), new ArrayList<>(tree));
+            assertEquals(expected.size(), tree.size());
+            assertEquals(expected.size(), tree.getNumberOfNodes());
+            assertTrue(tree.isBalanced());
+            int k = 0;
+            for (Integer value : expected) {
+                assertEquals(value, tree.select(k++));
+            }
+        }
+
+        @Test
+        @DisplayName("Union, intersection and difference should match TreeSet")
+        void setOperationsShouldMatchTreeSet() {
+            Random random = new Random(17);
+            for (int round = 0; round < 20; round++) {
+                int count = 1 + random.nextInt(2_000);
+                TreeSet<Integer> expectedMine = new TreeSet<>();
+                TreeSet<Integer> expectedTheirs = new TreeSet<>();
+                BinarySearchTree<Integer> mine = randomTree(random, count, 5_000, expectedMine);
+                BinarySearchTree<Integer> theirs = randomTree(random, random.nextInt(count), 5_000, expectedTheirs);
+
+                BinarySearchTree<Integer> union = BinarySearchTree.of(mine, BinarySearchTree.Balancing.AVL);
+                TreeSet<Integer> expectedUnion = new TreeSet<>(expectedMine);
+                assertEquals(expectedUnion.addAll(expectedTheirs), union.union(theirs));
+                assertTree(expectedUnion, union);
+
+                BinarySearchTree<Integer> intersection = BinarySearchTree.of(mine, BinarySearchTree.Balancing.AVL);
+                TreeSet<Integer> expectedIntersection = new TreeSet<>(expectedMine);
+                assertEquals(expectedIntersection.retainAll(expectedTheirs), intersection.intersection(theirs));
+                assertTree(expectedIntersection, intersection);
+
+                TreeSet<Integer> expectedDifference = new TreeSet<>(expectedMine);
+                assertEquals(expectedDifference.removeAll(expectedTheirs), mine.difference(theirs));
+                assertTree(expectedDifference, mine);
+                assertTree(expectedTheirs, theirs);
+            }
+        }
+
+        @Test
+        @DisplayName("Shared nodes should not leak updates between trees")
+        void sharedNodesShouldNotLeakUpdates() {
+            BinarySearchTree<Integer> mine = newTree(BinarySearchTree.Balancing.AVL);
+            BinarySearchTree<Integer> theirs = newTree(BinarySearchTree.Balancing.AVL);
+            for (int i = 0; i < 1_000; i++) {
+                theirs.add(i);
+            }
+            mine.add(-1);
+            mine.union(theirs);
+
+            for (int i = 0; i < 1_000; i += 2) {
+                theirs.remove(i);
+                mine.add(i + 10_000);
+            }
+            assertEquals(500, theirs.size());
+            assertEquals(1_501, mine.size());
+            assertTrue(mine.contains(0));
+            assertFalse(theirs.contains(10_000));
+            assertTrue(mine.isBalanced());
+            assertTrue(theirs.isBalanced());
+        }
+
+        @Test
+        @DisplayName("Split and join should partition and reassemble the tree")
+        void splitAndJoinShouldRoundTrip() {
+            BinarySearchTree<Integer> tree = newTree(BinarySearchTree.Balancing.AVL);
+            for (int i = 0; i < 1_000; i++) {
+                tree.add(i * 2);
+            }
+            BinarySearchTree<Integer> upper = tree.split(700);
+            assertEquals(350, tree.size());
+            assertEquals(Integer.valueOf(698), tree.last());
+            assertEquals(650, upper.size());
+            assertEquals(Integer.valueOf(700), upper.first());
+            assertTrue(tree.isBalanced());
+            assertTrue(upper.isBalanced());
+
+            BinarySearchTree<Integer> odd = upper.split(701);
+            assertEquals(1, upper.size());
+            assertEquals(Integer.valueOf(702), odd.first());
+
+            tree.add(699);
+            assertThrows(IllegalArgumentException.class, () -> odd.join(tree));
+            tree.remove(699);
+            tree.join(upper);
+            tree.join(odd);
+            upper.add(-5);
+            assertEquals(1_000, tree.size());
+            assertEquals(Integer.valueOf(1_998), tree.select(999));
+            assertTrue(tree.isBalanced());
+            assertFalse(tree.contains(-5));
+            assertEquals(2, upper.size());
+        }
+
+        @Test
+        @DisplayName("RemoveRange should remove an inclusive range")
+        void removeRangeShouldRemoveInclusiveRange() {
+            BinarySearchTree<Integer> tree = newTree(BinarySearchTree.Balancing.AVL);
+            for (int i = 0; i < 100; i++) {
+                tree.add(i);
+            }
+            assertEquals(41, tree.removeRange(30, 70));
+            assertEquals(0, tree.removeRange(30, 70));
+            assertEquals(0, tree.removeRange(80, 10));
+            assertEquals(59, tree.size());
+            assertEquals(Integer.valueOf(29), tree.lower(71));
+            assertEquals(Integer.valueOf(71), tree.select(30));
+            assertTrue(tree.isBalanced());
+        }
+
+        @Test
+        @DisplayName("Split and removeRange should rebuild a degenerate unbalanced tree")
+        void splitAndRemoveRangeShouldReshapeDegenerateTree() {
+            BinarySearchTree<Integer> chain = newTree(BinarySearchTree.Balancing.NONE);
+            for (int i = 0; i < 200; i++) {
+                chain.add(i);
+            }
+            assertEquals(200, chain.height());
+
+            List<Integer> lowerHalf = new ArrayList<>();
+            List<Integer> upperHalf = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                (i < 100 ? lowerHalf : upperHalf).add(i);
+            }
+            BinarySearchTree<Integer> upper = chain.split(100);
+            assertEquals(lowerHalf, new ArrayList<>(chain));
+            assertEquals(upperHalf, new ArrayList<>(upper));
+            assertEquals(BinarySearchTree.Balancing.NONE, upper.getBalancing());
+            assertTrue(chain.isBalanced());
+            assertTrue(upper.isBalanced());
+            assertTrue(chain.height() <= 8, "height " + chain.height());
+            assertTrue(upper.height() <= 8, "height " + upper.height());
+
+            // Later inserts follow the unbalanced mode again.
+            for (int i = 200; i < 210; i++) {
+                upper.add(i);
+            }
+            assertFalse(upper.isBalanced());
+
+            BinarySearchTree<Integer> other = newTree(BinarySearchTree.Balancing.NONE);
+            for (int i = 0; i < 200; i++) {
+                other.add(i);
+            }
+            assertEquals(100, other.removeRange(50, 149));
+            List<Integer> expected = new ArrayList<>(lowerHalf.subList(0, 50));
+            expected.addAll(upperHalf.subList(50, 100));
+            assertEquals(expected, new ArrayList<>(other));
+            assertTrue(other.isBalanced());
+            assertTrue(other.height() <= 8, "height " + other.height());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i), other.select(i));
+            }
+        }
 
+        @Test
+        @DisplayName("Collection methods should accept sorted sets and plain collections")
+        void collectionMethodsShouldAcceptAnyCollection() {
+            int[] values = {50, 30, 70, 20, 40, 60, 80};
+            Arrays.stream(values).forEach(bst::add);
+
+            assertTrue(bst.containsAll(new TreeSet<>(Arrays.asList(20, 50, 80))));
+            assertFalse(bst.containsAll(new TreeSet<>(Arrays.asList(20, 55))));
+            assertTrue(bst.containsAll(BinarySearchTree.of(Arrays.asList(30, 40))));
+
+            assertTrue(bst.addAll(new TreeSet<>(Arrays.asList(10, 20, 90))));
+            assertTrue(bst.removeAll(BinarySearchTree.of(Arrays.asList(10, 30, 35))));
+            assertTrue(bst.retainAll(Arrays.asList(20, 40, 60, 90, 100)));
+            assertEquals(Arrays.asList(20, 40, 60, 90), new ArrayList<>(bst));
+            assertFalse(bst.retainAll(new TreeSet<>(Arrays.asList(20, 40, 60, 90))));
+            assertTrue(bst.retainAll(new TreeSet<>(Arrays.asList(40, 90))));
+            assertEquals(Arrays.asList(40, 90), new ArrayList<>(bst));
+            assertThrows(UnsupportedOperationException.class,
+                    () -> bst.snapshot().union(new TreeSet<>(Arrays.asList(1))));
+        }
+
+        @Test
+        @DisplayName("Collection methods should match values by ordering, not by equals")
+        void collectionMethodsShouldMatchByOrdering() {
+            // 1.0 and 1.00 compare equal but are not equal.
+            BinarySearchTree<BigDecimal> decimals = newTree(BinarySearchTree.Balancing.AVL);
+            for (String value : Arrays.asList("1.0", "2.0", "3.0")) {
+                decimals.add(new BigDecimal(value));
+            }
+            assertTrue(decimals.retainAll(Arrays.asList(new BigDecimal("1.00"), null, new BigDecimal("3.000"))));
+            assertEquals(Arrays.asList(new BigDecimal("1.0"), new BigDecimal("3.0")), new ArrayList<>(decimals));
+            assertFalse(decimals.retainAll(Arrays.asList(new BigDecimal("1"), new BigDecimal("3"))));
+
+            for (int i = 0; i < 1_000; i++) {
+                bst.add(2 * i);
+            }
+            TreeSet<Integer> evens = new TreeSet<>();
+            for (int i = 0; i < 1_000; i += 3) {
+                evens.add(2 * i);
+            }
+            assertTrue(bst.containsAll(evens));
+            evens.add(1_999);
+            assertFalse(bst.containsAll(evens));
+            assertFalse(bst.containsAll(new TreeSet<>(Arrays.asList(-1, 0, 2))));
+            assertTrue(bst.containsAll(new TreeSet<>(Arrays.asList(0, 1_998))));
+        }
+    }
+
+    @Nested
+    @DisplayName("Structural Statistics Tests")
+    class StatsTests {
+        private void assertStatsMatchWalk(BinarySearchTree<Integer> tree) {
+            long[] pathLength = {0};
+            int[] unbalanced = {0};
+            tree.preOrderTraversal((value, depth) -> {
+                pathLength[0] += depth;
+                return true;
+            });
+            Deque<BinarySearchTree.Node<Integer>> pending = new ArrayDeque<>();
+            if (tree.getRootNode() != null) {
+                pending.push(tree.getRootNode());
+            }
+            while (!pending.isEmpty()) {
+                BinarySearchTree.Node<Integer> node = pending.pop();
+                int left = node.getLeft() == null ? 0 : node.getLeft().getHeight();
+                int right = node.getRight() == null ? 0 : node.getRight().getHeight();
+                if (Math.abs(left - right) > 1) {
+                    unbalanced[0]++;
+                }
+                if (node.getLeft() != null) {
+                    pending.push(node.getLeft());
+                }
+                if (node.getRight() != null) {
+                    pending.push(node.getRight());
+                }
+            }
+
+            TreeStats stats = tree.stats();
+            assertEquals(tree.size(), stats.getSize());
+            assertEquals(tree.height(), stats.getHeight());
+            assertEquals(pathLength[0], stats.getInternalPathLength());
+            assertEquals(unbalanced[0], stats.getUnbalancedNodes());
+            assertEquals(unbalanced[0] == 0, tree.isBalanced());
+        }
+
+        @Test
+        @DisplayName("Statistics should follow inserts and deletes")
+        void statsShouldFollowInsertsAndDeletes() {
+            Random random = new Random(21);
+            for (BinarySearchTree.Balancing balancing : BinarySearchTree.Balancing.values()) {
+                BinarySearchTree<Integer> tree = newTree(balancing);
+                for (int i = 0; i < 3_000; i++) {
+                    int value = random.nextInt(1_000);
+                    if (random.nextInt(3) == 0) {
+                        tree.remove(value);
+                    } else {
+                        tree.add(value);
+                    }
+                    if (i % 100 == 0) {
+                        assertStatsMatchWalk(tree);
+                    }
+                }
+                assertStatsMatchWalk(tree);
+                assertStatsMatchWalk(tree.split(500));
+                assertStatsMatchWalk(tree);
+            }
+        }
+
+        @Test
+        @DisplayName("Statistics should describe degenerate and balanced trees")
+        void statsShouldDescribeTreeShape() {
+            assertEquals(0, bst.stats().getInternalPathLength());
+            assertTrue(bst.stats().isBalanced());
+
+            for (int i = 0; i < 7; i++) {
+                bst.add(i);
+            }
+            TreeStats chain = bst.stats();
+            assertEquals(21, chain.getInternalPathLength());
+            assertEquals(3.0, chain.getAverageDepth());
+            assertEquals(5, chain.getUnbalancedNodes());
+            assertFalse(chain.isBalanced());
+
+            BinarySearchTree<Integer> balanced = BinarySearchTree.of(Arrays.asList(0, 1, 2, 3, 4, 5, 6));
+            TreeStats stats = balanced.stats();
+            assertEquals(10, stats.getInternalPathLength());
+            assertEquals(stats.getOptimalAverageDepth(), stats.getAverageDepth());
+            assertTrue(stats.isBalanced());
+        }
+    }
+
+    @Nested
+    @DisplayName("Splay Balancing Tests")
+    class SplayTests {
+        private BinarySearchTree<Integer> splay;
+
+        @BeforeEach
+        void setUp() {
+            splay = newTree(BinarySearchTree.Balancing.SPLAY);
+        }
+
+        @Test
+        @DisplayName("Should match TreeSet under random operations")
+        void shouldMatchTreeSetUnderRandomOperations() {
+            TreeSet<Integer> expected = new TreeSet<>();
+            Random random = new Random(22);
+            for (int i = 0; i < 20_000; i++) {
+                int value = random.nextInt(1_000);
+                switch (random.nextInt(3)) {
+                    case 0:
+                        assertEquals(expected.remove(value), splay.remove(value));
+                        break;
+                    case 1:
+                        assertEquals(expected.add(value), splay.add(value));
+                        break;
+                    default:
+                        assertEquals(expected.contains(value), splay.contains(value));
+                }
+            }
+            assertEquals(new ArrayList<>(expected), new ArrayList<>(splay));
+            assertEquals(expected.size(), splay.getNumberOfNodes());
+            int k = 0;
+            for (Integer value : expected) {
+                assertEquals(value, splay.select(k++));
+            }
+        }
+
+        @Test
+        @DisplayName("Repeated searches should lift a value towards the root")
+        void repeatedSearchesShouldLiftValue() {
+            for (int i = 0; i < 1_024; i++) {
+                splay.add(i);
+            }
+            int depthBefore = depthOf(splay, 0);
+            splay.search(0);
+            int depthAfterOne = depthOf(splay, 0);
+            assertTrue(depthAfterOne <= depthBefore / 2 + 1, depthBefore + " -> " + depthAfterOne);
+            for (int i = 0; i < 20; i++) {
+                splay.search(0);
+            }
+            // Values are only lifted while they sit deeper than log2(n).
+            assertTrue(depthOf(splay, 0) < 10, "depth " + depthOf(splay, 0));
+            List<Integer> shape = splay.levelOrderTraversal();
+            splay.search(0);
+            assertEquals(shape, splay.levelOrderTraversal());
+            assertTrue(splay.height() < 1_024);
+            assertEquals(Integer.valueOf(0), splay.first());
+        }
+
+        private int depthOf(BinarySearchTree<Integer> tree, int value) {
+            int[] found = {-1};
+            tree.preOrderTraversal((current, depth) -> {
+                if (current == value) {
+                    found[0] = depth;
+                    return false;
+                }
+                return true;
+            });
+            return found[0];
+        }
+
+        @Test
+        @DisplayName("Searches should not break iterators and should leave snapshots untouched")
+        void searchesShouldKeepIteratorsAndSnapshots() {
+            for (int i = 0; i < 100; i++) {
+                splay.add(i);
+            }
+            BinarySearchTree<Integer> snapshot = splay.snapshot();
+            List<Integer> shape = snapshot.levelOrderTraversal();
+
+            List<Integer> seen = new ArrayList<>();
+            for (Integer value : splay) {
+                // Each lookup rotates the nodes the iterator has yet to visit.
+                assertTrue(splay.contains(99 - value));
+                assertEquals(value, splay.search(value));
+                seen.add(value);
+            }
+            assertEquals(new ArrayList<>(splay), seen);
+            assertEquals(100, seen.size());
+
+            List<Integer> descending = new ArrayList<>();
+            for (Iterator<Integer> it = splay.subSet(20, true, 80, false).descendingIterator(); it.hasNext(); ) {
+                Integer value = it.next();
+                splay.contains(value / 2);
+                if (value % 2 == 0) {
+                    it.remove();
+                }
+                descending.add(value);
+            }
+            assertEquals(60, descending.size());
+            assertEquals(Integer.valueOf(79), descending.get(0));
+            assertEquals(70, splay.size());
+            assertEquals(70L, splay.stream().filter(value -> splay.contains(value)).count());
+
+            Iterator<Integer> iterator = splay.iterator();
+            iterator.next();
+            splay.add(1_000);
+            assertThrows(ConcurrentModificationException.class, iterator::next);
+
+            assertEquals(Integer.valueOf(7), snapshot.search(7));
+            assertEquals(shape, snapshot.levelOrderTraversal());
+            assertEquals(BinarySearchTree.Balancing.SPLAY, snapshot.getBalancing());
+        }
+
+        @Test
+        @DisplayName("Only nodes at depth log2(n) or deeper should be splayed")
+        void splayShouldSkipShallowNodes() {
+            int n = 4_096;
+            int cutoff = 12;
+            // Sorted insertions leave a tall tree, which the lookups have to pay for.
+            for (int i = 0; i < n; i++) {
+                splay.add(i);
+            }
+            assertTrue(splay.height() > 4 * cutoff, "height " + splay.height());
+
+            List<Integer> shape = splay.levelOrderTraversal();
+            List<Integer> shallow = new ArrayList<>();
+            List<Integer> deep = new ArrayList<>();
+            splay.preOrderTraversal((value, depth) -> {
+                (depth < cutoff ? shallow : deep).add(value);
+                return true;
+            });
+            for (int value : shallow) {
+                assertTrue(splay.contains(value));
+            }
+            assertEquals(shape, splay.levelOrderTraversal());
+
+            int target = deep.get(deep.size() - 1);
+            int before = depthOf(splay, target);
+            splay.contains(target);
+            assertNotEquals(shape, splay.levelOrderTraversal());
+            assertTrue(depthOf(splay, target) <= before / 2 + 1, before + " -> " + depthOf(splay, target));
+
+            TreeMetrics metrics = splay.enableMetrics();
+            for (int round = 0; round < 3; round++) {
+                for (int i = 0; i < n; i++) {
+                    assertTrue(splay.contains(i));
+                }
+            }
+            double mean = metrics.snapshot().getMeanComparisons(TreeMetrics.Operation.SEARCH);
+            assertTrue(mean < 2 * cutoff, "mean comparisons " + mean);
+        }
+
+        @Test
+        @DisplayName("Primitive engines should reject splay balancing")
+        void primitiveEnginesShouldRejectSplay() {
+            assertThrows(IllegalArgumentException.class,
+                    () -> new IntBinarySearchTree(BinarySearchTree.Balancing.SPLAY));
+            assertThrows(IllegalArgumentException.class,
+                    () -> new LongBinarySearchTree(BinarySearchTree.Balancing.SPLAY));
+        }
+    }
+
+    @Nested
+    @DisplayName("Multiset Tests")
+    class MultisetTests {
+        private List<Integer> expand(TreeMap<Integer, Integer> counts) {
+            List<Integer> values = new ArrayList<>();
+            counts.forEach((value, count) -> values.addAll(Collections.nCopies(count, value)));
+            return values;
+        }
+
+        @Test
+        @DisplayName("Should match a map of counts under random operations")
+        void shouldMatchCountsUnderRandomOperations() {
+            for (BinarySearchTree.Balancing balancing : BinarySearchTree.Balancing.values()) {
+                BinarySearchTree<Integer> multiset = newTree(balancing, true);
+                TreeMap<Integer, Integer> expected = new TreeMap<>();
+                Random random = new Random(23);
+                for (int i = 0; i < 20_000; i++) {
+                    int value = random.nextInt(300);
+                    int previous = expected.getOrDefault(value, 0);
+                    int occurrences = random.nextInt(4);
+                    switch (random.nextInt(5)) {
+                        case 0:
+                            assertEquals(previous > 0, multiset.remove(value));
+                            expected.computeIfPresent(value, (k, c) -> c == 1 ? null : c - 1);
+                            break;
+                        case 1:
+                            assertTrue(multiset.add(value));
+                            expected.merge(value, 1, Integer::sum);
+                            break;
+                        case 2:
+                            assertEquals(previous, multiset.addOccurrences(value, occurrences));
+                            if (occurrences > 0) {
+                                expected.merge(value, occurrences, Integer::sum);
+                            }
+                            break;
+                        case 3:
+                            assertEquals(previous, multiset.removeOccurrences(value, occurrences));
+                            if (previous > 0) {
+                                int left = Math.max(previous - occurrences, 0);
+                                expected.compute(value, (k, c) -> left == 0 ? null : left);
+                            }
+                            break;
+                        default:
+                            assertEquals(previous, multiset.count(value));
+                    }
+                }
+                List<Integer> values = expand(expected);
+                assertEquals(values, new ArrayList<>(multiset), balancing.name());
+                assertEquals(values, Arrays.asList(multiset.toArray()));
+                assertEquals(values.size(), multiset.size());
+                assertEquals(values.size(), multiset.stream().count());
+                assertEquals(values.stream().mapToLong(Integer::longValue).sum(),
+                        multiset.parallelStream().mapToLong(Integer::longValue).sum());
+                assertEquals(expected.size(), multiset.getNumberOfNodes());
+                assertEquals(expected.firstKey(), multiset.select(0));
+            }
+        }
+
+        @Test
+        @DisplayName("Iterator remove should drop one occurrence at a time")
+        void iteratorRemoveShouldDropOneOccurrence() {
+            BinarySearchTree<Integer> multiset = newTree(BinarySearchTree.Balancing.AVL, true);
+            for (int value = 0; value < 50; value++) {
+                multiset.addOccurrences(value, value % 4 + 1);
+            }
+            List<Integer> kept = new ArrayList<>();
+            Iterator<Integer> iterator = multiset.iterator();
+            int position = 0;
+            while (iterator.hasNext()) {
+                Integer value = iterator.next();
+                if (position++ % 3 == 0) {
+                    iterator.remove();
+                } else {
+                    kept.add(value);
+                }
+            }
+            assertEquals(kept, new ArrayList<>(multiset));
+            assertTrue(multiset.removeAll(List.of(1, 2)));
+            assertEquals(0, multiset.count(1));
+            assertTrue(multiset.retainAll(Set.of(3, 7)));
+            assertEquals(Set.of(3, 7), new HashSet<>(multiset));
+        }
+
+        @Test
+        @DisplayName("Views, split and removeRange should count occurrences")
+        void viewsAndRangesShouldCountOccurrences() {
+            BinarySearchTree<Integer> multiset = newTree(BinarySearchTree.Balancing.AVL, true);
+            for (int value = 0; value < 100; value++) {
+                multiset.addOccurrences(value, 3);
+            }
+            assertEquals(300, multiset.size());
+            assertEquals(30, multiset.subSet(10, true, 19, true).size());
+            assertEquals(27, multiset.headSet(9).size());
+            assertEquals(30, multiset.removeRange(90, 99));
+
+            BinarySearchTree<Integer> upper = multiset.split(50);
+            assertTrue(upper.isMultiset());
+            assertEquals(120, upper.size());
+            assertEquals(3, upper.count(50));
+            upper.add(50);
+            multiset.join(upper);
+            assertEquals(271, multiset.size());
+            assertEquals(4, multiset.count(50));
+            assertEquals(3, multiset.snapshot().count(10));
+        }
+
+        @Test
+        @DisplayName("Set-only operations should be rejected")
+        void setOnlyOperationsShouldBeRejected() {
+            BinarySearchTree<Integer> multiset = newTree(BinarySearchTree.Balancing.AVL, true);
+            multiset.addOccurrences(1, 2);
+            BinarySearchTree<Integer> set = newTree(BinarySearchTree.Balancing.AVL);
+            set.add(1);
+            assertThrows(UnsupportedOperationException.class, () -> multiset.union(set));
+            assertThrows(UnsupportedOperationException.class, () -> set.addOccurrences(1, 2));
+            assertThrows(IllegalArgumentException.class, () -> multiset.addOccurrences(1, -1));
+            assertThrows(IllegalArgumentException.class, () -> multiset.addOccurrences(1, Integer.MAX_VALUE));
+            assertEquals(2, multiset.count(1));
+            assertNotEquals(set, multiset);
+
+            // A set keeps rejecting duplicates, even when fed from a multiset.
+            assertFalse(set.addAll(multiset));
+            assertEquals(1, set.size());
+            assertEquals(1, set.count(1));
+        }
+    }
 }
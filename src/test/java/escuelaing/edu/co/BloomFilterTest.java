@@ -0,0 +1,154 @@
+package escuelaing.edu.co;
+
+import org.junit.jupiter.api.*;
+import java.math.BigDecimal;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class BloomFilterTest {
+    private BinarySearchTree<Integer> bst;
+    private BloomFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        bst = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        for (int i = 0; i < 10_000; i++) {
+            bst.add(2 * i);
+        }
+        filter = bst.enableBloomFilter(0.01);
+    }
+
+    @Test
+    @DisplayName("Filter should be disabled by default")
+    void filterShouldBeDisabledByDefault() {
+        assertNull(new BinarySearchTree<Integer>().getBloomFilter());
+        assertSame(filter, bst.enableBloomFilter(0.5));
+        bst.disableBloomFilter();
+        assertNull(bst.getBloomFilter());
+        assertThrows(IllegalArgumentException.class, () -> bst.enableBloomFilter(1.0));
+    }
+
+    @Test
+    @DisplayName("Filter should reject most misses without descending")
+    void filterShouldRejectMostMisses() {
+        TreeMetrics metrics = bst.enableMetrics();
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(bst.contains(2 * i));
+            assertFalse(bst.contains(2 * i + 1));
+        }
+        assertEquals(20_000, filter.getLookups());
+        assertTrue(filter.getRejectedLookups() > 9_500, filter.toString());
+        assertEquals(10_000 - filter.getRejectedLookups(), filter.getFalsePositives());
+        assertTrue(filter.getObservedFalsePositiveRate() < 0.05, filter.toString());
+        assertEquals(filter.getExpectedFalsePositiveRate(), filter.getObservedFalsePositiveRate(), 0.02);
+        // About 9.6 bits per value at 1%, rounded up to a power-of-two number of words.
+        assertTrue(filter.getMemoryBytes() * 8 < 20L * filter.getCapacity(), filter.toString());
+        assertEquals(filter.getRejectedLookups(), metrics.snapshot().getSearchDepthHistogram()[0]);
+    }
+
+    @Test
+    @DisplayName("Filter should follow insertions, removals and bulk updates")
+    void filterShouldFollowUpdates() {
+        Random random = new Random(24);
+        TreeSet<Integer> expected = new TreeSet<>(bst);
+        for (int i = 0; i < 50_000; i++) {
+            int value = random.nextInt(60_000);
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.remove(value), bst.remove(value));
+                    break;
+                case 1:
+                    assertEquals(expected.add(value), bst.add(value));
+                    break;
+                default:
+                    assertEquals(expected.contains(value), bst.contains(value));
+            }
+        }
+        assertTrue(filter.getRebuilds() > 1);
+
+        List<Integer> added = List.of(100_001, 100_003, 100_005);
+        bst.addAll(added);
+        bst.union(new TreeSet<>(List.of(100_007)));
+        BinarySearchTree<Integer> greater = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        greater.add(200_000);
+        bst.join(greater);
+        bst.removeRange(0, 1_000);
+        for (int value : List.of(100_001, 100_003, 100_005, 100_007, 200_000)) {
+            assertTrue(bst.contains(value), "lost " + value);
+        }
+        assertFalse(bst.contains(500));
+
+        bst.clear();
+        assertFalse(bst.contains(100_001));
+        bst.add(7);
+        assertTrue(bst.contains(7));
+    }
+
+    @Test
+    @DisplayName("Multiset counts should go through the filter")
+    void multisetCountsShouldUseFilter() {
+        BinarySearchTree<Integer> multiset = new BinarySearchTree<>(BinarySearchTree.Balancing.SPLAY, true);
+        BloomFilter multisetFilter = multiset.enableBloomFilter(0.01);
+        multiset.addOccurrences(5, 3);
+        assertEquals(3, multiset.count(5));
+        assertEquals(0, multiset.count(6));
+        multiset.removeOccurrences(5, 2);
+        assertEquals(1, multiset.count(5));
+        assertEquals(3, multisetFilter.getLookups());
+    }
+
+    @Test
+    @DisplayName("Bulk additions should only encode the values inserted")
+    void bulkAdditionsShouldEncodeInsertedValuesOnly() {
+        int encoded = filter.getEncoded();
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            values.add(i);
+        }
+        // Half of these are already present.
+        assertTrue(bst.addAll(values));
+        assertEquals(encoded + 10_000, filter.getEncoded());
+        assertTrue(bst.union(new TreeSet<>(List.of(1, 2, 30_001))));
+        assertEquals(encoded + 10_001, filter.getEncoded());
+    }
+
+    @Test
+    @DisplayName("Filter should use a hash consistent with the ordering")
+    void filterShouldUseHashConsistentWithOrdering() {
+        // 1.0 and 1.00 compare equal but have different hash codes.
+        BinarySearchTree<BigDecimal> decimals = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        decimals.add(new BigDecimal("1.0"));
+        assertThrows(IllegalArgumentException.class, () -> decimals.enableBloomFilter(0.01));
+        assertNull(decimals.getBloomFilter());
+        decimals.enableBloomFilter(0.01, value -> value.stripTrailingZeros().hashCode());
+        assertTrue(decimals.contains(new BigDecimal("1.00")));
+        assertFalse(decimals.add(new BigDecimal("1.000")));
+
+        // Comparable without hashCode: equal keys are distinct objects.
+        BinarySearchTree<Key> keys = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        keys.enableBloomFilter(0.01, key -> key.id);
+        for (int i = 0; i < 1_000; i++) {
+            keys.add(new Key(i));
+        }
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(keys.contains(new Key(i)));
+        }
+        BinarySearchTree<Key> unchecked = new BinarySearchTree<>();
+        unchecked.enableBloomFilter(0.01);
+        assertThrows(IllegalArgumentException.class, () -> unchecked.add(new Key(1)));
+        assertTrue(unchecked.isEmpty());
+    }
+
+    private static final class Key implements Comparable<Key> {
+        private final int id;
+
+        Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(Key other) {
+            return Integer.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package escuelaing.edu.co;
+
+import org.junit.jupiter.api.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentBinarySearchTreeTest {
+    private ConcurrentBinarySearchTree<Integer> tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new ConcurrentBinarySearchTree<>();
+    }
+
+    @Test
+    @DisplayName("Should behave like a collection on a single thread")
+    void shouldBehaveLikeCollectionOnSingleThread() {
+        assertTrue(tree.addAll(Arrays.asList(50, 30, 70, 20, 40)));
+        assertFalse(tree.add(30));
+        assertEquals(5, tree.size());
+        assertEquals(Integer.valueOf(40), tree.search(40));
+        assertNull(tree.search(45));
+        assertTrue(tree.contains(20));
+        assertTrue(tree.remove(30));
+        assertEquals(Integer.valueOf(20), tree.findMin());
+        assertEquals(Integer.valueOf(70), tree.findMax());
+        assertEquals(Arrays.asList(20, 40, 50, 70), new ArrayList<>(tree));
+
+        Iterator<Integer> iterator = tree.iterator();
+        iterator.next();
+        iterator.remove();
+        assertFalse(tree.contains(20));
+
+        tree.clear();
+        assertTrue(tree.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Stripes should split as the tree grows and merge as it shrinks")
+    void stripesShouldSplitAndMerge() {
+        ConcurrentBinarySearchTree<Integer> striped = new ConcurrentBinarySearchTree<>(8);
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            int key = (i * 37) % 200;
+            assertTrue(striped.add(key));
+            expected.add(key);
+        }
+        Collections.sort(expected);
+        assertTrue(striped.stripeCount() >= 200 / 8, "stripes: " + striped.stripeCount());
+        assertEquals(expected, new ArrayList<>(striped));
+        assertEquals(200, striped.size());
+        assertEquals(Integer.valueOf(0), striped.findMin());
+        assertEquals(Integer.valueOf(199), striped.findMax());
+        for (int key : expected) {
+            assertEquals(Integer.valueOf(key), striped.search(key));
+        }
+
+        for (int i = 0; i < 195; i++) {
+            assertTrue(striped.remove(i));
+        }
+        assertTrue(striped.stripeCount() <= 2, "stripes: " + striped.stripeCount());
+        assertEquals(Arrays.asList(195, 196, 197, 198, 199), new ArrayList<>(striped));
+        assertEquals(Integer.valueOf(195), striped.findMin());
+        assertNull(striped.search(100));
+
+        striped.clear();
+        assertEquals(1, striped.stripeCount());
+        assertTrue(striped.isEmpty());
+        assertNull(striped.findMin());
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrentBinarySearchTree<Integer>(3));
+    }
+
+    @Test
+    @DisplayName("Snapshot should join the stripes into one balanced read-only tree")
+    void snapshotShouldJoinStripes() {
+        ConcurrentBinarySearchTree<Integer> striped = new ConcurrentBinarySearchTree<>(8);
+        for (int i = 0; i < 100; i++) {
+            striped.add(i);
+        }
+        BinarySearchTree<Integer> snapshot = striped.snapshot();
+        striped.remove(50);
+        striped.add(1_000);
+
+        assertEquals(100, snapshot.size());
+        assertTrue(snapshot.contains(50));
+        assertFalse(snapshot.contains(1_000));
+        assertTrue(snapshot.isBalanced());
+        assertEquals(Integer.valueOf(50), snapshot.select(50));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.add(200));
+        assertTrue(striped.isBalanced());
+        assertEquals(100, striped.snapshot().size());
+    }
+
+    @Test
+    @DisplayName("Concurrent readers and writers should keep the tree consistent")
+    void concurrentReadersAndWritersShouldKeepTreeConsistent() throws Exception {
+        readAndWriteConcurrently(tree);
+    }
+
+    @Test
+    @DisplayName("Concurrent writers should keep the tree consistent while stripes split and merge")
+    void concurrentWritersShouldSurviveSplitsAndMerges() throws Exception {
+        ConcurrentBinarySearchTree<Integer> striped = new ConcurrentBinarySearchTree<>(16);
+        readAndWriteConcurrently(striped);
+        assertTrue(striped.stripeCount() > 1);
+    }
+
+    private static void readAndWriteConcurrently(ConcurrentBinarySearchTree<Integer> tree) throws Exception {
+        int writers = 4;
+        int readers = 4;
+        int operations = 20_000;
+        int stableKeys = 1_000;
+
+        // Even keys are never removed, so readers must always find them.
+        for (int i = 0; i < stableKeys; i++) {
+            tree.add(i * 2);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(writers + readers);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger missedStableKeys = new AtomicInteger();
+        List<Future<Set<Integer>>> writerResults = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            int id = w;
+            writerResults.add(executor.submit(() -> {
+                Set<Integer> owned = new HashSet<>();
+                Random random = new Random(id);
+                start.await();
+                for (int i = 0; i < operations; i++) {
+                    // Odd keys, partitioned between writers.
+                    int key = (random.nextInt(500) * writers + id) * 2 + 1;
+                    if (random.nextBoolean()) {
+                        assertEquals(owned.add(key), tree.add(key));
+                    } else {
+                        assertEquals(owned.remove(key), tree.remove(key));
+                    }
+                }
+                return owned;
+            }));
+        }
+
+        List<Future<?>> readerResults = new ArrayList<>();
+        for (int r = 0; r < readers; r++) {
+            int id = r;
+            readerResults.add(executor.submit(() -> {
+                Random random = new Random(100 + id);
+                start.await();
+                for (int i = 0; i < operations * 2; i++) {
+                    int key = random.nextInt(stableKeys) * 2;
+                    if (!tree.contains(key)) {
+                        missedStableKeys.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        start.countDown();
+        Set<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < stableKeys; i++) {
+            expected.add(i * 2);
+        }
+        for (Future<Set<Integer>> result : writerResults) {
+            expected.addAll(result.get(60, TimeUnit.SECONDS));
+        }
+        for (Future<?> result : readerResults) {
+            result.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        assertEquals(0, missedStableKeys.get());
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(tree));
+        assertEquals(expected.size(), tree.size());
+        assertTrue(tree.isBalanced());
+    }
+}
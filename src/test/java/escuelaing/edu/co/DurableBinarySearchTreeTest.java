@@ -0,0 +1,197 @@
+package escuelaing.edu.co;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import static org.junit.jupiter.api.Assertions.*;
+
+class DurableBinarySearchTreeTest {
+    @TempDir
+    Path directory;
+
+    private List<String> files() throws IOException {
+        try (var stream = Files.list(directory)) {
+            return stream.map(path -> path.getFileName().toString()).sorted().collect(Collectors.toList());
+        }
+    }
+
+    @Test
+    @DisplayName("Logged updates should be replayed on open")
+    void loggedUpdatesShouldBeReplayed() throws IOException {
+        DurableBinarySearchTree<Integer> tree = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER);
+        Arrays.asList(50, 30, 70, 20, 40).forEach(tree::add);
+        assertFalse(tree.add(30));
+        assertTrue(tree.remove(30));
+        assertFalse(tree.remove(30));
+        tree.close();
+        assertThrows(IllegalStateException.class, () -> tree.add(1));
+
+        try (DurableBinarySearchTree<Integer> reopened = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER)) {
+            assertEquals(Arrays.asList(20, 40, 50, 70), new ArrayList<>(reopened));
+            reopened.clear();
+            reopened.add(1);
+        }
+        try (DurableBinarySearchTree<Integer> reopened = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER)) {
+            assertEquals(Collections.singletonList(1), new ArrayList<>(reopened));
+        }
+    }
+
+    @Test
+    @DisplayName("Checkpoint should replace the log and recovery should replay only the tail")
+    void checkpointShouldReplaceLog() throws IOException {
+        try (DurableBinarySearchTree<String> tree = DurableBinarySearchTree.open(directory, KeyCodec.STRING)) {
+            tree.addAll(Arrays.asList("banana", "apple", "cherry"));
+            tree.checkpoint();
+            assertEquals(Arrays.asList("checkpoint-1.bin", "wal-1.log"), files());
+            tree.remove("apple");
+            tree.add("date");
+        }
+        try (DurableBinarySearchTree<String> tree = DurableBinarySearchTree.open(directory, KeyCodec.STRING)) {
+            assertEquals(Arrays.asList("banana", "cherry", "date"), new ArrayList<>(tree));
+            assertEquals(Arrays.asList("apple", "banana", "cherry"),
+                    new ArrayList<>(MappedBinarySearchTree.open(directory.resolve("checkpoint-1.bin"), KeyCodec.STRING)));
+        }
+    }
+
+    @Test
+    @DisplayName("Automatic checkpoints should bound the log")
+    void automaticCheckpointsShouldBoundLog() throws IOException {
+        try (DurableBinarySearchTree<Integer> tree = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER,
+                DurableBinarySearchTree.Durability.GROUP, 16, 100)) {
+            for (int i = 0; i < 1_000; i++) {
+                tree.add(i);
+            }
+            assertEquals(1_000, tree.size());
+        }
+        // Checkpoints run in the background, so how many ran depends on scheduling; only the
+        // newest one and the log after it survive.
+        List<String> files = files();
+        assertEquals(2, files.size(), files.toString());
+        assertTrue(files.get(0).matches("checkpoint-[1-9][0-9]*\\.bin"), files.toString());
+        assertEquals(files.get(0).replace("checkpoint-", "wal-").replace(".bin", ".log"), files.get(1));
+        try (DurableBinarySearchTree<Integer> tree = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER)) {
+            assertEquals(1_000, tree.size());
+            assertEquals(Integer.valueOf(999), tree.findMax());
+        }
+    }
+
+    @Test
+    @DisplayName("Automatic checkpoints should be written by a background thread")
+    void automaticCheckpointsShouldRunInBackground() throws Exception {
+        Set<Thread> encoders = ConcurrentHashMap.newKeySet();
+        KeyCodec<Integer> recording = new KeyCodec<Integer>() {
+            @Override
+            public int width() {
+                return KeyCodec.INTEGER.width();
+            }
+
+            @Override
+            public int encodedLength(Integer value) {
+                return KeyCodec.INTEGER.encodedLength(value);
+            }
+
+            @Override
+            public void encode(Integer value, java.nio.ByteBuffer out) {
+                encoders.add(Thread.currentThread());
+                KeyCodec.INTEGER.encode(value, out);
+            }
+
+            @Override
+            public Integer decode(java.nio.ByteBuffer in, int offset, int length) {
+                return KeyCodec.INTEGER.decode(in, offset, length);
+            }
+        };
+        try (DurableBinarySearchTree<Integer> tree = DurableBinarySearchTree.open(directory, recording,
+                DurableBinarySearchTree.Durability.GROUP, 16, 10)) {
+            for (int i = 0; i < 10; i++) {
+                tree.add(i);
+            }
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (files().stream().noneMatch(name -> name.startsWith("checkpoint-")) && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+        }
+        assertTrue(files().contains("checkpoint-1.bin"), files().toString());
+        encoders.remove(Thread.currentThread());
+        assertEquals(1, encoders.size(), encoders.toString());
+        assertTrue(encoders.iterator().next().isDaemon());
+    }
+
+    @Test
+    @DisplayName("Group commit should force bulk updates that skip past a multiple of the group size")
+    void groupCommitShouldCountBulkRecords() throws IOException {
+        Path log = directory.resolve("wal-0.log");
+        try (DurableBinarySearchTree<Integer> tree = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER,
+                DurableBinarySearchTree.Durability.GROUP, 16, 1_000)) {
+            for (int i = 0; i < 10; i++) {
+                tree.add(i);
+            }
+            assertEquals(0, Files.size(log));
+            // Records 11 to 20 are appended at once; none of them is a multiple of 16.
+            List<Integer> values = new ArrayList<>();
+            for (int i = 10; i < 20; i++) {
+                values.add(i);
+            }
+            tree.addAll(values);
+            long forced = Files.size(log);
+            assertTrue(forced > 0);
+            tree.add(20);
+            assertEquals(forced, Files.size(log));
+        }
+    }
+
+    @Test
+    @DisplayName("A torn record at the end of the log should be discarded")
+    void tornRecordShouldBeDiscarded() throws IOException {
+        try (DurableBinarySearchTree<Integer> tree = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER)) {
+            tree.add(1);
+            tree.add(2);
+        }
+        Path log = directory.resolve("wal-0.log");
+        long length = Files.size(log);
+        Files.write(log, new byte[] {1, 0, 0, 0, 4, 0, 0}, StandardOpenOption.APPEND);
+
+        try (DurableBinarySearchTree<Integer> tree = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER)) {
+            assertEquals(Arrays.asList(1, 2), new ArrayList<>(tree));
+            assertEquals(length, Files.size(log));
+            tree.add(3);
+        }
+        try (DurableBinarySearchTree<Integer> tree = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER)) {
+            assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(tree));
+        }
+    }
+
+    @Test
+    @DisplayName("Concurrent writers should all be durable")
+    void concurrentWritersShouldAllBeDurable() throws Exception {
+        int threads = 8;
+        int perThread = 200;
+        try (DurableBinarySearchTree<Integer> tree = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int offset = t * perThread;
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        tree.add(offset + i);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executor.shutdown();
+        }
+        try (DurableBinarySearchTree<Integer> tree = DurableBinarySearchTree.open(directory, KeyCodec.INTEGER)) {
+            assertEquals(threads * perThread, tree.size());
+            assertEquals(Integer.valueOf(0), tree.findMin());
+            assertEquals(Integer.valueOf(threads * perThread - 1), tree.findMax());
+        }
+    }
+}
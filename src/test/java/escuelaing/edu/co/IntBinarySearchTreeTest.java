@@ -0,0 +1,117 @@
+package escuelaing.edu.co;
+
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntBinarySearchTreeTest {
+    private IntBinarySearchTree tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new IntBinarySearchTree();
+        int[] values = {50, 30, 70, 20, 40, 60, 80};
+        Arrays.stream(values).forEach(tree::add);
+    }
+
+    @Test
+    @DisplayName("Should add, find and reject duplicates")
+    void shouldAddFindAndRejectDuplicates() {
+        assertEquals(7, tree.size());
+        assertTrue(tree.contains(40));
+        assertFalse(tree.contains(45));
+        assertFalse(tree.add(40));
+        assertEquals(7, tree.size());
+        assertEquals(OptionalInt.of(20), tree.findMin());
+        assertEquals(OptionalInt.of(80), tree.findMax());
+        assertEquals(OptionalInt.of(50), tree.getRoot());
+        assertEquals(OptionalInt.of(40), tree.search(40));
+        assertEquals(OptionalInt.empty(), tree.search(45));
+        assertEquals(7, tree.getNumberOfNodes());
+    }
+
+    @Test
+    @DisplayName("Traversals should match the generic tree")
+    void traversalsShouldMatchGenericTree() {
+        BinarySearchTree<Integer> generic = new BinarySearchTree<>();
+        Arrays.asList(50, 30, 70, 20, 40, 60, 80).forEach(generic::add);
+
+        List<Integer> expected = new ArrayList<>();
+        List<Integer> actual = new ArrayList<>();
+        generic.preOrderTraversal(expected);
+        tree.preOrderTraversal(actual::add);
+        assertEquals(expected, actual);
+
+        expected.clear();
+        actual.clear();
+        generic.postOrderTraversal(expected);
+        tree.postOrderTraversal(actual::add);
+        assertEquals(expected, actual);
+
+        assertArrayEquals(new int[]{20, 30, 40, 50, 60, 70, 80}, tree.toArray());
+        assertArrayEquals(generic.levelOrderTraversal().stream().mapToInt(Integer::intValue).toArray(),
+                tree.levelOrderTraversal());
+    }
+
+    @Test
+    @DisplayName("Should remove leaves, inner nodes and the root")
+    void shouldRemoveNodes() {
+        assertTrue(tree.remove(20));
+        assertTrue(tree.remove(30));
+        assertTrue(tree.remove(50));
+        assertFalse(tree.remove(50));
+        assertArrayEquals(new int[]{40, 60, 70, 80}, tree.toArray());
+        assertEquals(4, tree.size());
+    }
+
+    @Test
+    @DisplayName("AVL mode should match a TreeSet under random updates")
+    void avlModeShouldMatchTreeSet() {
+        IntBinarySearchTree avl = new IntBinarySearchTree(BinarySearchTree.Balancing.AVL);
+        TreeSet<Integer> expected = new TreeSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 5_000; i++) {
+            int value = random.nextInt(1_000) - 500;
+            if (random.nextBoolean()) {
+                assertEquals(expected.add(value), avl.add(value));
+            } else {
+                assertEquals(expected.remove(value), avl.remove(value));
+            }
+        }
+        assertTrue(avl.isBalanced());
+        assertArrayEquals(expected.stream().mapToInt(Integer::intValue).toArray(), avl.toArray());
+    }
+
+    @Test
+    @DisplayName("Iterator should yield sorted keys and support remove")
+    void iteratorShouldYieldSortedKeysAndSupportRemove() {
+        PrimitiveIterator.OfInt iterator = tree.iterator();
+        List<Integer> seen = new ArrayList<>();
+        while (iterator.hasNext()) {
+            int value = iterator.nextInt();
+            seen.add(value);
+            if (value == 30 || value == 50) {
+                iterator.remove();
+            }
+        }
+        assertEquals(Arrays.asList(20, 30, 40, 50, 60, 70, 80), seen);
+        assertArrayEquals(new int[]{20, 40, 60, 70, 80}, tree.toArray());
+
+        PrimitiveIterator.OfInt failing = tree.iterator();
+        tree.add(10);
+        assertThrows(ConcurrentModificationException.class, failing::nextInt);
+    }
+
+    @Test
+    @DisplayName("Empty tree should report no extremes")
+    void emptyTreeShouldReportNoExtremes() {
+        tree.clear();
+        assertTrue(tree.isEmpty());
+        assertEquals(0, tree.height());
+        assertEquals(OptionalInt.empty(), tree.findMin());
+        assertEquals(OptionalInt.empty(), tree.findMax());
+        assertEquals(OptionalInt.empty(), tree.getRoot());
+        assertEquals(0, tree.getNumberOfNodes());
+        assertEquals(0, tree.levelOrderTraversal().length);
+    }
+}
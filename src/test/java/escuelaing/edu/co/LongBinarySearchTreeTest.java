@@ -0,0 +1,75 @@
+package escuelaing.edu.co;
+
+import org.junit.jupiter.api.*;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongBinarySearchTreeTest {
+    private LongBinarySearchTree tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new LongBinarySearchTree(BinarySearchTree.Balancing.AVL);
+    }
+
+    @Test
+    @DisplayName("Should handle keys beyond the int range")
+    void shouldHandleKeysBeyondIntRange() {
+        long big = Integer.MAX_VALUE + 10L;
+        assertTrue(tree.add(big));
+        assertTrue(tree.add(-big));
+        assertTrue(tree.add(0L));
+        assertTrue(tree.contains(big));
+        assertFalse(tree.contains(big + 1));
+        assertEquals(-big, tree.findMin().getAsLong());
+        assertEquals(big, tree.findMax().getAsLong());
+        assertEquals(OptionalLong.of(big), tree.search(big));
+        assertFalse(tree.search(big + 1).isPresent());
+        assertEquals(3, tree.getNumberOfNodes());
+        assertArrayEquals(new long[]{-big, 0L, big}, tree.toArray());
+    }
+
+    @Test
+    @DisplayName("Sequential keys should keep the AVL tree shallow")
+    void sequentialKeysShouldKeepTreeShallow() {
+        for (long i = 0; i < 100_000; i++) {
+            tree.add(i);
+        }
+        assertTrue(tree.isBalanced());
+        assertTrue(tree.height() <= 1.44 * (Math.log(100_002) / Math.log(2)));
+
+        for (long i = 0; i < 100_000; i += 2) {
+            assertTrue(tree.remove(i));
+        }
+        assertEquals(50_000, tree.size());
+        assertTrue(tree.isBalanced());
+        assertEquals(1L, tree.findMin().getAsLong());
+    }
+
+    @Test
+    @DisplayName("Iterator should yield keys in ascending order")
+    void iteratorShouldYieldKeysInAscendingOrder() {
+        long[] values = {5L, 1L, 9L, 3L, 7L};
+        Arrays.stream(values).forEach(tree::add);
+
+        PrimitiveIterator.OfLong iterator = tree.iterator();
+        List<Long> seen = new ArrayList<>();
+        iterator.forEachRemaining((long value) -> seen.add(value));
+        assertEquals(Arrays.asList(1L, 3L, 5L, 7L, 9L), seen);
+
+        List<Long> levels = new ArrayList<>();
+        Arrays.stream(tree.levelOrderTraversal()).forEach(levels::add);
+        assertEquals(5, levels.size());
+        assertEquals(Long.valueOf(tree.getRoot().getAsLong()), levels.get(0));
+    }
+
+    @Test
+    @DisplayName("Empty tree should report empty optionals")
+    void emptyTreeShouldReportEmptyOptionals() {
+        assertEquals(OptionalLong.empty(), tree.findMin());
+        assertEquals(OptionalLong.empty(), tree.findMax());
+        assertEquals(OptionalLong.empty(), tree.getRoot());
+        assertEquals(OptionalLong.empty(), tree.search(0L));
+        assertEquals(0, tree.getNumberOfNodes());
+    }
+}
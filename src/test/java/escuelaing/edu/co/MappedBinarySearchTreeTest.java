@@ -0,0 +1,146 @@
+package escuelaing.edu.co;
+
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedBinarySearchTreeTest {
+    @TempDir
+    Path directory;
+
+    private BinarySearchTree<Integer> tree;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tree = new BinarySearchTree<>();
+        int[] values = {50, 30, 70, 20, 40, 60, 80};
+        Arrays.stream(values).forEach(tree::add);
+        file = directory.resolve("tree.bin");
+        tree.writeTo(file, KeyCodec.INTEGER);
+    }
+
+    @Test
+    @DisplayName("Fixed-width snapshot should hold only the header and the keys")
+    void fixedWidthSnapshotShouldBeCompact() throws IOException {
+        assertEquals(16 + 7 * Integer.BYTES, Files.size(file));
+    }
+
+    @Test
+    @DisplayName("Reload should rebuild a balanced tree with the same values")
+    void reloadShouldRebuildBalancedTree() throws IOException {
+        BinarySearchTree<Integer> degenerate = new BinarySearchTree<>();
+        for (int i = 0; i < 1_000; i++) {
+            degenerate.add(i);
+        }
+        degenerate.writeTo(file, KeyCodec.INTEGER);
+
+        BinarySearchTree<Integer> loaded = BinarySearchTree.readFrom(file, KeyCodec.INTEGER,
+                BinarySearchTree.Balancing.AVL);
+        assertEquals(degenerate, loaded);
+        assertEquals(BinarySearchTree.Balancing.AVL, loaded.getBalancing());
+        assertTrue(loaded.isBalanced());
+        assertEquals(10, loaded.height());
+        assertTrue(loaded.add(1_000));
+    }
+
+    @Test
+    @DisplayName("Mapped tree should answer lookups and range queries from the file")
+    void mappedTreeShouldAnswerQueries() throws IOException {
+        MappedBinarySearchTree<Integer> mapped = MappedBinarySearchTree.open(file, KeyCodec.INTEGER);
+        assertEquals(7, mapped.size());
+        assertEquals(Integer.valueOf(40), mapped.search(40));
+        assertNull(mapped.search(45));
+        assertTrue(mapped.contains(80));
+        assertFalse(mapped.contains(10));
+        assertEquals(Integer.valueOf(20), mapped.findMin());
+        assertEquals(Integer.valueOf(80), mapped.findMax());
+        assertEquals(Integer.valueOf(60), mapped.select(4));
+        assertEquals(3, mapped.rank(45));
+        assertEquals(4, mapped.countInRange(30, 60));
+        assertEquals(Arrays.asList(20, 30, 40, 50, 60, 70, 80), new ArrayList<>(mapped));
+
+        List<Integer> range = new ArrayList<>();
+        mapped.rangeTraversal(35, 70, range);
+        assertEquals(Arrays.asList(40, 50, 60, 70), range);
+        assertThrows(UnsupportedOperationException.class, () -> mapped.add(90));
+    }
+
+    @Test
+    @DisplayName("Variable-width keys should round trip through the offsets table")
+    void variableWidthKeysShouldRoundTrip() throws IOException {
+        TreeSet<String> expected = new TreeSet<>();
+        Random random = new Random(5);
+        for (int i = 0; i < 5_000; i++) {
+            expected.add(Integer.toString(random.nextInt(), 36) + "é".repeat(random.nextInt(3)));
+        }
+        BinarySearchTree<String> strings = BinarySearchTree.of(expected);
+        Path stringFile = directory.resolve("strings.bin");
+        strings.writeTo(stringFile, KeyCodec.STRING);
+
+        MappedBinarySearchTree<String> mapped = MappedBinarySearchTree.open(stringFile, KeyCodec.STRING);
+        assertEquals(new ArrayList<>(expected), new ArrayList<>(mapped));
+        for (String value : expected) {
+            assertEquals(value, mapped.search(value));
+        }
+        assertNull(mapped.search("not there"));
+        assertEquals(strings, BinarySearchTree.readFrom(stringFile, KeyCodec.STRING));
+    }
+
+    @Test
+    @DisplayName("Empty trees should round trip")
+    void emptyTreesShouldRoundTrip() throws IOException {
+        new BinarySearchTree<Long>().writeTo(file, KeyCodec.LONG);
+        MappedBinarySearchTree<Long> mapped = MappedBinarySearchTree.open(file, KeyCodec.LONG);
+        assertTrue(mapped.isEmpty());
+        assertNull(mapped.findMin());
+        assertNull(mapped.search(1L));
+        assertTrue(BinarySearchTree.readFrom(file, KeyCodec.LONG).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject foreign, truncated and mismatched files")
+    void shouldRejectInvalidFiles() throws IOException {
+        assertThrows(IOException.class, () -> MappedBinarySearchTree.open(file, KeyCodec.LONG));
+
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        assertThrows(IOException.class, () -> MappedBinarySearchTree.open(file, KeyCodec.INTEGER));
+
+        Files.write(file, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16});
+        assertThrows(IOException.class, () -> BinarySearchTree.readFrom(file, KeyCodec.INTEGER));
+    }
+
+    @Test
+    @DisplayName("Rewriting a mapped file should replace it without disturbing the mapping")
+    void rewriteShouldNotDisturbMappedReaders() throws IOException {
+        MappedBinarySearchTree<Integer> before = MappedBinarySearchTree.open(file, KeyCodec.INTEGER);
+        BinarySearchTree<Integer> larger = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        for (int i = 0; i < 10_000; i++) {
+            larger.add(i);
+        }
+        larger.writeTo(file, KeyCodec.INTEGER);
+
+        assertEquals(Arrays.asList(20, 30, 40, 50, 60, 70, 80), new ArrayList<>(before));
+        assertEquals(Integer.valueOf(40), before.search(40));
+        assertEquals(10_000, MappedBinarySearchTree.open(file, KeyCodec.INTEGER).size());
+        try (var files = Files.list(directory)) {
+            assertEquals(Collections.singletonList(file), files.collect(java.util.stream.Collectors.toList()));
+        }
+    }
+
+    @Test
+    @DisplayName("Reload should reject values that are out of order or repeated")
+    void reloadShouldRejectUnsortedValues() throws IOException {
+        MappedBinarySearchTree.write(file, Arrays.asList(1, 3, 2), KeyCodec.INTEGER);
+        assertThrows(IOException.class, () -> BinarySearchTree.readFrom(file, KeyCodec.INTEGER));
+        MappedBinarySearchTree.write(file, Arrays.asList(1, 2, 2), KeyCodec.INTEGER);
+        assertThrows(IOException.class, () -> BinarySearchTree.readFrom(file, KeyCodec.INTEGER));
+        MappedBinarySearchTree.write(file, Arrays.asList(1, 2, 3), KeyCodec.INTEGER);
+        assertEquals(Arrays.asList(1, 2, 3), new ArrayList<>(BinarySearchTree.readFrom(file, KeyCodec.INTEGER)));
+    }
+}
@@ -0,0 +1,133 @@
+package escuelaing.edu.co;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TreeMetricsTest {
+    private BinarySearchTree<Integer> bst;
+    private TreeMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        bst = new BinarySearchTree<>();
+        metrics = bst.enableMetrics();
+        int[] values = {50, 30, 70, 20, 40, 60, 80};
+        Arrays.stream(values).forEach(bst::add);
+    }
+
+    @Test
+    @DisplayName("Metrics should be disabled by default")
+    void metricsShouldBeDisabledByDefault() {
+        BinarySearchTree<Integer> tree = new BinarySearchTree<>();
+        assertNull(tree.getMetrics());
+        assertSame(metrics, bst.enableMetrics());
+        bst.disableMetrics();
+        assertNull(bst.getMetrics());
+    }
+
+    @Test
+    @DisplayName("Should count comparisons and depths of searches")
+    void shouldCountComparisonsAndDepthsOfSearches() {
+        bst.search(50);
+        bst.search(30);
+        bst.contains(80);
+        bst.contains(65);
+
+        TreeMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(4, snapshot.getCount(TreeMetrics.Operation.SEARCH));
+        assertEquals(3, snapshot.getHits(TreeMetrics.Operation.SEARCH));
+        assertEquals(1 + 2 + 3 + 3, snapshot.getComparisons(TreeMetrics.Operation.SEARCH));
+        long[] depths = snapshot.getSearchDepthHistogram();
+        assertEquals(1, depths[1]);
+        assertEquals(1, depths[2]);
+        assertEquals(2, depths[3]);
+        assertEquals(2.25, snapshot.getMeanSearchDepth(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Should count inserts and deletes")
+    void shouldCountInsertsAndDeletes() {
+        bst.add(50);
+        bst.remove(20);
+        bst.remove(25);
+
+        TreeMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(8, snapshot.getCount(TreeMetrics.Operation.INSERT));
+        assertEquals(7, snapshot.getHits(TreeMetrics.Operation.INSERT));
+        assertEquals(0 + 1 + 1 + 2 + 2 + 2 + 2 + 1, snapshot.getComparisons(TreeMetrics.Operation.INSERT));
+        assertEquals(2, snapshot.getCount(TreeMetrics.Operation.DELETE));
+        assertEquals(1, snapshot.getHits(TreeMetrics.Operation.DELETE));
+        assertEquals(3 + 2, snapshot.getComparisons(TreeMetrics.Operation.DELETE));
+        assertTrue(snapshot.getLatencyPercentile(TreeMetrics.Operation.INSERT, 0.5)
+                <= snapshot.getLatencyPercentile(TreeMetrics.Operation.INSERT, 1.0));
+    }
+
+    @Test
+    @DisplayName("Should count rotations, node copies and bulk loads")
+    void shouldCountStructuralChanges() {
+        BinarySearchTree<Integer> avl = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        TreeMetrics avlMetrics = avl.enableMetrics();
+        avl.add(1);
+        avl.add(2);
+        avl.add(3);
+        assertEquals(1, avlMetrics.snapshot().getRotations());
+
+        avl.snapshot();
+        avl.add(4);
+        assertEquals(2, avlMetrics.snapshot().getNodeCopies());
+
+        avl.addAll(Arrays.asList(10, 11, 12, 13));
+        assertEquals(1, avlMetrics.snapshot().getBulkLoads());
+    }
+
+    @Test
+    @DisplayName("Latency histogram buckets should bound their values")
+    void latencyHistogramBucketsShouldBoundTheirValues() {
+        long[] samples = {0, 1, 7, 8, 9, 15, 16, 100, 1_000, 123_456, 9_876_543_210L, Long.MAX_VALUE};
+        for (long sample : samples) {
+            int bucket = TreeMetrics.LatencyHistogram.bucketOf(sample);
+            long upper = TreeMetrics.LatencyHistogram.upperBoundOf(bucket);
+            assertTrue(upper >= sample);
+            assertTrue(upper - sample <= sample / 8, "bucket too wide for " + sample);
+        }
+    }
+
+    @Test
+    @DisplayName("Percentiles should be rejected outside [0, 1]")
+    void percentilesShouldBeRejectedOutsideRange() {
+        TreeMetrics.Snapshot snapshot = metrics.snapshot();
+        assertThrows(IllegalArgumentException.class,
+                () -> snapshot.getLatencyPercentile(TreeMetrics.Operation.SEARCH, 1.5));
+        assertEquals(0, snapshot.getLatencyPercentile(TreeMetrics.Operation.SEARCH, 0.99));
+    }
+
+    @Test
+    @DisplayName("Operations should be emitted as Flight Recorder events")
+    void operationsShouldBeEmittedAsFlightRecorderEvents() throws Exception {
+        Path file = Files.createTempFile("tree-metrics", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("escuelaing.edu.co.TreeOperation");
+            recording.start();
+            bst.search(40);
+            bst.add(45);
+            recording.stop();
+            recording.dump(file);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        Files.deleteIfExists(file);
+        List<String> operations = new ArrayList<>();
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("escuelaing.edu.co.TreeOperation")) {
+                operations.add(event.getString("operation"));
+            }
+        }
+        assertEquals(Arrays.asList("SEARCH", "INSERT"), operations);
+    }
+}
@@ -0,0 +1,127 @@
+package escuelaing.edu.co;
+
+import org.junit.jupiter.api.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TreeRendererTest {
+    private static final String EOL = System.lineSeparator();
+    private BinarySearchTree<Integer> tree;
+
+    @BeforeEach
+    void setUp() {
+        tree = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        int[] values = {50, 30, 70, 20, 40, 60, 80};
+        Arrays.stream(values).forEach(tree::add);
+    }
+
+    @Test
+    @DisplayName("Pyramid should center children below their parent")
+    void pyramidShouldCenterChildren() {
+        String expected = String.join(EOL,
+                "     50",
+                "    /  \\",
+                "  30    70",
+                "  / \\   / \\",
+                "20 40 60 80",
+                "");
+        assertEquals(expected, new TreeRenderer(TreeRenderer.Style.PYRAMID).render(tree));
+        assertEquals("", new TreeRenderer(TreeRenderer.Style.PYRAMID).render(new BinarySearchTree<Integer>()));
+    }
+
+    @Test
+    @DisplayName("Sideways format should elide subtrees below the depth limit")
+    void sidewaysShouldElideDeepSubtrees() {
+        String expected = String.join(EOL,
+                "    80",
+                "  70",
+                "    60",
+                "50",
+                "    40",
+                "  30",
+                "    20",
+                "");
+        assertEquals(expected, new TreeRenderer(TreeRenderer.Style.SIDEWAYS).render(tree));
+
+        String limited = String.join(EOL,
+                "  " + TreeRenderer.ELIDED + "(3)",
+                "50",
+                "  " + TreeRenderer.ELIDED + "(3)",
+                "");
+        assertEquals(limited, new TreeRenderer(TreeRenderer.Style.SIDEWAYS, 1, 80).render(tree));
+    }
+
+    @Test
+    @DisplayName("printTreePyramid should print every level unless limits are given")
+    void printTreePyramidShouldPrintWholeTreeByDefault() {
+        BinarySearchTree<Integer> deep = new BinarySearchTree<>(BinarySearchTree.Balancing.AVL);
+        for (int i = 1; i < 256; i++) {
+            deep.add(i);
+        }
+        assertTrue(deep.height() > TreeRenderer.DEFAULT_MAX_DEPTH);
+
+        String full = printed(deep::printTreePyramid);
+        assertFalse(full.contains(TreeRenderer.ELIDED), full);
+        for (int i = 1; i < 256; i++) {
+            assertTrue(full.matches("(?s).*(^|\\D)" + i + "(\\D|$).*"), "missing " + i);
+        }
+        assertEquals(full.trim(), printed(() -> deep.printTreePyramid(TreeRenderer.UNLIMITED, TreeRenderer.UNLIMITED)).trim());
+
+        String limited = printed(() -> deep.printTreePyramid(3, 80));
+        assertTrue(limited.contains(TreeRenderer.ELIDED), limited);
+        assertFalse(limited.contains("255"), limited);
+        assertThrows(IllegalArgumentException.class, () -> deep.printTreePyramid(3, 3));
+    }
+
+    private static String printed(Runnable print) {
+        PrintStream original = System.out;
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(buffer, true, StandardCharsets.UTF_8));
+        try {
+            print.run();
+        } finally {
+            System.setOut(original);
+        }
+        return buffer.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Rendering a degenerate tree should stay within the limits")
+    void degenerateTreeShouldStayWithinLimits() throws IOException {
+        BinarySearchTree<Integer> chain = new BinarySearchTree<>();
+        for (int i = 0; i < 5_000; i++) {
+            chain.add(i);
+        }
+        for (TreeRenderer.Style style : TreeRenderer.Style.values()) {
+            List<CharSequence> chunks = new ArrayList<>();
+            Appendable out = new Appendable() {
+                @Override
+                public Appendable append(CharSequence csq) {
+                    chunks.add(csq.toString());
+                    return this;
+                }
+
+                @Override
+                public Appendable append(CharSequence csq, int start, int end) {
+                    return append(csq.subSequence(start, end));
+                }
+
+                @Override
+                public Appendable append(char c) {
+                    return append(String.valueOf(c));
+                }
+            };
+            new TreeRenderer(style, 8, 40).render(chain, out);
+            assertTrue(chunks.size() <= 2 * 8 + 2, style + " wrote " + chunks.size() + " chunks");
+            for (CharSequence chunk : chunks) {
+                assertTrue(chunk.length() <= 40 + EOL.length(), style + " line: " + chunk);
+            }
+            assertTrue(String.join("", chunks).contains(TreeRenderer.ELIDED));
+        }
+        assertThrows(IllegalArgumentException.class, () -> new TreeRenderer(TreeRenderer.Style.PYRAMID, 0, 80));
+    }
+}